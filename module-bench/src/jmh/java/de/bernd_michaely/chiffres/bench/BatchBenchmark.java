@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.bench;
+
+import de.bernd_michaely.chiffres.calc.BatchCalculation;
+import de.bernd_michaely.chiffres.calc.BatchOptions;
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of solving a batch of mixed size fixture games, one calculation
+ * after the other with its own threads each compared to
+ * {@link Calculator#solveAll} with a shared pool.
+ *
+ * @author Bernd Michaely
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark
+{
+	private static final int NUM_GAMES = 60;
+
+	@Param(
+		{
+			"2", "4", "8"
+		})
+	private int numThreads;
+
+	private List<CalculationParams> games;
+
+	@Setup
+	public void setup()
+	{
+		this.games = new ArrayList<>();
+		for (int i = 0; i < NUM_GAMES; i++)
+		{
+			this.games.add(Fixtures.getGame(4 + i % 3));
+		}
+	}
+
+	@Benchmark
+	public int sequential()
+	{
+		int numSolutions = 0;
+		for (CalculationParams game : this.games)
+		{
+			final Calculator calculator = new Calculator(game);
+			calculator.setNumThreads(this.numThreads);
+			numSolutions += calculator.call().getSolutions().size();
+		}
+		return numSolutions;
+	}
+
+	@Benchmark
+	public int solveAll() throws InterruptedException
+	{
+		final BatchOptions options = new BatchOptions();
+		options.setNumThreads(this.numThreads);
+		int numSolutions = 0;
+		try (BatchCalculation batch = Calculator.solveAll(this.games, options))
+		{
+			while (batch.hasNext())
+			{
+				numSolutions += batch.take().getCalculationResult().getSolutions().size();
+			}
+		}
+		return numSolutions;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.bench;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the collection of solutions with and without sharing
+ * structurally identical operations, see
+ * {@link Calculator#setInterningOperations(boolean)}. The calculation is
+ * single threaded, so the difference between both variants is the cost of
+ * interning the operations while the solution candidates are deduplicated.
+ *
+ * @author Bernd Michaely
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectSolutionsBenchmark
+{
+	@Param(
+		{
+			"6", "7"
+		})
+	private int numOperands;
+
+	@Param(
+		{
+			"false", "true"
+		})
+	private boolean interningOperations;
+
+	private CalculationParams calculationParams;
+
+	@Setup
+	public void setup()
+	{
+		this.calculationParams = Fixtures.getGame(this.numOperands);
+	}
+
+	@Benchmark
+	public CalculationResult call()
+	{
+		final Calculator calculator = new Calculator(this.calculationParams);
+		calculator.setNumThreads(1);
+		calculator.setInterningOperations(this.interningOperations);
+		return calculator.call();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.bench;
+
+import de.bernd_michaely.chiffres.common.util.ConcatCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the basic operations of a {@link ConcatCollection}. The
+ * elements are split into a number of parts, like the partial results of the
+ * sub tasks of a calculation. An {@link ArrayList} serves as a baseline.
+ *
+ * @author Bernd Michaely
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcatCollectionBenchmark
+{
+	@Param(
+		{
+			"1000", "100000"
+		})
+	private int size;
+
+	@Param(
+		{
+			"1", "64"
+		})
+	private int numParts;
+
+	private Integer[] elements;
+	private List<ConcatCollection<Integer>> parts;
+	private List<List<Integer>> partsArrayList;
+	private ConcatCollection<Integer> concatenated;
+
+	@Setup
+	public void setup()
+	{
+		this.elements = new Integer[this.size];
+		for (int i = 0; i < this.size; i++)
+		{
+			this.elements[i] = i;
+		}
+		this.parts = new ArrayList<>(this.numParts);
+		this.partsArrayList = new ArrayList<>(this.numParts);
+		for (int p = 0; p < this.numParts; p++)
+		{
+			final ConcatCollection<Integer> part = new ConcatCollection<>();
+			final List<Integer> partArrayList = new ArrayList<>();
+			for (int i = p; i < this.size; i += this.numParts)
+			{
+				part.add(this.elements[i]);
+				partArrayList.add(this.elements[i]);
+			}
+			this.parts.add(part);
+			this.partsArrayList.add(partArrayList);
+		}
+		this.concatenated = concat();
+	}
+
+	@Benchmark
+	public ConcatCollection<Integer> add()
+	{
+		final ConcatCollection<Integer> collection = new ConcatCollection<>();
+		for (Integer element : this.elements)
+		{
+			collection.add(element);
+		}
+		return collection;
+	}
+
+	@Benchmark
+	public List<Integer> addArrayList()
+	{
+		final List<Integer> list = new ArrayList<>();
+		for (Integer element : this.elements)
+		{
+			list.add(element);
+		}
+		return list;
+	}
+
+	/**
+	 * Concatenates all parts into a new collection. Concatenating the same
+	 * parts repeatedly in the same order recreates the same node links, so the
+	 * parts can be reused across invocations without creating cycles.
+	 *
+	 * @return the concatenated collection
+	 */
+	@Benchmark
+	public ConcatCollection<Integer> concat()
+	{
+		final ConcatCollection<Integer> collection = new ConcatCollection<>();
+		for (ConcatCollection<Integer> part : this.parts)
+		{
+			collection.concat(part);
+		}
+		return collection;
+	}
+
+	@Benchmark
+	public List<Integer> concatArrayList()
+	{
+		final List<Integer> list = new ArrayList<>();
+		for (List<Integer> part : this.partsArrayList)
+		{
+			list.addAll(part);
+		}
+		return list;
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole)
+	{
+		final Iterator<Integer> iterator = this.concatenated.iterator();
+		while (iterator.hasNext())
+		{
+			blackhole.consume(iterator.next());
+		}
+	}
+
+	@Benchmark
+	public void spliterator(Blackhole blackhole)
+	{
+		final Spliterator<Integer> spliterator = this.concatenated.spliterator();
+		spliterator.forEachRemaining(blackhole::consume);
+	}
+
+	@Benchmark
+	public long parallelStream()
+	{
+		return StreamSupport.stream(this.concatenated.spliterator(), true)
+			.mapToLong(Integer::longValue).sum();
+	}
+}
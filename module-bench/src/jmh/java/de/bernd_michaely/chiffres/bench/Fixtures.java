@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.bench;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import de.bernd_michaely.chiffres.calc.Solution;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Reproducible fixtures for the benchmarks. The games are read from the
+ * resource file {@value #RESOURCE_GAMES}, which is checked in. It has been
+ * created by {@link #main(String[])} with the fixed seed {@value #SEED}
+ * following the standard game rules: a target between 101 and 999 and
+ * operands drawn from twice the numbers 1 to 10 plus 25, 50, 75 and 100.
+ * Games with up to {@value #NUM_OPERANDS_MAX_SOLVABLE} operands are drawn
+ * repeatedly until they have an exact solution, so that the solution based
+ * benchmarks have a representative work load.
+ *
+ * @author Bernd Michaely
+ */
+public class Fixtures
+{
+	static final String RESOURCE_GAMES = "games.txt";
+	static final long SEED = 20240101L;
+	static final int NUM_OPERANDS_MIN = 4;
+	static final int NUM_OPERANDS_MAX = 12;
+	static final int NUM_OPERANDS_MAX_SOLVABLE = 7;
+
+	private static class Games
+	{
+		private static final SortedMap<Integer, CalculationParams> games = readGames();
+	}
+
+	private static SortedMap<Integer, CalculationParams> readGames()
+	{
+		final SortedMap<Integer, CalculationParams> result = new TreeMap<>();
+		try (InputStream inputStream = Fixtures.class.getResourceAsStream(RESOURCE_GAMES);
+			BufferedReader reader = new BufferedReader(
+				new InputStreamReader(inputStream, StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.strip();
+				if (!line.isEmpty() && !line.startsWith("#"))
+				{
+					final String[] values = line.split("\\s+");
+					final int target = Integer.parseInt(values[0]);
+					final int[] operands = new int[values.length - 1];
+					for (int i = 0; i < operands.length; i++)
+					{
+						operands[i] = Integer.parseInt(values[i + 1]);
+					}
+					result.put(operands.length, new CalculationParams(target, operands));
+				}
+			}
+		}
+		catch (IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+		return Collections.unmodifiableSortedMap(result);
+	}
+
+	/**
+	 * Returns the fixture game with the given number of operands.
+	 *
+	 * @param numOperands the given number of operands
+	 * @return the fixture game
+	 * @throws IllegalArgumentException if there is no game for the given number
+	 *                                  of operands
+	 */
+	public static CalculationParams getGame(int numOperands)
+	{
+		final CalculationParams calculationParams = Games.games.get(numOperands);
+		if (calculationParams == null)
+		{
+			throw new IllegalArgumentException("No fixture game for " + numOperands + " operands");
+		}
+		return calculationParams;
+	}
+
+	/**
+	 * Returns the solutions of the fixture game with the given number of
+	 * operands. The solutions are calculated single threaded and are returned
+	 * in their natural order, so the result is reproducible.
+	 *
+	 * @param numOperands the given number of operands
+	 * @return the solutions of the fixture game
+	 */
+	public static List<Solution> getSolutions(int numOperands)
+	{
+		final Calculator calculator = new Calculator(getGame(numOperands));
+		calculator.setNumThreads(1);
+		return new ArrayList<>(calculator.call().getSolutions());
+	}
+
+	private static CalculationParams createGame(Random random, int numOperands)
+	{
+		final List<Integer> list = new ArrayList<>(24);
+		for (int i = 0; i < 2; i++)
+		{
+			for (int k = 1; k <= 10; k++)
+			{
+				list.add(k);
+			}
+		}
+		for (int k = 25; k <= 100; k += 25)
+		{
+			list.add(k);
+		}
+		Collections.shuffle(list, random);
+		final int[] operands = new int[numOperands];
+		for (int i = 0; i < numOperands; i++)
+		{
+			operands[i] = list.get(i);
+		}
+		return new CalculationParams(random.nextInt(899) + 101, operands);
+	}
+
+	private static boolean isSolvable(CalculationParams calculationParams)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setNumThreads(Runtime.getRuntime().availableProcessors());
+		return !calculator.call().getSolutions().isEmpty();
+	}
+
+	/**
+	 * Writes the content of the fixture games resource file to standard output.
+	 *
+	 * @param args not used
+	 */
+	public static void main(String[] args)
+	{
+		final Random random = new Random(SEED);
+		System.out.println("# Benchmark fixture games created by " + Fixtures.class.getName() +
+			" with seed " + SEED);
+		System.out.println("# <target> <operand> ...");
+		for (int n = NUM_OPERANDS_MIN; n <= NUM_OPERANDS_MAX; n++)
+		{
+			CalculationParams game = createGame(random, n);
+			while ((n <= NUM_OPERANDS_MAX_SOLVABLE) && !isSolvable(game))
+			{
+				game = createGame(random, n);
+			}
+			final StringBuilder line = new StringBuilder().append(game.getTarget());
+			for (int i = 0; i < n; i++)
+			{
+				line.append(' ').append(game.getOperand(i));
+			}
+			System.out.println(line);
+		}
+	}
+}
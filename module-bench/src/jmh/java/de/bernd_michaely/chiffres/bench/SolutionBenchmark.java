@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.bench;
+
+import de.bernd_michaely.chiffres.calc.Solution;
+import de.bernd_michaely.chiffres.calc.SolutionCodec;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the creation of solutions, which is dominated by their
+ * redundancy check. The solutions of the fixture game are encoded once
+ * without their redundancy, as by earlier versions of the
+ * {@link SolutionCodec}, and each invocation decodes all of them, which
+ * checks the redundancy of every decoded solution.
+ *
+ * @author Bernd Michaely
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolutionBenchmark
+{
+	@Param(
+		{
+			"6", "7"
+		})
+	private int numOperands;
+
+	private SolutionCodec solutionCodec;
+	private byte[][] encodedSolutions;
+
+	@Setup
+	public void setup()
+	{
+		this.solutionCodec = new SolutionCodec(Fixtures.getGame(this.numOperands));
+		final List<Solution> solutions = Fixtures.getSolutions(this.numOperands);
+		this.encodedSolutions = new byte[solutions.size()][];
+		for (int i = 0; i < this.encodedSolutions.length; i++)
+		{
+			this.encodedSolutions[i] = this.solutionCodec.encode(solutions.get(i));
+			// keep the number of operations, clearing the redundancy bits:
+			this.encodedSolutions[i][0] &= 0x3F;
+		}
+	}
+
+	@Benchmark
+	public int decodeSolutions()
+	{
+		int counter = 0;
+		for (byte[] encodedSolution : this.encodedSolutions)
+		{
+			if (this.solutionCodec.decode(encodedSolution).isRedundant())
+			{
+				counter++;
+			}
+		}
+		return counter;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.bench;
+
+import de.bernd_michaely.chiffres.calc.Solution;
+import de.bernd_michaely.chiffres.graphics.SolutionGraphDirector;
+import de.bernd_michaely.chiffres.graphics.svg.SvgGraphBuilder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the creation of SVG solution graphs by a
+ * {@link SolutionGraphDirector} with a {@link SvgGraphBuilder}, the same way as
+ * the SVG file export of the application does. Each invocation creates the
+ * graph of the next solution of the fixture game.
+ *
+ * @author Bernd Michaely
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolutionGraphBenchmark
+{
+	private static final double FONT_SIZE = 24;
+
+	@Param(
+		{
+			"6"
+		})
+	private int numOperands;
+
+	private Solution[] solutions;
+	private int index;
+
+	@Setup
+	public void setup()
+	{
+		this.solutions = Fixtures.getSolutions(this.numOperands).toArray(Solution[]::new);
+		if (this.solutions.length == 0)
+		{
+			throw new IllegalStateException("Fixture game has no solutions");
+		}
+	}
+
+	@Benchmark
+	public List<String> construct()
+	{
+		final Solution solution = this.solutions[this.index];
+		this.index = (this.index + 1) % this.solutions.length;
+		final SvgGraphBuilder builder = new SvgGraphBuilder(FONT_SIZE, false);
+		final SolutionGraphDirector director = new SolutionGraphDirector(
+			builder, this.numOperands, FONT_SIZE);
+		director.construct(solution);
+		return builder.getResult();
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.bench;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import de.bernd_michaely.chiffres.calc.CalculatorWarmup;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the latency of the first calculation in a fresh JVM with and
+ * without a preceding {@link CalculatorWarmup}. Every fork measures a single
+ * calculation, so the result is the average first-solve latency over all
+ * forks. The warm-up runs to completion before the measurement, which
+ * corresponds to an application whose user interface takes longer to load
+ * than the warm-up.
+ *
+ * @author Bernd Michaely
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark
+{
+	@Param(
+		{
+			"false", "true"
+		})
+	private boolean warmup;
+
+	@Param(
+		{
+			"6"
+		})
+	private int numOperands;
+
+	@Param(
+		{
+			"2"
+		})
+	private int numThreads;
+
+	private CalculationParams calculationParams;
+
+	@Setup
+	public void setup()
+	{
+		this.calculationParams = Fixtures.getGame(this.numOperands);
+		if (this.warmup)
+		{
+			new CalculatorWarmup().run();
+		}
+	}
+
+	@Benchmark
+	public CalculationResult firstSolve()
+	{
+		final Calculator calculator = new Calculator(this.calculationParams);
+		calculator.setNumThreads(this.numThreads);
+		return calculator.call();
+	}
+}
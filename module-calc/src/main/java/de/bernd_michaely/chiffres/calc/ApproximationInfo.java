@@ -27,7 +27,7 @@ class ApproximationInfo
 	int diffGreater;
 	int diffLess;
 	boolean exactSolutionFound;
-	int numFilteredSolutions;
+	long numFilteredSolutions;
 	long counterRecursionCalls;
 
 	ApproximationInfo()
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A batch of games solved on a shared pool of worker threads. The results
+ * are available in the order of completion.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#solveAll(Collection, BatchOptions)
+ */
+public class BatchCalculation implements AutoCloseable
+{
+	private final CalculationScheduler scheduler;
+	private final ExecutorService coordinators;
+	private final BlockingQueue<BatchResult> results = new LinkedBlockingQueue<>();
+	private final Set<Calculator> running = ConcurrentHashMap.newKeySet();
+	private final int numGames;
+	private final AtomicInteger numCompleted = new AtomicInteger();
+	private final AtomicLong counterRecursionCalls = new AtomicLong();
+	private final long timeStart;
+	private volatile long timeEnd;
+	private volatile boolean cancelled;
+	private int numTaken;
+
+	BatchCalculation(Collection<CalculationParams> games, BatchOptions options)
+	{
+		this.numGames = games.size();
+		this.scheduler = new CalculationScheduler(options.getNumThreads());
+		final AtomicInteger threadCounter = new AtomicInteger();
+		this.coordinators = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(this.numGames, options.getMaxConcurrentGames())), runnable ->
+		{
+			final Thread thread = new Thread(runnable, "BatchCalculation-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.timeStart = System.nanoTime();
+		int index = 0;
+		for (CalculationParams game : games)
+		{
+			final int gameIndex = index++;
+			this.coordinators.execute(() -> solve(gameIndex, game, options));
+		}
+		if (this.numGames == 0)
+		{
+			finish();
+		}
+	}
+
+	private void solve(int index, CalculationParams calculationParams, BatchOptions options)
+	{
+		final long time = System.nanoTime();
+		CalculationResult calculationResult = null;
+		Throwable error = null;
+		if (this.cancelled)
+		{
+			error = new CancellationException("Batch cancelled");
+		}
+		else
+		{
+			Calculator calculator = null;
+			try
+			{
+				calculator = new Calculator(calculationParams);
+				calculator.setScheduler(this.scheduler);
+				calculator.setNumThreads(this.scheduler.getNumThreads());
+				calculator.setInterningOperations(options.isInterningOperations());
+				this.running.add(calculator);
+				if (this.cancelled)
+				{
+					calculator.cancel();
+				}
+				calculationResult = calculator.call();
+				this.counterRecursionCalls.addAndGet(calculationResult.getCounterRecursionCalls());
+			}
+			catch (RuntimeException | OutOfMemoryError ex)
+			{
+				error = ex;
+			}
+			finally
+			{
+				if (calculator != null)
+				{
+					this.running.remove(calculator);
+				}
+			}
+		}
+		this.results.add(new BatchResult(index, calculationParams, calculationResult, error,
+			System.nanoTime() - time));
+		if (this.numCompleted.incrementAndGet() == this.numGames)
+		{
+			finish();
+		}
+	}
+
+	private void finish()
+	{
+		this.timeEnd = System.nanoTime();
+		this.scheduler.close();
+		this.coordinators.shutdown();
+	}
+
+	/**
+	 * Returns the next completed result, waiting if necessary.
+	 *
+	 * @return the next completed result
+	 * @throws InterruptedException   if interrupted while waiting
+	 * @throws NoSuchElementException if all results have been taken
+	 */
+	public synchronized BatchResult take() throws InterruptedException
+	{
+		if (this.numTaken >= this.numGames)
+		{
+			throw new NoSuchElementException("All results have been taken");
+		}
+		final BatchResult result = this.results.take();
+		this.numTaken++;
+		return result;
+	}
+
+	/**
+	 * Returns the next completed result, waiting up to the given time.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit    the time unit of the timeout
+	 * @return the next completed result or null, if the timeout elapsed or all
+	 *         results have been taken
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized BatchResult poll(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		if (this.numTaken >= this.numGames)
+		{
+			return null;
+		}
+		final BatchResult result = this.results.poll(timeout, unit);
+		if (result != null)
+		{
+			this.numTaken++;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true, if there are results not yet taken.
+	 *
+	 * @return true, if there are results not yet taken
+	 */
+	public synchronized boolean hasNext()
+	{
+		return this.numTaken < this.numGames;
+	}
+
+	/**
+	 * Returns the number of games in this batch.
+	 *
+	 * @return the number of games
+	 */
+	public int getNumGames()
+	{
+		return this.numGames;
+	}
+
+	/**
+	 * Returns the number of completed games.
+	 *
+	 * @return the number of completed games
+	 */
+	public int getNumCompleted()
+	{
+		return this.numCompleted.get();
+	}
+
+	/**
+	 * Returns true, if all games are completed.
+	 *
+	 * @return true, if all games are completed
+	 */
+	public boolean isDone()
+	{
+		return getNumCompleted() == this.numGames;
+	}
+
+	/**
+	 * Returns the sum of the recursion calls of all completed games.
+	 *
+	 * @return the sum of the recursion calls
+	 */
+	public long getCounterRecursionCalls()
+	{
+		return this.counterRecursionCalls.get();
+	}
+
+	/**
+	 * Returns the time since the start of the batch or, if all games are
+	 * completed, the total time of the batch.
+	 *
+	 * @return the elapsed time in nanoseconds
+	 */
+	public long getElapsedTime()
+	{
+		final long end = this.timeEnd;
+		return ((end != 0) ? end : System.nanoTime()) - this.timeStart;
+	}
+
+	/**
+	 * Returns the aggregate throughput of the batch.
+	 *
+	 * @return the number of games completed per second
+	 */
+	public double getThroughput()
+	{
+		final long time = getElapsedTime();
+		return (time > 0) ? getNumCompleted() * 1e9 / time : 0;
+	}
+
+	/**
+	 * Cancels all running and pending games. Cancelled games are reported with
+	 * a cancelled result or a {@link CancellationException}.
+	 */
+	public void cancel()
+	{
+		this.cancelled = true;
+		this.running.forEach(Calculator::cancel);
+	}
+
+	/**
+	 * Cancels the batch, if not completed, and releases the threads.
+	 */
+	@Override
+	public void close()
+	{
+		if (!isDone())
+		{
+			cancel();
+		}
+		this.coordinators.shutdown();
+		this.scheduler.close();
+	}
+}
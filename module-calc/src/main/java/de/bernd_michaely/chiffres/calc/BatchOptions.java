@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * Options for solving a batch of games.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#solveAll(java.util.Collection, BatchOptions)
+ */
+public class BatchOptions
+{
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private int maxConcurrentGames;
+	private boolean interningOperations = true;
+
+	/**
+	 * Creates options with the default values.
+	 */
+	public BatchOptions()
+	{
+	}
+
+	/**
+	 * Returns the number of worker threads shared by all games.
+	 *
+	 * @return the number of worker threads
+	 */
+	public int getNumThreads()
+	{
+		return this.numThreads;
+	}
+
+	/**
+	 * Sets the number of worker threads shared by all games. The default is
+	 * the number of available processors.
+	 *
+	 * @param numThreads the number of worker threads
+	 * @throws IllegalArgumentException if numThreads is less than one
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		if (numThreads < 1)
+		{
+			throw new IllegalArgumentException("Number of threads must be at least one");
+		}
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Returns the maximum number of games solved concurrently.
+	 *
+	 * @return the maximum number of games solved concurrently
+	 */
+	public int getMaxConcurrentGames()
+	{
+		return (this.maxConcurrentGames > 0) ? this.maxConcurrentGames : 2 * getNumThreads();
+	}
+
+	/**
+	 * Sets the maximum number of games solved concurrently. Their subtasks are
+	 * interleaved on the shared worker threads. A higher value lets small
+	 * games overtake large ones more easily at the cost of more memory for
+	 * intermediate results. The default is twice the number of threads.
+	 *
+	 * @param maxConcurrentGames the maximum number of games solved
+	 *                           concurrently or zero for the default
+	 * @throws IllegalArgumentException if maxConcurrentGames is negative
+	 */
+	public void setMaxConcurrentGames(int maxConcurrentGames)
+	{
+		if (maxConcurrentGames < 0)
+		{
+			throw new IllegalArgumentException("Maximum number of concurrent games must not be negative");
+		}
+		this.maxConcurrentGames = maxConcurrentGames;
+	}
+
+	/**
+	 * Returns true, if structurally identical operations are shared between
+	 * solutions.
+	 *
+	 * @return true, if operations are interned
+	 * @see Calculator#setInterningOperations(boolean)
+	 */
+	public boolean isInterningOperations()
+	{
+		return this.interningOperations;
+	}
+
+	/**
+	 * Determines, whether structurally identical operations are shared between
+	 * the solutions of each game. The default is true.
+	 *
+	 * @param interningOperations true to share identical operations
+	 * @see Calculator#setInterningOperations(boolean)
+	 */
+	public void setInterningOperations(boolean interningOperations)
+	{
+		this.interningOperations = interningOperations;
+	}
+}
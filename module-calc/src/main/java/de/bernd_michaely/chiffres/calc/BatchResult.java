@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * The result of a single game of a batch.
+ *
+ * @author Bernd Michaely
+ * @see BatchCalculation#take()
+ */
+public class BatchResult
+{
+	private final int index;
+	private final CalculationParams calculationParams;
+	private final CalculationResult calculationResult;
+	private final Throwable error;
+	private final long duration;
+
+	BatchResult(int index, CalculationParams calculationParams,
+		CalculationResult calculationResult, Throwable error, long duration)
+	{
+		this.index = index;
+		this.calculationParams = calculationParams;
+		this.calculationResult = calculationResult;
+		this.error = error;
+		this.duration = duration;
+	}
+
+	/**
+	 * Returns the index of the game in the iteration order of the submitted
+	 * collection.
+	 *
+	 * @return the index of the game
+	 */
+	public int getIndex()
+	{
+		return this.index;
+	}
+
+	/**
+	 * Returns the game.
+	 *
+	 * @return the game
+	 */
+	public CalculationParams getCalculationParams()
+	{
+		return this.calculationParams;
+	}
+
+	/**
+	 * Returns the result of the calculation.
+	 *
+	 * @return the result or null, if the calculation failed
+	 * @see #getError()
+	 */
+	public CalculationResult getCalculationResult()
+	{
+		return this.calculationResult;
+	}
+
+	/**
+	 * Returns the error, which caused the calculation to fail.
+	 *
+	 * @return the error or null, if the calculation succeeded
+	 */
+	public Throwable getError()
+	{
+		return this.error;
+	}
+
+	/**
+	 * Returns the time from the start to the end of the calculation.
+	 *
+	 * @return the duration in nanoseconds
+	 */
+	public long getDuration()
+	{
+		return this.duration;
+	}
+}
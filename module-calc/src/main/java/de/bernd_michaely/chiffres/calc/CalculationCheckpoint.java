@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Class to periodically save the results of completed top level subtasks to a
+ * file and to restore them for resuming an interrupted calculation.
+ * <p>
+ * The file starts with a header describing the format version and the
+ * calculation. It is followed by an append-only sequence of records, one for
+ * each completed subtask. Every record is preceded by its length and a CRC32
+ * checksum, so a record truncated by a crash is detected and discarded on
+ * resume.
+ * <p>
+ * Solutions are stored in the compact form of a {@link SolutionCodec}.
+ *
+ * @author Bernd Michaely
+ */
+class CalculationCheckpoint implements Closeable
+{
+	private static final Logger logger = Logger.getLogger(CalculationCheckpoint.class.getName());
+	/**
+	 * Magic number at the start of a checkpoint file.
+	 */
+	static final int MAGIC = 0x4A434350;
+	/**
+	 * The current version of the checkpoint file format.
+	 */
+	static final int VERSION = 5;
+	private final Path file;
+	private final SolutionCodec solutionCodec;
+	private final long interval;
+	private final Map<Integer, SubTaskResult> restoredResults;
+	private FileChannel channel;
+	private DataOutputStream out;
+	private long timeLastFlush;
+
+	private CalculationCheckpoint(Path file, Operand[] operands, long interval)
+	{
+		this.file = file;
+		this.solutionCodec = new SolutionCodec(operands);
+		this.interval = interval;
+		this.restoredResults = new HashMap<>();
+	}
+
+	/**
+	 * Opens a checkpoint file. If the file contains a valid checkpoint of the
+	 * same calculation, the results of the completed subtasks are restored.
+	 * Otherwise the file is (re-)initialized.
+	 *
+	 * @param file              the checkpoint file
+	 * @param calculationParams the calculation parameters
+	 * @param operands          the initial operands of the calculation
+	 * @param testMode          the test mode flag of the calculation
+	 * @param interval          the minimum time in milliseconds between two
+	 *                          forced writes to the storage device
+	 * @return the opened checkpoint
+	 * @throws IOException if the file can not be read or written
+	 */
+	static CalculationCheckpoint open(Path file, CalculationParams calculationParams,
+		Operand[] operands, boolean testMode, long interval) throws IOException
+	{
+		final CalculationCheckpoint checkpoint = new CalculationCheckpoint(file, operands, interval);
+		final byte[] header = createHeader(calculationParams, testMode);
+		final long validLength = Files.exists(file) ?
+			checkpoint.restore(header) : 0;
+		checkpoint.channel = FileChannel.open(file, CREATE, READ, WRITE);
+		checkpoint.channel.truncate(validLength);
+		checkpoint.channel.position(validLength);
+		checkpoint.out = new DataOutputStream(new BufferedOutputStream(
+			Channels.newOutputStream(checkpoint.channel)));
+		if (validLength == 0)
+		{
+			checkpoint.out.write(header);
+			checkpoint.flush();
+		}
+		checkpoint.timeLastFlush = System.currentTimeMillis();
+		return checkpoint;
+	}
+
+	private static byte[] createHeader(CalculationParams calculationParams, boolean testMode)
+		throws IOException
+	{
+		final ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
+		try (DataOutputStream data = new DataOutputStream(byteArray))
+		{
+			data.writeInt(MAGIC);
+			data.writeShort(VERSION);
+			data.writeBoolean(testMode);
+			data.writeInt(calculationParams.getTarget());
+			int operators = 0;
+			for (Operator operator : calculationParams.getOperators())
+			{
+				operators |= 1 << operator.ordinal();
+			}
+			data.writeByte(operators);
+			final SolutionConstraints constraints = calculationParams.getConstraints();
+			data.writeInt(constraints.getMaxNumOperations());
+			data.writeInt(constraints.getMaxIntermediateValue());
+			data.writeBoolean(constraints.isAllOperandsRequired());
+			final int numOperands = calculationParams.getNumOperands();
+			data.writeByte(numOperands);
+			for (int i = 0; i < numOperands; i++)
+			{
+				data.writeInt(calculationParams.getOperand(i));
+			}
+		}
+		return byteArray.toByteArray();
+	}
+
+	/**
+	 * Reads the checkpoint file.
+	 *
+	 * @param header the expected header
+	 * @return the length of the valid part of the file
+	 * @throws IOException if the file can not be read
+	 */
+	private long restore(byte[] header) throws IOException
+	{
+		try (InputStream inputStream = Files.newInputStream(this.file);
+			DataInputStream in = new DataInputStream(inputStream))
+		{
+			final byte[] headerFile = new byte[header.length];
+			try
+			{
+				in.readFully(headerFile);
+			}
+			catch (EOFException ex)
+			{
+				return 0;
+			}
+			if (!Arrays.equals(header, headerFile))
+			{
+				logger.log(Level.WARNING,
+					"Checkpoint file »{0}« does not match the calculation – ignoring it", this.file);
+				return 0;
+			}
+			final long fileSize = Files.size(this.file);
+			long validLength = header.length;
+			final CRC32 crc = new CRC32();
+			while (true)
+			{
+				final byte[] record;
+				try
+				{
+					final int length = in.readInt();
+					final long checksum = in.readInt() & 0xFFFFFFFFL;
+					if ((length < 0) || (length > fileSize - validLength))
+					{
+						break;
+					}
+					record = new byte[length];
+					in.readFully(record);
+					crc.reset();
+					crc.update(record);
+					if (crc.getValue() != checksum)
+					{
+						break;
+					}
+				}
+				catch (EOFException ex)
+				{
+					break;
+				}
+				try
+				{
+					final SubTaskResult subTaskResult = readRecord(record);
+					this.restoredResults.put(subTaskResult.index, subTaskResult);
+				}
+				catch (IOException | RuntimeException ex)
+				{
+					logger.log(Level.WARNING, "Invalid checkpoint record", ex);
+					break;
+				}
+				validLength += 2 * Integer.BYTES + record.length;
+			}
+			logger.log(Level.FINE, "Restored {0} subtask results from checkpoint »{1}«",
+				new Object[]
+				{
+					this.restoredResults.size(), this.file
+				});
+			return validLength;
+		}
+	}
+
+	private SubTaskResult readRecord(byte[] record) throws IOException
+	{
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		final SubTaskResult subTaskResult = new SubTaskResult(in.readInt());
+		subTaskResult.exactSolutionFound = in.readBoolean();
+		subTaskResult.diffLess = in.readInt();
+		subTaskResult.diffGreater = in.readInt();
+		subTaskResult.numFilteredSolutions = in.readLong();
+		subTaskResult.counterRecursionCalls = in.readLong();
+		final int numSolutions = in.readInt();
+		for (int i = 0; i < numSolutions; i++)
+		{
+			subTaskResult.solutionCandidates.add(new SolutionCandidate(this.solutionCodec.read(in)));
+		}
+		if (!subTaskResult.solutionCandidates.isEmpty())
+		{
+			subTaskResult.sortedRuns.add(SolutionRuns.sort(subTaskResult.solutionCandidates));
+			subTaskResult.solutionCandidates.clear();
+		}
+		subTaskResult.complete = true;
+		return subTaskResult;
+	}
+
+	/**
+	 * Returns the results of the completed subtasks restored from the file
+	 * mapped by subtask index.
+	 *
+	 * @return the restored subtask results
+	 */
+	Map<Integer, SubTaskResult> getRestoredResults()
+	{
+		return this.restoredResults;
+	}
+
+	/**
+	 * Appends the result of a subtask to the checkpoint, if the subtask is
+	 * complete. The data is forced to the storage device, if the checkpoint
+	 * interval has elapsed. This method must be called before the subtask
+	 * result is combined with other results. If an I/O error occurs, a warning
+	 * is logged and checkpointing is disabled for the rest of the calculation.
+	 *
+	 * @param subTaskResult the subtask result
+	 */
+	void write(SubTaskResult subTaskResult)
+	{
+		if ((this.out == null) || !subTaskResult.complete ||
+			(subTaskResult.index == SubTaskResult.INDEX_MAIN_TASK))
+		{
+			return;
+		}
+		try
+		{
+			final ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
+			try (DataOutputStream data = new DataOutputStream(byteArray))
+			{
+				data.writeInt(subTaskResult.index);
+				data.writeBoolean(subTaskResult.exactSolutionFound);
+				data.writeInt(subTaskResult.diffLess);
+				data.writeInt(subTaskResult.diffGreater);
+				data.writeLong(subTaskResult.numFilteredSolutions);
+				data.writeLong(subTaskResult.counterRecursionCalls);
+				final int numSolutions = subTaskResult.solutionCandidates.size() +
+					SolutionRuns.size(subTaskResult.sortedRuns);
+				data.writeInt(numSolutions);
+				final Iterator<SolutionCandidate> iterator = subTaskResult.solutionCandidates.iterator();
+				for (int i = 0; i < subTaskResult.solutionCandidates.size(); i++)
+				{
+					this.solutionCodec.write(data, iterator.next().solution);
+				}
+				for (SolutionCandidate[] run : subTaskResult.sortedRuns)
+				{
+					for (SolutionCandidate candidate : run)
+					{
+						this.solutionCodec.write(data, candidate.solution);
+					}
+				}
+			}
+			final byte[] record = byteArray.toByteArray();
+			final CRC32 crc = new CRC32();
+			crc.update(record);
+			this.out.writeInt(record.length);
+			this.out.writeInt((int) crc.getValue());
+			this.out.write(record);
+			final long time = System.currentTimeMillis();
+			if (time - this.timeLastFlush >= this.interval)
+			{
+				flush();
+				this.timeLastFlush = time;
+			}
+		}
+		catch (IOException ex)
+		{
+			logger.log(Level.WARNING, "Can't write checkpoint file »" + this.file +
+				"« – checkpointing disabled", ex);
+			closeQuietly();
+		}
+	}
+
+	private void flush() throws IOException
+	{
+		this.out.flush();
+		this.channel.force(false);
+	}
+
+	private void closeQuietly()
+	{
+		try
+		{
+			this.out.close();
+		}
+		catch (IOException ex)
+		{
+			logger.log(Level.FINE, ex.getMessage(), ex);
+		}
+		finally
+		{
+			this.out = null;
+		}
+	}
+
+	/**
+	 * Forces all written data to the storage device and closes the file.
+	 */
+	@Override
+	public void close()
+	{
+		if (this.out != null)
+		{
+			try
+			{
+				flush();
+			}
+			catch (IOException ex)
+			{
+				logger.log(Level.WARNING, "Can't write checkpoint file »" + this.file + "«", ex);
+			}
+			finally
+			{
+				closeQuietly();
+			}
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the calculation engine. The events are
+ * recorded by any active flight recording and can be configured by their
+ * names, e.g. {@code de.bernd_michaely.chiffres.Calculation}. If no recording
+ * is active, creating an event object is optimized away by the JIT compiler
+ * and the event fields are filled only after checking
+ * {@link Event#shouldCommit()}.
+ *
+ * @author Bernd Michaely
+ */
+class CalculationEvents
+{
+	static final String PREFIX = "de.bernd_michaely.chiffres.";
+	private static final String CATEGORY = "Chiffres Solver";
+
+	private CalculationEvents()
+	{
+	}
+
+	@Name(PREFIX + "Calculation")
+	@Label("Calculation")
+	@Description("A complete calculation from start to end")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class CalculationEvent extends Event
+	{
+		@Label("Target")
+		int target;
+
+		@Label("Calculation")
+		String calculation;
+
+		@Label("Number of Threads")
+		int numThreads;
+
+		@Label("Number of Subtasks")
+		int numSubTasks;
+
+		@Label("Recursion Calls")
+		long counterRecursionCalls;
+
+		@Label("Solutions")
+		int numSolutions;
+
+		@Label("Exact Solution Found")
+		boolean exactSolutionFound;
+
+		@Label("Cancelled")
+		boolean cancelled;
+	}
+
+	@Name(PREFIX + "CalculationAborted")
+	@Label("Calculation Aborted")
+	@Description("A calculation has been cancelled or has run out of memory")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class CalculationAbortedEvent extends Event
+	{
+		@Label("Target")
+		int target;
+
+		@Label("Calculation")
+		String calculation;
+
+		@Label("Out of Memory")
+		boolean outOfMemory;
+	}
+
+	@Name(PREFIX + "SubTaskSubmit")
+	@Label("Subtask Submit")
+	@Description("A subtask has been forked")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class SubTaskSubmitEvent extends Event
+	{
+		@Label("Index")
+		int index;
+
+		@Label("Depth")
+		int depth;
+
+		@Label("Restored")
+		@Description("True, if the subtask is skipped because its result has been restored from a checkpoint")
+		boolean restored;
+	}
+
+	@Name(PREFIX + "SubTask")
+	@Label("Subtask")
+	@Description("The execution of a subtask from start to completion")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class SubTaskEvent extends Event
+	{
+		@Label("Index")
+		int index;
+
+		@Label("Depth")
+		int depth;
+
+		@Label("Recursion Calls")
+		long counterRecursionCalls;
+
+		@Label("Solution Candidates")
+		int numCandidates;
+
+		@Label("Complete")
+		boolean complete;
+	}
+
+	@Name(PREFIX + "RedundancyCheck")
+	@Label("Redundancy Check Batch")
+	@Description("A batch of redundancy checks of exact hits within a subtask")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class RedundancyCheckEvent extends Event
+	{
+		/**
+		 * The maximum number of redundancy checks per event.
+		 */
+		static final int BATCH_SIZE = 1 << 10;
+
+		@Label("Subtask Index")
+		int index;
+
+		@Label("Checks")
+		int numChecks;
+
+		@Label("Redundant")
+		int numRedundant;
+
+		@Label("Check Time")
+		@Timespan
+		long checkTime;
+	}
+
+	@Name(PREFIX + "Dedup")
+	@Label("Deduplication")
+	@Description("Removal of duplicate solution candidates")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class DedupEvent extends Event
+	{
+		@Label("Solution Candidates")
+		int numCandidates;
+
+		@Label("Solutions")
+		int numSolutions;
+	}
+}
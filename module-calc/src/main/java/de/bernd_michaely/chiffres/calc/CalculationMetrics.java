@@ -0,0 +1,494 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Metrics of the calculation engine. An instance can be attached to a
+ * {@link Calculator} by {@link Calculator#setMetrics(CalculationMetrics)} and
+ * is filled during the calculation. If no metrics object is attached, the
+ * engine does not collect any metrics.
+ * <p>
+ * The counters are collected by each subtask separately and are combined in
+ * the calculation thread, so an instance must not be read before the
+ * calculation has finished. Subtasks restored from a checkpoint are not
+ * included. Times are given in nanoseconds. CPU times are -1, if measuring
+ * the thread CPU time is not supported by the JVM. With
+ * {@link Calculator#setIterativeDeepening(boolean) iterative deepening}, the
+ * counters and times of all passes are added up, the times of a subtask are
+ * the sum of the subtasks with the same index in each pass.
+ *
+ * @author Bernd Michaely
+ */
+public class CalculationMetrics
+{
+	/**
+	 * The reasons for discarding the result of an operator application.
+	 */
+	public enum InvalidResult
+	{
+		/**
+		 * The result exceeds the int range.
+		 */
+		OVERFLOW,
+		/**
+		 * The division has a remainder.
+		 */
+		NON_INTEGER_DIVISION,
+		/**
+		 * The result is zero or negative.
+		 */
+		NON_POSITIVE
+	}
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+	private static final int NUM_OPERATORS = Operator.values().length;
+	private static final int NUM_INVALID_RESULTS = InvalidResult.values().length;
+	private static final int NUM_TIMES_PER_SUBTASK = 3;
+	long[] nodes = new long[0];
+	long[] operatorApplications = new long[0];
+	long[] prunedBranches = new long[0];
+	final long[] invalidResults = new long[NUM_OPERATORS * NUM_INVALID_RESULTS];
+	long exactHits;
+	long redundancyRejects;
+	private long[] subTaskTimes = new long[0];
+	private int numSubTasks;
+	private long mainTaskWallTime;
+	private long mainTaskCpuTime;
+	private long mergeTime;
+	private long dedupTime;
+	private List<PipelineStageMetrics> pipelineStages = List.of();
+
+	/**
+	 * Creates empty metrics to be attached to a calculator.
+	 */
+	public CalculationMetrics()
+	{
+	}
+
+	/**
+	 * Resets all values for a calculation with the given number of operands.
+	 *
+	 * @param numOperands the number of initial operands
+	 */
+	void reset(int numOperands)
+	{
+		this.nodes = new long[numOperands - 1];
+		this.operatorApplications = new long[numOperands - 1];
+		this.prunedBranches = new long[numOperands - 1];
+		Arrays.fill(this.invalidResults, 0);
+		this.exactHits = 0;
+		this.redundancyRejects = 0;
+		this.subTaskTimes = new long[0];
+		this.numSubTasks = 0;
+		this.mainTaskWallTime = 0;
+		this.mainTaskCpuTime = 0;
+		this.mergeTime = 0;
+		this.dedupTime = 0;
+		this.pipelineStages = List.of();
+	}
+
+	/**
+	 * Returns the CPU time of the current thread or -1, if not supported.
+	 *
+	 * @return the CPU time of the current thread in nanoseconds
+	 */
+	static long getCurrentThreadCpuTime()
+	{
+		return threadMXBean.isCurrentThreadCpuTimeSupported() ?
+			threadMXBean.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Counts a discarded operator application by its reason.
+	 *
+	 * @param operator the operator
+	 * @param operand1 the first operand
+	 * @param operand2 the second operand
+	 */
+	void countInvalidResult(Operator operator, int operand1, int operand2)
+	{
+		final InvalidResult invalidResult;
+		switch (operator)
+		{
+			case ADD:
+				invalidResult = ((long) operand1 + (long) operand2 > Integer.MAX_VALUE) ?
+					InvalidResult.OVERFLOW : InvalidResult.NON_POSITIVE;
+				break;
+			case MUL:
+				invalidResult = ((long) operand1 * (long) operand2 > Integer.MAX_VALUE) ?
+					InvalidResult.OVERFLOW : InvalidResult.NON_POSITIVE;
+				break;
+			case DIV:
+				invalidResult = ((operand2 != 0) && (operand1 % operand2 != 0)) ?
+					InvalidResult.NON_INTEGER_DIVISION : InvalidResult.NON_POSITIVE;
+				break;
+			case POW:
+			case CAT:
+				invalidResult = InvalidResult.OVERFLOW;
+				break;
+			default:
+				invalidResult = InvalidResult.NON_POSITIVE;
+		}
+		this.invalidResults[operator.ordinal() * NUM_INVALID_RESULTS + invalidResult.ordinal()]++;
+	}
+
+	/**
+	 * Adds the metrics of a subtask.
+	 *
+	 * @param other the metrics of a subtask
+	 */
+	void combine(SubTaskMetrics other)
+	{
+		if (other != null)
+		{
+			for (int i = 0; i < this.nodes.length; i++)
+			{
+				this.nodes[i] += other.nodes[i];
+				this.operatorApplications[i] += other.operatorApplications[i];
+				this.prunedBranches[i] += other.prunedBranches[i];
+			}
+			for (int i = 0; i < this.invalidResults.length; i++)
+			{
+				this.invalidResults[i] += other.invalidResults[i];
+			}
+			this.exactHits += other.exactHits;
+			this.redundancyRejects += other.redundancyRejects;
+			if (other.index == SubTaskResult.INDEX_MAIN_TASK)
+			{
+				this.mainTaskWallTime += other.wallTime;
+				this.mainTaskCpuTime = addCpuTime(this.mainTaskCpuTime, other.cpuTime);
+			}
+			else
+			{
+				final int offset = other.index * NUM_TIMES_PER_SUBTASK;
+				if (offset >= this.subTaskTimes.length)
+				{
+					this.subTaskTimes = Arrays.copyOf(this.subTaskTimes,
+						Math.max(offset + NUM_TIMES_PER_SUBTASK, 2 * this.subTaskTimes.length));
+				}
+				this.subTaskTimes[offset] += other.queueWaitTime;
+				this.subTaskTimes[offset + 1] += other.wallTime;
+				this.subTaskTimes[offset + 2] = addCpuTime(this.subTaskTimes[offset + 2], other.cpuTime);
+				this.numSubTasks = Math.max(this.numSubTasks, other.index + 1);
+			}
+		}
+	}
+
+	private static long addCpuTime(long cpuTime, long time)
+	{
+		return ((cpuTime < 0) || (time < 0)) ? -1 : cpuTime + time;
+	}
+
+	void addMergeTime(long time)
+	{
+		this.mergeTime += time;
+	}
+
+	void addDedupTime(long time)
+	{
+		this.dedupTime += time;
+	}
+
+	void setPipelineStages(List<PipelineStageMetrics> pipelineStages)
+	{
+		this.pipelineStages = List.copyOf(pipelineStages);
+	}
+
+	/**
+	 * Returns the number of recursion levels, which is the number of operands
+	 * minus one.
+	 *
+	 * @return the number of recursion levels
+	 */
+	public int getNumDepths()
+	{
+		return this.nodes.length;
+	}
+
+	/**
+	 * Returns the number of nodes of the search tree visited on the given
+	 * recursion level. The sum over all levels equals
+	 * {@link CalculationResult#getCounterRecursionCalls()}.
+	 *
+	 * @param depth the given recursion level, where 0 is the level of the
+	 *              initial operands
+	 * @return the number of visited nodes
+	 */
+	public long getNodes(int depth)
+	{
+		return this.nodes[depth];
+	}
+
+	/**
+	 * Returns the number of nodes of the search tree visited on all levels.
+	 *
+	 * @return the number of visited nodes
+	 */
+	public long getNodesTotal()
+	{
+		return Arrays.stream(this.nodes).sum();
+	}
+
+	/**
+	 * Returns the number of operator applications on the given recursion level.
+	 *
+	 * @param depth the given recursion level
+	 * @return the number of operator applications
+	 */
+	public long getOperatorApplications(int depth)
+	{
+		return this.operatorApplications[depth];
+	}
+
+	/**
+	 * Returns the number of operator applications on all levels.
+	 *
+	 * @return the number of operator applications
+	 */
+	public long getOperatorApplicationsTotal()
+	{
+		return Arrays.stream(this.operatorApplications).sum();
+	}
+
+	/**
+	 * Returns the number of branches of the search tree cut on the given
+	 * recursion level, because the result of an operation exceeds the
+	 * {@link SolutionConstraints#getMaxIntermediateValue() maximum
+	 * intermediate value} or the maximum number of operations is reached.
+	 * Each cut branch saves at least one recursion call, or a whole subtree
+	 * on the upper levels.
+	 *
+	 * @param depth the given recursion level
+	 * @return the number of cut branches
+	 * @see CalculationParams#getConstraints()
+	 */
+	public long getPrunedBranches(int depth)
+	{
+		return this.prunedBranches[depth];
+	}
+
+	/**
+	 * Returns the number of branches of the search tree cut on all levels.
+	 *
+	 * @return the number of cut branches
+	 */
+	public long getPrunedBranchesTotal()
+	{
+		return Arrays.stream(this.prunedBranches).sum();
+	}
+
+	/**
+	 * Returns the number of discarded applications of the given operator for
+	 * the given reason. A discarded result prunes the search tree below.
+	 *
+	 * @param operator      the given operator
+	 * @param invalidResult the given reason
+	 * @return the number of discarded operator applications
+	 */
+	public long getInvalidResults(Operator operator, InvalidResult invalidResult)
+	{
+		return this.invalidResults[operator.ordinal() * NUM_INVALID_RESULTS + invalidResult.ordinal()];
+	}
+
+	/**
+	 * Returns the number of discarded operator applications for all operators
+	 * and reasons.
+	 *
+	 * @return the number of discarded operator applications
+	 */
+	public long getInvalidResultsTotal()
+	{
+		return Arrays.stream(this.invalidResults).sum();
+	}
+
+	/**
+	 * Returns the number of operations hitting the target, including redundant
+	 * and duplicate solutions.
+	 *
+	 * @return the number of exact hits
+	 */
+	public long getExactHits()
+	{
+		return this.exactHits;
+	}
+
+	/**
+	 * Returns the number of exact hits rejected as redundant.
+	 *
+	 * @return the number of exact hits rejected as redundant
+	 */
+	public long getRedundancyRejects()
+	{
+		return this.redundancyRejects;
+	}
+
+	/**
+	 * Returns the number of forked subtasks.
+	 *
+	 * @return the number of forked subtasks
+	 */
+	public int getNumSubTasks()
+	{
+		return this.numSubTasks;
+	}
+
+	/**
+	 * Returns the time the given subtask has waited in the executor queue.
+	 *
+	 * @param index the index of the subtask in the order of submission
+	 * @return the queue wait time in nanoseconds
+	 */
+	public long getSubTaskQueueWaitTime(int index)
+	{
+		return getSubTaskTime(index, 0);
+	}
+
+	/**
+	 * Returns the wall clock time of the given subtask.
+	 *
+	 * @param index the index of the subtask in the order of submission
+	 * @return the wall clock time in nanoseconds
+	 */
+	public long getSubTaskWallTime(int index)
+	{
+		return getSubTaskTime(index, 1);
+	}
+
+	/**
+	 * Returns the CPU time of the given subtask.
+	 *
+	 * @param index the index of the subtask in the order of submission
+	 * @return the CPU time in nanoseconds or -1, if not supported
+	 */
+	public long getSubTaskCpuTime(int index)
+	{
+		return getSubTaskTime(index, 2);
+	}
+
+	private long getSubTaskTime(int index, int offset)
+	{
+		if ((index < 0) || (index >= this.numSubTasks))
+		{
+			throw new IndexOutOfBoundsException("Invalid subtask index : " + index);
+		}
+		return this.subTaskTimes[index * NUM_TIMES_PER_SUBTASK + offset];
+	}
+
+	/**
+	 * Returns the wall clock time of the main task forking the subtasks.
+	 *
+	 * @return the wall clock time in nanoseconds
+	 */
+	public long getMainTaskWallTime()
+	{
+		return this.mainTaskWallTime;
+	}
+
+	/**
+	 * Returns the CPU time of the main task forking the subtasks.
+	 *
+	 * @return the CPU time in nanoseconds or -1, if not supported
+	 */
+	public long getMainTaskCpuTime()
+	{
+		return this.mainTaskCpuTime;
+	}
+
+	/**
+	 * Returns the time spent merging the subtask results.
+	 *
+	 * @return the merge time in nanoseconds
+	 */
+	public long getMergeTime()
+	{
+		return this.mergeTime;
+	}
+
+	/**
+	 * Returns the time spent removing duplicate solutions.
+	 *
+	 * @return the deduplication time in nanoseconds
+	 */
+	public long getDedupTime()
+	{
+		return this.dedupTime;
+	}
+
+	/**
+	 * Returns the metrics of the stages of the solution pipeline in the order
+	 * of the pipeline. Exact hits rejected as redundant by the pipeline are
+	 * included in the {@link #getRedundancyRejects() redundancy rejects}.
+	 *
+	 * @return the metrics of the stages or an empty list, if no solution
+	 *         pipeline has been used
+	 * @see Calculator#setSolutionPipeline(SolutionPipelineOptions)
+	 */
+	public List<PipelineStageMetrics> getPipelineStages()
+	{
+		return this.pipelineStages;
+	}
+
+	private static double toMillis(long nanos)
+	{
+		return nanos / 1e6;
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder s = new StringBuilder("Calculation metrics:");
+		for (int depth = 0; depth < getNumDepths(); depth++)
+		{
+			s.append(String.format("%n  depth %d : %,15d nodes %,15d operator applications %,15d pruned",
+				depth, getNodes(depth), getOperatorApplications(depth), getPrunedBranches(depth)));
+		}
+		for (Operator operator : Operator.values())
+		{
+			s.append(String.format("%n  invalid results %s :", operator));
+			for (InvalidResult invalidResult : InvalidResult.values())
+			{
+				s.append(String.format(" %s = %,d", invalidResult,
+					getInvalidResults(operator, invalidResult)));
+			}
+		}
+		s.append(String.format("%n  exact hits : %,d, redundancy rejects : %,d",
+			getExactHits(), getRedundancyRejects()));
+		long queueWait = 0, wallTime = 0, cpuTime = 0;
+		for (int i = 0; i < getNumSubTasks(); i++)
+		{
+			queueWait += getSubTaskQueueWaitTime(i);
+			wallTime += getSubTaskWallTime(i);
+			cpuTime += getSubTaskCpuTime(i);
+		}
+		s.append(String.format("%n  main task : wall %,.3f ms, CPU %,.3f ms",
+			toMillis(getMainTaskWallTime()), toMillis(getMainTaskCpuTime())));
+		s.append(String.format("%n  %d subtasks : queue wait %,.3f ms, wall %,.3f ms, CPU %,.3f ms",
+			getNumSubTasks(), toMillis(queueWait), toMillis(wallTime), toMillis(cpuTime)));
+		s.append(String.format("%n  merge : %,.3f ms, dedup : %,.3f ms",
+			toMillis(getMergeTime()), toMillis(getDedupTime())));
+		for (PipelineStageMetrics pipelineStage : getPipelineStages())
+		{
+			s.append(String.format("%n  pipeline %s", pipelineStage));
+		}
+		return s.toString();
+	}
+}
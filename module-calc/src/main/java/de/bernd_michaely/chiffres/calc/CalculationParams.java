@@ -17,6 +17,9 @@
 package de.bernd_michaely.chiffres.calc;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Immutable class to describe the parameters of a calculation.
@@ -25,18 +28,77 @@ import java.util.Arrays;
  */
 public class CalculationParams
 {
+	/**
+	 * The operators of the standard game, the four basic arithmetic
+	 * operations.
+	 */
+	public static final Set<Operator> DEFAULT_OPERATORS = Collections.unmodifiableSet(
+		EnumSet.of(Operator.ADD, Operator.SUB, Operator.MUL, Operator.DIV));
 	private final int target;
+	private final Set<Operator> operators;
+	private final SolutionConstraints constraints;
 	private final int[] operands;
 
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance using the {@link #DEFAULT_OPERATORS default
+	 * operators}.
 	 *
 	 * @param target   the target value of the calculation
 	 * @param operands the operands to use for the calculation
 	 */
 	public CalculationParams(int target, int... operands)
 	{
+		this(target, DEFAULT_OPERATORS, operands);
+	}
+
+	/**
+	 * Creates a new instance with a given set of operators, e.g. for practice
+	 * games without division.
+	 *
+	 * @param target    the target value of the calculation
+	 * @param operators the operators to use for the calculation
+	 * @param operands  the operands to use for the calculation
+	 * @throws IllegalArgumentException if operators is null or empty
+	 */
+	public CalculationParams(int target, Set<Operator> operators, int... operands)
+	{
+		this(target, operators, SolutionConstraints.NONE, operands);
+	}
+
+	/**
+	 * Creates a new instance with a given set of operators and constraints on
+	 * the solutions, e.g. for practice games.
+	 *
+	 * @param target      the target value of the calculation
+	 * @param operators   the operators to use for the calculation
+	 * @param constraints the constraints on the solutions
+	 * @param operands    the operands to use for the calculation
+	 * @throws IllegalArgumentException if operators is null or empty, if
+	 *                                  constraints is null or if all operands
+	 *                                  are required, but the maximum number of
+	 *                                  operations is too small to use them
+	 */
+	public CalculationParams(int target, Set<Operator> operators,
+		SolutionConstraints constraints, int... operands)
+	{
+		if (operators == null || operators.isEmpty())
+		{
+			throw new IllegalArgumentException("CalculationParams : no operators");
+		}
+		if (constraints == null)
+		{
+			throw new IllegalArgumentException("CalculationParams : constraints are null");
+		}
+		if (constraints.isAllOperandsRequired() &&
+			constraints.getMaxNumOperations() < operands.length - 1)
+		{
+			throw new IllegalArgumentException(
+				"CalculationParams : all operands required, but too few operations allowed");
+		}
 		this.target = target;
+		this.operators = operators.equals(DEFAULT_OPERATORS) ? DEFAULT_OPERATORS :
+			Collections.unmodifiableSet(EnumSet.copyOf(operators));
+		this.constraints = constraints;
 		this.operands = operands.clone();
 	}
 
@@ -50,6 +112,60 @@ public class CalculationParams
 		return this.target;
 	}
 
+	/**
+	 * Returns the operators of the calculation.
+	 *
+	 * @return an unmodifiable set of the operators
+	 */
+	public Set<Operator> getOperators()
+	{
+		return this.operators;
+	}
+
+	/**
+	 * Returns true, if the calculation uses the default operators.
+	 *
+	 * @return true, if the calculation uses the default operators
+	 * @see #DEFAULT_OPERATORS
+	 */
+	public boolean isDefaultOperators()
+	{
+		return this.operators == DEFAULT_OPERATORS;
+	}
+
+	/**
+	 * Returns the constraints on the solutions.
+	 *
+	 * @return the constraints on the solutions, never null
+	 * @see SolutionConstraints#NONE
+	 */
+	public SolutionConstraints getConstraints()
+	{
+		return this.constraints;
+	}
+
+	/**
+	 * Returns the number of operations a solution may use at most, that is
+	 * the number of operands minus one, if not restricted further by the
+	 * constraints.
+	 *
+	 * @return the maximum number of operations of a solution
+	 */
+	public int getMaxNumOperations()
+	{
+		return Math.min(getNumOperands() - 1, this.constraints.getMaxNumOperations());
+	}
+
+	/**
+	 * Returns the number of operations a solution must use at least.
+	 *
+	 * @return the minimum number of operations of a solution
+	 */
+	public int getMinNumOperations()
+	{
+		return this.constraints.isAllOperandsRequired() ? getNumOperands() - 1 : 1;
+	}
+
 	/**
 	 * Returns the number of operands of the calculation.
 	 *
@@ -81,6 +197,8 @@ public class CalculationParams
 	public String toString()
 	{
 		return "Calculation (" + this.target + " | " +
-			Arrays.toString(this.operands) + ")";
+			Arrays.toString(this.operands) +
+			(isDefaultOperators() ? "" : " | " + this.operators) +
+			(this.constraints.isUnconstrained() ? "" : " | " + this.constraints) + ")";
 	}
 }
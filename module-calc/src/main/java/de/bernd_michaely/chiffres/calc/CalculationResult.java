@@ -16,8 +16,11 @@
  */
 package de.bernd_michaely.chiffres.calc;
 
+import de.bernd_michaely.chiffres.common.util.SortedArraySet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Class to represent the results of a calculation.
@@ -27,14 +30,26 @@ import java.util.TreeSet;
 public class CalculationResult extends ApproximationInfo
 {
 	final int target;
-	final SortedSet<Solution> solutions;
+	/**
+	 * The solutions, an immutable set assigned at the end of the calculation.
+	 */
+	SortedSet<Solution> solutions;
 	boolean cancelled = false;
 	boolean outOfMemory = false;
+	boolean exhaustive = true;
+	long counterTranspositionHits;
+	boolean truncated;
+	boolean fromResultStore;
+	/**
+	 * The solutions in the order of rank or null, if the number of solutions
+	 * is unlimited.
+	 */
+	List<Solution> rankedSolutions;
 
 	CalculationResult(int target)
 	{
 		this.target = target;
-		this.solutions = new TreeSet<>();
+		this.solutions = new SortedArraySet<>();
 	}
 
 	/**
@@ -47,6 +62,47 @@ public class CalculationResult extends ApproximationInfo
 		return this.solutions;
 	}
 
+	/**
+	 * Returns the solutions found in the order of rank. If the number of
+	 * solutions is limited, the order is given by the solution scorer,
+	 * otherwise it is the natural order of the solutions.
+	 *
+	 * @return the solutions found in the order of rank
+	 * @see Calculator#setMaxNumSolutions(int)
+	 * @see Calculator#setSolutionScorer(SolutionScorer)
+	 */
+	public List<Solution> getRankedSolutions()
+	{
+		return (this.rankedSolutions != null) ?
+			Collections.unmodifiableList(this.rankedSolutions) :
+			Collections.unmodifiableList(new ArrayList<>(this.solutions));
+	}
+
+	/**
+	 * Returns true, if solutions have been dropped due to the maximum number
+	 * of solutions. The result then contains the best ranked solutions only.
+	 *
+	 * @return true, if solutions have been dropped
+	 * @see Calculator#setMaxNumSolutions(int)
+	 */
+	public boolean isTruncated()
+	{
+		return this.truncated;
+	}
+
+	/**
+	 * Returns true, if the result has been loaded from a result store instead
+	 * of being calculated. In this case the number of recursive method calls
+	 * is the one of the original calculation.
+	 *
+	 * @return true, if the result has been loaded from a result store
+	 * @see Calculator#setResultStore(ResultStore)
+	 */
+	public boolean isFromResultStore()
+	{
+		return this.fromResultStore;
+	}
+
 	/**
 	 * Returns true, if an exact solution was found, false otherwise.
 	 *
@@ -126,7 +182,7 @@ public class CalculationResult extends ApproximationInfo
 	 *
 	 * @return the number of filtered redundant solutions
 	 */
-	public int getNumFilteredSolutions()
+	public long getNumFilteredSolutions()
 	{
 		return this.numFilteredSolutions;
 	}
@@ -141,6 +197,19 @@ public class CalculationResult extends ApproximationInfo
 		return this.counterRecursionCalls;
 	}
 
+	/**
+	 * Returns the number of successful lookups in the transposition table.
+	 * Subtrees skipped due to a lookup are not included in the number of
+	 * recursive method calls.
+	 *
+	 * @return the number of successful lookups
+	 * @see Calculator#setTranspositionTableCapacity(int)
+	 */
+	public long getCounterTranspositionHits()
+	{
+		return this.counterTranspositionHits;
+	}
+
 	/**
 	 * Returns true, if the calculation thread was canceled. If the return value
 	 * is true, the calculation results are incomplete.
@@ -152,6 +221,19 @@ public class CalculationResult extends ApproximationInfo
 		return this.cancelled;
 	}
 
+	/**
+	 * Returns true, if the calculation has used an exhaustive search strategy.
+	 * Otherwise the solutions are a subset of all solutions and the
+	 * approximations may not be the best ones.
+	 *
+	 * @return true, if the search was exhaustive
+	 * @see CalculationStrategy
+	 */
+	public boolean isExhaustive()
+	{
+		return this.exhaustive;
+	}
+
 	/**
 	 * Returns true, if the calculation was running out of memory. If the return
 	 * value is true, all calculation results are deleted to free memory and the
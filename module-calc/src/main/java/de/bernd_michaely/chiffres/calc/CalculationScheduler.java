@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pool of worker threads shared by several calculations. Each calculation
+ * registered with the scheduler has its own queue of subtasks. The workers
+ * share the calculations with pending subtasks fairly, so the subtasks of
+ * concurrent calculations are interleaved and a small calculation does not
+ * wait until a large one has finished:
+ * <ul>
+ * <li>Each calculation has a <em>weight</em>. Calculations with pending
+ * subtasks get a share of the workers proportional to their weight (stride
+ * scheduling).</li>
+ * <li>Each calculation has a <em>cap</em>, the maximum number of its subtasks
+ * running at the same time. Workers not usable by a capped calculation serve
+ * the other calculations.</li>
+ * <li><em>Prioritized</em> calculations, e.g. the one shown in the foreground,
+ * are served before all others, as far as their caps permit.</li>
+ * </ul>
+ * The weight and cap of a calculation are its number of threads.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#setScheduler(CalculationScheduler)
+ * @see Calculator#setNumThreads(int)
+ * @see Calculator#setPrioritized(boolean)
+ */
+public class CalculationScheduler implements AutoCloseable
+{
+	private static final Logger logger = Logger.getLogger(CalculationScheduler.class.getName());
+	private final Object lock = new Object();
+	private final List<Client> ready = new ArrayList<>();
+	private final Thread[] workers;
+	private double virtualTime;
+	private boolean shutdown;
+
+	/**
+	 * The subtask queue of a single calculation.
+	 */
+	class Client implements Executor
+	{
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+		private int weight;
+		private int cap;
+		private boolean prioritized;
+		private int running;
+		private double pass;
+		private boolean queued;
+		private boolean closed;
+
+		private Client(int numThreads, boolean prioritized)
+		{
+			this.weight = this.cap = Math.max(1, numThreads);
+			this.prioritized = prioritized;
+		}
+
+		@Override
+		public void execute(Runnable command)
+		{
+			synchronized (lock)
+			{
+				if (this.closed || shutdown)
+				{
+					throw new RejectedExecutionException("Calculation scheduler is shut down");
+				}
+				this.tasks.add(command);
+				if (!this.queued)
+				{
+					this.queued = true;
+					// do not let a calculation save up a share while idle:
+					this.pass = Math.max(this.pass, virtualTime);
+					ready.add(this);
+					lock.notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Sets the weight and the cap of this calculation.
+		 *
+		 * @param numThreads the weight and cap
+		 */
+		void setNumThreads(int numThreads)
+		{
+			synchronized (lock)
+			{
+				this.weight = this.cap = Math.max(1, numThreads);
+				lock.notifyAll();
+			}
+		}
+
+		/**
+		 * Determines, whether this calculation is served before all others.
+		 *
+		 * @param prioritized true to serve this calculation first
+		 */
+		void setPrioritized(boolean prioritized)
+		{
+			synchronized (lock)
+			{
+				this.prioritized = prioritized;
+			}
+		}
+
+		/**
+		 * Unregisters the calculation. Pending subtasks are discarded.
+		 */
+		void close()
+		{
+			synchronized (lock)
+			{
+				this.closed = true;
+				this.tasks.clear();
+				if (this.queued)
+				{
+					this.queued = false;
+					ready.remove(this);
+				}
+			}
+		}
+
+		private boolean isPreferredTo(Client other)
+		{
+			if (this.prioritized != other.prioritized)
+			{
+				return this.prioritized;
+			}
+			return this.pass < other.pass;
+		}
+	}
+
+	/**
+	 * Creates a scheduler with the given number of worker threads. The
+	 * workers are daemon threads.
+	 *
+	 * @param numThreads the number of worker threads
+	 * @throws IllegalArgumentException if numThreads is less than one
+	 */
+	public CalculationScheduler(int numThreads)
+	{
+		if (numThreads < 1)
+		{
+			throw new IllegalArgumentException("Number of threads must be at least one");
+		}
+		this.workers = new Thread[numThreads];
+		for (int i = 0; i < numThreads; i++)
+		{
+			this.workers[i] = new Thread(this::work, "CalculationScheduler-" + (i + 1));
+			this.workers[i].setDaemon(true);
+			this.workers[i].start();
+		}
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 *
+	 * @return the number of worker threads
+	 */
+	public int getNumThreads()
+	{
+		return this.workers.length;
+	}
+
+	/**
+	 * Registers a new calculation.
+	 *
+	 * @param numThreads  the weight and cap of the calculation
+	 * @param prioritized true to serve the calculation before all others
+	 * @return the executor for the subtasks of the calculation
+	 */
+	Client register(int numThreads, boolean prioritized)
+	{
+		return new Client(numThreads, prioritized);
+	}
+
+	/**
+	 * Returns the calculation to serve next or null, if no calculation with
+	 * pending subtasks is below its cap.
+	 */
+	private Client select()
+	{
+		Client selected = null;
+		for (Client client : this.ready)
+		{
+			if (client.running < client.cap && (selected == null || client.isPreferredTo(selected)))
+			{
+				selected = client;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Waits for the next subtask to run. The returned task updates the number
+	 * of running subtasks of its calculation on completion.
+	 *
+	 * @return the next subtask or null, if the scheduler is shut down and no
+	 *         subtasks are pending
+	 */
+	private Runnable next() throws InterruptedException
+	{
+		synchronized (this.lock)
+		{
+			Client selected;
+			while ((selected = select()) == null && !(this.shutdown && this.ready.isEmpty()))
+			{
+				this.lock.wait();
+			}
+			if (selected == null)
+			{
+				return null;
+			}
+			final Client client = selected;
+			client.running++;
+			this.virtualTime = client.pass;
+			client.pass += 1.0 / client.weight;
+			final Runnable task = client.tasks.remove();
+			if (client.tasks.isEmpty())
+			{
+				client.queued = false;
+				this.ready.remove(client);
+			}
+			return () ->
+			{
+				try
+				{
+					task.run();
+				}
+				finally
+				{
+					synchronized (this.lock)
+					{
+						client.running--;
+						this.lock.notifyAll();
+					}
+				}
+			};
+		}
+	}
+
+	private void work()
+	{
+		try
+		{
+			Runnable task;
+			while ((task = next()) != null)
+			{
+				try
+				{
+					task.run();
+				}
+				catch (RuntimeException ex)
+				{
+					logger.log(Level.WARNING, "Subtask failed", ex);
+				}
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			// terminate worker
+		}
+	}
+
+	/**
+	 * Shuts down the scheduler. No new subtasks are accepted, the worker
+	 * threads terminate after all pending subtasks are completed. Calculations
+	 * still running on this scheduler should be cancelled before to let them
+	 * terminate quickly.
+	 */
+	@Override
+	public void close()
+	{
+		synchronized (this.lock)
+		{
+			this.shutdown = true;
+			this.lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Returns true, if this scheduler is shut down.
+	 *
+	 * @return true, if this scheduler is shut down
+	 */
+	public boolean isShutdown()
+	{
+		synchronized (this.lock)
+		{
+			return this.shutdown;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * Enumeration of the search strategies of a calculation.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#setStrategy(CalculationStrategy)
+ */
+public enum CalculationStrategy
+{
+	/**
+	 * Uses {@link #EXHAUSTIVE} for up to {@value #NUM_OPERANDS_EXHAUSTIVE_MAX}
+	 * operands and {@link #REACHABLE_SET} beyond.
+	 */
+	AUTO,
+	/**
+	 * Enumerates all calculations. Finds all solutions and the exact
+	 * approximations, but the effort grows by more than an order of magnitude
+	 * with each additional operand.
+	 */
+	EXHAUSTIVE,
+	/**
+	 * Computes the set of reachable values for each subset of the operands,
+	 * combining the sets of disjoint subsets in the order of increasing subset
+	 * size. The search stops at the smallest subset size, for which the target
+	 * is reachable, and reconstructs one solution for each subset of this size
+	 * reaching the target. The effort grows with the number of subsets, which
+	 * allows up to {@value Calculator#NUM_OPERANDS_MAX} operands. The search is
+	 * not exhaustive: intermediate results are bounded, so calculations, which
+	 * need very large intermediate results, are not found, and approximations
+	 * greater than the target are limited to the bound.
+	 *
+	 * @see CalculationResult#isExhaustive()
+	 */
+	REACHABLE_SET;
+
+	/**
+	 * The maximum number of operands, for which {@link #AUTO} uses an
+	 * exhaustive search.
+	 */
+	public static final int NUM_OPERANDS_EXHAUSTIVE_MAX = 9;
+
+	/**
+	 * Resolves {@link #AUTO} to the strategy used for a given number of
+	 * operands.
+	 *
+	 * @param numOperands the number of operands
+	 * @return the strategy actually used, never {@link #AUTO}
+	 */
+	public CalculationStrategy resolve(int numOperands)
+	{
+		if (this != AUTO)
+		{
+			return this;
+		}
+		return (numOperands <= NUM_OPERANDS_EXHAUSTIVE_MAX) ? EXHAUSTIVE : REACHABLE_SET;
+	}
+}
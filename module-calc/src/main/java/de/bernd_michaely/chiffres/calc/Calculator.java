@@ -16,7 +16,15 @@
  */
 package de.bernd_michaely.chiffres.calc;
 
+import de.bernd_michaely.chiffres.calc.CalculationEvents.CalculationAbortedEvent;
+import de.bernd_michaely.chiffres.calc.CalculationEvents.CalculationEvent;
+import de.bernd_michaely.chiffres.calc.CalculationEvents.DedupEvent;
 import de.bernd_michaely.chiffres.common.util.ConcatCollection;
+import de.bernd_michaely.chiffres.common.util.SortedArraySet;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.SortedMap;
@@ -30,6 +38,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.IntStream;
 
 /**
@@ -39,14 +49,51 @@ public class Calculator implements Callable<CalculationResult>
 {
 	static final int THRESHOLD_DEPTH_FORK = 0;
 	static final int THRESHOLD_DEPTH_PROGRESS = THRESHOLD_DEPTH_FORK + 1;
+	/**
+	 * The default minimum time in milliseconds between two forced writes of a
+	 * checkpoint file.
+	 */
+	public static final long DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+	/**
+	 * The maximum number of operands supported by the
+	 * {@link CalculationStrategy#REACHABLE_SET reachable set} strategy.
+	 */
+	public static final int NUM_OPERANDS_MAX = 12;
+	/**
+	 * A suggested capacity of the transposition table.
+	 *
+	 * @see #setTranspositionTableCapacity(int)
+	 */
+	public static final int DEFAULT_TRANSPOSITION_TABLE_CAPACITY = 1 << 18;
+	private static final Logger logger = Logger.getLogger(Calculator.class.getName());
+	private static final boolean VECTOR_KERNEL_AVAILABLE =
+		ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
 
 	private final CalculationParams calculationParams;
 	private int numThreads = 1;
+	private int numThreadsLimit;
 	private TaskGlobalData taskGlobalData;
 	private final CalculationResult result;
 	private final Operand[] operands;
-	private BiConsumer<Integer, Integer> onProgress;
+	private final OperatorKernel operatorKernel;
+	private BiConsumer<Long, Long> onProgress;
 	private Consumer<SolutionCandidate> onIntermediateResult;
+	private Path checkpointFile;
+	private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	private boolean interningOperations = true;
+	private boolean vectorKernelEnabled = true;
+	private int transpositionTableCapacity;
+	private boolean iterativeDeepening;
+	private boolean stoppingAtShortestSolutions;
+	private int maxNumSolutions;
+	private SolutionScorer solutionScorer = SolutionScorer.DEPTH;
+	private SolutionPipelineOptions solutionPipelineOptions;
+	private CalculationStrategy strategy = CalculationStrategy.AUTO;
+	private CalculationMetrics metrics;
+	private ResultStore resultStore;
+	private CalculationScheduler scheduler;
+	private volatile CalculationScheduler.Client schedulerClient;
+	private volatile boolean prioritized;
 	private boolean testMode;
 
 	/**
@@ -61,6 +108,7 @@ public class Calculator implements Callable<CalculationResult>
 			throw new IllegalArgumentException("Calculator : Calculation is null");
 		}
 		this.calculationParams = calculationParams;
+		this.operatorKernel = OperatorKernel.create(calculationParams.getOperators());
 		this.result = new CalculationResult(calculationParams.getTarget());
 		final int numOperands = calculationParams.getNumOperands();
 		this.operands = new Operand[numOperands];
@@ -98,18 +146,80 @@ public class Calculator implements Callable<CalculationResult>
 			Math.max(2, Runtime.getRuntime().availableProcessors()) : 1);
 	}
 
+	/**
+	 * Returns the number of threads to use, that is the
+	 * {@link #setNumThreads(int) configured number of threads} clamped to the
+	 * range from one to the {@link #getNumThreadsLimit() limit}.
+	 *
+	 * @return the number of threads to use
+	 */
 	public int getNumThreads()
 	{
-		final int numThreadsLimit = 2 * Runtime.getRuntime().availableProcessors();
-		return Math.max(1, Math.min(numThreadsLimit, this.numThreads));
+		return Math.max(1, Math.min(getNumThreadsLimit(), this.numThreads));
 	}
 
+	/**
+	 * Sets the number of threads to use. If the calculation runs on a shared
+	 * {@link #setScheduler(CalculationScheduler) scheduler}, this is the
+	 * maximum number of concurrently running subtasks and the weight of the
+	 * calculation in the fair share of the scheduler threads. In this case it
+	 * may also be changed while the calculation is running.
+	 *
+	 * @param numThreads the number of threads to use
+	 */
 	public void setNumThreads(int numThreads)
 	{
 		this.numThreads = numThreads;
+		final CalculationScheduler.Client client = this.schedulerClient;
+		if (client != null)
+		{
+			client.setNumThreads(getNumThreads());
+		}
 	}
 
-	public void setOnProgress(BiConsumer<Integer, Integer> onProgress)
+	/**
+	 * Returns the default limit of the number of threads, which is twice the
+	 * number of available processors.
+	 *
+	 * @return the default limit of the number of threads
+	 */
+	public static int getDefaultNumThreadsLimit()
+	{
+		return 2 * Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the limit of the number of threads.
+	 *
+	 * @return the limit of the number of threads
+	 * @see #setNumThreadsLimit(int)
+	 */
+	public int getNumThreadsLimit()
+	{
+		return (this.numThreadsLimit > 0) ? this.numThreadsLimit : getDefaultNumThreadsLimit();
+	}
+
+	/**
+	 * Sets the limit the {@link #setNumThreads(int) number of threads} is
+	 * clamped to. The {@link #getDefaultNumThreadsLimit() default limit} is
+	 * based on the number of processors reported by the JVM, which may be
+	 * wrong, e.g. in containers with CPU quotas, so it can be overridden here.
+	 *
+	 * @param numThreadsLimit the limit of the number of threads or 0 for the
+	 *                        default limit
+	 * @throws IllegalArgumentException if numThreadsLimit is negative
+	 */
+	public void setNumThreadsLimit(int numThreadsLimit)
+	{
+		if (numThreadsLimit < 0)
+		{
+			throw new IllegalArgumentException("Calculator : negative limit of threads");
+		}
+		this.numThreadsLimit = numThreadsLimit;
+		setNumThreads(this.numThreads);
+	}
+
+	public void setOnProgress(BiConsumer<Long, Long> onProgress)
 	{
 		this.onProgress = onProgress;
 	}
@@ -119,6 +229,476 @@ public class Calculator implements Callable<CalculationResult>
 		this.onIntermediateResult = onIntermediateResult;
 	}
 
+	/**
+	 * Returns the checkpoint file.
+	 *
+	 * @return the checkpoint file or null, if checkpointing is disabled
+	 * @see #setCheckpointFile(Path)
+	 */
+	public Path getCheckpointFile()
+	{
+		return this.checkpointFile;
+	}
+
+	/**
+	 * Sets a file to save the results of completed subtasks to. If the file
+	 * already contains a checkpoint of the same calculation, e.g. from a
+	 * cancelled or otherwise interrupted run, the completed subtasks are skipped
+	 * and their saved results are used instead. The final result is the same as
+	 * the result of an uninterrupted run. A checkpoint of a different
+	 * calculation is overwritten.
+	 *
+	 * @param checkpointFile the checkpoint file or null to disable checkpointing
+	 */
+	public void setCheckpointFile(Path checkpointFile)
+	{
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * Sets the minimum time between two forced writes of the checkpoint file to
+	 * the storage device.
+	 *
+	 * @param checkpointInterval the checkpoint interval in milliseconds
+	 * @see #DEFAULT_CHECKPOINT_INTERVAL
+	 */
+	public void setCheckpointInterval(long checkpointInterval)
+	{
+		this.checkpointInterval = Math.max(0, checkpointInterval);
+	}
+
+	/**
+	 * Returns true, if structurally identical operations are shared between
+	 * solutions.
+	 *
+	 * @return true, if operations are interned
+	 * @see #setInterningOperations(boolean)
+	 */
+	public boolean isInterningOperations()
+	{
+		return this.interningOperations;
+	}
+
+	/**
+	 * Determines, whether structurally identical operations, e.g. a common
+	 * first step {@code 25 * 4 = 100}, are shared between solutions to reduce
+	 * the memory footprint of large result sets. Each subtask uses its own
+	 * intern table, the solutions of the final result are interned in a common
+	 * table. The default is true.
+	 *
+	 * @param interningOperations true to share identical operations
+	 */
+	public void setInterningOperations(boolean interningOperations)
+	{
+		this.interningOperations = interningOperations;
+	}
+
+	/**
+	 * Returns the search strategy.
+	 *
+	 * @return the search strategy
+	 * @see #setStrategy(CalculationStrategy)
+	 */
+	public CalculationStrategy getStrategy()
+	{
+		return this.strategy;
+	}
+
+	/**
+	 * Sets the search strategy. The default is {@link CalculationStrategy#AUTO}.
+	 * Checkpoints and metrics are supported by the exhaustive strategy only.
+	 *
+	 * @param strategy the search strategy
+	 * @throws IllegalArgumentException if strategy is null
+	 */
+	public void setStrategy(CalculationStrategy strategy)
+	{
+		if (strategy == null)
+		{
+			throw new IllegalArgumentException("Calculator : strategy is null");
+		}
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Returns true, if the vector kernel is available. It requires the
+	 * incubating Vector API, which has to be added by the JVM option
+	 * {@code --add-modules jdk.incubator.vector}.
+	 *
+	 * @return true, if the vector kernel is available
+	 * @see #setVectorKernelEnabled(boolean)
+	 */
+	public static boolean isVectorKernelAvailable()
+	{
+		return VECTOR_KERNEL_AVAILABLE;
+	}
+
+	/**
+	 * Returns true, if the vector kernel is enabled.
+	 *
+	 * @return true, if the vector kernel is enabled
+	 * @see #setVectorKernelEnabled(boolean)
+	 */
+	public boolean isVectorKernelEnabled()
+	{
+		return this.vectorKernelEnabled;
+	}
+
+	/**
+	 * Determines, whether the last two levels of the recursion are evaluated
+	 * in SIMD lanes by the vector kernel, if it is
+	 * {@link #isVectorKernelAvailable() available}. The vector kernel is used
+	 * for the default operators of games with at least four operands, but not
+	 * with metrics enabled, otherwise the scalar code is used. The results are
+	 * identical. The default is true.
+	 *
+	 * @param vectorKernelEnabled true to enable the vector kernel
+	 */
+	public void setVectorKernelEnabled(boolean vectorKernelEnabled)
+	{
+		this.vectorKernelEnabled = vectorKernelEnabled;
+	}
+
+	/**
+	 * Returns true, if the vector kernel is used for this calculation.
+	 */
+	private boolean isVectorKernelUsed()
+	{
+		return isVectorKernelEnabled() && isVectorKernelAvailable() &&
+			getCalculationParams().isDefaultOperators() &&
+			getCalculationParams().getNumOperands() >= 4 &&
+			getCalculationParams().getConstraints().getMaxIntermediateValue() == SolutionConstraints.UNLIMITED &&
+			!isTestMode() && getMetrics() == null;
+	}
+
+	/**
+	 * Returns the capacity of the transposition table.
+	 *
+	 * @return the capacity of the transposition table, zero if disabled
+	 * @see #setTranspositionTableCapacity(int)
+	 */
+	public int getTranspositionTableCapacity()
+	{
+		return this.transpositionTableCapacity;
+	}
+
+	/**
+	 * Sets the capacity of the transposition table. The table caches, keyed by
+	 * the multiset of remaining values, whether the target is reachable in a
+	 * subtree of the exhaustive search and the best approximations of the
+	 * subtree. Subtrees not reaching the target are skipped when the same
+	 * values occur again. The solutions and approximations are identical, but
+	 * the number of recursive method calls is reduced, so it is not comparable
+	 * to calculations without the table. The table is most effective for
+	 * targets which are rarely or not at all reachable. The default is zero,
+	 * that is, the table is disabled.
+	 *
+	 * @param capacity the maximum number of entries, zero to disable the
+	 *                 table
+	 * @throws IllegalArgumentException if capacity is negative
+	 * @see #DEFAULT_TRANSPOSITION_TABLE_CAPACITY
+	 * @see CalculationResult#getCounterTranspositionHits()
+	 */
+	public void setTranspositionTableCapacity(int capacity)
+	{
+		if (capacity < 0)
+		{
+			throw new IllegalArgumentException("Calculator : capacity is negative");
+		}
+		this.transpositionTableCapacity = capacity;
+	}
+
+	/**
+	 * Returns true, if the exhaustive search uses iterative deepening.
+	 *
+	 * @return true, if iterative deepening is used
+	 * @see #setIterativeDeepening(boolean)
+	 */
+	public boolean isIterativeDeepening()
+	{
+		return this.iterativeDeepening;
+	}
+
+	/**
+	 * Determines, whether the exhaustive search uses iterative deepening. The
+	 * search is then repeated with an increasing maximum number of operations,
+	 * and each repetition records the solutions with exactly that number of
+	 * operations. So the shortest solutions are found first and passed to the
+	 * {@link #setOnIntermediateResult(Consumer) intermediate result} callback
+	 * in the order of increasing depth. The solutions and approximations are
+	 * the same as without iterative deepening. The progress restarts with
+	 * each depth. Checkpoints are not supported with iterative deepening. The
+	 * default is false.
+	 *
+	 * @param iterativeDeepening true to use iterative deepening
+	 * @see #setStoppingAtShortestSolutions(boolean)
+	 */
+	public void setIterativeDeepening(boolean iterativeDeepening)
+	{
+		this.iterativeDeepening = iterativeDeepening;
+	}
+
+	/**
+	 * Returns true, if iterative deepening stops after the first depth
+	 * producing solutions.
+	 *
+	 * @return true, if only the shortest solutions are searched
+	 * @see #setStoppingAtShortestSolutions(boolean)
+	 */
+	public boolean isStoppingAtShortestSolutions()
+	{
+		return this.stoppingAtShortestSolutions;
+	}
+
+	/**
+	 * Determines, whether iterative deepening stops after the first depth
+	 * producing solutions. The result then contains the solutions with the
+	 * least number of operations only and is not
+	 * {@link CalculationResult#isExhaustive() exhaustive}, unless no
+	 * solutions exist or the shortest solutions use all operands. This
+	 * setting has an effect only, if
+	 * {@link #setIterativeDeepening(boolean) iterative deepening} is enabled.
+	 * The default is false.
+	 *
+	 * @param stoppingAtShortestSolutions true to search the shortest solutions
+	 *                                    only
+	 */
+	public void setStoppingAtShortestSolutions(boolean stoppingAtShortestSolutions)
+	{
+		this.stoppingAtShortestSolutions = stoppingAtShortestSolutions;
+	}
+
+	/**
+	 * Returns the maximum number of solutions kept.
+	 *
+	 * @return the maximum number of solutions or zero, if unlimited
+	 * @see #setMaxNumSolutions(int)
+	 */
+	public int getMaxNumSolutions()
+	{
+		return this.maxNumSolutions;
+	}
+
+	/**
+	 * Sets the maximum number of solutions kept. If limited, only the best
+	 * ranked solutions according to the {@link #setSolutionScorer(SolutionScorer)
+	 * solution scorer} are kept, one per equivalence class, and
+	 * {@link CalculationResult#getRankedSolutions()} returns them in the order
+	 * of rank. Each subtask keeps its best ranked solutions only, so the memory
+	 * footprint is bounded independent of the total number of solutions. The
+	 * intermediate result callback still receives all solutions found.
+	 * Checkpoints are not supported with a limited number of solutions. The
+	 * default is zero, that is unlimited.
+	 *
+	 * @param maxNumSolutions the maximum number of solutions or zero for
+	 *                        unlimited
+	 * @throws IllegalArgumentException if maxNumSolutions is negative
+	 * @see CalculationResult#isTruncated()
+	 */
+	public void setMaxNumSolutions(int maxNumSolutions)
+	{
+		if (maxNumSolutions < 0)
+		{
+			throw new IllegalArgumentException("Calculator : maxNumSolutions is negative");
+		}
+		this.maxNumSolutions = maxNumSolutions;
+	}
+
+	/**
+	 * Returns the scorer ranking the solutions.
+	 *
+	 * @return the solution scorer
+	 * @see #setSolutionScorer(SolutionScorer)
+	 */
+	public SolutionScorer getSolutionScorer()
+	{
+		return this.solutionScorer;
+	}
+
+	/**
+	 * Sets the scorer ranking the solutions, if the
+	 * {@link #setMaxNumSolutions(int) number of solutions} is limited. The
+	 * default is {@link SolutionScorer#DEPTH}.
+	 *
+	 * @param solutionScorer the solution scorer
+	 * @throws IllegalArgumentException if solutionScorer is null
+	 */
+	public void setSolutionScorer(SolutionScorer solutionScorer)
+	{
+		if (solutionScorer == null)
+		{
+			throw new IllegalArgumentException("Calculator : solutionScorer is null");
+		}
+		this.solutionScorer = solutionScorer;
+	}
+
+	/**
+	 * Returns the options of the solution pipeline.
+	 *
+	 * @return the options of the solution pipeline or null, if disabled
+	 * @see #setSolutionPipeline(SolutionPipelineOptions)
+	 */
+	public SolutionPipelineOptions getSolutionPipeline()
+	{
+		return this.solutionPipelineOptions;
+	}
+
+	/**
+	 * Enables a pipeline processing the exact hits of the exhaustive search on
+	 * separate threads. The search threads then only pass the operations of
+	 * each hit on in batches, while the redundancy check and the equivalence
+	 * classes are computed by the canonicalizer stage and the solutions are
+	 * deduplicated by the deduplicator stage, each with its own number of
+	 * threads. The stages are connected by bounded queues. The intermediate
+	 * result callback is called by the canonicalizer threads. The metrics of
+	 * the stages are available from
+	 * {@link CalculationMetrics#getPipelineStages()}. Checkpoints are not
+	 * supported with a solution pipeline. The default is null, that is the
+	 * hits are processed by the search threads.
+	 *
+	 * @param options the pipeline options or null to disable the pipeline
+	 */
+	public void setSolutionPipeline(SolutionPipelineOptions options)
+	{
+		this.solutionPipelineOptions = options;
+	}
+
+	/**
+	 * Returns the search strategy actually used for the calculation.
+	 *
+	 * @return the resolved search strategy
+	 */
+	private CalculationStrategy getResolvedStrategy()
+	{
+		return this.strategy.resolve(getCalculationParams().getNumOperands());
+	}
+
+	/**
+	 * Returns the metrics object filled by the calculation.
+	 *
+	 * @return the metrics object or null, if metrics are disabled
+	 * @see #setMetrics(CalculationMetrics)
+	 */
+	public CalculationMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	/**
+	 * Sets a metrics object to be filled by the calculation. The object is
+	 * reset at the start of the calculation. If set to null, which is the
+	 * default, no metrics are collected.
+	 *
+	 * @param metrics the metrics object or null to disable metrics
+	 */
+	public void setMetrics(CalculationMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the result store used by the calculation.
+	 *
+	 * @return the result store or null, if none
+	 * @see #setResultStore(ResultStore)
+	 */
+	public ResultStore getResultStore()
+	{
+		return this.resultStore;
+	}
+
+	/**
+	 * Sets a persistent store for the results of complete calculations. If the
+	 * store contains the result of the same game, that is a calculation with
+	 * the same target, operators, constraints and operands in any order, the
+	 * result is loaded from the store instead of being calculated. Otherwise
+	 * the result of a complete calculation is saved to the store. The store is
+	 * not used, if the number of solutions is limited, for the reachable set
+	 * strategy and for iterative deepening stopping at the shortest solutions.
+	 * The store is not closed by the calculator.
+	 *
+	 * @param resultStore the result store or null to disable it, which is the
+	 *                    default
+	 * @see CalculationResult#isFromResultStore()
+	 */
+	public void setResultStore(ResultStore resultStore)
+	{
+		this.resultStore = resultStore;
+	}
+
+	/**
+	 * Returns the scheduler the subtasks are run on.
+	 *
+	 * @return the scheduler or null, if the calculation uses its own threads
+	 * @see #setScheduler(CalculationScheduler)
+	 */
+	public CalculationScheduler getScheduler()
+	{
+		return this.scheduler;
+	}
+
+	/**
+	 * Sets a scheduler shared with other calculations to run the subtasks on.
+	 * In this case the {@link #setNumThreads(int) number of threads} is the
+	 * cap and weight of this calculation within the scheduler. If set to null,
+	 * which is the default, the calculation creates its own threads.
+	 *
+	 * @param scheduler the shared scheduler or null
+	 */
+	public void setScheduler(CalculationScheduler scheduler)
+	{
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Returns true, if this calculation is served before others by a shared
+	 * scheduler.
+	 *
+	 * @return true, if this calculation is prioritized
+	 * @see #setPrioritized(boolean)
+	 */
+	public boolean isPrioritized()
+	{
+		return this.prioritized;
+	}
+
+	/**
+	 * Determines, whether this calculation is served before all other
+	 * calculations of a shared scheduler, e.g. because it is shown in the
+	 * foreground. May be changed while the calculation is running. Has no
+	 * effect without a shared scheduler.
+	 *
+	 * @param prioritized true to serve this calculation first
+	 * @see #setScheduler(CalculationScheduler)
+	 */
+	public void setPrioritized(boolean prioritized)
+	{
+		this.prioritized = prioritized;
+		final CalculationScheduler.Client client = this.schedulerClient;
+		if (client != null)
+		{
+			client.setPrioritized(prioritized);
+		}
+	}
+
+	private CalculationCheckpoint openCheckpoint()
+	{
+		if (this.checkpointFile != null)
+		{
+			try
+			{
+				return CalculationCheckpoint.open(this.checkpointFile, getCalculationParams(),
+					this.operands, isTestMode(), this.checkpointInterval);
+			}
+			catch (IOException ex)
+			{
+				logger.log(Level.WARNING, "Can't open checkpoint file »" +
+					this.checkpointFile + "« – checkpointing disabled", ex);
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Cancels the calculation, if it is running in a separate thread.
 	 *
@@ -143,65 +723,305 @@ public class Calculator implements Callable<CalculationResult>
 		this.testMode = testMode;
 	}
 
-	private int calcNumSubTasksMaxOnLevel(int depth)
+	private long calcNumSubTasksMaxOnLevel(int depth)
 	{
-		final int n = getCalculationParams().getNumOperands() - depth;
-		return 2 * n * (n - 1);
+		final long n = getCalculationParams().getNumOperands() - depth;
+		return this.operatorKernel.size() * n * (n - 1) / 2;
 	}
 
-	private int calcNumSubTasksMax(int maxDepth)
+	private long calcNumSubTasksMax(int maxDepth)
 	{
 		return IntStream.rangeClosed(0, maxDepth).
-			reduce(1, (a, b) -> a * calcNumSubTasksMaxOnLevel(b));
+			mapToLong(this::calcNumSubTasksMaxOnLevel).reduce(1, (a, b) -> a * b);
 	}
 
-	private int calcNumSubTasksMax()
+	private long calcNumSubTasksMax()
 	{
 		return calcNumSubTasksMax(THRESHOLD_DEPTH_FORK);
 	}
 
-	public int getMaxProgressValue()
+	/**
+	 * Returns the theoretical upper bound of the progress value.
+	 *
+	 * @return the maximum progress value
+	 */
+	public long getMaxProgressValue()
 	{
+		if (getResolvedStrategy() == CalculationStrategy.REACHABLE_SET)
+		{
+			return (1L << getCalculationParams().getNumOperands()) - 1;
+		}
 		return calcNumSubTasksMax(THRESHOLD_DEPTH_PROGRESS);
 	}
 
+	/**
+	 * Initializes the data global to all subtasks of a search.
+	 *
+	 * @param solutionPipeline optional pipeline processing the exact hits
+	 * @param minSolutionDepth the minimum number of operations of solutions to
+	 *                         record
+	 * @param maxSolutionDepth the maximum number of operations of the search
+	 */
+	private void initTaskGlobalData(CompletionService<SubTaskResult> completionService,
+		CalculationCheckpoint checkpoint, CalculationMetrics calculationMetrics,
+		SolutionPipeline solutionPipeline, int minSolutionDepth, int maxSolutionDepth)
+	{
+		final int numOperands = getCalculationParams().getNumOperands();
+		final TranspositionTable transpositionTable = (getTranspositionTableCapacity() >= 2 &&
+			getResolvedStrategy() != CalculationStrategy.REACHABLE_SET) ?
+				new TranspositionTable(getTranspositionTableCapacity()) : null;
+		this.taskGlobalData = new TaskGlobalData(getCalculationParams().getTarget(),
+			numOperands, minSolutionDepth, maxSolutionDepth,
+			this.operatorKernel, getCalculationParams().getConstraints(), transpositionTable,
+			getMaxNumSolutions(), getSolutionScorer(), solutionPipeline, completionService,
+			this.onProgress, this.onIntermediateResult, isTestMode(), isInterningOperations(),
+			calculationMetrics != null, isVectorKernelUsed() && maxSolutionDepth == numOperands - 1,
+			(checkpoint != null) ? checkpoint.getRestoredResults() : null);
+		// respect a cancel request issued before the start:
+		this.taskGlobalData.cancelled = this.result.cancelled;
+	}
+
+	/**
+	 * Runs the exhaustive search of the current task global data.
+	 *
+	 * @return the combined result of the main task and all subtasks
+	 */
+	private SubTaskResult calculateExhaustive(CompletionService<SubTaskResult> completionService,
+		CalculationCheckpoint checkpoint, CalculationMetrics calculationMetrics)
+	{
+		// set progressMax to theoretical upper bound as initial guess:
+		this.taskGlobalData.setProgressMax(getMaxProgressValue());
+		final SubTaskResult resultMainTask = new SubTask(this.taskGlobalData, this.operands).call();
+		if (calculationMetrics != null)
+		{
+			calculationMetrics.combine(resultMainTask.metrics);
+		}
+		final int numSubTasks = this.taskGlobalData.getCounterSubTasks();
+		final long numProgressPerSubTask = calcNumSubTasksMaxOnLevel(THRESHOLD_DEPTH_PROGRESS);
+		// update progressMax to exact value:
+		this.taskGlobalData.setProgressMax(numSubTasks * numProgressPerSubTask);
+		// combine results of subtasks restored from checkpoint:
+		final ConcatCollection<SubTaskResult> skippedResults =
+			this.taskGlobalData.getSkippedResults();
+		for (SubTaskResult skippedResult : skippedResults)
+		{
+			if (this.onIntermediateResult != null)
+			{
+				for (SolutionCandidate[] run : skippedResult.sortedRuns)
+				{
+					Arrays.asList(run).forEach(this.onIntermediateResult);
+				}
+			}
+			resultMainTask.combine(skippedResult);
+		}
+		if (!skippedResults.isEmpty())
+		{
+			this.taskGlobalData.incrementProgress(skippedResults.size() * numProgressPerSubTask);
+		}
+		final int numSubmittedSubTasks = this.taskGlobalData.getCounterSubmittedSubTasks();
+		for (int i = 0; i < numSubmittedSubTasks; i++)
+		{
+			try
+			{
+				final SubTaskResult subTaskResult = completionService.take().get();
+				if (checkpoint != null)
+				{
+					// save before combining, which links the candidate collections:
+					checkpoint.write(subTaskResult);
+				}
+				if (calculationMetrics != null)
+				{
+					final long timeStart = System.nanoTime();
+					resultMainTask.combine(subTaskResult);
+					calculationMetrics.addMergeTime(System.nanoTime() - timeStart);
+					calculationMetrics.combine(subTaskResult.metrics);
+				}
+				else
+				{
+					resultMainTask.combine(subTaskResult);
+				}
+			}
+			catch (ExecutionException | InterruptedException ex)
+			{
+				this.result.cancelled = true;
+			}
+		}
+		if (this.taskGlobalData.transpositionTable != null)
+		{
+			this.result.counterTranspositionHits += this.taskGlobalData.transpositionTable.getCounterHits();
+		}
+		return resultMainTask;
+	}
+
+	/**
+	 * Returns true, if the result store is used for this calculation. Results
+	 * of calculations not yielding all solutions of a game are neither loaded
+	 * from nor saved to the store.
+	 */
+	private boolean isResultStoreUsed()
+	{
+		return this.resultStore != null && getMaxNumSolutions() == 0 &&
+			getResolvedStrategy() != CalculationStrategy.REACHABLE_SET &&
+			!(isIterativeDeepening() && isStoppingAtShortestSolutions());
+	}
+
+	private boolean loadResult()
+	{
+		if (isResultStoreUsed())
+		{
+			try
+			{
+				if (this.resultStore.load(getCalculationParams(), this.operands, isTestMode(),
+					isInterningOperations() ? new OperationInterner() : null, this.result))
+				{
+					if (this.metrics != null)
+					{
+						this.metrics.reset(getCalculationParams().getNumOperands());
+					}
+					return true;
+				}
+			}
+			catch (IOException | RuntimeException ex)
+			{
+				logger.log(Level.WARNING, "Can't load result from result store", ex);
+			}
+		}
+		return false;
+	}
+
+	private void storeResult()
+	{
+		if (isResultStoreUsed() && !this.result.cancelled && this.result.exhaustive)
+		{
+			try
+			{
+				this.resultStore.store(getCalculationParams(), isTestMode(), this.result);
+			}
+			catch (IOException | RuntimeException ex)
+			{
+				logger.log(Level.WARNING, "Can't save result to result store", ex);
+			}
+		}
+	}
+
 	@Override
 	public CalculationResult call()
+	{
+		final CalculationEvent event = new CalculationEvent();
+		event.begin();
+		if (!loadResult())
+		{
+			calculate();
+			storeResult();
+		}
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.target = getCalculationParams().getTarget();
+			event.calculation = getCalculationParams().toString();
+			event.numThreads = (this.scheduler != null) ?
+				this.scheduler.getNumThreads() : getNumThreads();
+			event.numSubTasks = (this.taskGlobalData != null) ?
+				this.taskGlobalData.getCounterSubTasks() : 0;
+			event.counterRecursionCalls = this.result.getCounterRecursionCalls();
+			event.numSolutions = this.result.solutions.size();
+			event.exactSolutionFound = this.result.isExactSolutionFound();
+			event.cancelled = this.result.cancelled;
+			event.commit();
+		}
+		return this.result;
+	}
+
+	private void calculate()
 	{
 		try
 		{
 			final SubTaskResult resultMainTask;
+			final boolean reachableSet = getResolvedStrategy() == CalculationStrategy.REACHABLE_SET;
+			if (reachableSet && getCalculationParams().getNumOperands() > NUM_OPERANDS_MAX)
+			{
+				throw new IllegalArgumentException("Calculator : more than " + NUM_OPERANDS_MAX + " operands");
+			}
 			final int n = getNumThreads();
-			final Executor executor = (n > 1) ?
-				new SubTaskExecutor(n) : Executors.newSingleThreadExecutor();
+			final Executor executor;
+			if (this.scheduler != null)
+			{
+				this.schedulerClient = this.scheduler.register(n, this.prioritized);
+				executor = this.schedulerClient;
+			}
+			else
+			{
+				executor = (n > 1) ? new SubTaskExecutor(n) : Executors.newSingleThreadExecutor();
+			}
+			final SolutionPipeline solutionPipeline = (getSolutionPipeline() != null && !reachableSet) ?
+				new SolutionPipeline(getSolutionPipeline(), this.onIntermediateResult,
+					isInterningOperations(), getMaxNumSolutions(), getSolutionScorer()) : null;
+			final CalculationCheckpoint checkpoint = (reachableSet || isIterativeDeepening() ||
+				getMaxNumSolutions() > 0 || solutionPipeline != null) ? null : openCheckpoint();
+			final CalculationMetrics calculationMetrics = this.metrics;
+			if (calculationMetrics != null)
+			{
+				calculationMetrics.reset(getCalculationParams().getNumOperands());
+			}
 			try
 			{
 				final CompletionService<SubTaskResult> completionService =
 					new ExecutorCompletionService<>(executor);
-				this.taskGlobalData = new TaskGlobalData(getCalculationParams().getTarget(),
-					getCalculationParams().getNumOperands(), completionService,
-					this.onProgress, this.onIntermediateResult, isTestMode());
-				// set progressMax to theoretical upper bound as initial guess:
-				this.taskGlobalData.setProgressMax(getMaxProgressValue());
-				resultMainTask = new SubTask(this.taskGlobalData, this.operands).call();
-				final int numSubTasks = this.taskGlobalData.getCounterSubTasks();
-				// update progressMax to exact value:
-				this.taskGlobalData.setProgressMax(numSubTasks *
-					calcNumSubTasksMaxOnLevel(THRESHOLD_DEPTH_PROGRESS));
-				for (int i = 0; i < numSubTasks; i++)
+				final int minNumOperations = getCalculationParams().getMinNumOperations();
+				final int maxNumOperations = getCalculationParams().getMaxNumOperations();
+				if (reachableSet)
 				{
+					initTaskGlobalData(completionService, null, calculationMetrics, null,
+						minNumOperations, maxNumOperations);
+					final ReachableSetSolver solver = new ReachableSetSolver(
+						this.taskGlobalData, this.operands, n);
+					this.taskGlobalData.setProgressMax(solver.getProgressMax());
+					this.result.exhaustive = false;
+					SubTaskResult resultReachableSet;
 					try
 					{
-						resultMainTask.combine(completionService.take().get());
+						resultReachableSet = solver.call(executor);
 					}
 					catch (ExecutionException | InterruptedException ex)
 					{
 						this.result.cancelled = true;
+						resultReachableSet = new SubTaskResult();
 					}
+					resultMainTask = resultReachableSet;
+				}
+				else if (isIterativeDeepening())
+				{
+					resultMainTask = new SubTaskResult();
+					for (int depth = minNumOperations; depth <= maxNumOperations && !this.result.cancelled; depth++)
+					{
+						initTaskGlobalData(completionService, null, calculationMetrics, solutionPipeline,
+							depth, depth);
+						resultMainTask.combine(calculateExhaustive(completionService, null, calculationMetrics));
+						if (resultMainTask.exactSolutionFound && isStoppingAtShortestSolutions() &&
+							depth < maxNumOperations)
+						{
+							this.result.exhaustive = false;
+							break;
+						}
+					}
+				}
+				else
+				{
+					initTaskGlobalData(completionService, checkpoint, calculationMetrics, solutionPipeline,
+						minNumOperations, maxNumOperations);
+					resultMainTask = calculateExhaustive(completionService, checkpoint, calculationMetrics);
 				}
 			}
 			finally
 			{
+				if (solutionPipeline != null)
+				{
+					solutionPipeline.close();
+				}
+				if (checkpoint != null)
+				{
+					checkpoint.close();
+				}
 				if (executor instanceof ExecutorService)
 				{
 					((ExecutorService) executor).shutdown();
@@ -210,18 +1030,119 @@ public class Calculator implements Callable<CalculationResult>
 				{
 					((SubTaskExecutor) executor).shutdown();
 				}
+				else if (executor instanceof CalculationScheduler.Client)
+				{
+					((CalculationScheduler.Client) executor).close();
+					this.schedulerClient = null;
+				}
 			}
 			this.result.combine(resultMainTask);
-			this.result.solutions.addAll(collectSolutions(resultMainTask.solutionCandidates));
+			if (solutionPipeline != null)
+			{
+				solutionPipeline.finish();
+				this.result.numFilteredSolutions += solutionPipeline.getNumFilteredSolutions();
+				if (calculationMetrics != null)
+				{
+					calculationMetrics.redundancyRejects += solutionPipeline.getNumFilteredSolutions();
+					calculationMetrics.setPipelineStages(solutionPipeline.getMetrics());
+				}
+			}
+			final long timeStartDedup = System.nanoTime();
+			final DedupEvent dedupEvent = new DedupEvent();
+			dedupEvent.begin();
+			final int numCandidates = (solutionPipeline != null) ?
+				(int) solutionPipeline.getNumCandidates() :
+				resultMainTask.solutionCandidates.size() + SolutionRuns.size(resultMainTask.sortedRuns);
+			final OperationInterner operationInterner =
+				isInterningOperations() ? new OperationInterner() : null;
+			if (getMaxNumSolutions() > 0)
+			{
+				final TopSolutions topSolutions = (solutionPipeline != null) ?
+					solutionPipeline.collectTopSolutions(getMaxNumSolutions(), getSolutionScorer()) :
+					collectTopSolutions(resultMainTask.solutionCandidates);
+				this.result.truncated = resultMainTask.truncated || topSolutions.isTruncated() ||
+					(solutionPipeline != null && solutionPipeline.isTruncated());
+				this.result.rankedSolutions = new ArrayList<>(topSolutions.size());
+				for (SolutionCandidate candidate : topSolutions.getCandidates())
+				{
+					this.result.rankedSolutions.add((operationInterner != null) ?
+						operationInterner.intern(candidate.solution) : candidate.solution);
+				}
+				this.result.solutions = SolutionRuns.toSortedSet(
+					this.result.rankedSolutions.toArray(Solution[]::new), null);
+			}
+			else if (solutionPipeline != null)
+			{
+				this.result.solutions = SolutionRuns.toSortedSet(solutionPipeline.
+					collectSolutions(operationInterner).toArray(Solution[]::new), null);
+			}
+			else
+			{
+				// candidates not sorted by a subtask, e.g. of the reachable set solver:
+				if (!resultMainTask.solutionCandidates.isEmpty())
+				{
+					resultMainTask.sortedRuns.add(SolutionRuns.sort(resultMainTask.solutionCandidates));
+					resultMainTask.solutionCandidates.clear();
+				}
+				this.result.solutions = SolutionRuns.merge(resultMainTask.sortedRuns, operationInterner);
+			}
+			dedupEvent.end();
+			if (dedupEvent.shouldCommit())
+			{
+				dedupEvent.numCandidates = numCandidates;
+				dedupEvent.numSolutions = this.result.solutions.size();
+				dedupEvent.commit();
+			}
+			if (calculationMetrics != null)
+			{
+				calculationMetrics.addDedupTime(System.nanoTime() - timeStartDedup);
+			}
 		}
 		catch (OutOfMemoryError ex)
 		{
 			this.result.outOfMemory = true;
 			this.result.cancelled = true;
-			this.result.solutions.clear();
+			this.result.solutions = new SortedArraySet<>();
+			this.result.rankedSolutions = null;
+			commitAbortedEvent();
 			throw ex;
 		}
-		return this.result;
+		if (this.result.cancelled)
+		{
+			commitAbortedEvent();
+		}
+	}
+
+	private void commitAbortedEvent()
+	{
+		final CalculationAbortedEvent event = new CalculationAbortedEvent();
+		if (event.shouldCommit())
+		{
+			event.target = getCalculationParams().getTarget();
+			event.calculation = getCalculationParams().toString();
+			event.outOfMemory = this.result.outOfMemory;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Solves a batch of games on a pool of worker threads shared by all games.
+	 * The subtasks of concurrently running games are interleaved, so small
+	 * games are not delayed until large games have finished. The results are
+	 * available in the order of completion. Each call creates its own pool,
+	 * which is released when all games are completed or the batch is closed.
+	 *
+	 * @param games   the games to solve
+	 * @param options the batch options
+	 * @return a handle to take the results from
+	 */
+	public static BatchCalculation solveAll(Collection<CalculationParams> games, BatchOptions options)
+	{
+		if (games == null || options == null)
+		{
+			throw new IllegalArgumentException("Calculator : games or options are null");
+		}
+		return new BatchCalculation(games, options);
 	}
 
 	/**
@@ -233,6 +1154,22 @@ public class Calculator implements Callable<CalculationResult>
 	 */
 	public static Collection<Solution> collectSolutions(
 		ConcatCollection<SolutionCandidate> solutionCandidates)
+	{
+		return collectSolutions(solutionCandidates, null);
+	}
+
+	/**
+	 * Returns a collection of final solutions from solutionCandidates, sharing
+	 * structurally identical operations through the given intern table.
+	 *
+	 * @param solutionCandidates the solution candidates
+	 * @param operationInterner  the intern table or null for no interning
+	 * @return a collection of final solutions from solutionCandidates
+	 * @see #collectSolutions(ConcatCollection)
+	 */
+	static Collection<Solution> collectSolutions(
+		ConcatCollection<SolutionCandidate> solutionCandidates,
+		OperationInterner operationInterner)
 	{
 		final SortedMap<Solution.EquivalenceClass, Solution> equivalenceClasses = new TreeMap<>();
 		final Iterator<SolutionCandidate> iterator = solutionCandidates.iterator();
@@ -248,6 +1185,29 @@ public class Calculator implements Callable<CalculationResult>
 			}
 			iterator.remove(); // regain memory immediately during iteration
 		}
+		if (operationInterner != null)
+		{
+			equivalenceClasses.replaceAll((equivalenceClass, solution) ->
+				operationInterner.intern(solution));
+		}
 		return equivalenceClasses.values();
 	}
+
+	/**
+	 * Returns the best ranked solution candidates, one per equivalence class.
+	 *
+	 * @param solutionCandidates the solution candidates
+	 * @return the best ranked solution candidates
+	 */
+	private TopSolutions collectTopSolutions(ConcatCollection<SolutionCandidate> solutionCandidates)
+	{
+		final TopSolutions topSolutions = new TopSolutions(getMaxNumSolutions(), getSolutionScorer());
+		final Iterator<SolutionCandidate> iterator = solutionCandidates.iterator();
+		while (iterator.hasNext())
+		{
+			topSolutions.add(iterator.next());
+			iterator.remove(); // regain memory immediately during iteration
+		}
+		return topSolutions;
+	}
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms up the calculator by solving a representative set of small games.
+ * The first calculation after starting the JVM is considerably slower than
+ * later ones, because the recursion, the solutions and their comparators are
+ * still interpreted. Running the warm-up in the background, e.g. while the
+ * user interface is loading, lets the JIT compiler do its work before the
+ * first real calculation.
+ * <p>
+ * The games are solved on a scheduler created by the warm-up thread, so its
+ * workers inherit the priority of the warm-up thread. A warm-up started by
+ * {@link #start()} therefore runs at minimum priority and does not delay the
+ * startup of the application.
+ *
+ * @author Bernd Michaely
+ */
+public class CalculatorWarmup implements Runnable
+{
+	private static final Logger logger = Logger.getLogger(CalculatorWarmup.class.getName());
+	/**
+	 * The default games, standard games of four to six operands with exact
+	 * solutions and approximations.
+	 */
+	public static final List<CalculationParams> DEFAULT_GAMES = List.of(
+		new CalculationParams(100, 25, 4, 3, 7),
+		new CalculationParams(317, 5, 50, 2, 3, 75),
+		new CalculationParams(961, 1, 2, 3, 4, 5),
+		new CalculationParams(527, 8, 10, 2, 9, 10, 4),
+		new CalculationParams(961, 1, 2, 3, 4, 5, 6),
+		new CalculationParams(317, 5, 50, 2, 3, 75, 3));
+	/**
+	 * The number of threads used to solve the games.
+	 */
+	static final int NUM_THREADS = 2;
+	private final List<CalculationParams> games;
+	private volatile boolean cancelled;
+	private volatile Calculator calculator;
+	private volatile int numGamesSolved;
+	private volatile long duration;
+
+	/**
+	 * Creates a warm-up solving the {@link #DEFAULT_GAMES default games}.
+	 */
+	public CalculatorWarmup()
+	{
+		this(DEFAULT_GAMES);
+	}
+
+	/**
+	 * Creates a warm-up solving the given games.
+	 *
+	 * @param games the games to solve
+	 * @throws IllegalArgumentException if games is null
+	 */
+	public CalculatorWarmup(List<CalculationParams> games)
+	{
+		if (games == null)
+		{
+			throw new IllegalArgumentException("CalculatorWarmup : games are null");
+		}
+		this.games = List.copyOf(games);
+	}
+
+	/**
+	 * Solves the games in the current thread, until all games are solved or
+	 * the warm-up is cancelled.
+	 */
+	@Override
+	public void run()
+	{
+		final long timeStart = System.nanoTime();
+		try (CalculationScheduler scheduler = new CalculationScheduler(NUM_THREADS))
+		{
+			for (CalculationParams game : this.games)
+			{
+				final Calculator calc = new Calculator(game);
+				calc.setNumThreads(NUM_THREADS);
+				calc.setScheduler(scheduler);
+				this.calculator = calc;
+				if (this.cancelled)
+				{
+					break;
+				}
+				calc.call();
+				if (this.cancelled)
+				{
+					break;
+				}
+				this.numGamesSolved++;
+			}
+		}
+		finally
+		{
+			this.calculator = null;
+			this.duration = System.nanoTime() - timeStart;
+		}
+		logger.log(Level.FINE, "Calculator warm-up : {0} games solved in {1} ms",
+			new Object[]
+			{
+				this.numGamesSolved, this.duration / 1_000_000
+			});
+	}
+
+	/**
+	 * Starts the warm-up on a new daemon thread of minimum priority.
+	 *
+	 * @return the started thread
+	 */
+	public Thread start()
+	{
+		final Thread thread = new Thread(this, "CalculatorWarmup");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Cancels the warm-up. The currently running calculation is cancelled and
+	 * no further games are solved.
+	 */
+	public void cancel()
+	{
+		this.cancelled = true;
+		final Calculator calc = this.calculator;
+		if (calc != null)
+		{
+			calc.cancel();
+		}
+	}
+
+	/**
+	 * Returns true, if the warm-up has been cancelled.
+	 *
+	 * @return true, if the warm-up has been cancelled
+	 */
+	public boolean isCancelled()
+	{
+		return this.cancelled;
+	}
+
+	/**
+	 * Returns the number of games solved so far.
+	 *
+	 * @return the number of games solved
+	 */
+	public int getNumGamesSolved()
+	{
+		return this.numGamesSolved;
+	}
+
+	/**
+	 * Returns the duration of the warm-up in nanoseconds.
+	 *
+	 * @return the duration of the warm-up or 0, if it is still running
+	 */
+	public long getDuration()
+	{
+		return this.duration;
+	}
+}
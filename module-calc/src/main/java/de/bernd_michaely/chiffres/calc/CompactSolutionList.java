@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list keeping the solutions of a calculation in the compact encoded form
+ * of a {@link SolutionCodec}. All encoded solutions are stored back to back
+ * in one byte array, plus one int offset per solution. Solutions are decoded
+ * on access, so the list is suitable to hold large result sets in caches or
+ * to transfer them, but not for repeated random access to the same elements.
+ * <p>
+ * The list supports adding elements, but not removing or replacing them. It
+ * is not synchronized.
+ *
+ * @author Bernd Michaely
+ */
+public class CompactSolutionList extends AbstractList<Solution> implements RandomAccess
+{
+	private static final int INITIAL_CAPACITY = 16;
+	private final SolutionCodec solutionCodec;
+	private byte[] data;
+	private int[] offsets;
+	private int size;
+	private int length;
+
+	/**
+	 * Creates an empty list.
+	 *
+	 * @param solutionCodec the codec for the solutions of the calculation
+	 */
+	public CompactSolutionList(SolutionCodec solutionCodec)
+	{
+		if (solutionCodec == null)
+		{
+			throw new IllegalArgumentException("SolutionCodec is null");
+		}
+		this.solutionCodec = solutionCodec;
+		this.data = new byte[INITIAL_CAPACITY * SolutionCodec.getEncodedLength(5)];
+		this.offsets = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Creates a list containing the given solutions.
+	 *
+	 * @param solutionCodec the codec for the solutions of the calculation
+	 * @param solutions     the given solutions
+	 */
+	public CompactSolutionList(SolutionCodec solutionCodec, Collection<Solution> solutions)
+	{
+		this(solutionCodec);
+		for (Solution solution : solutions)
+		{
+			append(solution);
+		}
+	}
+
+	/**
+	 * Returns the codec of this list.
+	 *
+	 * @return the codec of this list
+	 */
+	public SolutionCodec getSolutionCodec()
+	{
+		return this.solutionCodec;
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	@Override
+	public boolean add(Solution solution)
+	{
+		append(solution);
+		this.modCount++;
+		return true;
+	}
+
+	private void append(Solution solution)
+	{
+		final int lengthEncoded = SolutionCodec.getEncodedLength(solution.getDepth());
+		if (this.length + lengthEncoded > this.data.length)
+		{
+			this.data = Arrays.copyOf(this.data,
+				Math.max(this.length + lengthEncoded, 2 * this.data.length));
+		}
+		if (this.size == this.offsets.length)
+		{
+			this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+		}
+		this.solutionCodec.encode(solution, this.data, this.length);
+		this.offsets[this.size++] = this.length;
+		this.length += lengthEncoded;
+	}
+
+	@Override
+	public Solution get(int index)
+	{
+		return this.solutionCodec.decode(this.data, this.offsets[checkIndex(index)]);
+	}
+
+	/**
+	 * Returns a copy of the encoded solution at the given index.
+	 *
+	 * @param index the given index
+	 * @return the encoded solution
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public byte[] getEncoded(int index)
+	{
+		final int offset = this.offsets[checkIndex(index)];
+		return Arrays.copyOfRange(this.data, offset,
+			offset + SolutionCodec.getEncodedLength(SolutionCodec.getDepth(this.data[offset])));
+	}
+
+	private int checkIndex(int index)
+	{
+		if ((index < 0) || (index >= this.size))
+		{
+			throw new IndexOutOfBoundsException(getClass().getName() +
+				".get(int) : index " + index + " out of range");
+		}
+		return index;
+	}
+
+	@Override
+	public void clear()
+	{
+		this.size = 0;
+		this.length = 0;
+		this.modCount++;
+	}
+
+	/**
+	 * Returns the number of bytes used by the encoded solutions, not counting
+	 * unused capacity.
+	 *
+	 * @return the number of bytes used by the encoded solutions
+	 */
+	public int getSizeInBytes()
+	{
+		return this.length + this.size * Integer.BYTES;
+	}
+
+	/**
+	 * Trims the capacity of the internal arrays to the current size.
+	 */
+	public void trimToSize()
+	{
+		this.data = Arrays.copyOf(this.data, this.length);
+		this.offsets = Arrays.copyOf(this.offsets, this.size);
+	}
+
+	/**
+	 * Writes all encoded solutions to the given output. The format is the
+	 * number of solutions followed by the encoded solutions.
+	 *
+	 * @param out the given output
+	 * @throws IOException if an I/O error occurs
+	 * @see #readFrom(DataInput)
+	 */
+	public void writeTo(DataOutput out) throws IOException
+	{
+		out.writeInt(this.size);
+		out.write(this.data, 0, this.length);
+	}
+
+	/**
+	 * Reads encoded solutions written by {@link #writeTo(DataOutput)} and adds
+	 * them to this list.
+	 *
+	 * @param in the given input
+	 * @throws IOException if an I/O error occurs or the data is invalid
+	 */
+	public void readFrom(DataInput in) throws IOException
+	{
+		final int n = in.readInt();
+		for (int i = 0; i < n; i++)
+		{
+			add(this.solutionCodec.read(in));
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * Intern table to share structurally identical operations between solutions.
+ * Two operations are structurally identical, if they have the same operator
+ * and the identical (already interned) operand instances. Operations are
+ * interned bottom up, so equal operation subtrees of different solutions are
+ * represented by the same instances.
+ * <p>
+ * Within a single solution every operand is used at most once, so interning
+ * never maps two distinct operations of the same solution to one instance.
+ * This keeps identity based tree traversals of solutions valid.
+ * <p>
+ * The table is implemented by open addressing without allocation of key
+ * objects. It is not synchronized and is meant to be used by one worker
+ * thread only.
+ *
+ * @author Bernd Michaely
+ */
+class OperationInterner
+{
+	private static final int INITIAL_CAPACITY = 1 << 8;
+	private Operation[] table;
+	private int size;
+
+	OperationInterner()
+	{
+		this.table = new Operation[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Returns the number of interned operations.
+	 *
+	 * @return the number of interned operations
+	 */
+	int size()
+	{
+		return this.size;
+	}
+
+	private static int hash(Operand operand1, Operator operator, Operand operand2)
+	{
+		final int h = (31 * System.identityHashCode(operand1) + operator.ordinal()) * 31 +
+			System.identityHashCode(operand2);
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns a solution consisting of interned operations, which is
+	 * structurally identical to the given solution.
+	 *
+	 * @param solution the given solution
+	 * @return the given solution, if all of its operations are already interned,
+	 *         otherwise a new structurally identical solution
+	 */
+	Solution intern(Solution solution)
+	{
+		final int depth = solution.getDepth();
+		final Operation[] operations = new Operation[depth];
+		boolean changed = false;
+		for (int i = 0; i < depth; i++)
+		{
+			final Operation operation = solution.getOperation(i);
+			operations[i] = intern(operation,
+				canonical(operation.operand1, solution, operations, i),
+				canonical(operation.operand2, solution, operations, i));
+			changed |= operations[i] != operation;
+		}
+		return changed ? solution.withOperations(operations) : solution;
+	}
+
+	private static Operand canonical(Operand operand, Solution solution,
+		Operation[] interned, int index)
+	{
+		if (operand instanceof Operation)
+		{
+			for (int i = 0; i < index; i++)
+			{
+				if (solution.getOperation(i) == operand)
+				{
+					return interned[i];
+				}
+			}
+		}
+		return operand;
+	}
+
+	private Operation intern(Operation operation, Operand operand1, Operand operand2)
+	{
+		final Operator operator = operation.operator;
+		final int mask = this.table.length - 1;
+		int i = hash(operand1, operator, operand2) & mask;
+		Operation entry;
+		while ((entry = this.table[i]) != null)
+		{
+			if ((entry.operator == operator) &&
+				(entry.operand1 == operand1) && (entry.operand2 == operand2))
+			{
+				return entry;
+			}
+			i = (i + 1) & mask;
+		}
+		final Operation result = ((operation.operand1 == operand1) && (operation.operand2 == operand2)) ?
+			operation : new Operation(operand1, operator, operand2, operation.value);
+		this.table[i] = result;
+		if (++this.size > this.table.length / 2)
+		{
+			resize();
+		}
+		return result;
+	}
+
+	private void resize()
+	{
+		final Operation[] tableOld = this.table;
+		this.table = new Operation[2 * tableOld.length];
+		final int mask = this.table.length - 1;
+		for (Operation entry : tableOld)
+		{
+			if (entry != null)
+			{
+				int i = hash(entry.operand1, entry.operator, entry.operand2) & mask;
+				while (this.table[i] != null)
+				{
+					i = (i + 1) & mask;
+				}
+				this.table[i] = entry;
+			}
+		}
+	}
+}
@@ -17,9 +17,12 @@
 package de.bernd_michaely.chiffres.calc;
 
 /**
- * Enumeration representing basic arithmetic operations.
+ * Enumeration representing arithmetic operations. The standard game uses the
+ * four basic arithmetic operations, exponentiation and concatenation of the
+ * decimal digits are available for variants of the game.
  *
  * @author Bernd Michaely
+ * @see CalculationParams#getOperators()
  */
 public enum Operator
 {
@@ -84,6 +87,69 @@ public enum Operator
 			}
 			return (operand1 % operand2 == 0) ? operand1 / operand2 : 0;
 		}
+	},
+	POW
+	{
+		@Override
+		public String toString()
+		{
+			return "^";
+		}
+
+		@Override
+		public int calculate(int operand1, int operand2)
+		{
+			if (operand1 < 1 || operand2 < 0)
+			{
+				return 0;
+			}
+			if (operand1 == 1)
+			{
+				return 1;
+			}
+			long value = 1;
+			for (int i = 0; (i < operand2) && (value <= Integer.MAX_VALUE); i++)
+			{
+				value *= operand1;
+			}
+			return (value <= Integer.MAX_VALUE) ? (int) value : 0;
+		}
+
+		@Override
+		public boolean isAppliedInBothOrders()
+		{
+			return true;
+		}
+	},
+	CAT
+	{
+		@Override
+		public String toString()
+		{
+			return "||";
+		}
+
+		@Override
+		public int calculate(int operand1, int operand2)
+		{
+			if (operand1 < 1 || operand2 < 1)
+			{
+				return 0;
+			}
+			long shift = 10;
+			while (shift <= operand2)
+			{
+				shift *= 10;
+			}
+			final long value = operand1 * shift + operand2;
+			return (value <= Integer.MAX_VALUE) ? (int) value : 0;
+		}
+
+		@Override
+		public boolean isAppliedInBothOrders()
+		{
+			return true;
+		}
 	};
 
 	/**
@@ -99,4 +165,18 @@ public enum Operator
 	 *         enumeration value to the operands, zero for invalid operations
 	 */
 	public abstract int calculate(int operand1, int operand2);
+
+	/**
+	 * Returns true, if the operator has to be applied to both orders of its
+	 * operands. The calculation applies all operators to the greater operand
+	 * first, which is sufficient for the commutative operators and for
+	 * subtraction and division, because these never yield a positive integer
+	 * with the smaller operand first.
+	 *
+	 * @return true, if the operator is applied to both orders of its operands
+	 */
+	public boolean isAppliedInBothOrders()
+	{
+		return false;
+	}
 }
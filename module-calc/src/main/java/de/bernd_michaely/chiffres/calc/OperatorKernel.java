@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A kernel applying the operators of a calculation to a pair of operands. The
+ * kernel is created once per calculation for its operator set and avoids the
+ * megamorphic call of {@link Operator#calculate(int, int)} in the inner loop:
+ * the default operators are applied by straight-line code, other operator sets
+ * by a table driven kernel, whose switch per application is compiled to a jump
+ * table with well predictable branches, because the sequence of operators is
+ * the same for all pairs. Operators
+ * {@link Operator#isAppliedInBothOrders() applied in both orders} occupy two
+ * applications, the second one with swapped operands.
+ *
+ * @author Bernd Michaely
+ */
+abstract class OperatorKernel
+{
+	private final Set<Operator> operatorSet;
+	private final Operator[] operators;
+	private final boolean[] swapped;
+
+	private OperatorKernel(Set<Operator> operatorSet)
+	{
+		this.operatorSet = operatorSet;
+		final List<Operator> listOperators = new ArrayList<>();
+		final List<Boolean> listSwapped = new ArrayList<>();
+		for (Operator operator : operatorSet)
+		{
+			listOperators.add(operator);
+			listSwapped.add(false);
+			if (operator.isAppliedInBothOrders())
+			{
+				listOperators.add(operator);
+				listSwapped.add(true);
+			}
+		}
+		this.operators = listOperators.toArray(Operator[]::new);
+		this.swapped = new boolean[this.operators.length];
+		for (int i = 0; i < this.swapped.length; i++)
+		{
+			this.swapped[i] = listSwapped.get(i);
+		}
+	}
+
+	/**
+	 * Creates a kernel for the given operator set.
+	 *
+	 * @param operatorSet the operator set
+	 * @return a kernel for the operator set
+	 */
+	static OperatorKernel create(Set<Operator> operatorSet)
+	{
+		return operatorSet.equals(CalculationParams.DEFAULT_OPERATORS) ?
+			new DefaultOperatorKernel() : new TableOperatorKernel(operatorSet);
+	}
+
+	/**
+	 * Returns the operator set of this kernel.
+	 *
+	 * @return the operator set
+	 */
+	final Set<Operator> getOperators()
+	{
+		return this.operatorSet;
+	}
+
+	/**
+	 * Returns the number of operator applications per pair of operands.
+	 *
+	 * @return the number of operator applications
+	 */
+	final int size()
+	{
+		return this.operators.length;
+	}
+
+	/**
+	 * Returns the operator of the given application.
+	 *
+	 * @param index the index of the application
+	 * @return the operator of the application
+	 */
+	final Operator getOperator(int index)
+	{
+		return this.operators[index];
+	}
+
+	/**
+	 * Returns true, if the given application applies the operator to the
+	 * smaller operand first.
+	 *
+	 * @param index the index of the application
+	 * @return true, if the operands are swapped
+	 */
+	final boolean isSwapped(int index)
+	{
+		return this.swapped[index];
+	}
+
+	/**
+	 * Applies all operators to a pair of operands.
+	 *
+	 * @param operand1 the greater (or equal) operand
+	 * @param operand2 the smaller operand
+	 * @param results  the array to store the result of each application to,
+	 *                 zero for invalid results
+	 */
+	abstract void calculate(int operand1, int operand2, int[] results);
+
+	/**
+	 * Kernel for the default operators.
+	 */
+	private static final class DefaultOperatorKernel extends OperatorKernel
+	{
+		private DefaultOperatorKernel()
+		{
+			super(CalculationParams.DEFAULT_OPERATORS);
+		}
+
+		@Override
+		void calculate(int operand1, int operand2, int[] results)
+		{
+			final long sum = (long) operand1 + operand2;
+			final long product = (long) operand1 * operand2;
+			results[0] = (sum <= Integer.MAX_VALUE) ? (int) sum : 0;
+			results[1] = operand1 - operand2;
+			results[2] = (product <= Integer.MAX_VALUE) ? (int) product : 0;
+			results[3] = (operand1 % operand2 == 0) ? operand1 / operand2 : 0;
+		}
+	}
+
+	/**
+	 * Kernel for arbitrary operator sets.
+	 */
+	private static final class TableOperatorKernel extends OperatorKernel
+	{
+		private TableOperatorKernel(Set<Operator> operatorSet)
+		{
+			super(operatorSet);
+		}
+
+		@Override
+		void calculate(int operand1, int operand2, int[] results)
+		{
+			for (int i = 0; i < size(); i++)
+			{
+				final Operator operator = getOperator(i);
+				final int result;
+				switch (operator)
+				{
+					case ADD:
+						final long sum = (long) operand1 + operand2;
+						result = (sum <= Integer.MAX_VALUE) ? (int) sum : 0;
+						break;
+					case SUB:
+						result = operand1 - operand2;
+						break;
+					case MUL:
+						final long product = (long) operand1 * operand2;
+						result = (product <= Integer.MAX_VALUE) ? (int) product : 0;
+						break;
+					case DIV:
+						result = (operand1 % operand2 == 0) ? operand1 / operand2 : 0;
+						break;
+					default:
+						result = isSwapped(i) ?
+							operator.calculate(operand2, operand1) : operator.calculate(operand1, operand2);
+				}
+				results[i] = result;
+			}
+		}
+	}
+}
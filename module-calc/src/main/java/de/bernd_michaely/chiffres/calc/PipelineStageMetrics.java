@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * Immutable metrics of a stage of the solution pipeline. Times are given in
+ * nanoseconds and summed over all threads.
+ *
+ * @author Bernd Michaely
+ * @see CalculationMetrics#getPipelineStages()
+ */
+public class PipelineStageMetrics
+{
+	private final String name;
+	private final int numThreads;
+	private final int queueCapacity;
+	private final long numBatches;
+	private final long numItems;
+	private final int maxQueueSize;
+	private final long blockedTime;
+	private final long idleTime;
+	private final long busyTime;
+
+	PipelineStageMetrics(String name, int numThreads, int queueCapacity, long numBatches,
+		long numItems, int maxQueueSize, long blockedTime, long idleTime, long busyTime)
+	{
+		this.name = name;
+		this.numThreads = numThreads;
+		this.queueCapacity = queueCapacity;
+		this.numBatches = numBatches;
+		this.numItems = numItems;
+		this.maxQueueSize = maxQueueSize;
+		this.blockedTime = blockedTime;
+		this.idleTime = idleTime;
+		this.busyTime = busyTime;
+	}
+
+	/**
+	 * Returns the name of the stage.
+	 *
+	 * @return the name of the stage
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/**
+	 * Returns the number of threads of the stage.
+	 *
+	 * @return the number of threads
+	 */
+	public int getNumThreads()
+	{
+		return this.numThreads;
+	}
+
+	/**
+	 * Returns the capacity of the input queue of each thread in batches.
+	 *
+	 * @return the queue capacity
+	 */
+	public int getQueueCapacity()
+	{
+		return this.queueCapacity;
+	}
+
+	/**
+	 * Returns the number of batches processed.
+	 *
+	 * @return the number of batches
+	 */
+	public long getNumBatches()
+	{
+		return this.numBatches;
+	}
+
+	/**
+	 * Returns the number of items processed.
+	 *
+	 * @return the number of items
+	 */
+	public long getNumItems()
+	{
+		return this.numItems;
+	}
+
+	/**
+	 * Returns the maximum number of batches waiting in an input queue.
+	 *
+	 * @return the maximum queue size
+	 */
+	public int getMaxQueueSize()
+	{
+		return this.maxQueueSize;
+	}
+
+	/**
+	 * Returns the time the producers waited for space in the input queue. A
+	 * high value indicates, that the stage needs more threads.
+	 *
+	 * @return the time the producers were blocked
+	 */
+	public long getBlockedTime()
+	{
+		return this.blockedTime;
+	}
+
+	/**
+	 * Returns the time the threads of the stage waited for input.
+	 *
+	 * @return the idle time
+	 */
+	public long getIdleTime()
+	{
+		return this.idleTime;
+	}
+
+	/**
+	 * Returns the time the threads of the stage processed batches.
+	 *
+	 * @return the busy time
+	 */
+	public long getBusyTime()
+	{
+		return this.busyTime;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%s : %d threads, %,d batches, %,d items, max. queue %d/%d, " +
+			"blocked %,.3f ms, idle %,.3f ms, busy %,.3f ms",
+			this.name, this.numThreads, this.numBatches, this.numItems, this.maxQueueSize,
+			this.queueCapacity, this.blockedTime / 1e6, this.idleTime / 1e6, this.busyTime / 1e6);
+	}
+}
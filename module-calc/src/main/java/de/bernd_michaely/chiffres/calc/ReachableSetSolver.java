@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Implementation of the {@link CalculationStrategy#REACHABLE_SET reachable set}
+ * strategy. Subsets of the operands are represented as bit masks. For each
+ * subset the set of values reachable by using all of its operands is
+ * calculated by combining the sets of all pairs of disjoint subsets forming
+ * the subset. The subsets of equal size are independent of each other and
+ * are calculated in parallel, driven by {@link SubsetLevels}.
+ *
+ * @author Bernd Michaely
+ */
+class ReachableSetSolver
+{
+	/**
+	 * The bound of intermediate results as a multiple of the target (or the
+	 * greatest operand, if greater).
+	 */
+	static final int VALUE_LIMIT_FACTOR = 4;
+	/**
+	 * The maximum bound of intermediate results.
+	 */
+	static final int VALUE_LIMIT_MAX = 1 << 14;
+	private final TaskGlobalData taskGlobalData;
+	private final Operand[] operands;
+	private final int numThreads;
+	private final int valueLimit;
+	private final BitSet[] reachable;
+	/**
+	 * True, if the operands of all operators can be calculated from the result
+	 * and the other operand, which speeds up the reconstruction of solutions.
+	 */
+	private final boolean invertible;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param taskGlobalData data global to the calculation
+	 * @param operands       the initial operands
+	 * @param numThreads     the number of threads to split each level into
+	 */
+	ReachableSetSolver(TaskGlobalData taskGlobalData, Operand[] operands, int numThreads)
+	{
+		this.taskGlobalData = taskGlobalData;
+		this.operands = operands;
+		this.numThreads = Math.max(1, numThreads);
+		int max = taskGlobalData.target;
+		for (Operand operand : operands)
+		{
+			max = Math.max(max, operand.value);
+		}
+		this.valueLimit = Math.min(taskGlobalData.constraints.getMaxIntermediateValue(),
+			Math.max(max, (int) Math.min((long) VALUE_LIMIT_FACTOR * max, VALUE_LIMIT_MAX)));
+		this.reachable = new BitSet[1 << operands.length];
+		this.invertible = CalculationParams.DEFAULT_OPERATORS.containsAll(
+			taskGlobalData.operatorKernel.getOperators());
+	}
+
+	/**
+	 * Returns the bound of intermediate results.
+	 *
+	 * @return the bound of intermediate results
+	 */
+	int getValueLimit()
+	{
+		return this.valueLimit;
+	}
+
+	/**
+	 * Returns the number of progress steps, which is the number of non empty
+	 * subsets of the operands.
+	 *
+	 * @return the number of progress steps
+	 */
+	long getProgressMax()
+	{
+		return (1L << this.operands.length) - 1;
+	}
+
+	/**
+	 * Runs the calculation.
+	 *
+	 * @param executor the executor to run the subsets of a level on
+	 * @return the result of the calculation
+	 * @throws InterruptedException if interrupted while waiting for a level
+	 * @throws ExecutionException   if the calculation of a level failed
+	 */
+	SubTaskResult call(Executor executor) throws InterruptedException, ExecutionException
+	{
+		final SubTaskResult result = new SubTaskResult();
+		final int n = this.operands.length;
+		final SubsetLevels levels = new SubsetLevels(n, this.numThreads, executor);
+		final int target = this.taskGlobalData.target;
+		int below = 0;
+		int above = Integer.MAX_VALUE;
+		// a subset of the given size takes size - 1 operations, single
+		// operands are building blocks only, but no results:
+		final int minSize = this.taskGlobalData.constraints.isAllOperandsRequired() ? Math.max(2, n) : 2;
+		final int maxSize = Math.min(n, this.taskGlobalData.maxSolutionDepth + 1);
+		// a level reaching the target by redundant solutions only does not end
+		// the search for a solution:
+		for (int size = 1; size <= maxSize && !this.taskGlobalData.cancelled &&
+			!(result.exactSolutionFound && !result.solutionCandidates.isEmpty()); size++)
+		{
+			result.counterRecursionCalls += levels.calculate(size, this::calculateMasks);
+			if (this.taskGlobalData.cancelled)
+			{
+				break;
+			}
+			if (size < minSize)
+			{
+				continue;
+			}
+			for (int mask : levels.getMasks(size))
+			{
+				final BitSet set = this.reachable[mask];
+				if (target <= this.valueLimit && set.get(target))
+				{
+					result.exactSolutionFound = true;
+					addSolution(result, mask);
+				}
+				else if (!result.exactSolutionFound)
+				{
+					final int less = set.previousSetBit(Math.min(target, this.valueLimit + 1) - 1);
+					if (less > below)
+					{
+						below = less;
+					}
+					final int greater = set.nextSetBit(target + 1);
+					if (greater > 0 && greater < above)
+					{
+						above = greater;
+					}
+				}
+			}
+		}
+		if (!result.exactSolutionFound)
+		{
+			if (below > 0)
+			{
+				result.diffLess = target - below;
+			}
+			if (above < Integer.MAX_VALUE)
+			{
+				result.diffGreater = above - target;
+			}
+		}
+		result.complete = !this.taskGlobalData.cancelled;
+		return result;
+	}
+
+	/**
+	 * Calculates the reachable sets of the given subsets.
+	 *
+	 * @param masks the subsets, which all have the same size
+	 * @return the number of evaluated pairs of values
+	 */
+	private long calculateMasks(List<Integer> masks)
+	{
+		long counter = 0;
+		for (int mask : masks)
+		{
+			if (this.taskGlobalData.cancelled)
+			{
+				break;
+			}
+			counter += calculateMask(mask);
+			this.taskGlobalData.incrementProgress();
+		}
+		return counter;
+	}
+
+	private long calculateMask(int mask)
+	{
+		final BitSet set = new BitSet(this.valueLimit + 1);
+		long counter = 0;
+		if (Integer.bitCount(mask) == 1)
+		{
+			set.set(this.operands[Integer.numberOfTrailingZeros(mask)].value);
+		}
+		else
+		{
+			int cardinality = 0;
+			for (int mask1 = SubsetLevels.firstSplit(mask); mask1 != 0 && cardinality < this.valueLimit;
+				mask1 = SubsetLevels.nextSplit(mask, mask1))
+			{
+				counter += combine(this.reachable[mask1].stream().toArray(),
+					this.reachable[mask ^ mask1].stream().toArray(), set);
+				cardinality = set.cardinality();
+			}
+		}
+		this.reachable[mask] = set;
+		return counter;
+	}
+
+	/**
+	 * Combines each pair of values from the given sets by all operators.
+	 *
+	 * @param values1 the sorted values of the first set
+	 * @param values2 the sorted values of the second set
+	 * @param set     the set to add the results to
+	 * @return the number of evaluated pairs of values
+	 */
+	private long combine(int[] values1, int[] values2, BitSet set)
+	{
+		final int limit = this.valueLimit;
+		final OperatorKernel kernel = this.taskGlobalData.operatorKernel;
+		final int numApplications = kernel.size();
+		final int[] results = new int[numApplications];
+		for (int a : values1)
+		{
+			for (int b : values2)
+			{
+				if (a >= b)
+				{
+					kernel.calculate(a, b, results);
+				}
+				else
+				{
+					kernel.calculate(b, a, results);
+				}
+				for (int i = 0; i < numApplications; i++)
+				{
+					final int result = results[i];
+					if (result > 0 && result <= limit)
+					{
+						set.set(result);
+					}
+				}
+			}
+		}
+		return (long) values1.length * values2.length;
+	}
+
+	/**
+	 * Reconstructs a solution reaching the target by all operands of the given
+	 * subset and adds it to the result.
+	 */
+	private void addSolution(SubTaskResult result, int mask)
+	{
+		final List<Operation> operations = new ArrayList<>(Integer.bitCount(mask) - 1);
+		reconstruct(mask, this.taskGlobalData.target, operations);
+		final Solution solution = new Solution(operations.toArray(Operation[]::new));
+		if (solution.isRedundant())
+		{
+			result.numFilteredSolutions++;
+		}
+		else
+		{
+			final SolutionCandidate solutionCandidate = new SolutionCandidate(solution);
+			if (this.taskGlobalData.onIntermediateResult != null)
+			{
+				this.taskGlobalData.onIntermediateResult.accept(solutionCandidate);
+			}
+			result.solutionCandidates.add(solutionCandidate);
+		}
+	}
+
+	/**
+	 * Recursively reconstructs a calculation of a value by all operands of the
+	 * given subset. The operations are appended in the order of evaluation.
+	 *
+	 * @param mask       the subset of the operands
+	 * @param value      a value contained in the reachable set of the subset
+	 * @param operations the list to append the operations to
+	 * @return the operand representing the value
+	 */
+	private Operand reconstruct(int mask, int value, List<Operation> operations)
+	{
+		if (Integer.bitCount(mask) == 1)
+		{
+			return this.operands[Integer.numberOfTrailingZeros(mask)];
+		}
+		final int[] results = new int[this.taskGlobalData.operatorKernel.size()];
+		final int[] candidates = new int[6];
+		for (int mask1 = SubsetLevels.firstSplit(mask); mask1 != 0; mask1 = SubsetLevels.nextSplit(mask, mask1))
+		{
+			final int mask2 = mask ^ mask1;
+			final BitSet set1 = this.reachable[mask1];
+			final BitSet set2 = this.reachable[mask2];
+			for (int a = set1.nextSetBit(1); a > 0; a = set1.nextSetBit(a + 1))
+			{
+				if (this.invertible)
+				{
+					// the values b with a ○ b = value for the basic arithmetic operations:
+					candidates[0] = value - a;
+					candidates[1] = a - value;
+					candidates[2] = a + value;
+					candidates[3] = (value % a == 0) ? value / a : 0;
+					candidates[4] = (a % value == 0) ? a / value : 0;
+					candidates[5] = ((long) a * value <= this.valueLimit) ? a * value : 0;
+					for (int b : candidates)
+					{
+						if (contains(set2, b))
+						{
+							final Operation operation = reconstruct(mask1, a, mask2, b, value, results, operations);
+							if (operation != null)
+							{
+								return operation;
+							}
+						}
+					}
+				}
+				else
+				{
+					for (int b = set2.nextSetBit(1); b > 0; b = set2.nextSetBit(b + 1))
+					{
+						final Operation operation = reconstruct(mask1, a, mask2, b, value, results, operations);
+						if (operation != null)
+						{
+							return operation;
+						}
+					}
+				}
+			}
+		}
+		throw new IllegalStateException("Value " + value + " is not reachable");
+	}
+
+	/**
+	 * Reconstructs an operation of the given operands resulting in the given
+	 * value, if possible.
+	 *
+	 * @return the operation or null, if no operator combines the operands to
+	 *         the value
+	 */
+	private Operation reconstruct(int mask1, int a, int mask2, int b, int value,
+		int[] results, List<Operation> operations)
+	{
+		final OperatorKernel kernel = this.taskGlobalData.operatorKernel;
+		kernel.calculate(Math.max(a, b), Math.min(a, b), results);
+		for (int i = 0; i < kernel.size(); i++)
+		{
+			if (results[i] == value)
+			{
+				final Operand operandA = reconstruct(mask1, a, operations);
+				final Operand operandB = reconstruct(mask2, b, operations);
+				final Operator operator = kernel.getOperator(i);
+				final Operation operation = ((a >= b) != kernel.isSwapped(i)) ?
+					new Operation(operandA, operator, operandB, value) :
+					new Operation(operandB, operator, operandA, value);
+				operations.add(operation);
+				return operation;
+			}
+		}
+		return null;
+	}
+
+	private boolean contains(BitSet set, int value)
+	{
+		return value > 0 && value <= this.valueLimit && set.get(value);
+	}
+}
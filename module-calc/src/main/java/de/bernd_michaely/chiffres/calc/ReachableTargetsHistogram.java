@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * The histogram of the targets in a range reachable from a set of operands,
+ * e.g. to design games. For each target it provides, whether it is
+ * reachable, and for an unreachable target the distance to the nearest
+ * reachable value. These are derived from a
+ * {@link ReachableValueIndex reachable value index}, which is built in one
+ * parallel pass over the subsets of the operands. For up to
+ * {@link #NUM_OPERANDS_COUNTED_MAX} operands the histogram also provides the
+ * number of solutions of each target, which equals the number of solutions
+ * the calculator finds for it. The solutions of all targets are counted in
+ * one parallel pass over the calculation trees, which are reduced to
+ * equivalence classes and checked for redundancy as by the calculator. The
+ * histogram is stored in primitive arrays indexed by the offset of the
+ * target in the range.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @author Bernd Michaely
+ */
+public class ReachableTargetsHistogram
+{
+	/**
+	 * The maximum number of targets of a histogram.
+	 */
+	public static final int NUM_TARGETS_MAX = 1 << 24;
+	/**
+	 * The maximum number of operands, for which the solutions are counted.
+	 */
+	public static final int NUM_OPERANDS_COUNTED_MAX = 7;
+	private final int minTarget;
+	private final long[] numSolutions;
+	private final int[] distances;
+	private final int numReachable;
+
+	private ReachableTargetsHistogram(ReachableValueIndex index, int minTarget, int maxTarget,
+		long[] numSolutions)
+	{
+		this.minTarget = minTarget;
+		final int numTargets = maxTarget - minTarget + 1;
+		this.numSolutions = numSolutions;
+		this.distances = new int[numTargets];
+		final int[] values = index.values;
+		int numReachableTargets = 0;
+		// index of the least reachable value greater than or equal to the target:
+		int i = lowerBound(values, minTarget);
+		for (int k = 0; k < numTargets; k++)
+		{
+			final int target = minTarget + k;
+			if (i < values.length && values[i] < target)
+			{
+				i++;
+			}
+			if (i < values.length && values[i] == target)
+			{
+				numReachableTargets++;
+			}
+			else
+			{
+				final int diffLess = (i > 0) ? target - values[i - 1] : Integer.MAX_VALUE;
+				final int diffGreater = (i < values.length) ? values[i] - target : Integer.MAX_VALUE;
+				this.distances[k] = Math.min(diffLess, diffGreater);
+			}
+		}
+		this.numReachable = numReachableTargets;
+	}
+
+	/**
+	 * Returns the index of the least value greater than or equal to the given
+	 * value in a sorted array.
+	 */
+	private static int lowerBound(int[] values, int value)
+	{
+		int low = 0, high = values.length;
+		while (low < high)
+		{
+			final int mid = (low + high) >>> 1;
+			if (values[mid] < value)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Creates the histogram of the given range of targets for the given
+	 * operands. The solutions are counted, if there are at most
+	 * {@link #NUM_OPERANDS_COUNTED_MAX} operands.
+	 *
+	 * @param calculationParams the operands, operators and constraints, the
+	 *                          target is ignored
+	 * @param minTarget         the least target of the range
+	 * @param maxTarget         the greatest target of the range
+	 * @param numThreads        the number of threads to use
+	 * @return the histogram
+	 * @throws IllegalArgumentException if the range is invalid or the
+	 *                                  operands reach more values than
+	 *                                  {@link ReachableValueIndex#DEFAULT_MAX_NUM_ENTRIES}
+	 * @throws InterruptedException     if interrupted while building the
+	 *                                  index or counting the solutions
+	 */
+	public static ReachableTargetsHistogram create(CalculationParams calculationParams,
+		int minTarget, int maxTarget, int numThreads) throws InterruptedException
+	{
+		checkRange(minTarget, maxTarget);
+		final ReachableValueIndex index = ReachableValueIndex.build(calculationParams, numThreads);
+		if (index == null)
+		{
+			if (Thread.interrupted())
+			{
+				throw new InterruptedException("ReachableTargetsHistogram : interrupted");
+			}
+			throw new IllegalArgumentException("ReachableTargetsHistogram : too many reachable values");
+		}
+		final long[] numSolutions = (calculationParams.getNumOperands() <= NUM_OPERANDS_COUNTED_MAX) ?
+			new SolutionCounter(calculationParams, minTarget, maxTarget).count(numThreads) : null;
+		return new ReachableTargetsHistogram(index, minTarget, maxTarget, numSolutions);
+	}
+
+	/**
+	 * Creates the histogram of the given range of targets from an existing
+	 * index. The solutions are not counted.
+	 *
+	 * @param index     the index of the reachable values
+	 * @param minTarget the least target of the range
+	 * @param maxTarget the greatest target of the range
+	 * @return the histogram
+	 * @throws IllegalArgumentException if index is null or the range is
+	 *                                  invalid
+	 */
+	public static ReachableTargetsHistogram of(ReachableValueIndex index, int minTarget, int maxTarget)
+	{
+		if (index == null)
+		{
+			throw new IllegalArgumentException("ReachableTargetsHistogram : index is null");
+		}
+		checkRange(minTarget, maxTarget);
+		return new ReachableTargetsHistogram(index, minTarget, maxTarget, null);
+	}
+
+	private static void checkRange(int minTarget, int maxTarget)
+	{
+		if (minTarget < 1 || maxTarget < minTarget || (long) maxTarget - minTarget >= NUM_TARGETS_MAX)
+		{
+			throw new IllegalArgumentException("ReachableTargetsHistogram : invalid range of targets " +
+				minTarget + " to " + maxTarget);
+		}
+	}
+
+	/**
+	 * Returns the least target of the range.
+	 *
+	 * @return the least target
+	 */
+	public int getMinTarget()
+	{
+		return this.minTarget;
+	}
+
+	/**
+	 * Returns the greatest target of the range.
+	 *
+	 * @return the greatest target
+	 */
+	public int getMaxTarget()
+	{
+		return this.minTarget + this.distances.length - 1;
+	}
+
+	/**
+	 * Returns the number of targets of the range.
+	 *
+	 * @return the number of targets
+	 */
+	public int getNumTargets()
+	{
+		return this.distances.length;
+	}
+
+	/**
+	 * Returns the number of reachable targets of the range.
+	 *
+	 * @return the number of reachable targets
+	 */
+	public int getNumReachable()
+	{
+		return this.numReachable;
+	}
+
+	private int getOffset(int target)
+	{
+		final long offset = (long) target - this.minTarget;
+		if (offset < 0 || offset >= this.distances.length)
+		{
+			throw new IndexOutOfBoundsException(getClass().getName() +
+				" : target " + target + " out of range");
+		}
+		return (int) offset;
+	}
+
+	/**
+	 * Returns true, if the given target is reachable.
+	 *
+	 * @param target the given target
+	 * @return true, if the target is reachable
+	 * @throws IndexOutOfBoundsException if the target is out of range
+	 */
+	public boolean isReachable(int target)
+	{
+		return this.distances[getOffset(target)] == 0;
+	}
+
+	/**
+	 * Returns true, if the solutions of the targets are counted.
+	 *
+	 * @return true, if the numbers of solutions are available
+	 */
+	public boolean isCounted()
+	{
+		return this.numSolutions != null;
+	}
+
+	private void checkCounted()
+	{
+		if (!isCounted())
+		{
+			throw new IllegalStateException(getClass().getName() + " : solutions are not counted");
+		}
+	}
+
+	/**
+	 * Returns the number of solutions of the given target.
+	 *
+	 * @param target the given target
+	 * @return the number of solutions, zero if the target is not reachable
+	 * @throws IndexOutOfBoundsException if the target is out of range
+	 * @throws IllegalStateException     if the solutions are not counted
+	 * @see #isCounted()
+	 */
+	public long getNumSolutions(int target)
+	{
+		final int offset = getOffset(target);
+		checkCounted();
+		return this.numSolutions[offset];
+	}
+
+	/**
+	 * Returns the distance of the given target to the nearest reachable
+	 * value.
+	 *
+	 * @param target the given target
+	 * @return zero, if the target is reachable, the distance to the nearest
+	 *         approximation or {@link Integer#MAX_VALUE}, if none
+	 * @throws IndexOutOfBoundsException if the target is out of range
+	 */
+	public int getDistance(int target)
+	{
+		return this.distances[getOffset(target)];
+	}
+
+	/**
+	 * Returns the numbers of solutions of all targets of the range, indexed
+	 * by the offset of the target from the least target.
+	 *
+	 * @return a copy of the numbers of solutions
+	 * @throws IllegalStateException if the solutions are not counted
+	 * @see #isCounted()
+	 */
+	public long[] getNumSolutions()
+	{
+		checkCounted();
+		return this.numSolutions.clone();
+	}
+
+	/**
+	 * Returns the distances to the nearest reachable value of all targets of
+	 * the range, indexed by the offset of the target from the least target.
+	 *
+	 * @return a copy of the distances
+	 */
+	public int[] getDistances()
+	{
+		return this.distances.clone();
+	}
+}
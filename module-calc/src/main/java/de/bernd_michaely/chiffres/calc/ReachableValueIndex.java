@@ -0,0 +1,611 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An index of all values reachable from a set of operands, which turns
+ * questions about different targets for the same operands into lookups. For
+ * each reachable value the index provides the number of calculations and, on
+ * demand, a witness calculation.
+ * <p>
+ * Like the {@link CalculationStrategy#REACHABLE_SET reachable set} strategy,
+ * the index is built in one pass over the {@link SubsetLevels subsets} of the
+ * operands in the order of increasing subset size, where the subsets of equal
+ * size are independent of each other and are calculated in parallel. Unlike
+ * that strategy, intermediate results are not bounded: each subset stores the
+ * sorted array of its reachable values together with the number of
+ * calculations of each value. Like the results of the calculator, the
+ * reachable values are the results of at least one operation, a single
+ * operand only serves to build larger subsets. A value is therefore
+ * reachable, if and only if it is the value of a calculation of at least one
+ * operation within the constraints, and the approximations are the closest
+ * such values. The size of the index is bounded by a maximum number of
+ * entries, the number of values summed up over all subsets, which grows
+ * quickly with the number of operands.
+ * <p>
+ * The number of calculations of a value counts the distinct calculations as
+ * trees of operations over the given operands, where the operands of an
+ * operation are unordered and each operand is used at most once. Unlike the
+ * solutions of the calculator, the calculations are neither checked for
+ * redundancy nor reduced to equivalence classes, so the count measures the
+ * number of ways a value can be reached rather than the number of solutions.
+ * The witnesses are reconstructed lazily from the reachable values of the
+ * subsets.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @author Bernd Michaely
+ * @see #build(CalculationParams, int)
+ */
+public class ReachableValueIndex
+{
+	/**
+	 * The default maximum number of entries of an index, which takes about
+	 * eight bytes per entry.
+	 */
+	public static final long DEFAULT_MAX_NUM_ENTRIES = 1 << 22;
+	private final int[] operands;
+	private final SolutionConstraints constraints;
+	private final OperatorKernel kernel;
+	/**
+	 * The sorted reachable values per subset of the operands.
+	 */
+	private final int[][] subsetValues;
+	/**
+	 * The number of calculations of the reachable values per subset,
+	 * saturated at {@link Integer#MAX_VALUE}.
+	 */
+	private final int[][] subsetCounts;
+	private final int minSubsetSize, maxSubsetSize;
+	/**
+	 * The sorted reachable values of the admissible subsets, which have at
+	 * least two operands.
+	 */
+	final int[] values;
+	/**
+	 * The number of calculations of the reachable values.
+	 */
+	final long[] counts;
+	private final long numEntries;
+
+	private ReachableValueIndex(CalculationParams calculationParams, OperatorKernel kernel,
+		int[][] subsetValues, int[][] subsetCounts, int minSubsetSize, int maxSubsetSize, long numEntries)
+	{
+		this.operands = new int[calculationParams.getNumOperands()];
+		for (int i = 0; i < this.operands.length; i++)
+		{
+			this.operands[i] = calculationParams.getOperand(i);
+		}
+		this.constraints = calculationParams.getConstraints();
+		this.kernel = kernel;
+		this.subsetValues = subsetValues;
+		this.subsetCounts = subsetCounts;
+		this.minSubsetSize = minSubsetSize;
+		this.maxSubsetSize = maxSubsetSize;
+		this.numEntries = numEntries;
+		// merge the admissible subsets:
+		int length = 0;
+		for (int mask = 1; mask < subsetValues.length; mask++)
+		{
+			if (isAdmissible(mask))
+			{
+				length += subsetValues[mask].length;
+			}
+		}
+		final long[] entries = new long[length];
+		int n = 0;
+		for (int mask = 1; mask < subsetValues.length; mask++)
+		{
+			if (isAdmissible(mask))
+			{
+				for (int i = 0; i < subsetValues[mask].length; i++)
+				{
+					entries[n++] = ((long) subsetValues[mask][i] << 32) | subsetCounts[mask][i];
+				}
+			}
+		}
+		final int numValues = sortAndCountDistinct(entries);
+		this.values = new int[numValues];
+		this.counts = new long[numValues];
+		int k = -1;
+		for (long entry : entries)
+		{
+			final int value = (int) (entry >>> 32);
+			if (k < 0 || this.values[k] != value)
+			{
+				this.values[++k] = value;
+			}
+			this.counts[k] += (int) entry;
+		}
+	}
+
+	private boolean isAdmissible(int mask)
+	{
+		final int size = Integer.bitCount(mask);
+		return size >= this.minSubsetSize && size <= this.maxSubsetSize;
+	}
+
+	/**
+	 * Sorts packed entries of value and count and returns the number of
+	 * distinct values.
+	 */
+	private static int sortAndCountDistinct(long[] entries)
+	{
+		Arrays.sort(entries);
+		int numValues = 0;
+		for (int i = 0; i < entries.length; i++)
+		{
+			if (i == 0 || (entries[i] >>> 32) != (entries[i - 1] >>> 32))
+			{
+				numValues++;
+			}
+		}
+		return numValues;
+	}
+
+	/**
+	 * Builds an index with at most {@link #DEFAULT_MAX_NUM_ENTRIES} entries.
+	 *
+	 * @param calculationParams the operands, operators and constraints, the
+	 *                          target is ignored
+	 * @param numThreads        the number of threads to use
+	 * @return the index or null, if it would exceed the maximum number of
+	 *         entries
+	 * @see #build(CalculationParams, int, long)
+	 */
+	public static ReachableValueIndex build(CalculationParams calculationParams, int numThreads)
+	{
+		return build(calculationParams, numThreads, DEFAULT_MAX_NUM_ENTRIES);
+	}
+
+	/**
+	 * Builds an index for the given operands. The subsets of the operands are
+	 * calculated in the order of increasing size, the subsets of equal size
+	 * in parallel.
+	 *
+	 * @param calculationParams the operands, operators and constraints, the
+	 *                          target is ignored
+	 * @param numThreads        the number of threads to use
+	 * @param maxNumEntries     the maximum number of entries of the index
+	 * @return the index or null, if it would exceed the maximum number of
+	 *         entries
+	 * @throws IllegalArgumentException if calculationParams is null, there
+	 *                                  are more than
+	 *                                  {@link Calculator#NUM_OPERANDS_MAX}
+	 *                                  operands or maxNumEntries is less than
+	 *                                  one
+	 */
+	public static ReachableValueIndex build(CalculationParams calculationParams, int numThreads,
+		long maxNumEntries)
+	{
+		if (calculationParams == null)
+		{
+			throw new IllegalArgumentException("ReachableValueIndex : calculation params are null");
+		}
+		if (calculationParams.getNumOperands() > Calculator.NUM_OPERANDS_MAX)
+		{
+			throw new IllegalArgumentException(
+				"ReachableValueIndex : more than " + Calculator.NUM_OPERANDS_MAX + " operands");
+		}
+		if (maxNumEntries < 1)
+		{
+			throw new IllegalArgumentException("ReachableValueIndex : maximum number of entries less than one");
+		}
+		final SubTaskExecutor subTaskExecutor = (numThreads > 1) ? new SubTaskExecutor(numThreads) : null;
+		try
+		{
+			return new Builder(calculationParams, Math.max(1, numThreads), maxNumEntries).build(
+				(subTaskExecutor != null) ? subTaskExecutor : Runnable::run);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException ex)
+		{
+			throw new IllegalStateException(ex.getCause());
+		}
+		finally
+		{
+			if (subTaskExecutor != null)
+			{
+				subTaskExecutor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Builds the reachable values of the subsets.
+	 */
+	private static class Builder
+	{
+		private final CalculationParams calculationParams;
+		private final int numThreads;
+		private final long maxNumEntries;
+		private final OperatorKernel kernel;
+		private final int maxIntermediateValue;
+		private final int[][] subsetValues;
+		private final int[][] subsetCounts;
+		private final AtomicLong numEntries = new AtomicLong();
+		private volatile boolean exceeded;
+
+		private Builder(CalculationParams calculationParams, int numThreads, long maxNumEntries)
+		{
+			this.calculationParams = calculationParams;
+			this.numThreads = numThreads;
+			this.maxNumEntries = maxNumEntries;
+			this.kernel = OperatorKernel.create(calculationParams.getOperators());
+			this.maxIntermediateValue = calculationParams.getConstraints().getMaxIntermediateValue();
+			this.subsetValues = new int[1 << calculationParams.getNumOperands()][];
+			this.subsetCounts = new int[this.subsetValues.length][];
+		}
+
+		private ReachableValueIndex build(Executor executor) throws InterruptedException, ExecutionException
+		{
+			final int n = this.calculationParams.getNumOperands();
+			final SubsetLevels levels = new SubsetLevels(n, this.numThreads, executor);
+			// a subset of the given size takes size - 1 operations, single
+			// operands are no results, as in the calculator:
+			final int minSize = this.calculationParams.getConstraints().isAllOperandsRequired() ?
+				Math.max(2, n) : 2;
+			final int maxSize = Math.min(n, this.calculationParams.getMaxNumOperations() + 1);
+			for (int size = 1; size <= maxSize && !this.exceeded; size++)
+			{
+				levels.calculate(size, this::calculateMasks);
+			}
+			return this.exceeded ? null : new ReachableValueIndex(this.calculationParams, this.kernel,
+				this.subsetValues, this.subsetCounts, minSize, maxSize, this.numEntries.get());
+		}
+
+		/**
+		 * Calculates the reachable values of the given subsets.
+		 *
+		 * @return the number of entries of the subsets
+		 */
+		private long calculateMasks(List<Integer> masks)
+		{
+			final ValueCounts valueCounts = new ValueCounts();
+			final int[] results = new int[this.kernel.size()];
+			long counter = 0;
+			for (int mask : masks)
+			{
+				if (this.exceeded)
+				{
+					break;
+				}
+				counter += calculateMask(mask, valueCounts, results);
+			}
+			return counter;
+		}
+
+		private int calculateMask(int mask, ValueCounts valueCounts, int[] results)
+		{
+			if (Integer.bitCount(mask) == 1)
+			{
+				final int value = this.calculationParams.getOperand(Integer.numberOfTrailingZeros(mask));
+				valueCounts.add(value, 1);
+			}
+			else
+			{
+				for (int mask1 = SubsetLevels.firstSplit(mask); mask1 != 0;
+					mask1 = SubsetLevels.nextSplit(mask, mask1))
+				{
+					combine(mask1, mask ^ mask1, valueCounts, results);
+				}
+			}
+			final long[] entries = valueCounts.drain();
+			if (this.numEntries.addAndGet(entries.length) > this.maxNumEntries)
+			{
+				this.exceeded = true;
+				return 0;
+			}
+			Arrays.sort(entries);
+			final int[] maskValues = new int[entries.length];
+			final int[] maskCounts = new int[entries.length];
+			for (int i = 0; i < entries.length; i++)
+			{
+				maskValues[i] = (int) (entries[i] >>> 32);
+				maskCounts[i] = (int) entries[i];
+			}
+			this.subsetValues[mask] = maskValues;
+			this.subsetCounts[mask] = maskCounts;
+			return entries.length;
+		}
+
+		private void combine(int mask1, int mask2, ValueCounts valueCounts, int[] results)
+		{
+			final int[] values1 = this.subsetValues[mask1];
+			final int[] counts1 = this.subsetCounts[mask1];
+			final int[] values2 = this.subsetValues[mask2];
+			final int[] counts2 = this.subsetCounts[mask2];
+			final int numApplications = this.kernel.size();
+			for (int i = 0; i < values1.length; i++)
+			{
+				final int a = values1[i];
+				for (int k = 0; k < values2.length; k++)
+				{
+					final int b = values2[k];
+					if (a >= b)
+					{
+						this.kernel.calculate(a, b, results);
+					}
+					else
+					{
+						this.kernel.calculate(b, a, results);
+					}
+					final long count = (long) counts1[i] * counts2[k];
+					for (int j = 0; j < numApplications; j++)
+					{
+						final int result = results[j];
+						if (result > 0 && result <= this.maxIntermediateValue)
+						{
+							valueCounts.add(result, count);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * An open addressing hash table of values and saturated counts, reused
+	 * for the subsets of a chunk.
+	 */
+	private static final class ValueCounts
+	{
+		private static final int INITIAL_CAPACITY = 1 << 6;
+		private int[] keys = new int[INITIAL_CAPACITY];
+		private int[] counts = new int[INITIAL_CAPACITY];
+		private int size;
+
+		private void add(int value, long count)
+		{
+			if (2 * (this.size + 1) > this.keys.length)
+			{
+				resize(2 * this.keys.length);
+			}
+			final int mask = this.keys.length - 1;
+			final int hash = value * 0x9E3779B9;
+			int index = (hash ^ (hash >>> 16)) & mask;
+			while (this.keys[index] != 0 && this.keys[index] != value)
+			{
+				index = (index + 1) & mask;
+			}
+			if (this.keys[index] == 0)
+			{
+				this.keys[index] = value;
+				this.size++;
+			}
+			this.counts[index] = (int) Math.min(Integer.MAX_VALUE, this.counts[index] + count);
+		}
+
+		private void resize(int capacity)
+		{
+			final int[] oldKeys = this.keys;
+			final int[] oldCounts = this.counts;
+			this.keys = new int[capacity];
+			this.counts = new int[capacity];
+			this.size = 0;
+			for (int i = 0; i < oldKeys.length; i++)
+			{
+				if (oldKeys[i] != 0)
+				{
+					add(oldKeys[i], oldCounts[i]);
+				}
+			}
+		}
+
+		/**
+		 * Returns the entries packed as value and count and clears the table.
+		 */
+		private long[] drain()
+		{
+			final long[] entries = new long[this.size];
+			int n = 0;
+			for (int i = 0; i < this.keys.length; i++)
+			{
+				if (this.keys[i] != 0)
+				{
+					entries[n++] = ((long) this.keys[i] << 32) | this.counts[i];
+				}
+			}
+			Arrays.fill(this.keys, 0);
+			Arrays.fill(this.counts, 0);
+			this.size = 0;
+			return entries;
+		}
+	}
+
+	/**
+	 * Returns true, if this index applies to the given calculation, that is,
+	 * it has the same operands, in any order, operators and constraints.
+	 *
+	 * @param calculationParams the given calculation
+	 * @return true, if this index applies to the calculation
+	 */
+	public boolean isApplicable(CalculationParams calculationParams)
+	{
+		if (calculationParams == null || calculationParams.getNumOperands() != this.operands.length ||
+			!calculationParams.getOperators().equals(this.kernel.getOperators()) ||
+			!calculationParams.getConstraints().equals(this.constraints))
+		{
+			return false;
+		}
+		final int[] sorted = new int[this.operands.length];
+		for (int i = 0; i < sorted.length; i++)
+		{
+			sorted[i] = calculationParams.getOperand(i);
+		}
+		Arrays.sort(sorted);
+		final int[] own = this.operands.clone();
+		Arrays.sort(own);
+		return Arrays.equals(sorted, own);
+	}
+
+	/**
+	 * Returns the number of entries of this index, that is the number of
+	 * reachable values summed up over all subsets of the operands.
+	 *
+	 * @return the number of entries
+	 */
+	public long getNumEntries()
+	{
+		return this.numEntries;
+	}
+
+	/**
+	 * Returns the number of distinct reachable values.
+	 *
+	 * @return the number of reachable values
+	 */
+	public int getNumValues()
+	{
+		return this.values.length;
+	}
+
+	/**
+	 * Returns true, if the given value is reachable.
+	 *
+	 * @param value the given value
+	 * @return true, if the value is reachable
+	 */
+	public boolean isReachable(int value)
+	{
+		return Arrays.binarySearch(this.values, value) >= 0;
+	}
+
+	/**
+	 * Returns the number of calculations of the given value.
+	 *
+	 * @param value the given value
+	 * @return the number of calculations, zero if the value is not reachable
+	 */
+	public long getNumCalculations(int value)
+	{
+		final int index = Arrays.binarySearch(this.values, value);
+		return (index >= 0) ? this.counts[index] : 0;
+	}
+
+	/**
+	 * Returns the distance of the greatest reachable value less than the
+	 * given target.
+	 *
+	 * @param target the given target
+	 * @return the distance to the lower approximation or
+	 *         {@link Integer#MAX_VALUE}, if none
+	 */
+	public int getDiffLess(int target)
+	{
+		final int index = Arrays.binarySearch(this.values, target);
+		final int indexLess = ((index >= 0) ? index : -index - 1) - 1;
+		return (indexLess >= 0) ? target - this.values[indexLess] : ApproximationInfo.INITIAL_DIFF_VALUE;
+	}
+
+	/**
+	 * Returns the distance of the least reachable value greater than the
+	 * given target.
+	 *
+	 * @param target the given target
+	 * @return the distance to the upper approximation or
+	 *         {@link Integer#MAX_VALUE}, if none
+	 */
+	public int getDiffGreater(int target)
+	{
+		final int index = Arrays.binarySearch(this.values, target);
+		final int indexGreater = (index >= 0) ? index + 1 : -index - 1;
+		return (indexGreater < this.values.length) ?
+			this.values[indexGreater] - target : ApproximationInfo.INITIAL_DIFF_VALUE;
+	}
+
+	/**
+	 * Returns a witness calculation of the given value with the least number
+	 * of operations. The witness is reconstructed from the reachable values of
+	 * the subsets of the operands.
+	 *
+	 * @param value the given value
+	 * @return the witness or null, if the value is not reachable
+	 */
+	public Solution getWitness(int value)
+	{
+		for (int size = this.minSubsetSize; size <= this.maxSubsetSize; size++)
+		{
+			for (int mask = 1; mask < this.subsetValues.length; mask++)
+			{
+				if (Integer.bitCount(mask) == size && contains(mask, value))
+				{
+					final List<Operation> operations = new ArrayList<>(size - 1);
+					reconstruct(mask, value, operations, new int[this.kernel.size()]);
+					return new Solution(operations.toArray(Operation[]::new));
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean contains(int mask, int value)
+	{
+		return value > 0 && Arrays.binarySearch(this.subsetValues[mask], value) >= 0;
+	}
+
+	/**
+	 * Recursively reconstructs a calculation of a value by all operands of the
+	 * given subset. The operations are appended in the order of evaluation.
+	 *
+	 * @return the operand representing the value
+	 */
+	private Operand reconstruct(int mask, int value, List<Operation> operations, int[] results)
+	{
+		if (Integer.bitCount(mask) == 1)
+		{
+			return new Operand(this.operands[Integer.numberOfTrailingZeros(mask)]);
+		}
+		for (int mask1 = SubsetLevels.firstSplit(mask); mask1 != 0; mask1 = SubsetLevels.nextSplit(mask, mask1))
+		{
+			final int mask2 = mask ^ mask1;
+			for (int a : this.subsetValues[mask1])
+			{
+				for (int b : this.subsetValues[mask2])
+				{
+					this.kernel.calculate(Math.max(a, b), Math.min(a, b), results);
+					for (int i = 0; i < this.kernel.size(); i++)
+					{
+						if (results[i] == value)
+						{
+							final Operand operandA = reconstruct(mask1, a, operations, results);
+							final Operand operandB = reconstruct(mask2, b, operations, results);
+							final Operator operator = this.kernel.getOperator(i);
+							final Operation operation = ((a >= b) != this.kernel.isSwapped(i)) ?
+								new Operation(operandA, operator, operandB, value) :
+								new Operation(operandB, operator, operandA, value);
+							operations.add(operation);
+							return operation;
+						}
+					}
+				}
+			}
+		}
+		throw new IllegalStateException("Value " + value + " is not reachable");
+	}
+}
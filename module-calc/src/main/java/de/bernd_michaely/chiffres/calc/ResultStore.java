@@ -0,0 +1,1060 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SortedSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Persistent store of calculation results in a directory, keyed by the
+ * canonical game, that is the target, the operators, the constraints and the
+ * sorted operands. A store can be shared by any number of calculators, see
+ * {@link Calculator#setResultStore(ResultStore)}, so repeated games are not
+ * recalculated, even after a restart of the application.
+ * <p>
+ * The results are kept in an append-only data file. It starts with a header
+ * containing a random file id, followed by one record per stored result.
+ * Every record is preceded by its length and a CRC32 checksum, and the data
+ * file is forced to the storage device before a record is referenced by the
+ * index. A record truncated by a crash is detected and discarded on opening
+ * the store. The solutions of a record are stored as a
+ * {@link CompactSolutionList}.
+ * <p>
+ * Lookups use a hash table in a memory mapped index file, mapping the hash of
+ * the key to the offset of the record in the data file. The index is a cache
+ * of the data file only: if it belongs to a different data file, e.g. after
+ * an interrupted compaction, or does not cover the whole data file, it is
+ * rebuilt or completed on opening the store. The key of a record is always
+ * compared on lookup, so a stale index entry results in a miss only. The
+ * capacity of the index is stored in its header, so the index file may be
+ * larger than the mapped index.
+ * <p>
+ * A store is opened by one store instance at a time, which holds an exclusive
+ * lock of the index file, so a store can not be corrupted by other processes
+ * opening it concurrently.
+ * <p>
+ * Storing a result of a game already contained supersedes the old record.
+ * If the data file would exceed the maximum size, it is compacted by copying
+ * the current records to a new file, which atomically replaces the old one.
+ * If this does not free enough space, the oldest records are dropped. The
+ * records are copied without holding the lock of the store, so lookups are
+ * not blocked by a compaction. The directory is forced to the storage device
+ * after replacing the data file, so the replacement is durable.
+ *
+ * @author Bernd Michaely
+ */
+public class ResultStore implements Closeable
+{
+	private static final Logger logger = Logger.getLogger(ResultStore.class.getName());
+	/**
+	 * The default maximum size of the data file in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 256L << 20;
+	/**
+	 * The minimum size of the data file in bytes.
+	 */
+	public static final long MIN_MAX_SIZE = 1L << 16;
+	/**
+	 * Magic number at the start of a data file.
+	 */
+	static final int MAGIC_DATA = 0x4A435253;
+	/**
+	 * Magic number at the start of an index file.
+	 */
+	static final int MAGIC_INDEX = 0x4A435249;
+	/**
+	 * The current version of the file formats.
+	 */
+	static final int VERSION = 1;
+	static final String FILE_NAME_DATA = "results.dat";
+	static final String FILE_NAME_INDEX = "results.idx";
+	private static final String SUFFIX_TEMP = ".tmp";
+	private static final int LENGTH_HEADER_DATA = Integer.BYTES + Short.BYTES + Long.BYTES;
+	private static final int LENGTH_HEADER_RECORD = 2 * Integer.BYTES;
+	private static final int LENGTH_HEADER_INDEX = 32;
+	private static final int LENGTH_SLOT = 2 * Long.BYTES;
+	private static final int OFFSET_INDEX_FILE_ID = 8;
+	private static final int OFFSET_INDEX_CAPACITY = 16;
+	private static final int OFFSET_INDEX_NUM_ENTRIES = 20;
+	private static final int OFFSET_INDEX_DATA_LENGTH = 24;
+	private static final int INDEX_CAPACITY_MIN = 1 << 10;
+	private final Path directory;
+	private final Path fileData;
+	private final Path fileIndex;
+	private final long maxSize;
+	private FileChannel channelData;
+	private FileChannel channelIndex;
+	private FileLock lock;
+	private MappedByteBuffer index;
+	private long fileId;
+	private long dataLength;
+	private long liveLength;
+	private int capacity;
+	private int numEntries;
+	private long numHits;
+	private long numMisses;
+	private boolean compacting;
+	private boolean closed;
+
+	private ResultStore(Path directory, long maxSize)
+	{
+		this.directory = directory;
+		this.fileData = directory.resolve(FILE_NAME_DATA);
+		this.fileIndex = directory.resolve(FILE_NAME_INDEX);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Opens the store in the given directory with the
+	 * {@link #DEFAULT_MAX_SIZE default maximum size}.
+	 *
+	 * @param directory the directory of the store, which is created if
+	 *                  necessary
+	 * @return the opened store
+	 * @throws IOException if the files of the store can not be read or written
+	 */
+	public static ResultStore open(Path directory) throws IOException
+	{
+		return open(directory, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Opens the store in the given directory. Files of an interrupted
+	 * compaction are removed, a truncated record at the end of the data file
+	 * is discarded and the index is rebuilt, if necessary.
+	 *
+	 * @param directory the directory of the store, which is created if
+	 *                  necessary
+	 * @param maxSize   the maximum size of the data file in bytes
+	 * @return the opened store
+	 * @throws IOException              if the files of the store can not be
+	 *                                  read or written or the store is opened
+	 *                                  already, by this or another process
+	 * @throws IllegalArgumentException if directory is null or maxSize is less
+	 *                                  than {@link #MIN_MAX_SIZE}
+	 */
+	public static ResultStore open(Path directory, long maxSize) throws IOException
+	{
+		if (directory == null)
+		{
+			throw new IllegalArgumentException("ResultStore : directory is null");
+		}
+		if (maxSize < MIN_MAX_SIZE)
+		{
+			throw new IllegalArgumentException("ResultStore : maximum size must be at least " + MIN_MAX_SIZE);
+		}
+		Files.createDirectories(directory);
+		final ResultStore resultStore = new ResultStore(directory, maxSize);
+		try
+		{
+			resultStore.lock();
+			Files.deleteIfExists(resultStore.fileData.resolveSibling(FILE_NAME_DATA + SUFFIX_TEMP));
+			resultStore.openData();
+			resultStore.openIndex();
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			resultStore.close();
+			throw ex;
+		}
+		return resultStore;
+	}
+
+	/**
+	 * Opens the index file and locks it exclusively for this store, before
+	 * any file of the store is modified.
+	 */
+	private void lock() throws IOException
+	{
+		this.channelIndex = FileChannel.open(this.fileIndex, CREATE, READ, WRITE);
+		try
+		{
+			this.lock = this.channelIndex.tryLock();
+		}
+		catch (OverlappingFileLockException ex)
+		{
+			this.lock = null;
+		}
+		if (this.lock == null)
+		{
+			throw new IOException("Result store »" + this.directory + "« is in use");
+		}
+	}
+
+	/**
+	 * Opens the data file and determines the length of its valid part.
+	 */
+	private void openData() throws IOException
+	{
+		this.channelData = FileChannel.open(this.fileData, CREATE, READ, WRITE);
+		final ByteBuffer header = ByteBuffer.allocate(LENGTH_HEADER_DATA);
+		if (this.channelData.size() >= LENGTH_HEADER_DATA)
+		{
+			readFully(header, 0);
+			if (header.getInt(0) != MAGIC_DATA || header.getShort(Integer.BYTES) != VERSION)
+			{
+				throw new IOException("»" + this.fileData + "« is not a result store data file");
+			}
+			this.fileId = header.getLong(Integer.BYTES + Short.BYTES);
+		}
+		else
+		{
+			this.fileId = ThreadLocalRandom.current().nextLong();
+			header.putInt(MAGIC_DATA).putShort((short) VERSION).putLong(this.fileId).flip();
+			this.channelData.truncate(0);
+			this.channelData.write(header, 0);
+			this.channelData.force(true);
+			forceDirectory();
+		}
+		this.dataLength = LENGTH_HEADER_DATA;
+	}
+
+	/**
+	 * Maps the index file and adds the records of the data file not yet
+	 * contained in the index. Also discards an invalid tail of the data file.
+	 */
+	private void openIndex() throws IOException
+	{
+		final long sizeData = this.channelData.size();
+		final long sizeIndex = this.channelIndex.size();
+		long offset = LENGTH_HEADER_DATA;
+		boolean valid = false;
+		if (sizeIndex >= LENGTH_HEADER_INDEX)
+		{
+			final ByteBuffer header = ByteBuffer.allocate(LENGTH_HEADER_INDEX);
+			readFully(this.channelIndex, header, 0);
+			final int capacityIndex = header.getInt(OFFSET_INDEX_CAPACITY);
+			final long dataLengthIndex = header.getLong(OFFSET_INDEX_DATA_LENGTH);
+			valid = header.getInt(0) == MAGIC_INDEX &&
+				header.getShort(Integer.BYTES) == VERSION &&
+				header.getLong(OFFSET_INDEX_FILE_ID) == this.fileId &&
+				Integer.bitCount(capacityIndex) == 1 && capacityIndex >= INDEX_CAPACITY_MIN &&
+				LENGTH_HEADER_INDEX + (long) capacityIndex * LENGTH_SLOT <= sizeIndex &&
+				dataLengthIndex >= LENGTH_HEADER_DATA && dataLengthIndex <= sizeData;
+			if (valid)
+			{
+				mapIndex(capacityIndex);
+				// the number of entries may be outdated after a crash:
+				this.numEntries = 0;
+				for (int slot = 0; slot < this.capacity; slot++)
+				{
+					if (getSlotHash(slot) != 0)
+					{
+						this.numEntries++;
+					}
+				}
+				offset = dataLengthIndex;
+			}
+		}
+		if (!valid)
+		{
+			if (sizeIndex > LENGTH_HEADER_INDEX)
+			{
+				logger.log(Level.INFO, "Rebuilding result store index »{0}«", this.fileIndex);
+			}
+			initIndex(INDEX_CAPACITY_MIN);
+		}
+		// add the records appended after the last update of the index:
+		this.dataLength = offset;
+		while (true)
+		{
+			final byte[] record = readRecord(offset);
+			if (record == null)
+			{
+				break;
+			}
+			this.dataLength = offset + LENGTH_HEADER_RECORD + record.length;
+			put(readKey(record), offset);
+			offset = this.dataLength;
+		}
+		if (sizeData > this.dataLength)
+		{
+			logger.log(Level.WARNING, "Discarding {0} bytes of invalid data at the end of »{1}«",
+				new Object[]
+				{
+					sizeData - this.dataLength, this.fileData
+				});
+			this.channelData.truncate(this.dataLength);
+			this.channelData.force(true);
+		}
+		this.index.putLong(OFFSET_INDEX_DATA_LENGTH, this.dataLength);
+		this.liveLength = calcLiveLength();
+	}
+
+	private void mapIndex(int capacity) throws IOException
+	{
+		this.capacity = capacity;
+		this.index = this.channelIndex.map(FileChannel.MapMode.READ_WRITE,
+			0, LENGTH_HEADER_INDEX + (long) capacity * LENGTH_SLOT);
+	}
+
+	/**
+	 * Initializes an empty index of the given capacity. The header is written
+	 * last, so an interrupted initialization leaves an invalid index.
+	 */
+	private void initIndex(int capacity) throws IOException
+	{
+		if (this.index != null)
+		{
+			this.index.putInt(0, 0);
+		}
+		mapIndex(capacity);
+		final byte[] zeros = new byte[LENGTH_SLOT * 64];
+		this.index.position(0);
+		while (this.index.hasRemaining())
+		{
+			this.index.put(zeros, 0, Math.min(zeros.length, this.index.remaining()));
+		}
+		this.numEntries = 0;
+		this.index.putShort(Integer.BYTES, (short) VERSION);
+		this.index.putLong(OFFSET_INDEX_FILE_ID, this.fileId);
+		this.index.putInt(OFFSET_INDEX_CAPACITY, capacity);
+		this.index.putInt(OFFSET_INDEX_NUM_ENTRIES, 0);
+		this.index.putLong(OFFSET_INDEX_DATA_LENGTH, LENGTH_HEADER_DATA);
+		this.index.putInt(0, MAGIC_INDEX);
+	}
+
+	/**
+	 * Creates the canonical key of a game.
+	 *
+	 * @param calculationParams the calculation parameters
+	 * @param testMode          the test mode flag of the calculation
+	 * @return the key
+	 */
+	static byte[] createKey(CalculationParams calculationParams, boolean testMode)
+	{
+		final ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
+		try (DataOutputStream data = new DataOutputStream(byteArray))
+		{
+			data.writeBoolean(testMode);
+			data.writeInt(calculationParams.getTarget());
+			int operators = 0;
+			for (Operator operator : calculationParams.getOperators())
+			{
+				operators |= 1 << operator.ordinal();
+			}
+			data.writeByte(operators);
+			final SolutionConstraints constraints = calculationParams.getConstraints();
+			data.writeInt(constraints.getMaxNumOperations());
+			data.writeInt(constraints.getMaxIntermediateValue());
+			data.writeBoolean(constraints.isAllOperandsRequired());
+			final int numOperands = calculationParams.getNumOperands();
+			final int[] operands = new int[numOperands];
+			for (int i = 0; i < numOperands; i++)
+			{
+				operands[i] = calculationParams.getOperand(i);
+			}
+			Arrays.sort(operands);
+			data.writeByte(numOperands);
+			for (int operand : operands)
+			{
+				data.writeInt(operand);
+			}
+		}
+		catch (IOException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+		return byteArray.toByteArray();
+	}
+
+	/**
+	 * Returns the initial operands sorted by value, which is the operand order
+	 * of the canonical game.
+	 */
+	private static Operand[] sortOperands(Operand[] operands)
+	{
+		final Operand[] sorted = operands.clone();
+		Arrays.sort(sorted, Comparator.comparingInt((Operand operand) -> operand.value));
+		return sorted;
+	}
+
+	private static long hash(byte[] key)
+	{
+		// 64 bit FNV-1a, zero marks an empty slot:
+		long hash = 0xCBF29CE484222325L;
+		for (byte b : key)
+		{
+			hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+		}
+		return (hash != 0) ? hash : 1;
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException
+	{
+		readFully(this.channelData, buffer, position);
+	}
+
+	private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new IOException("Unexpected end of »" + this.fileData + "«");
+			}
+		}
+	}
+
+	/**
+	 * Reads the record at the given offset of the data file.
+	 *
+	 * @return the record or null, if there is no valid record
+	 */
+	private byte[] readRecord(long offset) throws IOException
+	{
+		return readRecord(this.channelData, offset);
+	}
+
+	private byte[] readRecord(FileChannel channel, long offset) throws IOException
+	{
+		final long size = channel.size();
+		if (offset < LENGTH_HEADER_DATA || offset + LENGTH_HEADER_RECORD > size)
+		{
+			return null;
+		}
+		final ByteBuffer header = ByteBuffer.allocate(LENGTH_HEADER_RECORD);
+		readFully(channel, header, offset);
+		final int length = header.getInt(0);
+		if (length < Short.BYTES || length > size - offset - LENGTH_HEADER_RECORD)
+		{
+			return null;
+		}
+		final byte[] record = new byte[length];
+		readFully(channel, ByteBuffer.wrap(record), offset + LENGTH_HEADER_RECORD);
+		final CRC32 crc = new CRC32();
+		crc.update(record);
+		return ((int) crc.getValue() == header.getInt(Integer.BYTES)) ? record : null;
+	}
+
+	private static byte[] readKey(byte[] record)
+	{
+		final int length = ((record[0] & 0xFF) << 8) | (record[1] & 0xFF);
+		if (Short.BYTES + length > record.length)
+		{
+			throw new IllegalArgumentException("Invalid key length : " + length);
+		}
+		return Arrays.copyOfRange(record, Short.BYTES, Short.BYTES + length);
+	}
+
+	private long getSlotHash(int slot)
+	{
+		return this.index.getLong(LENGTH_HEADER_INDEX + slot * LENGTH_SLOT);
+	}
+
+	private long getSlotOffset(int slot)
+	{
+		return this.index.getLong(LENGTH_HEADER_INDEX + slot * LENGTH_SLOT + Long.BYTES);
+	}
+
+	private void setSlot(int slot, long hash, long offset)
+	{
+		// the offset is written first, so a torn slot is never used:
+		this.index.putLong(LENGTH_HEADER_INDEX + slot * LENGTH_SLOT + Long.BYTES, offset);
+		this.index.putLong(LENGTH_HEADER_INDEX + slot * LENGTH_SLOT, hash);
+	}
+
+	/**
+	 * Returns the slot containing the given key or the empty slot to insert
+	 * it into.
+	 */
+	private int findSlot(byte[] key, long hash) throws IOException
+	{
+		final int mask = this.capacity - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (true)
+		{
+			final long slotHash = getSlotHash(slot);
+			if (slotHash == 0)
+			{
+				return slot;
+			}
+			if (slotHash == hash)
+			{
+				final byte[] record = readRecord(getSlotOffset(slot));
+				if (record != null && Arrays.equals(key, readKey(record)))
+				{
+					return slot;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Adds the given record offset to the index, replacing the offset of a
+	 * record with the same key.
+	 */
+	private void put(byte[] key, long offset) throws IOException
+	{
+		if (2 * (this.numEntries + 1) > this.capacity)
+		{
+			resizeIndex(2 * this.capacity);
+		}
+		final long hash = hash(key);
+		final int slot = findSlot(key, hash);
+		if (getSlotHash(slot) == 0)
+		{
+			this.numEntries++;
+			this.index.putInt(OFFSET_INDEX_NUM_ENTRIES, this.numEntries);
+		}
+		setSlot(slot, hash, offset);
+	}
+
+	private void resizeIndex(int capacity) throws IOException
+	{
+		final long[] hashes = new long[this.numEntries];
+		final long[] offsets = new long[this.numEntries];
+		int n = 0;
+		for (int slot = 0; slot < this.capacity; slot++)
+		{
+			final long hash = getSlotHash(slot);
+			if (hash != 0)
+			{
+				hashes[n] = hash;
+				offsets[n] = getSlotOffset(slot);
+				n++;
+			}
+		}
+		initIndex(capacity, hashes, offsets, n);
+		this.index.putLong(OFFSET_INDEX_DATA_LENGTH, this.dataLength);
+	}
+
+	/**
+	 * Initializes the index of the given capacity with the given entries,
+	 * whose keys are known to be distinct.
+	 */
+	private void initIndex(int capacity, long[] hashes, long[] offsets, int n) throws IOException
+	{
+		initIndex(capacity);
+		final int mask = capacity - 1;
+		for (int i = 0; i < n; i++)
+		{
+			int slot = (int) (hashes[i] ^ (hashes[i] >>> 32)) & mask;
+			while (getSlotHash(slot) != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			setSlot(slot, hashes[i], offsets[i]);
+		}
+		this.numEntries = n;
+		this.index.putInt(OFFSET_INDEX_NUM_ENTRIES, n);
+	}
+
+	/**
+	 * Returns the offsets of the records referenced by the index in ascending
+	 * order, that is from the oldest to the newest record.
+	 */
+	private long[] getLiveOffsets()
+	{
+		final long[] offsets = new long[this.numEntries];
+		int n = 0;
+		for (int slot = 0; slot < this.capacity && n < offsets.length; slot++)
+		{
+			if (getSlotHash(slot) != 0)
+			{
+				offsets[n++] = getSlotOffset(slot);
+			}
+		}
+		Arrays.sort(offsets, 0, n);
+		return Arrays.copyOf(offsets, n);
+	}
+
+	private long calcLiveLength() throws IOException
+	{
+		long length = LENGTH_HEADER_DATA;
+		final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+		for (long offset : getLiveOffsets())
+		{
+			header.clear();
+			readFully(header, offset);
+			length += LENGTH_HEADER_RECORD + header.getInt(0);
+		}
+		return length;
+	}
+
+	private void checkOpen()
+	{
+		if (this.closed)
+		{
+			throw new IllegalStateException("ResultStore is closed");
+		}
+	}
+
+	/**
+	 * Loads the stored result of the given calculation into the given result.
+	 *
+	 * @param calculationParams the calculation parameters
+	 * @param operands          the initial operands of the calculation, which
+	 *                          are referenced by the loaded solutions
+	 * @param testMode          the test mode flag of the calculation
+	 * @param operationInterner the intern table or null for no interning
+	 * @param result            the result to fill
+	 * @return true, if a result is stored for the game, false otherwise
+	 * @throws IOException if the store can not be read
+	 */
+	synchronized boolean load(CalculationParams calculationParams, Operand[] operands,
+		boolean testMode, OperationInterner operationInterner, CalculationResult result)
+		throws IOException
+	{
+		checkOpen();
+		final byte[] key = createKey(calculationParams, testMode);
+		final int slot = findSlot(key, hash(key));
+		final byte[] record = (getSlotHash(slot) != 0) ? readRecord(getSlotOffset(slot)) : null;
+		if (record == null)
+		{
+			this.numMisses++;
+			return false;
+		}
+		final SolutionCodec solutionCodec = new SolutionCodec(sortOperands(operands));
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		in.skipBytes(Short.BYTES + key.length);
+		final boolean exactSolutionFound = in.readBoolean();
+		final int diffLess = in.readInt();
+		final int diffGreater = in.readInt();
+		final long numFilteredSolutions = in.readLong();
+		final long counterRecursionCalls = in.readLong();
+		final CompactSolutionList compactSolutions = new CompactSolutionList(solutionCodec);
+		compactSolutions.readFrom(in);
+		final SortedSet<Solution> sortedSet = SolutionRuns.toSortedSet(
+			compactSolutions.toArray(Solution[]::new), operationInterner);
+		result.exactSolutionFound = exactSolutionFound;
+		result.diffLess = diffLess;
+		result.diffGreater = diffGreater;
+		result.numFilteredSolutions = numFilteredSolutions;
+		result.counterRecursionCalls = counterRecursionCalls;
+		result.solutions = sortedSet;
+		result.fromResultStore = true;
+		this.numHits++;
+		return true;
+	}
+
+	/**
+	 * Stores the given result of a calculation. A result too large for the
+	 * maximum size of the store is not stored. If the store is full, it is
+	 * compacted first by the calling thread, without blocking lookups. If
+	 * another thread is compacting the store at the same time, the result is
+	 * not stored.
+	 *
+	 * @param calculationParams the calculation parameters
+	 * @param testMode          the test mode flag of the calculation
+	 * @param result            the complete result of the calculation
+	 * @return true, if the result is stored
+	 * @throws IOException if the store can not be written
+	 */
+	boolean store(CalculationParams calculationParams, boolean testMode,
+		CalculationResult result) throws IOException
+	{
+		final byte[] key = createKey(calculationParams, testMode);
+		final Operand[] operands = new Operand[calculationParams.getNumOperands()];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = new Operand(calculationParams.getOperand(i));
+		}
+		final SolutionCodec solutionCodec = new SolutionCodec(sortOperands(operands));
+		final ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
+		try (DataOutputStream data = new DataOutputStream(byteArray))
+		{
+			data.writeShort(key.length);
+			data.write(key);
+			data.writeBoolean(result.exactSolutionFound);
+			data.writeInt(result.diffLess);
+			data.writeInt(result.diffGreater);
+			data.writeLong(result.numFilteredSolutions);
+			data.writeLong(result.counterRecursionCalls);
+			new CompactSolutionList(solutionCodec, result.solutions).writeTo(data);
+		}
+		final byte[] record = byteArray.toByteArray();
+		final long length = LENGTH_HEADER_RECORD + record.length;
+		if (LENGTH_HEADER_DATA + length > this.maxSize / 2)
+		{
+			logger.log(Level.FINE, "Result of {0} too large for the result store", calculationParams);
+			return false;
+		}
+		synchronized (this)
+		{
+			checkOpen();
+			if (this.dataLength + length <= this.maxSize)
+			{
+				append(key, record);
+				return true;
+			}
+		}
+		if (!compact(this.maxSize * 3 / 4 - length))
+		{
+			return false;
+		}
+		synchronized (this)
+		{
+			checkOpen();
+			if (this.dataLength + length > this.maxSize)
+			{
+				return false;
+			}
+			append(key, record);
+			return true;
+		}
+	}
+
+	/**
+	 * Appends the given record to the data file and references it by the
+	 * index, superseding a record with the same key.
+	 */
+	private void append(byte[] key, byte[] record) throws IOException
+	{
+		final long offset = this.dataLength;
+		final long length = writeRecord(this.channelData, offset, record);
+		this.channelData.force(false);
+		this.dataLength += length;
+		final long offsetPrevious = findOffset(key);
+		put(key, offset);
+		this.index.putLong(OFFSET_INDEX_DATA_LENGTH, this.dataLength);
+		this.liveLength += length;
+		if (offsetPrevious >= 0)
+		{
+			final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+			readFully(header, offsetPrevious);
+			this.liveLength -= LENGTH_HEADER_RECORD + header.getInt(0);
+		}
+	}
+
+	/**
+	 * Writes the given record preceded by its length and checksum.
+	 *
+	 * @return the number of bytes written
+	 */
+	private static long writeRecord(FileChannel channel, long position, byte[] record)
+		throws IOException
+	{
+		final CRC32 crc = new CRC32();
+		crc.update(record);
+		final ByteBuffer buffer = ByteBuffer.allocate(LENGTH_HEADER_RECORD + record.length);
+		buffer.putInt(record.length).putInt((int) crc.getValue()).put(record).flip();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer, position + buffer.position());
+		}
+		return buffer.limit();
+	}
+
+	/**
+	 * Forces the directory entries of the store to the storage device, e.g.
+	 * after replacing the data file. Not all platforms support this.
+	 */
+	private void forceDirectory()
+	{
+		try (FileChannel channel = FileChannel.open(this.directory, READ))
+		{
+			channel.force(true);
+		}
+		catch (IOException ex)
+		{
+			logger.log(Level.FINE, "Can't force directory »" + this.directory + "«", ex);
+		}
+	}
+
+	private long findOffset(byte[] key) throws IOException
+	{
+		final int slot = findSlot(key, hash(key));
+		return (getSlotHash(slot) != 0) ? getSlotOffset(slot) : -1;
+	}
+
+	/**
+	 * Compacts the data file by dropping superseded records. Returns
+	 * immediately, if another thread is compacting the store.
+	 *
+	 * @throws IOException if the store can not be written
+	 */
+	public void compact() throws IOException
+	{
+		compact(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Copies the current records to a new data file, which replaces the old
+	 * one. If the records exceed the given length, the oldest ones are
+	 * dropped. The records are copied one by one without holding the lock of
+	 * the store. Records stored meanwhile are appended to the new data file
+	 * while holding the lock, when the index is switched to the new file.
+	 *
+	 * @param maxLength the maximum length of the new data file
+	 * @return false, if another thread is compacting the store
+	 */
+	private boolean compact(long maxLength) throws IOException
+	{
+		final FileChannel channel;
+		final long[] offsets;
+		final long lengthCopied;
+		synchronized (this)
+		{
+			checkOpen();
+			if (this.compacting)
+			{
+				return false;
+			}
+			this.compacting = true;
+			channel = this.channelData;
+			offsets = getLiveOffsets();
+			lengthCopied = this.dataLength;
+		}
+		final Path fileTemp = this.fileData.resolveSibling(FILE_NAME_DATA + SUFFIX_TEMP);
+		boolean replaced = false;
+		try
+		{
+			// the lengths of the records determine the oldest records to drop:
+			final int[] lengths = new int[offsets.length];
+			final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+			long length = LENGTH_HEADER_DATA;
+			for (int i = 0; i < offsets.length; i++)
+			{
+				header.clear();
+				readFully(channel, header, offsets[i]);
+				lengths[i] = header.getInt(0);
+				length += LENGTH_HEADER_RECORD + lengths[i];
+			}
+			int first = 0;
+			while (length > maxLength && first < offsets.length)
+			{
+				length -= LENGTH_HEADER_RECORD + lengths[first];
+				first++;
+			}
+			final long[] offsetsNew = new long[offsets.length];
+			Arrays.fill(offsetsNew, -1);
+			final long fileIdNew = ThreadLocalRandom.current().nextLong();
+			long lengthNew = LENGTH_HEADER_DATA;
+			try (FileChannel channelTemp = FileChannel.open(fileTemp, CREATE, WRITE, TRUNCATE_EXISTING))
+			{
+				final ByteBuffer headerData = ByteBuffer.allocate(LENGTH_HEADER_DATA);
+				headerData.putInt(MAGIC_DATA).putShort((short) VERSION).putLong(fileIdNew).flip();
+				while (headerData.hasRemaining())
+				{
+					channelTemp.write(headerData, headerData.position());
+				}
+				for (int i = first; i < offsets.length; i++)
+				{
+					final byte[] record = readRecord(channel, offsets[i]);
+					if (record != null)
+					{
+						offsetsNew[i] = lengthNew;
+						lengthNew += writeRecord(channelTemp, lengthNew, record);
+					}
+				}
+			}
+			synchronized (this)
+			{
+				checkOpen();
+				final long[] hashes = new long[this.numEntries];
+				final long[] offsetsIndex = new long[this.numEntries];
+				int n = 0;
+				long liveLengthNew = LENGTH_HEADER_DATA;
+				try (FileChannel channelTemp = FileChannel.open(fileTemp, WRITE))
+				{
+					for (int slot = 0; slot < this.capacity; slot++)
+					{
+						final long hash = getSlotHash(slot);
+						if (hash != 0)
+						{
+							final long offset = getSlotOffset(slot);
+							long offsetNew = -1;
+							long lengthRecord = 0;
+							if (offset < lengthCopied)
+							{
+								final int i = Arrays.binarySearch(offsets, offset);
+								if (i >= 0 && offsetsNew[i] >= 0)
+								{
+									offsetNew = offsetsNew[i];
+									lengthRecord = LENGTH_HEADER_RECORD + lengths[i];
+								}
+							}
+							else
+							{
+								// a record stored during the compaction:
+								final byte[] record = readRecord(offset);
+								if (record != null)
+								{
+									offsetNew = lengthNew;
+									lengthRecord = writeRecord(channelTemp, lengthNew, record);
+									lengthNew += lengthRecord;
+								}
+							}
+							if (offsetNew >= 0)
+							{
+								hashes[n] = hash;
+								offsetsIndex[n] = offsetNew;
+								n++;
+								liveLengthNew += lengthRecord;
+							}
+						}
+					}
+					channelTemp.force(true);
+				}
+				this.channelData.close();
+				try
+				{
+					Files.move(fileTemp, this.fileData, ATOMIC_MOVE, REPLACE_EXISTING);
+					replaced = true;
+					forceDirectory();
+				}
+				finally
+				{
+					this.channelData = FileChannel.open(this.fileData, READ, WRITE);
+				}
+				logger.log(Level.FINE, "Compacted result store »{0}« from {1} to {2} bytes, {3} results dropped",
+					new Object[]
+					{
+						this.directory, this.dataLength, lengthNew, this.numEntries - n
+					});
+				this.fileId = fileIdNew;
+				this.dataLength = lengthNew;
+				this.liveLength = liveLengthNew;
+				initIndex(this.capacity, hashes, offsetsIndex, n);
+				this.index.putLong(OFFSET_INDEX_DATA_LENGTH, lengthNew);
+			}
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				this.compacting = false;
+			}
+			if (!replaced)
+			{
+				Files.deleteIfExists(fileTemp);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the maximum size of the data file in bytes.
+	 *
+	 * @return the maximum size of the data file
+	 */
+	public long getMaxSize()
+	{
+		return this.maxSize;
+	}
+
+	/**
+	 * Returns the current size of the data file in bytes.
+	 *
+	 * @return the current size of the data file
+	 */
+	public synchronized long getSize()
+	{
+		return this.dataLength;
+	}
+
+	/**
+	 * Returns the size of the data file in bytes after a compaction, that is
+	 * without superseded records.
+	 *
+	 * @return the size of the current records
+	 */
+	public synchronized long getLiveSize()
+	{
+		return this.liveLength;
+	}
+
+	/**
+	 * Returns the number of stored results.
+	 *
+	 * @return the number of stored results
+	 */
+	public synchronized int getNumEntries()
+	{
+		return this.numEntries;
+	}
+
+	/**
+	 * Returns the number of results loaded from the store since opening it.
+	 *
+	 * @return the number of successful lookups
+	 */
+	public synchronized long getNumHits()
+	{
+		return this.numHits;
+	}
+
+	/**
+	 * Returns the number of lookups of games not contained in the store since
+	 * opening it.
+	 *
+	 * @return the number of failed lookups
+	 */
+	public synchronized long getNumMisses()
+	{
+		return this.numMisses;
+	}
+
+	/**
+	 * Closes the store. The index is forced to the storage device.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (!this.closed)
+		{
+			this.closed = true;
+			try
+			{
+				if (this.index != null)
+				{
+					this.index.force();
+				}
+			}
+			finally
+			{
+				if (this.channelIndex != null)
+				{
+					this.channelIndex.close();
+				}
+				if (this.channelData != null)
+				{
+					this.channelData.close();
+				}
+			}
+		}
+	}
+}
@@ -31,7 +31,7 @@ import static de.bernd_michaely.chiffres.calc.Operator.*;
 public class Solution implements Comparable<Solution>
 {
 	private static final Pattern PATTERN_EXPRESSION = Pattern.compile(
-		"\\s*(@?)(\\d+)\\s*([+\\-*/])\\s*(@?)(\\d+)\\s*");
+		"\\s*(@?)(\\d+)\\s*([+\\-*/^]|\\|\\|)\\s*(@?)(\\d+)\\s*");
 	static final OperationsComparator COMPARATOR = new OperationsComparator();
 	private static final Operand ZERO = new Operand(0);
 	private final Operation[] operations;
@@ -139,6 +139,20 @@ public class Solution implements Comparable<Solution>
 		this.redundant = calcRedundancy();
 	}
 
+	/**
+	 * Constructor creating a Solutions object with a known redundancy, e.g.
+	 * of a decoded solution, without checking it again. The given array is
+	 * not copied.
+	 *
+	 * @param operations the operations the solution consists of
+	 * @param redundant  the redundancy of the solution
+	 */
+	Solution(Operation[] operations, boolean redundant)
+	{
+		this.operations = operations;
+		this.redundant = redundant;
+	}
+
 	/**
 	 * Constructor for easy creation of test cases. For example the String
 	 * {@literal "3*7,@0+4"} describes a solution consisting of two operations,
@@ -179,6 +193,12 @@ public class Solution implements Comparable<Solution>
 					case "/":
 						operator = DIV;
 						break;
+					case "^":
+						operator = POW;
+						break;
+					case "||":
+						operator = CAT;
+						break;
 					default:
 						throw new AssertionError();
 				}
@@ -196,7 +216,7 @@ public class Solution implements Comparable<Solution>
 				}
 				Operand operand1 = isOp1Ref ? this.operations[op1] : new Operand(op1);
 				Operand operand2 = isOp2Ref ? this.operations[op2] : new Operand(op2);
-				if (operand2.getValue() > operand1.getValue())
+				if (!operator.isAppliedInBothOrders() && (operand2.getValue() > operand1.getValue()))
 				{
 					final Operand opSwitch = operand1;
 					operand1 = operand2;
@@ -240,6 +260,19 @@ public class Solution implements Comparable<Solution>
 		return Arrays.stream(this.operations);
 	}
 
+	/**
+	 * Returns a solution consisting of the given operations, which must be
+	 * structurally identical to the operations of this solution.
+	 *
+	 * @param operations the structurally identical operations
+	 * @return a new solution with the same redundancy as this solution
+	 * @see OperationInterner
+	 */
+	Solution withOperations(Operation[] operations)
+	{
+		return new Solution(operations, this.redundant);
+	}
+
 	/**
 	 * Returns the last operation giving the final result. That is it returns the
 	 * top element of the operation stack, or the root of the operation tree.
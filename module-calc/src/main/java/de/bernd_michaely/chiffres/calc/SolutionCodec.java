@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+/**
+ * Lossless compact encoding of the solutions of a calculation. Instead of an
+ * object graph of operations and operands, a solution is encoded as one byte
+ * for the number of operations followed by two bytes per operation. So a
+ * solution with {@code n} operations takes {@code 1 + 2 * n} bytes, e.g. 11
+ * bytes for a solution of five operations.
+ * <p>
+ * The first byte contains the number of operations (bits 0-5) and the
+ * redundancy of the solution (bit 6), which is valid, if bit 7 is set. The
+ * redundancy of a solution encoded with bit 7 cleared, as by earlier
+ * versions, is checked again on decoding.
+ * <p>
+ * Each operation is encoded as a 16 bit code containing the operator ordinal
+ * (bits 10-12) and the references to the first (bits 5-9) and the second
+ * operand (bits 0-4). An operand reference is either the index of an initial
+ * operand of the calculation or, with bit 4 set, the index of a preceding
+ * operation of the solution. The operation values are recalculated on
+ * decoding. Therefore an encoded solution can only be decoded by a codec for
+ * a calculation with the same operands.
+ *
+ * @author Bernd Michaely
+ * @see CompactSolutionList
+ */
+public class SolutionCodec
+{
+	/**
+	 * The maximum number of operands supported by the encoding.
+	 */
+	public static final int MAX_OPERANDS = 16;
+	private static final int FLAG_REDUNDANCY_KNOWN = 0x80;
+	private static final int FLAG_REDUNDANT = 0x40;
+	private static final int MASK_DEPTH = 0x3F;
+	private static final int FLAG_OPERATION_REF = 0x10;
+	private static final int MASK_REF = 0x1F;
+	private static final int MASK_INDEX = 0x0F;
+	private static final int SHIFT_OPERAND1 = 5;
+	private static final int SHIFT_OPERATOR = 10;
+	private static final int MASK_OPERATOR = 0x07;
+	private static final Operator[] OPERATORS = Operator.values();
+	private final Operand[] operands;
+
+	/**
+	 * Creates a codec for the solutions of the given calculation.
+	 *
+	 * @param calculationParams the given calculation
+	 * @throws IllegalArgumentException if the calculation has more than
+	 *                                  {@link #MAX_OPERANDS} operands
+	 */
+	public SolutionCodec(CalculationParams calculationParams)
+	{
+		this(createOperands(calculationParams));
+	}
+
+	/**
+	 * Creates a codec for the given initial operands. Decoded solutions will
+	 * reference these operand instances.
+	 *
+	 * @param operands the initial operands of the calculation
+	 */
+	SolutionCodec(Operand[] operands)
+	{
+		if (operands.length > MAX_OPERANDS)
+		{
+			throw new IllegalArgumentException("Number of operands exceeds " + MAX_OPERANDS);
+		}
+		this.operands = operands;
+	}
+
+	private static Operand[] createOperands(CalculationParams calculationParams)
+	{
+		final Operand[] operands = new Operand[calculationParams.getNumOperands()];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = new Operand(calculationParams.getOperand(i));
+		}
+		return operands;
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode a solution with the given
+	 * number of operations.
+	 *
+	 * @param depth the number of operations
+	 * @return the size of the encoded solution in bytes
+	 */
+	public static int getEncodedLength(int depth)
+	{
+		return 1 + 2 * depth;
+	}
+
+	/**
+	 * Returns the number of operations of an encoded solution.
+	 *
+	 * @param header the first byte of the encoded solution
+	 * @return the number of operations
+	 */
+	static int getDepth(byte header)
+	{
+		return header & MASK_DEPTH;
+	}
+
+	/**
+	 * Encodes the given solution.
+	 *
+	 * @param solution the given solution
+	 * @return the encoded solution
+	 * @throws IllegalArgumentException if the solution uses operands not
+	 *                                  belonging to the calculation
+	 */
+	public byte[] encode(Solution solution)
+	{
+		final byte[] data = new byte[getEncodedLength(solution.getDepth())];
+		encode(solution, data, 0);
+		return data;
+	}
+
+	/**
+	 * Encodes the given solution into the given buffer.
+	 *
+	 * @param solution the given solution
+	 * @param buffer   the buffer to write to
+	 * @param offset   the start offset in the buffer
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException  if the solution uses operands not
+	 *                                   belonging to the calculation
+	 * @throws IndexOutOfBoundsException if the buffer is too small
+	 */
+	public int encode(Solution solution, byte[] buffer, int offset)
+	{
+		final int depth = solution.getDepth();
+		buffer[offset] = (byte) (depth | FLAG_REDUNDANCY_KNOWN | (solution.isRedundant() ? FLAG_REDUNDANT : 0));
+		int usedOperands = 0;
+		for (int i = 0; i < depth; i++)
+		{
+			final Operation operation = solution.getOperation(i);
+			final int ref1 = operandRef(operation.operand1, solution, i, usedOperands);
+			usedOperands |= usedMask(ref1);
+			final int ref2 = operandRef(operation.operand2, solution, i, usedOperands);
+			usedOperands |= usedMask(ref2);
+			final int code = (operation.operator.ordinal() << SHIFT_OPERATOR) |
+				(ref1 << SHIFT_OPERAND1) | ref2;
+			buffer[offset + 1 + 2 * i] = (byte) (code >>> 8);
+			buffer[offset + 2 + 2 * i] = (byte) code;
+		}
+		return getEncodedLength(depth);
+	}
+
+	/**
+	 * Writes the given solution in encoded form to the given output.
+	 *
+	 * @param out      the given output
+	 * @param solution the given solution
+	 * @throws IOException              if an I/O error occurs
+	 * @throws IllegalArgumentException if the solution uses operands not
+	 *                                  belonging to the calculation
+	 */
+	public void write(DataOutput out, Solution solution) throws IOException
+	{
+		out.write(encode(solution));
+	}
+
+	private static int usedMask(int ref)
+	{
+		return ((ref & FLAG_OPERATION_REF) != 0) ? 0 : (1 << ref);
+	}
+
+	private int operandRef(Operand operand, Solution solution, int index, int usedOperands)
+	{
+		if (operand instanceof Operation)
+		{
+			for (int i = 0; i < index; i++)
+			{
+				if (solution.getOperation(i) == operand)
+				{
+					return FLAG_OPERATION_REF | i;
+				}
+			}
+			throw new IllegalArgumentException("Operation " + operand + " is not part of the solution");
+		}
+		// prefer the identical operand, which is the case for solutions of a Calculator:
+		for (int i = 0; i < this.operands.length; i++)
+		{
+			if (this.operands[i] == operand)
+			{
+				return i;
+			}
+		}
+		for (int i = 0; i < this.operands.length; i++)
+		{
+			if ((this.operands[i].value == operand.value) && ((usedOperands & (1 << i)) == 0))
+			{
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Operand " + operand + " is not part of the calculation");
+	}
+
+	/**
+	 * Decodes a solution.
+	 *
+	 * @param data the encoded solution
+	 * @return the decoded solution
+	 * @throws IllegalArgumentException if the data is not a valid encoding of a
+	 *                                  solution of this calculation
+	 */
+	public Solution decode(byte[] data)
+	{
+		return decode(data, 0);
+	}
+
+	/**
+	 * Decodes a solution from the given buffer.
+	 *
+	 * @param buffer the buffer containing the encoded solution
+	 * @param offset the start offset in the buffer
+	 * @return the decoded solution
+	 * @throws IllegalArgumentException if the data is not a valid encoding of a
+	 *                                  solution of this calculation
+	 */
+	public Solution decode(byte[] buffer, int offset)
+	{
+		final int header = Byte.toUnsignedInt(buffer[offset]);
+		final int depth = header & MASK_DEPTH;
+		checkDepth(depth);
+		if (offset + getEncodedLength(depth) > buffer.length)
+		{
+			throw new IllegalArgumentException("Encoded solution is truncated");
+		}
+		final Operation[] operations = new Operation[depth];
+		int usedOperands = 0;
+		for (int i = 0; i < depth; i++)
+		{
+			final int code = (Byte.toUnsignedInt(buffer[offset + 1 + 2 * i]) << 8) |
+				Byte.toUnsignedInt(buffer[offset + 2 + 2 * i]);
+			usedOperands = decodeOperation(code, operations, i, usedOperands);
+		}
+		return createSolution(header, operations);
+	}
+
+	/**
+	 * Reads a solution in encoded form from the given input.
+	 *
+	 * @param in the given input
+	 * @return the decoded solution
+	 * @throws IOException if an I/O error occurs or the data is not a valid
+	 *                     encoding of a solution of this calculation
+	 */
+	public Solution read(DataInput in) throws IOException
+	{
+		try
+		{
+			final int header = in.readUnsignedByte();
+			final int depth = header & MASK_DEPTH;
+			checkDepth(depth);
+			final Operation[] operations = new Operation[depth];
+			int usedOperands = 0;
+			for (int i = 0; i < depth; i++)
+			{
+				usedOperands = decodeOperation(in.readUnsignedShort(), operations, i, usedOperands);
+			}
+			return createSolution(header, operations);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			final StreamCorruptedException exception = new StreamCorruptedException(ex.getMessage());
+			exception.initCause(ex);
+			throw exception;
+		}
+	}
+
+	/**
+	 * Creates a decoded solution, checking its redundancy only, if it is not
+	 * known from the encoding.
+	 */
+	private static Solution createSolution(int header, Operation[] operations)
+	{
+		return ((header & FLAG_REDUNDANCY_KNOWN) != 0) ?
+			new Solution(operations, (header & FLAG_REDUNDANT) != 0) : new Solution(operations);
+	}
+
+	private void checkDepth(int depth)
+	{
+		if ((depth < 1) || (depth >= this.operands.length))
+		{
+			throw new IllegalArgumentException("Invalid number of operations : " + depth);
+		}
+	}
+
+	private int decodeOperation(int code, Operation[] operations, int index, int usedOperands)
+	{
+		final int ordinal = (code >>> SHIFT_OPERATOR) & MASK_OPERATOR;
+		if (ordinal >= OPERATORS.length)
+		{
+			throw new IllegalArgumentException("Invalid operator ordinal : " + ordinal);
+		}
+		final Operator operator = OPERATORS[ordinal];
+		final int ref1 = (code >>> SHIFT_OPERAND1) & MASK_REF;
+		final int ref2 = code & MASK_REF;
+		final Operand operand1 = decodeOperand(ref1, operations, index, usedOperands);
+		usedOperands |= usedMask(ref1);
+		final Operand operand2 = decodeOperand(ref2, operations, index, usedOperands);
+		usedOperands |= usedMask(ref2);
+		operations[index] = new Operation(operand1, operator, operand2,
+			operator.calculate(operand1.value, operand2.value));
+		return usedOperands;
+	}
+
+	private Operand decodeOperand(int ref, Operation[] operations, int index, int usedOperands)
+	{
+		final int i = ref & MASK_INDEX;
+		if ((ref & FLAG_OPERATION_REF) != 0)
+		{
+			if (i >= index)
+			{
+				throw new IllegalArgumentException("Invalid operation reference : " + i);
+			}
+			return operations[i];
+		}
+		else if ((i >= this.operands.length) || ((usedOperands & (1 << i)) != 0))
+		{
+			throw new IllegalArgumentException("Invalid operand reference : " + i);
+		}
+		else
+		{
+			return this.operands[i];
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.StringJoiner;
+
+/**
+ * Immutable class to describe constraints on the solutions of a calculation,
+ * e.g. for practice games. The constraints are enforced during the search:
+ * a branch violating a constraint is cut at the node where the violation
+ * occurs. The approximations respect the constraints as well. Operators not
+ * allowed in a game are excluded by the
+ * {@link CalculationParams#getOperators() operators} of the calculation.
+ *
+ * @author Bernd Michaely
+ * @see CalculationParams#getConstraints()
+ */
+public class SolutionConstraints
+{
+	/**
+	 * The value of an unlimited constraint.
+	 */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+	/**
+	 * The constraints of the standard game, which does not restrict the
+	 * solutions.
+	 */
+	public static final SolutionConstraints NONE =
+		new SolutionConstraints(UNLIMITED, UNLIMITED, false);
+	private final int maxNumOperations;
+	private final int maxIntermediateValue;
+	private final boolean allOperandsRequired;
+
+	/**
+	 * Creates new constraints.
+	 *
+	 * @param maxNumOperations     the maximum number of operations of a
+	 *                             solution or {@link #UNLIMITED}
+	 * @param maxIntermediateValue the maximum result of each operation of a
+	 *                             solution or {@link #UNLIMITED}
+	 * @param allOperandsRequired  true, if solutions must use all operands
+	 * @throws IllegalArgumentException if a limit is less than one
+	 */
+	public SolutionConstraints(int maxNumOperations, int maxIntermediateValue,
+		boolean allOperandsRequired)
+	{
+		if (maxNumOperations < 1)
+		{
+			throw new IllegalArgumentException("SolutionConstraints : maxNumOperations < 1");
+		}
+		if (maxIntermediateValue < 1)
+		{
+			throw new IllegalArgumentException("SolutionConstraints : maxIntermediateValue < 1");
+		}
+		this.maxNumOperations = maxNumOperations;
+		this.maxIntermediateValue = maxIntermediateValue;
+		this.allOperandsRequired = allOperandsRequired;
+	}
+
+	/**
+	 * Returns the maximum number of operations of a solution.
+	 *
+	 * @return the maximum number of operations or {@link #UNLIMITED}
+	 */
+	public int getMaxNumOperations()
+	{
+		return this.maxNumOperations;
+	}
+
+	/**
+	 * Returns the maximum result of each operation of a solution, including
+	 * the intermediate results.
+	 *
+	 * @return the maximum result of each operation or {@link #UNLIMITED}
+	 */
+	public int getMaxIntermediateValue()
+	{
+		return this.maxIntermediateValue;
+	}
+
+	/**
+	 * Returns true, if solutions must use all operands.
+	 *
+	 * @return true, if solutions must use all operands
+	 */
+	public boolean isAllOperandsRequired()
+	{
+		return this.allOperandsRequired;
+	}
+
+	/**
+	 * Returns true, if the solutions are not restricted.
+	 *
+	 * @return true, if the solutions are not restricted
+	 */
+	public boolean isUnconstrained()
+	{
+		return this.maxNumOperations == UNLIMITED &&
+			this.maxIntermediateValue == UNLIMITED && !this.allOperandsRequired;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj instanceof SolutionConstraints)
+		{
+			final SolutionConstraints other = (SolutionConstraints) obj;
+			return this.maxNumOperations == other.maxNumOperations &&
+				this.maxIntermediateValue == other.maxIntermediateValue &&
+				this.allOperandsRequired == other.allOperandsRequired;
+		}
+		else
+		{
+			return false;
+		}
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * (31 * this.maxNumOperations + this.maxIntermediateValue) +
+			(this.allOperandsRequired ? 1 : 0);
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringJoiner s = new StringJoiner(", ", "Constraints (", ")");
+		if (this.maxNumOperations != UNLIMITED)
+		{
+			s.add("max. operations " + this.maxNumOperations);
+		}
+		if (this.maxIntermediateValue != UNLIMITED)
+		{
+			s.add("max. value " + this.maxIntermediateValue);
+		}
+		if (this.allOperandsRequired)
+		{
+			s.add("all operands");
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+
+/**
+ * Counts the solutions of all targets of a range in one pass over the
+ * calculation trees. The calculation trees are enumerated in the same way as
+ * by the exhaustive search of the calculator, but every intermediate result
+ * within the range is taken as a hit of its own target. The hits are reduced
+ * to their equivalence classes and the redundant ones are filtered, so the
+ * count of a target equals the number of solutions the calculator finds for
+ * it. The equivalence classes of all hits are kept in memory, so the counter
+ * is meant for a moderate number of operands.
+ *
+ * @author Bernd Michaely
+ */
+class SolutionCounter
+{
+	private final Operand[] operands;
+	private final OperatorKernel kernel;
+	private final int minTarget, maxTarget;
+	private final int minNumOperations, maxNumOperations;
+	private final int maxIntermediateValue;
+	private final Set<Solution.EquivalenceClass> equivalenceClasses = new ConcurrentSkipListSet<>();
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param calculationParams the operands, operators and constraints, the
+	 *                          target is ignored
+	 * @param minTarget         the least target of the range
+	 * @param maxTarget         the greatest target of the range
+	 */
+	SolutionCounter(CalculationParams calculationParams, int minTarget, int maxTarget)
+	{
+		this.operands = new Operand[calculationParams.getNumOperands()];
+		for (int i = 0; i < this.operands.length; i++)
+		{
+			this.operands[i] = new Operand(calculationParams.getOperand(i));
+		}
+		this.kernel = OperatorKernel.create(calculationParams.getOperators());
+		this.minTarget = minTarget;
+		this.maxTarget = maxTarget;
+		this.minNumOperations = calculationParams.getMinNumOperations();
+		this.maxNumOperations = calculationParams.getMaxNumOperations();
+		this.maxIntermediateValue = calculationParams.getConstraints().getMaxIntermediateValue();
+	}
+
+	/**
+	 * Counts the solutions of the targets of the range. The subtrees of the
+	 * first operations are calculated in parallel.
+	 *
+	 * @param numThreads the number of threads to use
+	 * @return the numbers of solutions, indexed by the offset of the target
+	 *         from the least target
+	 * @throws InterruptedException if interrupted while counting
+	 */
+	long[] count(int numThreads) throws InterruptedException
+	{
+		final SubTaskExecutor subTaskExecutor = (numThreads > 1) ? new SubTaskExecutor(numThreads) : null;
+		try
+		{
+			return count((subTaskExecutor != null) ? subTaskExecutor : Runnable::run);
+		}
+		catch (ExecutionException ex)
+		{
+			throw new IllegalStateException(ex.getCause());
+		}
+		finally
+		{
+			this.cancelled = true;
+			if (subTaskExecutor != null)
+			{
+				subTaskExecutor.shutdown();
+			}
+		}
+	}
+
+	private long[] count(Executor executor) throws InterruptedException, ExecutionException
+	{
+		final long[] counts = new long[this.maxTarget - this.minTarget + 1];
+		final CompletionService<long[]> completionService = new ExecutorCompletionService<>(executor);
+		final int numOperands = this.operands.length;
+		int numTasks = 0;
+		for (int i = 0; i < numOperands - 1; i++)
+		{
+			for (int k = i + 1; k < numOperands; k++)
+			{
+				final int index1 = i, index2 = k;
+				completionService.submit(() -> new Branch().calculate(index1, index2));
+				numTasks++;
+			}
+		}
+		for (int t = 0; t < numTasks; t++)
+		{
+			final long[] countsBranch = completionService.take().get();
+			for (int i = 0; i < counts.length; i++)
+			{
+				counts[i] += countsBranch[i];
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * The calculation of the subtrees of a pair of operands combined by the
+	 * first operation.
+	 */
+	private class Branch
+	{
+		private final Operation[] operations = new Operation[Math.max(0, operands.length - 1)];
+		private final int[][] results = new int[operations.length][kernel.size()];
+		private final long[] counts = new long[maxTarget - minTarget + 1];
+
+		private long[] calculate(int i, int k)
+		{
+			calculatePair(operands, i, k);
+			return this.counts;
+		}
+
+		private void calculateNode(Operand[] operandsNode)
+		{
+			for (int i = 0; i < operandsNode.length - 1; i++)
+			{
+				for (int k = i + 1; !cancelled && (k < operandsNode.length); k++)
+				{
+					calculatePair(operandsNode, i, k);
+				}
+			}
+		}
+
+		/**
+		 * Applies the operators to the given pair of operands and recurses
+		 * into the remaining operands in the order of the calculator.
+		 */
+		private void calculatePair(Operand[] operandsNode, int i, int k)
+		{
+			final int numOpDecr = operandsNode.length - 1;
+			final int depth = operands.length - operandsNode.length;
+			final Operand op1;
+			final Operand op2;
+			if (operandsNode[i].value > operandsNode[k].value)
+			{
+				op1 = operandsNode[i];
+				op2 = operandsNode[k];
+			}
+			else
+			{
+				op1 = operandsNode[k];
+				op2 = operandsNode[i];
+			}
+			final int[] resultsNode = this.results[depth];
+			kernel.calculate(op1.value, op2.value, resultsNode);
+			for (int j = 0; j < kernel.size(); j++)
+			{
+				final int result = resultsNode[j];
+				if (result > 0 && result <= maxIntermediateValue)
+				{
+					final Operator operator = kernel.getOperator(j);
+					final Operation operation = kernel.isSwapped(j) ?
+						new Operation(op2, operator, op1, result) :
+						new Operation(op1, operator, op2, result);
+					this.operations[depth] = operation;
+					if (result >= minTarget && result <= maxTarget &&
+						depth + 1 >= minNumOperations && !isPreviousResult(result, depth))
+					{
+						addSolution(result, depth);
+					}
+					if (numOpDecr > 1 && depth + 1 < maxNumOperations)
+					{
+						final Operand[] operandsRecursion = new Operand[numOpDecr];
+						for (int m = 0; m < numOpDecr; m++)
+						{
+							operandsRecursion[m] = (m == i) ? operation :
+								((m == k) ? operandsNode[numOpDecr] : operandsNode[m]);
+						}
+						calculateNode(operandsRecursion);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns true, if a previous operation has the given result. The
+		 * calculator does not continue a calculation tree beyond the target,
+		 * so a hit of such a target is not counted.
+		 */
+		private boolean isPreviousResult(int result, int depth)
+		{
+			for (int d = 0; d < depth; d++)
+			{
+				if (this.operations[d].value == result)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Counts the solution given by the operations up to the given depth,
+		 * if it is not redundant and its equivalence class is new. The
+		 * solutions of an equivalence class may differ in the references of
+		 * the operands, so a class is only known if a non redundant solution
+		 * of it was found before.
+		 */
+		private void addSolution(int result, int depth)
+		{
+			final Solution solution = new Solution(depth + 1, this.operations);
+			if (!solution.isRedundant() &&
+				equivalenceClasses.add(new Solution.EquivalenceClass(solution)))
+			{
+				this.counts[result - minTarget]++;
+			}
+		}
+	}
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Pipeline processing the exact hits of the search on separate stages. The
+ * search threads, the generators, only copy the operations of a hit and pass
+ * them on in batches. The canonicalizer stage checks the redundancy of the
+ * hits and computes their equivalence classes, and the deduplicator stage
+ * keeps one solution per equivalence class. The stages are connected by
+ * bounded queues, so a slow stage blocks the producers instead of using
+ * unbounded memory. The equivalence classes are partitioned between the
+ * deduplicator threads, so their results are disjoint.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#setSolutionPipeline(SolutionPipelineOptions)
+ */
+class SolutionPipeline
+{
+	/**
+	 * Marker batch to stop a stage thread.
+	 */
+	private static final List<Object> END = new ArrayList<>(0);
+	private static final long TIMEOUT_MILLIS = 100;
+	private final int batchSize;
+	private final Consumer<SolutionCandidate> onIntermediateResult;
+	private final int numShards;
+	private final List<SortedMap<Solution.EquivalenceClass, Solution>> equivalenceClasses;
+	private final List<TopSolutions> topSolutions;
+	private final LongAdder numFilteredSolutions = new LongAdder();
+	private final Stage<Operation[]> canonicalizeStage;
+	private final Stage<SolutionCandidate> deduplicateStage;
+	private volatile Throwable failure;
+	private boolean closed;
+
+	/**
+	 * A stage of the pipeline. The threads of a stage share an input queue or
+	 * have an input queue each.
+	 */
+	private final class Stage<T>
+	{
+		private final String name;
+		private final int queueCapacity;
+		private final List<BlockingQueue<List<T>>> queues;
+		private final List<Thread> threads;
+		private final LongAdder numBatches = new LongAdder();
+		private final LongAdder numItems = new LongAdder();
+		private final LongAdder blockedTime = new LongAdder();
+		private final LongAdder idleTime = new LongAdder();
+		private final LongAdder busyTime = new LongAdder();
+		private final AtomicInteger maxQueueSize = new AtomicInteger();
+
+		private Stage(String name, int numThreads, int numQueues, int queueCapacity,
+			IntFunction<Consumer<List<T>>> workerFactory)
+		{
+			this.name = name;
+			this.queueCapacity = queueCapacity;
+			this.queues = new ArrayList<>(numQueues);
+			for (int i = 0; i < numQueues; i++)
+			{
+				this.queues.add(new ArrayBlockingQueue<>(queueCapacity));
+			}
+			this.threads = new ArrayList<>(numThreads);
+			for (int i = 0; i < numThreads; i++)
+			{
+				final BlockingQueue<List<T>> queue = this.queues.get(i % numQueues);
+				final Consumer<List<T>> worker = workerFactory.apply(i);
+				final Thread thread = new Thread(() -> run(queue, worker),
+					"SolutionPipeline-" + name + "-" + (i + 1));
+				thread.setDaemon(true);
+				this.threads.add(thread);
+			}
+			this.threads.forEach(Thread::start);
+		}
+
+		/**
+		 * Puts a batch into the given input queue, waiting for space if
+		 * necessary. The batch is dropped, if the pipeline has failed.
+		 */
+		private void put(int index, List<T> batch)
+		{
+			final BlockingQueue<List<T>> queue = this.queues.get(index);
+			if (!queue.offer(batch))
+			{
+				final long timeStart = System.nanoTime();
+				try
+				{
+					while (failure == null && !queue.offer(batch, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+					{
+						// wait for the consumers
+					}
+				}
+				catch (InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+				}
+				this.blockedTime.add(System.nanoTime() - timeStart);
+			}
+			this.maxQueueSize.accumulateAndGet(queue.size(), Math::max);
+		}
+
+		private void run(BlockingQueue<List<T>> queue, Consumer<List<T>> worker)
+		{
+			try
+			{
+				while (true)
+				{
+					final long timeStart = System.nanoTime();
+					final List<T> batch = queue.take();
+					final long timeTaken = System.nanoTime();
+					this.idleTime.add(timeTaken - timeStart);
+					if (batch == END)
+					{
+						break;
+					}
+					// after a failure, the queue is drained only:
+					if (failure == null)
+					{
+						try
+						{
+							worker.accept(batch);
+						}
+						catch (RuntimeException | Error ex)
+						{
+							failure = ex;
+						}
+					}
+					this.numBatches.increment();
+					this.numItems.add(batch.size());
+					this.busyTime.add(System.nanoTime() - timeTaken);
+				}
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Stops the threads after processing the pending batches.
+		 */
+		@SuppressWarnings("unchecked")
+		private void close()
+		{
+			boolean interrupted = false;
+			// the threads drain their queues even after a failure, so the
+			// end markers are put without dropping:
+			for (int i = 0; i < this.threads.size(); i++)
+			{
+				final BlockingQueue<List<T>> queue = this.queues.get(i % this.queues.size());
+				boolean done = false;
+				while (!done)
+				{
+					try
+					{
+						queue.put((List<T>) END);
+						done = true;
+					}
+					catch (InterruptedException ex)
+					{
+						interrupted = true;
+					}
+				}
+			}
+			for (Thread thread : this.threads)
+			{
+				while (thread.isAlive())
+				{
+					try
+					{
+						thread.join();
+					}
+					catch (InterruptedException ex)
+					{
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private PipelineStageMetrics getMetrics()
+		{
+			return new PipelineStageMetrics(this.name, this.threads.size(), this.queueCapacity,
+				this.numBatches.sum(), this.numItems.sum(), this.maxQueueSize.get(),
+				this.blockedTime.sum(), this.idleTime.sum(), this.busyTime.sum());
+		}
+	}
+
+	/**
+	 * Creates and starts a pipeline.
+	 *
+	 * @param options              the pipeline options
+	 * @param onIntermediateResult optional intermediate result callback,
+	 *                             called by the canonicalizer threads
+	 * @param interningOperations  true to share identical operations between
+	 *                             solutions
+	 * @param maxNumSolutions      the maximum number of solutions kept or
+	 *                             zero, if unlimited
+	 * @param solutionScorer       the scorer ranking the solutions, if the
+	 *                             number of solutions is limited
+	 */
+	SolutionPipeline(SolutionPipelineOptions options, Consumer<SolutionCandidate> onIntermediateResult,
+		boolean interningOperations, int maxNumSolutions, SolutionScorer solutionScorer)
+	{
+		this.batchSize = options.getBatchSize();
+		this.onIntermediateResult = onIntermediateResult;
+		this.numShards = options.getNumDeduplicatorThreads();
+		this.equivalenceClasses = new ArrayList<>(this.numShards);
+		this.topSolutions = new ArrayList<>(this.numShards);
+		for (int i = 0; i < this.numShards; i++)
+		{
+			if (maxNumSolutions > 0)
+			{
+				this.topSolutions.add(new TopSolutions(maxNumSolutions, solutionScorer));
+			}
+			else
+			{
+				this.equivalenceClasses.add(new TreeMap<>());
+			}
+		}
+		this.deduplicateStage = new Stage<>("deduplicate", this.numShards, this.numShards,
+			options.getQueueCapacity(), this::createDeduplicator);
+		this.canonicalizeStage = new Stage<>("canonicalize", options.getNumCanonicalizerThreads(), 1,
+			options.getQueueCapacity(), index -> createCanonicalizer(interningOperations));
+	}
+
+	private Consumer<List<Operation[]>> createCanonicalizer(boolean interningOperations)
+	{
+		final OperationInterner operationInterner = interningOperations ? new OperationInterner() : null;
+		return batch ->
+		{
+			final List<List<SolutionCandidate>> shards = new ArrayList<>(this.numShards);
+			for (int i = 0; i < this.numShards; i++)
+			{
+				shards.add(new ArrayList<>());
+			}
+			for (Operation[] operations : batch)
+			{
+				final Solution solution = new Solution(operations);
+				if (solution.isRedundant())
+				{
+					this.numFilteredSolutions.increment();
+				}
+				else
+				{
+					final SolutionCandidate solutionCandidate = new SolutionCandidate(
+						(operationInterner != null) ? operationInterner.intern(solution) : solution);
+					if (this.onIntermediateResult != null)
+					{
+						this.onIntermediateResult.accept(solutionCandidate);
+					}
+					shards.get(getShard(solution, this.numShards)).add(solutionCandidate);
+				}
+			}
+			for (int i = 0; i < this.numShards; i++)
+			{
+				if (!shards.get(i).isEmpty())
+				{
+					this.deduplicateStage.put(i, shards.get(i));
+				}
+			}
+		};
+	}
+
+	private Consumer<List<SolutionCandidate>> createDeduplicator(int index)
+	{
+		if (!this.topSolutions.isEmpty())
+		{
+			final TopSolutions shard = this.topSolutions.get(index);
+			return batch -> batch.forEach(shard::add);
+		}
+		final SortedMap<Solution.EquivalenceClass, Solution> shard = this.equivalenceClasses.get(index);
+		return batch ->
+		{
+			for (SolutionCandidate candidate : batch)
+			{
+				// keep the smallest solution like Calculator.collectSolutions:
+				final Solution existing = shard.get(candidate.equivalenceClass);
+				if ((existing == null) || (candidate.solution.compareTo(existing) < 0))
+				{
+					shard.put(candidate.equivalenceClass, candidate.solution);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the deduplicator shard of a solution. The shard depends on the
+	 * multiset of operations only, so all solutions of an equivalence class
+	 * belong to the same shard.
+	 *
+	 * @param solution  the solution
+	 * @param numShards the number of shards
+	 * @return the shard index
+	 */
+	static int getShard(Solution solution, int numShards)
+	{
+		int hash = 0;
+		for (int i = 0; i < solution.getDepth(); i++)
+		{
+			final Operation operation = solution.getOperation(i);
+			hash += (31 * (31 * operation.operator.ordinal() + operation.operand1.value) +
+				operation.operand2.value) * 0x9E3779B9;
+		}
+		return Math.floorMod(hash ^ (hash >>> 16), numShards);
+	}
+
+	/**
+	 * Returns the number of hits a generator collects before passing them on.
+	 *
+	 * @return the batch size
+	 */
+	int getBatchSize()
+	{
+		return this.batchSize;
+	}
+
+	/**
+	 * Passes a batch of hits to the canonicalizer stage. Each hit is the array
+	 * of operations of a solution. Called by the generators.
+	 *
+	 * @param hits the batch of hits
+	 */
+	void submit(List<Operation[]> hits)
+	{
+		this.canonicalizeStage.put(0, hits);
+	}
+
+	/**
+	 * Processes all pending batches and stops the threads. It is safe to call
+	 * this method more than once.
+	 */
+	synchronized void close()
+	{
+		if (!this.closed)
+		{
+			this.closed = true;
+			this.canonicalizeStage.close();
+			this.deduplicateStage.close();
+		}
+	}
+
+	/**
+	 * Processes all pending batches, stops the threads and rethrows a failure
+	 * of a stage thread.
+	 *
+	 * @throws IllegalStateException if a stage thread has failed
+	 */
+	void finish()
+	{
+		close();
+		final Throwable throwable = this.failure;
+		if (throwable instanceof Error)
+		{
+			throw (Error) throwable;
+		}
+		else if (throwable != null)
+		{
+			throw new IllegalStateException("Solution pipeline failed", throwable);
+		}
+	}
+
+	/**
+	 * Returns the deduplicated solutions. Must be called after
+	 * {@link #finish()} only.
+	 *
+	 * @param operationInterner the intern table or null for no interning
+	 * @return the deduplicated solutions
+	 */
+	Collection<Solution> collectSolutions(OperationInterner operationInterner)
+	{
+		final List<Solution> solutions = new ArrayList<>();
+		for (SortedMap<Solution.EquivalenceClass, Solution> shard : this.equivalenceClasses)
+		{
+			for (Solution solution : shard.values())
+			{
+				solutions.add((operationInterner != null) ? operationInterner.intern(solution) : solution);
+			}
+			shard.clear();
+		}
+		return solutions;
+	}
+
+	/**
+	 * Returns the best ranked solution candidates of all shards, if the number
+	 * of solutions is limited. Must be called after {@link #finish()} only.
+	 *
+	 * @param capacity the maximum number of solutions
+	 * @param scorer   the scorer ranking the solutions
+	 * @return the best ranked solution candidates
+	 */
+	TopSolutions collectTopSolutions(int capacity, SolutionScorer scorer)
+	{
+		final TopSolutions result = new TopSolutions(capacity, scorer);
+		for (TopSolutions shard : this.topSolutions)
+		{
+			shard.getCandidates().forEach(result::add);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true, if a deduplicator has dropped solutions due to the
+	 * maximum number of solutions.
+	 *
+	 * @return true, if solutions have been dropped
+	 */
+	boolean isTruncated()
+	{
+		return this.topSolutions.stream().anyMatch(TopSolutions::isTruncated);
+	}
+
+	/**
+	 * Returns the number of hits rejected as redundant.
+	 *
+	 * @return the number of redundant hits
+	 */
+	long getNumFilteredSolutions()
+	{
+		return this.numFilteredSolutions.sum();
+	}
+
+	/**
+	 * Returns the number of solution candidates passed to the deduplicators.
+	 *
+	 * @return the number of solution candidates
+	 */
+	long getNumCandidates()
+	{
+		return this.deduplicateStage.numItems.sum();
+	}
+
+	/**
+	 * Returns the metrics of the stages in the order of the pipeline.
+	 *
+	 * @return the metrics of the stages
+	 */
+	List<PipelineStageMetrics> getMetrics()
+	{
+		return List.of(this.canonicalizeStage.getMetrics(), this.deduplicateStage.getMetrics());
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * Options of the solution pipeline, which moves the processing of exact hits
+ * from the search threads to separate stages.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#setSolutionPipeline(SolutionPipelineOptions)
+ */
+public class SolutionPipelineOptions
+{
+	private int numCanonicalizerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+	private int numDeduplicatorThreads = 1;
+	private int batchSize = 256;
+	private int queueCapacity = 64;
+
+	/**
+	 * Creates options with the default values.
+	 */
+	public SolutionPipelineOptions()
+	{
+	}
+
+	/**
+	 * Returns the number of threads checking the redundancy of the hits and
+	 * computing their equivalence classes.
+	 *
+	 * @return the number of canonicalizer threads
+	 */
+	public int getNumCanonicalizerThreads()
+	{
+		return this.numCanonicalizerThreads;
+	}
+
+	/**
+	 * Sets the number of threads checking the redundancy of the hits and
+	 * computing their equivalence classes. The default is a quarter of the
+	 * available processors, at least one.
+	 *
+	 * @param numCanonicalizerThreads the number of canonicalizer threads
+	 * @throws IllegalArgumentException if numCanonicalizerThreads is less than
+	 *                                  one
+	 */
+	public void setNumCanonicalizerThreads(int numCanonicalizerThreads)
+	{
+		if (numCanonicalizerThreads < 1)
+		{
+			throw new IllegalArgumentException("Number of canonicalizer threads must be at least one");
+		}
+		this.numCanonicalizerThreads = numCanonicalizerThreads;
+	}
+
+	/**
+	 * Returns the number of threads deduplicating the solutions.
+	 *
+	 * @return the number of deduplicator threads
+	 */
+	public int getNumDeduplicatorThreads()
+	{
+		return this.numDeduplicatorThreads;
+	}
+
+	/**
+	 * Sets the number of threads deduplicating the solutions. The equivalence
+	 * classes are partitioned between the threads. The default is one.
+	 *
+	 * @param numDeduplicatorThreads the number of deduplicator threads
+	 * @throws IllegalArgumentException if numDeduplicatorThreads is less than
+	 *                                  one
+	 */
+	public void setNumDeduplicatorThreads(int numDeduplicatorThreads)
+	{
+		if (numDeduplicatorThreads < 1)
+		{
+			throw new IllegalArgumentException("Number of deduplicator threads must be at least one");
+		}
+		this.numDeduplicatorThreads = numDeduplicatorThreads;
+	}
+
+	/**
+	 * Returns the number of hits passed between the stages at once.
+	 *
+	 * @return the batch size
+	 */
+	public int getBatchSize()
+	{
+		return this.batchSize;
+	}
+
+	/**
+	 * Sets the number of hits passed between the stages at once. The default
+	 * is 256.
+	 *
+	 * @param batchSize the batch size
+	 * @throws IllegalArgumentException if batchSize is less than one
+	 */
+	public void setBatchSize(int batchSize)
+	{
+		if (batchSize < 1)
+		{
+			throw new IllegalArgumentException("Batch size must be at least one");
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Returns the number of batches each stage queue can hold.
+	 *
+	 * @return the queue capacity in batches
+	 */
+	public int getQueueCapacity()
+	{
+		return this.queueCapacity;
+	}
+
+	/**
+	 * Sets the number of batches each stage queue can hold. If a queue is
+	 * full, the producing threads wait, which bounds the memory used by the
+	 * pipeline. The default is 64.
+	 *
+	 * @param queueCapacity the queue capacity in batches
+	 * @throws IllegalArgumentException if queueCapacity is less than one
+	 */
+	public void setQueueCapacity(int queueCapacity)
+	{
+		if (queueCapacity < 1)
+		{
+			throw new IllegalArgumentException("Queue capacity must be at least one");
+		}
+		this.queueCapacity = queueCapacity;
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import de.bernd_michaely.chiffres.common.util.SortedArraySet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+
+/**
+ * Utility methods for sorted runs of solution candidates. A run is an array
+ * of solution candidates sorted by equivalence class, containing the least
+ * solution of each equivalence class only. Each subtask sorts its own
+ * candidates into a run in its worker thread, and the final result is a
+ * k-way merge of all runs. The merge keeps the least solution of each
+ * equivalence class, so the result is the same as of
+ * {@link Calculator#collectSolutions(de.bernd_michaely.chiffres.common.util.ConcatCollection)},
+ * independent of the order of the runs.
+ *
+ * @author Bernd Michaely
+ */
+final class SolutionRuns
+{
+	private static final Comparator<SolutionCandidate> COMPARATOR = (candidate1, candidate2) ->
+	{
+		final int result = candidate1.equivalenceClass.compareTo(candidate2.equivalenceClass);
+		return (result != 0) ? result : candidate1.solution.compareTo(candidate2.solution);
+	};
+
+	/**
+	 * Cursor to the next candidate of a run during the merge.
+	 */
+	private static final class Cursor implements Comparable<Cursor>
+	{
+		private final SolutionCandidate[] run;
+		private final int index;
+		private int position;
+
+		private Cursor(SolutionCandidate[] run, int index)
+		{
+			this.run = run;
+			this.index = index;
+		}
+
+		private SolutionCandidate current()
+		{
+			return this.run[this.position];
+		}
+
+		@Override
+		public int compareTo(Cursor other)
+		{
+			final int result = current().equivalenceClass.compareTo(other.current().equivalenceClass);
+			return (result != 0) ? result : Integer.compare(this.index, other.index);
+		}
+	}
+
+	private SolutionRuns()
+	{
+	}
+
+	/**
+	 * Sorts the given candidates into a run.
+	 *
+	 * @param candidates the solution candidates
+	 * @return the run
+	 */
+	static SolutionCandidate[] sort(Collection<SolutionCandidate> candidates)
+	{
+		final SolutionCandidate[] run = candidates.toArray(SolutionCandidate[]::new);
+		Arrays.sort(run, COMPARATOR);
+		int size = 0;
+		for (SolutionCandidate candidate : run)
+		{
+			// the least solution of an equivalence class is sorted first:
+			if (size == 0 || candidate.equivalenceClass.compareTo(run[size - 1].equivalenceClass) != 0)
+			{
+				run[size++] = candidate;
+			}
+		}
+		return (size < run.length) ? Arrays.copyOf(run, size) : run;
+	}
+
+	/**
+	 * Returns the total number of candidates of the given runs.
+	 *
+	 * @param runs the runs
+	 * @return the total number of candidates
+	 */
+	static int size(List<SolutionCandidate[]> runs)
+	{
+		int size = 0;
+		for (SolutionCandidate[] run : runs)
+		{
+			size += run.length;
+		}
+		return size;
+	}
+
+	/**
+	 * Merges the given runs into the final set of solutions. The runs are
+	 * removed from the list to regain memory.
+	 *
+	 * @param runs              the runs
+	 * @param operationInterner the intern table or null for no interning
+	 * @return the solutions, one per equivalence class
+	 */
+	static SortedSet<Solution> merge(List<SolutionCandidate[]> runs, OperationInterner operationInterner)
+	{
+		final PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, runs.size()));
+		for (int i = 0; i < runs.size(); i++)
+		{
+			if (runs.get(i).length > 0)
+			{
+				queue.add(new Cursor(runs.get(i), i));
+			}
+		}
+		final Solution[] solutions = new Solution[size(runs)];
+		runs.clear();
+		int size = 0;
+		Solution.EquivalenceClass equivalenceClassLast = null;
+		while (!queue.isEmpty())
+		{
+			final Cursor cursor = queue.poll();
+			final SolutionCandidate candidate = cursor.current();
+			if (equivalenceClassLast != null && candidate.equivalenceClass.compareTo(equivalenceClassLast) == 0)
+			{
+				if (candidate.solution.compareTo(solutions[size - 1]) < 0)
+				{
+					solutions[size - 1] = candidate.solution;
+				}
+			}
+			else
+			{
+				solutions[size++] = candidate.solution;
+				equivalenceClassLast = candidate.equivalenceClass;
+			}
+			cursor.position++;
+			if (cursor.position < cursor.run.length)
+			{
+				queue.add(cursor);
+			}
+		}
+		return toSortedSet(Arrays.copyOf(solutions, size), operationInterner);
+	}
+
+	/**
+	 * Creates the final set of solutions from the given distinct solutions.
+	 *
+	 * @param solutions         the solutions in any order, the array is
+	 *                          sorted in place
+	 * @param operationInterner the intern table or null for no interning
+	 * @return the solutions
+	 */
+	static SortedSet<Solution> toSortedSet(Solution[] solutions, OperationInterner operationInterner)
+	{
+		if (operationInterner != null)
+		{
+			for (int i = 0; i < solutions.length; i++)
+			{
+				solutions[i] = operationInterner.intern(solutions[i]);
+			}
+		}
+		// equivalence classes and solutions are ordered differently:
+		Arrays.sort(solutions);
+		return new SortedArraySet<>(solutions, null);
+	}
+}
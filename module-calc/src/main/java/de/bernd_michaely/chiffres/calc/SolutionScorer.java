@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * A function ranking solutions, a lower score is better. Solutions with equal
+ * scores are ranked in their natural order. The score should be the same for
+ * all solutions of an {@link Solution.EquivalenceClass equivalence class},
+ * like the predefined scorers, otherwise the representative of an
+ * equivalence class in a limited result is the solution with the best score
+ * instead of the least one.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#setMaxNumSolutions(int)
+ * @see Calculator#setSolutionScorer(SolutionScorer)
+ */
+@FunctionalInterface
+public interface SolutionScorer
+{
+	/**
+	 * Ranks solutions by the number of operations, that is also by the number
+	 * of operands used.
+	 */
+	SolutionScorer DEPTH = Solution::getDepth;
+	/**
+	 * Ranks solutions by the greatest intermediate result, which is a measure
+	 * of the difficulty of mental arithmetic.
+	 */
+	SolutionScorer MAX_INTERMEDIATE_VALUE = solution ->
+	{
+		int max = 0;
+		for (int i = 0; i < solution.getDepth(); i++)
+		{
+			max = Math.max(max, solution.getOperation(i).getValue());
+		}
+		return max;
+	};
+
+	/**
+	 * Returns the score of the given solution.
+	 *
+	 * @param solution the solution
+	 * @return the score, lower is better
+	 */
+	long score(Solution solution);
+}
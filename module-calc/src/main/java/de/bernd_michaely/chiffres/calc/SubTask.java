@@ -16,6 +16,11 @@
  */
 package de.bernd_michaely.chiffres.calc;
 
+import de.bernd_michaely.chiffres.calc.CalculationEvents.RedundancyCheckEvent;
+import de.bernd_michaely.chiffres.calc.CalculationEvents.SubTaskEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -26,9 +31,32 @@ import java.util.concurrent.Callable;
 class SubTask implements Callable<SubTaskResult>
 {
 	private final TaskGlobalData taskGlobalData;
+	private final OperatorKernel operatorKernel;
 	private final Operand[] operandsInitial;
 	private final Operation[] operations;
+	/**
+	 * The buffers for the operator results, one for each depth.
+	 */
+	private final int[][] results;
 	private final SubTaskResult subTaskResult;
+	private final OperationInterner operationInterner;
+	private final SubTaskMetrics metrics;
+	private final VectorLeafKernel vectorLeafKernel;
+	private final TranspositionTable transpositionTable;
+	private final TopSolutions topSolutions;
+	private final SolutionPipeline solutionPipeline;
+	/**
+	 * The current batch of hits for the solution pipeline.
+	 */
+	private List<Operation[]> hits;
+	private final int maxIntermediateValue;
+	/**
+	 * The minimum number of operations of results considered as
+	 * approximations.
+	 */
+	private final int minApproximationDepth;
+	private final boolean redundancyCheckEventEnabled;
+	private RedundancyCheckEvent redundancyCheckEvent;
 
 	/**
 	 * Constructor for main task.
@@ -38,7 +66,8 @@ class SubTask implements Callable<SubTaskResult>
 	 */
 	SubTask(TaskGlobalData taskGlobalData, Operand[] operands)
 	{
-		this(taskGlobalData, operands, new Operation[operands.length - 1]);
+		this(taskGlobalData, operands, new Operation[operands.length - 1],
+			SubTaskResult.INDEX_MAIN_TASK);
 	}
 
 	/**
@@ -47,29 +76,360 @@ class SubTask implements Callable<SubTaskResult>
 	 * @param taskGlobalData data global to all tasks
 	 * @param operands the remaining operands
 	 * @param operations the already calculated operations
+	 * @param index the index of the subtask in the order of submission
 	 */
 	private SubTask(TaskGlobalData taskGlobalData, Operand[] operands,
-		Operation[] operations)
+		Operation[] operations, int index)
 	{
 		this.taskGlobalData = taskGlobalData;
+		this.operatorKernel = taskGlobalData.operatorKernel;
+		this.transpositionTable = taskGlobalData.transpositionTable;
+		this.maxIntermediateValue = taskGlobalData.constraints.getMaxIntermediateValue();
+		this.minApproximationDepth = taskGlobalData.constraints.isAllOperandsRequired() ?
+			taskGlobalData.numOperands - 1 : 1;
+		this.solutionPipeline = taskGlobalData.solutionPipeline;
+		this.topSolutions = (taskGlobalData.maxNumSolutions > 0 && this.solutionPipeline == null) ?
+			new TopSolutions(taskGlobalData.maxNumSolutions, taskGlobalData.solutionScorer) : null;
 		this.operandsInitial = operands;
 		this.operations = operations;
-		this.subTaskResult = new SubTaskResult();
+		this.results = new int[operations.length][this.operatorKernel.size()];
+		this.subTaskResult = new SubTaskResult(index);
+		this.operationInterner =
+			(taskGlobalData.interningOperations && taskGlobalData.solutionPipeline == null) ?
+			new OperationInterner() : null;
+		this.metrics = taskGlobalData.metricsEnabled ?
+			new SubTaskMetrics(taskGlobalData.numOperands, index) : null;
+		this.subTaskResult.metrics = this.metrics;
+		this.vectorLeafKernel = taskGlobalData.vectorKernelEnabled ?
+			new VectorLeafKernel(taskGlobalData.target) : null;
+		this.redundancyCheckEventEnabled = new RedundancyCheckEvent().isEnabled();
 	}
 
 	@Override
 	public SubTaskResult call()
 	{
+		final SubTaskEvent event = new SubTaskEvent();
+		event.begin();
+		if (this.metrics != null)
+		{
+			this.metrics.start();
+		}
 		calculate(this.operandsInitial);
+		if (this.hits != null)
+		{
+			this.solutionPipeline.submit(this.hits);
+			this.hits = null;
+		}
+		if (this.topSolutions != null)
+		{
+			this.topSolutions.getCandidates().forEach(this.subTaskResult.solutionCandidates::add);
+			this.subTaskResult.truncated = this.topSolutions.isTruncated();
+		}
+		else if (!this.subTaskResult.solutionCandidates.isEmpty())
+		{
+			this.subTaskResult.sortedRuns.add(SolutionRuns.sort(this.subTaskResult.solutionCandidates));
+			this.subTaskResult.solutionCandidates.clear();
+		}
+		if (this.metrics != null)
+		{
+			this.metrics.finish();
+		}
+		this.subTaskResult.complete = !this.taskGlobalData.cancelled;
+		if (this.redundancyCheckEvent != null)
+		{
+			this.redundancyCheckEvent.commit();
+			this.redundancyCheckEvent = null;
+		}
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.index = this.subTaskResult.index;
+			event.depth = this.taskGlobalData.numOperands - this.operandsInitial.length;
+			event.counterRecursionCalls = this.subTaskResult.counterRecursionCalls;
+			event.numCandidates = this.subTaskResult.solutionCandidates.size() +
+				SolutionRuns.size(this.subTaskResult.sortedRuns);
+			event.complete = this.subTaskResult.complete;
+			event.commit();
+		}
 		return this.subTaskResult;
 	}
 
+	/**
+	 * Records a redundancy check in the current batch event.
+	 *
+	 * @param redundant true, if the checked solution is redundant
+	 * @param checkTime the duration of the check in nanoseconds
+	 */
+	private void recordRedundancyCheck(boolean redundant, long checkTime)
+	{
+		if (this.redundancyCheckEvent == null)
+		{
+			this.redundancyCheckEvent = new RedundancyCheckEvent();
+			this.redundancyCheckEvent.begin();
+			this.redundancyCheckEvent.index = this.subTaskResult.index;
+		}
+		this.redundancyCheckEvent.numChecks++;
+		if (redundant)
+		{
+			this.redundancyCheckEvent.numRedundant++;
+		}
+		this.redundancyCheckEvent.checkTime += checkTime;
+		if (this.redundancyCheckEvent.numChecks == RedundancyCheckEvent.BATCH_SIZE)
+		{
+			this.redundancyCheckEvent.commit();
+			this.redundancyCheckEvent = null;
+		}
+	}
+
+	/**
+	 * Adds the solution given by the operations up to the given depth, if it
+	 * is not redundant. If a solution pipeline is used, the hit is passed on
+	 * to the pipeline instead.
+	 *
+	 * @param depth the depth of the operation hitting the target
+	 */
+	private void addSolution(int depth)
+	{
+		this.subTaskResult.exactSolutionFound = true;
+		if (this.metrics != null)
+		{
+			this.metrics.exactHits++;
+		}
+		if (this.solutionPipeline != null)
+		{
+			// pass a copy of the operations, which are checked by the pipeline:
+			if (this.hits == null)
+			{
+				this.hits = new ArrayList<>(this.solutionPipeline.getBatchSize());
+			}
+			this.hits.add(Arrays.copyOf(this.operations, depth + 1));
+			if (this.hits.size() >= this.solutionPipeline.getBatchSize())
+			{
+				this.solutionPipeline.submit(this.hits);
+				this.hits = null;
+			}
+			return;
+		}
+		final long timeStart = this.redundancyCheckEventEnabled ? System.nanoTime() : 0;
+		final Solution solution = new Solution(depth + 1, this.operations);
+		if (this.redundancyCheckEventEnabled)
+		{
+			recordRedundancyCheck(solution.isRedundant(), System.nanoTime() - timeStart);
+		}
+		if (solution.isRedundant())
+		{
+			this.subTaskResult.numFilteredSolutions++;
+			if (this.metrics != null)
+			{
+				this.metrics.redundancyRejects++;
+			}
+		}
+		else
+		{
+			final SolutionCandidate solutionCandidate = new SolutionCandidate(
+				(this.operationInterner != null) ?
+					this.operationInterner.intern(solution) : solution);
+			if (this.taskGlobalData.onIntermediateResult != null)
+			{
+				this.taskGlobalData.onIntermediateResult.accept(solutionCandidate);
+			}
+			if (this.topSolutions != null)
+			{
+				// keep the memory bounded, the final ranking is done by the calculator:
+				this.topSolutions.add(solutionCandidate);
+			}
+			else
+			{
+				this.subTaskResult.solutionCandidates.add(solutionCandidate);
+			}
+		}
+	}
+
+	/**
+	 * Terminal step of the recursion for the last two operands. It is
+	 * equivalent to {@link #calculate(Operand[])}, but evaluates the results on
+	 * primitives and creates operations only for exact solutions.
+	 *
+	 * @param operand1 the first remaining operand
+	 * @param operand2 the second remaining operand
+	 */
+	private void calculateTerminal(Operand operand1, Operand operand2)
+	{
+		this.subTaskResult.counterRecursionCalls++;
+		final int depth = this.taskGlobalData.numOperands - 2;
+		final OperatorKernel kernel = this.operatorKernel;
+		final int numApplications = kernel.size();
+		final int[] results = this.results[depth];
+		final int target = this.taskGlobalData.target;
+		if (this.metrics != null)
+		{
+			this.metrics.nodes[depth]++;
+			this.metrics.operatorApplications[depth] += numApplications;
+		}
+		if (this.taskGlobalData.cancelled)
+		{
+			return;
+		}
+		final Operand op1;
+		final Operand op2;
+		if (operand1.value > operand2.value)
+		{
+			op1 = operand1;
+			op2 = operand2;
+		}
+		else
+		{
+			op1 = operand2;
+			op2 = operand1;
+		}
+		kernel.calculate(op1.value, op2.value, results);
+		for (int j = 0; j < numApplications; j++)
+		{
+			final int result = results[j];
+			if (result > this.maxIntermediateValue)
+			{
+				if (this.metrics != null)
+				{
+					this.metrics.prunedBranches[depth]++;
+				}
+			}
+			else if (result == target)
+			{
+				final Operator operator = kernel.getOperator(j);
+				this.operations[depth] = kernel.isSwapped(j) ?
+					new Operation(op2, operator, op1, result) :
+					new Operation(op1, operator, op2, result);
+				addSolution(depth);
+			}
+			else if (result > 0)
+			{
+				if (!this.subTaskResult.exactSolutionFound)
+				{
+					if (result < target)
+					{
+						if (target - result < this.subTaskResult.diffLess)
+						{
+							this.subTaskResult.diffLess = target - result;
+						}
+					}
+					else if (result - target < this.subTaskResult.diffGreater)
+					{
+						this.subTaskResult.diffGreater = result - target;
+					}
+				}
+			}
+			else if (this.metrics != null)
+			{
+				if (kernel.isSwapped(j))
+				{
+					this.metrics.countInvalidResult(kernel.getOperator(j), op2.value, op1.value);
+				}
+				else
+				{
+					this.metrics.countInvalidResult(kernel.getOperator(j), op1.value, op2.value);
+				}
+			}
+			if (depth == Calculator.THRESHOLD_DEPTH_PROGRESS)
+			{
+				this.taskGlobalData.incrementProgress();
+			}
+		}
+	}
+
+	/**
+	 * Calculates the subtree of the given operands using the transposition
+	 * table. A subtree known not to reach the target is skipped and only its
+	 * approximations are taken from the table. Otherwise the subtree is
+	 * calculated and its outcome is stored, if its approximations are
+	 * complete, that is, if no exact solution was found before.
+	 *
+	 * @param operands the remaining operands
+	 */
+	private void calculateCached(Operand[] operands)
+	{
+		final int[] key = TranspositionTable.createKey(operands);
+		final TranspositionTable.Entry entry = this.transpositionTable.get(key);
+		final SubTaskResult result = this.subTaskResult;
+		if (entry != null && !entry.isTargetReachable())
+		{
+			if (!result.exactSolutionFound)
+			{
+				result.diffLess = Math.min(result.diffLess, entry.getDiffLess());
+				result.diffGreater = Math.min(result.diffGreater, entry.getDiffGreater());
+			}
+		}
+		else if (result.exactSolutionFound)
+		{
+			calculateNode(operands);
+		}
+		else
+		{
+			final int diffLess = result.diffLess;
+			final int diffGreater = result.diffGreater;
+			result.diffLess = ApproximationInfo.INITIAL_DIFF_VALUE;
+			result.diffGreater = ApproximationInfo.INITIAL_DIFF_VALUE;
+			calculateNode(operands);
+			if (!this.taskGlobalData.cancelled)
+			{
+				this.transpositionTable.put(key, result.exactSolutionFound,
+					result.diffLess, result.diffGreater);
+			}
+			result.diffLess = Math.min(diffLess, result.diffLess);
+			result.diffGreater = Math.min(diffGreater, result.diffGreater);
+		}
+	}
+
 	private void calculate(Operand[] operands)
+	{
+		if (operands.length == 2)
+		{
+			calculateTerminal(operands[0], operands[1]);
+		}
+		else if (this.transpositionTable != null &&
+			operands.length >= TranspositionTable.NUM_OPERANDS_MIN &&
+			this.taskGlobalData.numOperands - operands.length > Calculator.THRESHOLD_DEPTH_PROGRESS)
+		{
+			calculateCached(operands);
+		}
+		else
+		{
+			calculateNode(operands);
+		}
+	}
+
+	/**
+	 * Calculates the subtree of the given operands.
+	 *
+	 * @param operands the remaining operands, at least three
+	 */
+	private void calculateNode(Operand[] operands)
 	{
 		this.subTaskResult.counterRecursionCalls++;
 		final int depth = this.taskGlobalData.numOperands - operands.length;
 		final int numOp = operands.length;
 		final int numOpDecr = numOp - 1;
+		final OperatorKernel kernel = this.operatorKernel;
+		final int numApplications = kernel.size();
+		final int[] results = this.results[depth];
+		if (this.metrics != null)
+		{
+			this.metrics.nodes[depth]++;
+		}
+		final boolean leavesEvaluated = (numOp == 3) && (this.vectorLeafKernel != null) &&
+			this.vectorLeafKernel.evaluate(operands, kernel);
+		if (leavesEvaluated)
+		{
+			this.subTaskResult.counterRecursionCalls += this.vectorLeafKernel.getNumLeaves();
+			if (!this.subTaskResult.exactSolutionFound)
+			{
+				this.subTaskResult.diffLess = Math.min(
+					this.subTaskResult.diffLess, this.vectorLeafKernel.getDiffLess());
+				this.subTaskResult.diffGreater = Math.min(
+					this.subTaskResult.diffGreater, this.vectorLeafKernel.getDiffGreater());
+			}
+		}
+		// recurse, if the leaves are not evaluated yet and within the depth limit:
+		final boolean recursive = !leavesEvaluated && depth + 1 < this.taskGlobalData.maxSolutionDepth;
 		for (int i = 0; i < numOpDecr; i++)
 		{
 			for (int k = i + 1; !this.taskGlobalData.cancelled && (k < numOp); k++)
@@ -86,35 +446,38 @@ class SubTask implements Callable<SubTaskResult>
 					op1 = operands[k];
 					op2 = operands[i];
 				}
-				for (Operator operator : Operator.values())
+				if (this.metrics != null)
+				{
+					this.metrics.operatorApplications[depth] += numApplications;
+				}
+				kernel.calculate(op1.value, op2.value, results);
+				for (int j = 0; j < numApplications; j++)
 				{
-					final int result = operator.calculate(op1.value, op2.value);
-					final Operation operation = new Operation(op1, operator, op2, result);
+					final int result = results[j];
+					final Operator operator = kernel.getOperator(j);
+					final Operation operation = kernel.isSwapped(j) ?
+						new Operation(op2, operator, op1, result) :
+						new Operation(op1, operator, op2, result);
 					this.operations[depth] = operation;
-					if (result > 0)
+					if (result > this.maxIntermediateValue)
+					{
+						// cut the branch violating the constraint:
+						if (this.metrics != null)
+						{
+							this.metrics.prunedBranches[depth]++;
+						}
+					}
+					else if (result > 0)
 					{
 						final boolean targetFound = result == this.taskGlobalData.target;
-						if (targetFound)
+						if (targetFound && depth + 1 >= this.taskGlobalData.minSolutionDepth)
 						{
-							this.subTaskResult.exactSolutionFound = true;
-							final Solution solution = new Solution(depth + 1, this.operations);
-							if (solution.isRedundant())
-							{
-								this.subTaskResult.numFilteredSolutions++;
-							}
-							else
-							{
-								final SolutionCandidate solutionCandidate = new SolutionCandidate(solution);
-								if (this.taskGlobalData.onIntermediateResult != null)
-								{
-									this.taskGlobalData.onIntermediateResult.accept(solutionCandidate);
-								}
-								this.subTaskResult.solutionCandidates.add(solutionCandidate);
-							}
+							addSolution(depth);
 						}
 						if (!targetFound || this.taskGlobalData.testMode)
 						{
-							if (!this.subTaskResult.exactSolutionFound)
+							if (!this.subTaskResult.exactSolutionFound &&
+								depth + 1 >= this.minApproximationDepth)
 							{
 								if (result < this.taskGlobalData.target)
 								{
@@ -133,7 +496,13 @@ class SubTask implements Callable<SubTaskResult>
 									}
 								}
 							}
-							if (numOpDecr > 1)
+							if (recursive && numOpDecr == 2 && depth != Calculator.THRESHOLD_DEPTH_FORK)
+							{
+								// the remaining operands in the order of the recursion:
+								calculateTerminal((i == 0) ? operation : operands[0],
+									(i == 1) ? operation : ((k == 1) ? operands[2] : operands[1]));
+							}
+							else if (recursive && numOpDecr > 1)
 							{
 								final Operand[] operandsRecursion = new Operand[numOpDecr];
 								for (int m = 0; m < numOpDecr; m++)
@@ -143,16 +512,26 @@ class SubTask implements Callable<SubTaskResult>
 								}
 								if (depth == Calculator.THRESHOLD_DEPTH_FORK)
 								{
-									this.taskGlobalData.submit(new SubTask(
-										this.taskGlobalData, operandsRecursion, this.operations.clone()));
+									final int index = this.taskGlobalData.getCounterSubTasks();
+									this.taskGlobalData.submit(index, new SubTask(this.taskGlobalData,
+										operandsRecursion, this.operations.clone(), index));
 								}
 								else
 								{
 									calculate(operandsRecursion);
 								}
 							}
+							else if (!leavesEvaluated && numOpDecr > 1 && this.metrics != null)
+							{
+								// cut the branch exceeding the maximum number of operations:
+								this.metrics.prunedBranches[depth]++;
+							}
 						}
 					}
+					else if (this.metrics != null)
+					{
+						this.metrics.countInvalidResult(operator, operation.operand1.value, operation.operand2.value);
+					}
 					if (depth == Calculator.THRESHOLD_DEPTH_PROGRESS)
 					{
 //						try
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+/**
+ * Metrics collected by a single subtask, which are combined into the
+ * {@link CalculationMetrics} of the calculation.
+ *
+ * @author Bernd Michaely
+ */
+class SubTaskMetrics extends CalculationMetrics
+{
+	final int index;
+	private final long timeSubmitted;
+	private long timeStarted;
+	private long cpuTimeStarted;
+	long queueWaitTime;
+	long wallTime;
+	long cpuTime;
+
+	/**
+	 * Creates the metrics of a subtask, which is submitted right away.
+	 *
+	 * @param numOperands the number of initial operands
+	 * @param index       the index of the subtask in the order of submission
+	 */
+	SubTaskMetrics(int numOperands, int index)
+	{
+		this.index = index;
+		reset(numOperands);
+		this.timeSubmitted = System.nanoTime();
+	}
+
+	void start()
+	{
+		this.timeStarted = System.nanoTime();
+		this.cpuTimeStarted = getCurrentThreadCpuTime();
+		this.queueWaitTime = (this.index == SubTaskResult.INDEX_MAIN_TASK) ?
+			0 : this.timeStarted - this.timeSubmitted;
+	}
+
+	void finish()
+	{
+		this.wallTime = System.nanoTime() - this.timeStarted;
+		this.cpuTime = (this.cpuTimeStarted < 0) ? -1 :
+			getCurrentThreadCpuTime() - this.cpuTimeStarted;
+	}
+}
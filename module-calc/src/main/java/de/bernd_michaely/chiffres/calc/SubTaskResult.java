@@ -17,6 +17,8 @@
 package de.bernd_michaely.chiffres.calc;
 
 import de.bernd_michaely.chiffres.common.util.ConcatCollection;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class representing a subtask result of the parallelized main algorithm.
@@ -25,11 +27,47 @@ import de.bernd_michaely.chiffres.common.util.ConcatCollection;
  */
 class SubTaskResult extends ApproximationInfo
 {
+	/**
+	 * Index of the main task, which is not a forked subtask.
+	 */
+	static final int INDEX_MAIN_TASK = -1;
+	final int index;
 	final ConcatCollection<SolutionCandidate> solutionCandidates;
+	/**
+	 * The sorted runs of solution candidates of the subtasks.
+	 *
+	 * @see SolutionRuns
+	 */
+	final List<SolutionCandidate[]> sortedRuns;
+	/**
+	 * True, if the subtask has run to completion without being cancelled.
+	 */
+	boolean complete;
+	/**
+	 * True, if solutions have been dropped due to the maximum number of
+	 * solutions.
+	 */
+	boolean truncated;
+	/**
+	 * The metrics of the subtask or null, if metrics are disabled.
+	 */
+	SubTaskMetrics metrics;
 
 	SubTaskResult()
 	{
+		this(INDEX_MAIN_TASK);
+	}
+
+	/**
+	 * Creates a result for the subtask with the given index.
+	 *
+	 * @param index the index of the forked subtask in the order of submission
+	 */
+	SubTaskResult(int index)
+	{
+		this.index = index;
 		this.solutionCandidates = new ConcatCollection<>();
+		this.sortedRuns = new ArrayList<>(1);
 	}
 
 	@Override
@@ -40,6 +78,8 @@ class SubTaskResult extends ApproximationInfo
 		{
 			final SubTaskResult otherResult = (SubTaskResult) other;
 			this.solutionCandidates.concat(otherResult.solutionCandidates);
+			this.sortedRuns.addAll(otherResult.sortedRuns);
+			this.truncated |= otherResult.truncated;
 		}
 	}
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.function.ToLongFunction;
+
+/**
+ * The subsets of the operands grouped into levels of equal size, which drive
+ * the calculations over subsets of the {@link ReachableSetSolver reachable set}
+ * strategy and of the {@link ReachableValueIndex reachable value index}.
+ * Subsets are represented as bit masks. The subsets of a level depend only on
+ * the smaller subsets they are split into, so the levels are calculated in
+ * the order of increasing size, each level split into chunks which are
+ * calculated in parallel.
+ *
+ * @author Bernd Michaely
+ */
+class SubsetLevels
+{
+	private static final int NUM_CHUNKS_PER_THREAD = 4;
+	private final List<List<Integer>> levels;
+	private final int numThreads;
+	private final CompletionService<Long> completionService;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param numOperands the number of operands
+	 * @param numThreads  the number of threads to split each level into
+	 * @param executor    the executor to run the chunks of a level on
+	 */
+	SubsetLevels(int numOperands, int numThreads, Executor executor)
+	{
+		this.levels = new ArrayList<>(numOperands + 1);
+		for (int i = 0; i <= numOperands; i++)
+		{
+			this.levels.add(new ArrayList<>());
+		}
+		for (int mask = 1; mask < (1 << numOperands); mask++)
+		{
+			this.levels.get(Integer.bitCount(mask)).add(mask);
+		}
+		this.numThreads = Math.max(1, numThreads);
+		this.completionService = new ExecutorCompletionService<>(executor);
+	}
+
+	/**
+	 * Returns the subsets of the given size.
+	 *
+	 * @param size the number of operands of the subsets
+	 * @return the subsets in ascending order
+	 */
+	List<Integer> getMasks(int size)
+	{
+		return this.levels.get(size);
+	}
+
+	/**
+	 * Calculates the subsets of the given size and waits for the calculation
+	 * to complete. The subsets of all smaller sizes must be calculated before.
+	 *
+	 * @param size        the number of operands of the subsets
+	 * @param calculation the calculation of a chunk of subsets, returning a
+	 *                    counter
+	 * @return the sum of the counters of all chunks
+	 * @throws InterruptedException if interrupted while waiting for a chunk
+	 * @throws ExecutionException   if the calculation of a chunk failed
+	 */
+	long calculate(int size, ToLongFunction<List<Integer>> calculation)
+		throws InterruptedException, ExecutionException
+	{
+		final List<Integer> masks = getMasks(size);
+		final int numChunks = Math.min(masks.size(), this.numThreads * NUM_CHUNKS_PER_THREAD);
+		for (int c = 0; c < numChunks; c++)
+		{
+			final List<Integer> chunk = masks.subList(
+				c * masks.size() / numChunks, (c + 1) * masks.size() / numChunks);
+			this.completionService.submit(() -> calculation.applyAsLong(chunk));
+		}
+		long counter = 0;
+		for (int c = 0; c < numChunks; c++)
+		{
+			counter += this.completionService.take().get();
+		}
+		return counter;
+	}
+
+	/**
+	 * Returns the first split of the given subset into two non empty disjoint
+	 * subsets. The splits are enumerated by the first part containing the
+	 * lowest operand of the subset, so each unordered pair of subsets is
+	 * visited once:
+	 * <pre>
+	 * for (int mask1 = firstSplit(mask); mask1 != 0; mask1 = nextSplit(mask, mask1))
+	 * {
+	 *   // combine mask1 and mask ^ mask1
+	 * }
+	 * </pre>
+	 *
+	 * @param mask the subset
+	 * @return the first part of the first split or zero, if the subset has
+	 *         less than two operands
+	 */
+	static int firstSplit(int mask)
+	{
+		final int lowestBit = Integer.lowestOneBit(mask);
+		final int rest = mask ^ lowestBit;
+		return (rest != 0) ? ((rest - 1) & rest) | lowestBit : 0;
+	}
+
+	/**
+	 * Returns the next split of the given subset.
+	 *
+	 * @param mask  the subset
+	 * @param mask1 the first part of the current split
+	 * @return the first part of the next split or zero, if there are no more
+	 *         splits
+	 * @see #firstSplit(int)
+	 */
+	static int nextSplit(int mask, int mask1)
+	{
+		final int lowestBit = Integer.lowestOneBit(mask);
+		final int sub = mask1 ^ lowestBit;
+		return (sub != 0) ? ((sub - 1) & (mask ^ lowestBit)) | lowestBit : 0;
+	}
+}
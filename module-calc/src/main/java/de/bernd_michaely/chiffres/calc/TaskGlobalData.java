@@ -16,6 +16,9 @@
  */
 package de.bernd_michaely.chiffres.calc;
 
+import de.bernd_michaely.chiffres.calc.CalculationEvents.SubTaskSubmitEvent;
+import de.bernd_michaely.chiffres.common.util.ConcatCollection;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.function.BiConsumer;
@@ -29,57 +32,185 @@ import java.util.function.Consumer;
 class TaskGlobalData
 {
 	private final CompletionService<SubTaskResult> completionService;
-	private final BiConsumer<Integer, Integer> onProgress;
+	private final BiConsumer<Long, Long> onProgress;
+	private final Map<Integer, SubTaskResult> restoredResults;
+	private final ConcatCollection<SubTaskResult> skippedResults;
 	final Consumer<SolutionCandidate> onIntermediateResult;
+	final OperatorKernel operatorKernel;
+	final SolutionConstraints constraints;
+	final TranspositionTable transpositionTable;
+	/**
+	 * The maximum number of solutions kept or zero, if unlimited.
+	 */
+	final int maxNumSolutions;
+	final SolutionScorer solutionScorer;
+	/**
+	 * The pipeline processing the exact hits or null, if they are processed
+	 * by the subtasks.
+	 */
+	final SolutionPipeline solutionPipeline;
 	final int target;
 	final int numOperands;
+	/**
+	 * The minimum number of operations of solutions to record.
+	 */
+	final int minSolutionDepth;
+	/**
+	 * The maximum number of operations of the search.
+	 */
+	final int maxSolutionDepth;
 	final boolean testMode;
-	private int counterProgress;
-	private int progressMax;
+	final boolean interningOperations;
+	final boolean metricsEnabled;
+	final boolean vectorKernelEnabled;
+	private long counterProgress;
+	private long progressMax;
 	private volatile int counterSubTasks;
+	private volatile int counterSubmittedSubTasks;
 	volatile boolean cancelled = false;
 
-	TaskGlobalData(int target, int numOperands, CompletionService<SubTaskResult> completionService,
-		BiConsumer<Integer, Integer> onProgress, Consumer<SolutionCandidate> onIntermediateResult,
-		boolean testMode)
+	/**
+	 * Constructor.
+	 *
+	 * @param target               the calculation target
+	 * @param numOperands          the number of initial operands
+	 * @param minSolutionDepth     the minimum number of operations of
+	 *                             solutions to record
+	 * @param maxSolutionDepth     the maximum number of operations of the
+	 *                             search
+	 * @param operatorKernel       the kernel applying the operators
+	 * @param constraints          the constraints on the solutions
+	 * @param transpositionTable   optional table caching subtree outcomes
+	 * @param maxNumSolutions      the maximum number of solutions kept or
+	 *                             zero, if unlimited
+	 * @param solutionScorer       the scorer ranking the solutions, if the
+	 *                             number of solutions is limited
+	 * @param solutionPipeline     optional pipeline processing the exact hits
+	 * @param completionService    the service to submit subtasks to
+	 * @param onProgress           optional progress callback
+	 * @param onIntermediateResult optional intermediate result callback
+	 * @param testMode             the test mode flag
+	 * @param interningOperations  true to share identical operations between
+	 *                             solutions
+	 * @param metricsEnabled       true to collect metrics in each subtask
+	 * @param vectorKernelEnabled  true to evaluate the leaves of the
+	 *                             recursion by the vector kernel
+	 * @param restoredResults      the results of subtasks restored from a
+	 *                             checkpoint mapped by subtask index, may be
+	 *                             null
+	 */
+	TaskGlobalData(int target, int numOperands, int minSolutionDepth, int maxSolutionDepth,
+		OperatorKernel operatorKernel, SolutionConstraints constraints,
+		TranspositionTable transpositionTable, int maxNumSolutions, SolutionScorer solutionScorer,
+		SolutionPipeline solutionPipeline,
+		CompletionService<SubTaskResult> completionService,
+		BiConsumer<Long, Long> onProgress, Consumer<SolutionCandidate> onIntermediateResult,
+		boolean testMode, boolean interningOperations, boolean metricsEnabled,
+		boolean vectorKernelEnabled, Map<Integer, SubTaskResult> restoredResults)
 	{
 		this.target = target;
 		this.numOperands = numOperands;
+		this.minSolutionDepth = minSolutionDepth;
+		this.maxSolutionDepth = maxSolutionDepth;
+		this.operatorKernel = operatorKernel;
+		this.constraints = constraints;
+		this.transpositionTable = transpositionTable;
+		this.maxNumSolutions = maxNumSolutions;
+		this.solutionScorer = solutionScorer;
+		this.solutionPipeline = solutionPipeline;
 		this.completionService = completionService;
 		this.onProgress = onProgress;
 		this.onIntermediateResult = onIntermediateResult;
 		this.testMode = testMode;
+		this.interningOperations = interningOperations;
+		this.metricsEnabled = metricsEnabled;
+		this.vectorKernelEnabled = vectorKernelEnabled;
+		this.restoredResults = restoredResults;
+		this.skippedResults = new ConcatCollection<>();
 	}
 
 	/**
-	 * Submit a new subtask and count the submitted tasks. This does not need to
-	 * be synchronized because it is called only from the main thread.
+	 * Submit a new subtask and count the submitted tasks. If a result for the
+	 * subtask index has been restored from a checkpoint, the subtask is skipped
+	 * and the restored result is kept instead. This does not need to be
+	 * synchronized because it is called only from the main thread.
 	 *
+	 * @param index    the index of the subtask in the order of submission
 	 * @param callable the subtask to submit
 	 */
-	void submit(Callable<SubTaskResult> callable)
+	void submit(int index, Callable<SubTaskResult> callable)
 	{
 		this.counterSubTasks++;
-		this.completionService.submit(callable);
+		final SubTaskResult restoredResult = (this.restoredResults != null) ?
+			this.restoredResults.get(index) : null;
+		if (restoredResult != null)
+		{
+			this.skippedResults.add(restoredResult);
+		}
+		else
+		{
+			this.counterSubmittedSubTasks++;
+			this.completionService.submit(callable);
+		}
+		final SubTaskSubmitEvent event = new SubTaskSubmitEvent();
+		if (event.shouldCommit())
+		{
+			event.index = index;
+			event.depth = Calculator.THRESHOLD_DEPTH_FORK + 1;
+			event.restored = restoredResult != null;
+			event.commit();
+		}
 	}
 
+	/**
+	 * Returns the number of all forked subtasks including the skipped ones.
+	 *
+	 * @return the number of all forked subtasks
+	 */
 	int getCounterSubTasks()
 	{
 		return this.counterSubTasks;
 	}
 
-	synchronized void setProgressMax(int progressMax)
+	/**
+	 * Returns the number of subtasks actually submitted to the completion
+	 * service.
+	 *
+	 * @return the number of submitted subtasks
+	 */
+	int getCounterSubmittedSubTasks()
+	{
+		return this.counterSubmittedSubTasks;
+	}
+
+	/**
+	 * Returns the restored results of the subtasks which have been skipped.
+	 *
+	 * @return the restored results of the skipped subtasks
+	 */
+	ConcatCollection<SubTaskResult> getSkippedResults()
+	{
+		return this.skippedResults;
+	}
+
+	synchronized void setProgressMax(long progressMax)
 	{
 		this.progressMax = progressMax;
 	}
 
 	void incrementProgress()
+	{
+		incrementProgress(1);
+	}
+
+	void incrementProgress(long delta)
 	{
 		if (this.onProgress != null)
 		{
 			synchronized (this)
 			{
-				this.onProgress.accept(++this.counterProgress, this.progressMax);
+				this.counterProgress += delta;
+				this.onProgress.accept(this.counterProgress, this.progressMax);
 			}
 		}
 	}
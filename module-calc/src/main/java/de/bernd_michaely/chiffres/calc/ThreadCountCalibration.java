@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The speedup curve of the calculator on this machine, measured by a short
+ * calibration run. The number of threads giving the best throughput depends
+ * on the number of processors, their hardware threads and caches, and on the
+ * number of operands, because small games do not split into enough subtasks
+ * to keep many threads busy. The calibration solves a few
+ * {@link #DEFAULT_GAMES games} per number of operands with an increasing
+ * number of threads, and {@link #getNumThreads(int)} chooses the number of
+ * threads with the best throughput. Games larger than the largest calibrated
+ * number of operands use all measured threads, because the measured curves
+ * underestimate their speedup.
+ * <p>
+ * Calibrations are immutable and may be {@link #encode() encoded} as a
+ * string to be cached, e.g. in the user preferences. A cached calibration
+ * should be repeated, if it is not {@link #isUpToDate() up to date}.
+ *
+ * @author Bernd Michaely
+ */
+public class ThreadCountCalibration
+{
+	private static final Logger logger = Logger.getLogger(ThreadCountCalibration.class.getName());
+	/**
+	 * The default games, standard games of five and six operands and one
+	 * game of seven operands, which runs long enough for the cost of forking
+	 * threads to be negligible. Larger games take too long for a calibration.
+	 */
+	public static final List<CalculationParams> DEFAULT_GAMES = List.of(
+		new CalculationParams(961, 1, 2, 3, 4, 5),
+		new CalculationParams(317, 5, 50, 2, 3, 75),
+		new CalculationParams(961, 1, 2, 3, 4, 5, 6),
+		new CalculationParams(317, 5, 50, 2, 3, 75, 3),
+		new CalculationParams(961, 1, 2, 3, 4, 5, 6, 7));
+	/**
+	 * A larger number of threads is chosen only, if its duration is less than
+	 * this fraction of the duration of the smaller number of threads. Threads
+	 * not contributing noticeably to the throughput are better left to other
+	 * calculations.
+	 */
+	static final double MIN_IMPROVEMENT = 0.95;
+	private static final int NUM_REPETITIONS = 2;
+	/**
+	 * Runs taking longer than this number of nanoseconds are not repeated.
+	 */
+	private static final long MAX_DURATION_REPEATED = 500_000_000L;
+	private static final String VERSION = "1";
+	private final int numProcessors;
+	private final int[] threadCounts;
+	private final SortedMap<Integer, long[]> durations;
+
+	/**
+	 * Creates a calibration from measured durations.
+	 *
+	 * @param numProcessors the number of available processors at calibration
+	 * @param threadCounts  the ascending numbers of threads measured
+	 * @param durations     the durations per number of operands, aligned with
+	 *                      the thread counts
+	 * @throws IllegalArgumentException if the arguments are inconsistent
+	 */
+	ThreadCountCalibration(int numProcessors, int[] threadCounts, SortedMap<Integer, long[]> durations)
+	{
+		if (numProcessors < 1 || threadCounts.length == 0 || threadCounts[0] != 1 || durations.isEmpty())
+		{
+			throw new IllegalArgumentException("ThreadCountCalibration : invalid calibration");
+		}
+		for (int i = 1; i < threadCounts.length; i++)
+		{
+			if (threadCounts[i] <= threadCounts[i - 1])
+			{
+				throw new IllegalArgumentException("ThreadCountCalibration : thread counts not ascending");
+			}
+		}
+		this.durations = new TreeMap<>();
+		for (Map.Entry<Integer, long[]> entry : durations.entrySet())
+		{
+			final long[] values = entry.getValue();
+			if (values.length != threadCounts.length || Arrays.stream(values).anyMatch(d -> d <= 0))
+			{
+				throw new IllegalArgumentException("ThreadCountCalibration : invalid durations");
+			}
+			this.durations.put(entry.getKey(), values.clone());
+		}
+		this.numProcessors = numProcessors;
+		this.threadCounts = threadCounts.clone();
+	}
+
+	/**
+	 * Runs a calibration with the {@link #DEFAULT_GAMES default games} up to
+	 * the {@link Calculator#getDefaultNumThreadsLimit() default limit} of
+	 * threads.
+	 *
+	 * @return the calibration
+	 */
+	public static ThreadCountCalibration calibrate()
+	{
+		return calibrate(DEFAULT_GAMES, Calculator.getDefaultNumThreadsLimit());
+	}
+
+	/**
+	 * Runs a calibration in the current thread. The games are solved with
+	 * one thread, then doubling the number of threads up to the given limit,
+	 * which is measured as well. All games are solved once before to warm up
+	 * the calculator, and the best of two runs is taken, unless the first run
+	 * takes longer than half a second.
+	 *
+	 * @param games           the games to solve
+	 * @param numThreadsLimit the maximum number of threads measured
+	 * @return the calibration
+	 * @throws IllegalArgumentException if games is empty or numThreadsLimit
+	 *                                  is less than one
+	 */
+	public static ThreadCountCalibration calibrate(List<CalculationParams> games, int numThreadsLimit)
+	{
+		if (games == null || games.isEmpty())
+		{
+			throw new IllegalArgumentException("ThreadCountCalibration : no games");
+		}
+		if (numThreadsLimit < 1)
+		{
+			throw new IllegalArgumentException("ThreadCountCalibration : limit of threads less than one");
+		}
+		final List<Integer> counts = new ArrayList<>();
+		for (int n = 1; n < numThreadsLimit; n *= 2)
+		{
+			counts.add(n);
+		}
+		counts.add(numThreadsLimit);
+		final int[] threadCounts = counts.stream().mapToInt(Integer::intValue).toArray();
+		final SortedMap<Integer, long[]> durations = new TreeMap<>();
+		final long timeStart = System.nanoTime();
+		games.forEach(game -> solve(game, numThreadsLimit));
+		for (CalculationParams game : games)
+		{
+			final long[] values = durations.computeIfAbsent(game.getNumOperands(),
+				k -> new long[threadCounts.length]);
+			for (int i = 0; i < threadCounts.length; i++)
+			{
+				long duration = Long.MAX_VALUE;
+				for (int r = 0; r < NUM_REPETITIONS && duration > MAX_DURATION_REPEATED; r++)
+				{
+					final long time = System.nanoTime();
+					solve(game, threadCounts[i]);
+					duration = Math.min(duration, System.nanoTime() - time);
+				}
+				values[i] += Math.max(1, duration);
+			}
+		}
+		final ThreadCountCalibration calibration = new ThreadCountCalibration(
+			Runtime.getRuntime().availableProcessors(), threadCounts, durations);
+		logger.log(Level.FINE, "Thread count calibration in {0} ms : {1}",
+			new Object[]
+			{
+				(System.nanoTime() - timeStart) / 1_000_000, calibration.encode()
+			});
+		return calibration;
+	}
+
+	private static void solve(CalculationParams game, int numThreads)
+	{
+		final Calculator calculator = new Calculator(game);
+		calculator.setNumThreadsLimit(numThreads);
+		calculator.setNumThreads(numThreads);
+		calculator.call();
+	}
+
+	/**
+	 * Returns the number of available processors at calibration.
+	 *
+	 * @return the number of processors
+	 */
+	public int getNumProcessors()
+	{
+		return this.numProcessors;
+	}
+
+	/**
+	 * Returns true, if the number of available processors has not changed
+	 * since the calibration.
+	 *
+	 * @return true, if the calibration is up to date
+	 */
+	public boolean isUpToDate()
+	{
+		return this.numProcessors == Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the numbers of threads measured.
+	 *
+	 * @return the ascending numbers of threads measured
+	 */
+	public int[] getThreadCounts()
+	{
+		return this.threadCounts.clone();
+	}
+
+	private long[] getDurations(int numOperands)
+	{
+		final SortedMap<Integer, long[]> tail = this.durations.tailMap(numOperands);
+		if (tail.isEmpty())
+		{
+			return this.durations.get(this.durations.lastKey());
+		}
+		if (tail.firstKey() == numOperands)
+		{
+			return tail.get(numOperands);
+		}
+		final SortedMap<Integer, long[]> head = this.durations.headMap(numOperands);
+		return (head.isEmpty() || tail.firstKey() - numOperands <= numOperands - head.lastKey()) ?
+			tail.get(tail.firstKey()) : head.get(head.lastKey());
+	}
+
+	/**
+	 * Returns the speedup curve for the given number of operands, that is
+	 * the duration with one thread divided by the duration with the
+	 * {@link #getThreadCounts() measured numbers of threads}. Numbers of
+	 * operands not calibrated use the nearest calibrated number, which for
+	 * larger games is a lower bound of their speedup.
+	 *
+	 * @param numOperands the number of operands
+	 * @return the speedups aligned with the thread counts
+	 */
+	public double[] getSpeedups(int numOperands)
+	{
+		final long[] values = getDurations(numOperands);
+		final double[] speedups = new double[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			speedups[i] = (double) values[0] / values[i];
+		}
+		return speedups;
+	}
+
+	/**
+	 * Returns the number of threads with the best throughput for the given
+	 * number of operands. A larger number of threads is preferred only, if it
+	 * is at least five percent faster. Numbers of operands larger than the
+	 * largest calibrated number are not extrapolated, they use the largest
+	 * number of threads measured.
+	 *
+	 * @param numOperands the number of operands
+	 * @return the number of threads
+	 */
+	public int getNumThreads(int numOperands)
+	{
+		if (numOperands > this.durations.lastKey())
+		{
+			return this.threadCounts[this.threadCounts.length - 1];
+		}
+		final long[] values = getDurations(numOperands);
+		int best = 0;
+		for (int i = 1; i < values.length; i++)
+		{
+			if (values[i] < MIN_IMPROVEMENT * values[best])
+			{
+				best = i;
+			}
+		}
+		return this.threadCounts[best];
+	}
+
+	/**
+	 * Encodes this calibration as a string.
+	 *
+	 * @return the encoded calibration
+	 * @see #decode(String)
+	 */
+	public String encode()
+	{
+		final StringBuilder sb = new StringBuilder(VERSION).append(';').append(this.numProcessors);
+		sb.append(';').append(join(Arrays.stream(this.threadCounts).asLongStream().toArray()));
+		this.durations.forEach((numOperands, values) ->
+			sb.append(';').append(numOperands).append(':').append(join(values)));
+		return sb.toString();
+	}
+
+	private static String join(long[] values)
+	{
+		final StringBuilder sb = new StringBuilder();
+		for (long value : values)
+		{
+			sb.append(sb.isEmpty() ? "" : ",").append(value);
+		}
+		return sb.toString();
+	}
+
+	private static long[] split(String values)
+	{
+		return Arrays.stream(values.split(",")).mapToLong(Long::parseLong).toArray();
+	}
+
+	/**
+	 * Decodes a calibration {@link #encode() encoded} as a string.
+	 *
+	 * @param encoded the encoded calibration
+	 * @return the calibration
+	 * @throws IllegalArgumentException if the string is not a valid encoded
+	 *                                  calibration
+	 */
+	public static ThreadCountCalibration decode(String encoded)
+	{
+		if (encoded == null)
+		{
+			throw new IllegalArgumentException("ThreadCountCalibration : encoded calibration is null");
+		}
+		final String[] parts = encoded.split(";");
+		if (parts.length < 4 || !parts[0].equals(VERSION))
+		{
+			throw new IllegalArgumentException("ThreadCountCalibration : invalid calibration »" + encoded + "«");
+		}
+		try
+		{
+			final int numProcessors = Integer.parseInt(parts[1]);
+			final int[] threadCounts = Arrays.stream(split(parts[2])).mapToInt(Math::toIntExact).toArray();
+			final SortedMap<Integer, long[]> durations = new TreeMap<>();
+			for (int i = 3; i < parts.length; i++)
+			{
+				final int index = parts[i].indexOf(':');
+				durations.put(Integer.valueOf(parts[i].substring(0, index)),
+					split(parts[i].substring(index + 1)));
+			}
+			return new ThreadCountCalibration(numProcessors, threadCounts, durations);
+		}
+		catch (ArithmeticException | IndexOutOfBoundsException | NumberFormatException ex)
+		{
+			throw new IllegalArgumentException("ThreadCountCalibration : invalid calibration »" + encoded + "«");
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[" + encode() + "]";
+	}
+}
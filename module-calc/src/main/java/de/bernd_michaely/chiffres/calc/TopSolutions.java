@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A bounded collection of the best ranked solution candidates. It keeps one
+ * candidate per equivalence class, so the memory footprint is limited by the
+ * capacity, independent of the number of candidates added. For each
+ * equivalence class the best ranked candidate is kept, and if the capacity is
+ * exceeded, the worst ranked equivalence class is dropped. The result does
+ * not depend on the order of adding the candidates.
+ *
+ * @author Bernd Michaely
+ * @see SolutionScorer
+ */
+class TopSolutions
+{
+	private final int capacity;
+	private final SolutionScorer scorer;
+	private final Map<Solution.EquivalenceClass, Entry> equivalenceClasses = new TreeMap<>();
+	private final TreeSet<Entry> ranking = new TreeSet<>();
+	private boolean truncated;
+
+	private static final class Entry implements Comparable<Entry>
+	{
+		private final SolutionCandidate candidate;
+		private final long score;
+
+		private Entry(SolutionCandidate candidate, long score)
+		{
+			this.candidate = candidate;
+			this.score = score;
+		}
+
+		@Override
+		public int compareTo(Entry other)
+		{
+			final int result = Long.compare(this.score, other.score);
+			return (result != 0) ? result : this.candidate.solution.compareTo(other.candidate.solution);
+		}
+	}
+
+	/**
+	 * Creates a collection of the given capacity.
+	 *
+	 * @param capacity the maximum number of equivalence classes
+	 * @param scorer   the scorer ranking the solutions
+	 * @throws IllegalArgumentException if capacity is less than one or scorer
+	 *                                  is null
+	 */
+	TopSolutions(int capacity, SolutionScorer scorer)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("Capacity must be at least one");
+		}
+		if (scorer == null)
+		{
+			throw new IllegalArgumentException("Solution scorer is null");
+		}
+		this.capacity = capacity;
+		this.scorer = scorer;
+	}
+
+	/**
+	 * Adds a candidate, if it ranks within the capacity.
+	 *
+	 * @param candidate the candidate to add
+	 * @return true, if the candidate is kept
+	 */
+	boolean add(SolutionCandidate candidate)
+	{
+		final Entry entry = new Entry(candidate, this.scorer.score(candidate.solution));
+		final Entry existing = this.equivalenceClasses.get(candidate.equivalenceClass);
+		if (existing != null)
+		{
+			if (entry.compareTo(existing) >= 0)
+			{
+				return false;
+			}
+			this.ranking.remove(existing);
+		}
+		else if (this.ranking.size() >= this.capacity)
+		{
+			this.truncated = true;
+			final Entry worst = this.ranking.last();
+			if (entry.compareTo(worst) >= 0)
+			{
+				return false;
+			}
+			this.ranking.pollLast();
+			this.equivalenceClasses.remove(worst.candidate.equivalenceClass);
+		}
+		this.ranking.add(entry);
+		this.equivalenceClasses.put(candidate.equivalenceClass, entry);
+		return true;
+	}
+
+	/**
+	 * Returns the number of kept candidates.
+	 *
+	 * @return the number of kept candidates
+	 */
+	int size()
+	{
+		return this.ranking.size();
+	}
+
+	/**
+	 * Returns true, if an equivalence class has been dropped due to the
+	 * capacity.
+	 *
+	 * @return true, if the collection is truncated
+	 */
+	boolean isTruncated()
+	{
+		return this.truncated;
+	}
+
+	/**
+	 * Returns the kept candidates in the order of rank.
+	 *
+	 * @return the kept candidates
+	 */
+	List<SolutionCandidate> getCandidates()
+	{
+		final List<SolutionCandidate> candidates = new ArrayList<>(this.ranking.size());
+		this.ranking.forEach(entry -> candidates.add(entry.candidate));
+		return candidates;
+	}
+}
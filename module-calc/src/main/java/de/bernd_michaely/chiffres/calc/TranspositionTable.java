@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded table caching the outcome of recursion subtrees, shared by all
+ * subtasks of a calculation. Different sequences of operations often lead to
+ * the same remaining values, e.g. {@code 2 + 2} and {@code 2 * 2}, and the
+ * outcome of the subtree, that is, whether the target is reachable and the
+ * best approximations, depends on the multiset of remaining values only. The
+ * key of an entry is therefore the sorted array of remaining values.
+ * <p>
+ * The table is a fixed size array of buckets with two entries each. The
+ * first entry of a bucket is replaced by entries of the same or a larger
+ * number of remaining values only, which keeps the expensive subtrees, the
+ * second entry is always replaced by entries not stored in the first one.
+ * The entries are immutable, so the table is thread safe without locking, a
+ * concurrent update may just lose an entry.
+ *
+ * @author Bernd Michaely
+ * @see Calculator#setTranspositionTableCapacity(int)
+ */
+class TranspositionTable
+{
+	/**
+	 * The minimum number of remaining values of cached subtrees. Smaller
+	 * subtrees are cheaper to calculate than to look up.
+	 */
+	static final int NUM_OPERANDS_MIN = 4;
+	private final AtomicReferenceArray<Entry> entries;
+	private final int mask;
+	private final LongAdder counterHits = new LongAdder();
+
+	/**
+	 * The cached outcome of a subtree.
+	 */
+	static final class Entry
+	{
+		private final int[] key;
+		private final int hash;
+		private final boolean targetReachable;
+		private final int diffLess;
+		private final int diffGreater;
+
+		private Entry(int[] key, int hash, boolean targetReachable, int diffLess, int diffGreater)
+		{
+			this.key = key;
+			this.hash = hash;
+			this.targetReachable = targetReachable;
+			this.diffLess = diffLess;
+			this.diffGreater = diffGreater;
+		}
+
+		/**
+		 * Returns true, if the target is reachable in the subtree. Such a
+		 * subtree still has to be calculated to find the solutions.
+		 *
+		 * @return true, if the target is reachable
+		 */
+		boolean isTargetReachable()
+		{
+			return this.targetReachable;
+		}
+
+		/**
+		 * Returns the least distance of a result below the target in the
+		 * subtree.
+		 *
+		 * @return the least distance below the target
+		 */
+		int getDiffLess()
+		{
+			return this.diffLess;
+		}
+
+		/**
+		 * Returns the least distance of a result above the target in the
+		 * subtree.
+		 *
+		 * @return the least distance above the target
+		 */
+		int getDiffGreater()
+		{
+			return this.diffGreater;
+		}
+	}
+
+	/**
+	 * Creates a table for at least the given number of entries.
+	 *
+	 * @param capacity the number of entries
+	 * @throws IllegalArgumentException if capacity is less than two
+	 */
+	TranspositionTable(int capacity)
+	{
+		if (capacity < 2)
+		{
+			throw new IllegalArgumentException("Capacity must be at least two");
+		}
+		final int numBuckets = Integer.highestOneBit(Math.min(capacity, 1 << 30) / 2);
+		this.mask = numBuckets - 1;
+		this.entries = new AtomicReferenceArray<>(2 * numBuckets);
+	}
+
+	/**
+	 * Returns the number of entries of this table.
+	 *
+	 * @return the number of entries
+	 */
+	int getCapacity()
+	{
+		return this.entries.length();
+	}
+
+	/**
+	 * Creates the key for the given operands, that is the sorted array of
+	 * their values.
+	 *
+	 * @param operands the remaining operands
+	 * @return the key
+	 */
+	static int[] createKey(Operand[] operands)
+	{
+		final int n = operands.length;
+		final int[] key = new int[n];
+		for (int i = 0; i < n; i++)
+		{
+			final int value = operands[i].value;
+			int k = i;
+			while (k > 0 && key[k - 1] > value)
+			{
+				key[k] = key[k - 1];
+				k--;
+			}
+			key[k] = value;
+		}
+		return key;
+	}
+
+	private static int hash(int[] key)
+	{
+		final int h = Arrays.hashCode(key) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the cached outcome for the given key.
+	 *
+	 * @param key the key created by {@link #createKey(Operand[])}
+	 * @return the cached outcome or null, if none
+	 */
+	Entry get(int[] key)
+	{
+		final int hash = hash(key);
+		final int index = 2 * (hash & this.mask);
+		for (int i = index; i < index + 2; i++)
+		{
+			final Entry entry = this.entries.get(i);
+			if (entry != null && entry.hash == hash && Arrays.equals(entry.key, key))
+			{
+				this.counterHits.increment();
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the outcome of a calculated subtree.
+	 *
+	 * @param key             the key created by {@link #createKey(Operand[])}
+	 * @param targetReachable true, if the target is reachable in the subtree
+	 * @param diffLess        the least distance below the target
+	 * @param diffGreater     the least distance above the target
+	 */
+	void put(int[] key, boolean targetReachable, int diffLess, int diffGreater)
+	{
+		final int hash = hash(key);
+		final int index = 2 * (hash & this.mask);
+		final Entry entry = new Entry(key, hash, targetReachable, diffLess, diffGreater);
+		final Entry first = this.entries.get(index);
+		if (first == null || first.key.length <= key.length)
+		{
+			this.entries.set(index, entry);
+		}
+		else
+		{
+			this.entries.set(index + 1, entry);
+		}
+	}
+
+	/**
+	 * Returns the number of successful lookups.
+	 *
+	 * @return the number of successful lookups
+	 */
+	long getCounterHits()
+	{
+		return this.counterHits.sum();
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel evaluating the last two levels of the recursion in SIMD lanes using
+ * the incubating Vector API. For a node with three remaining operands, the
+ * default operators are applied to the three pairs of operands, and each
+ * intermediate result paired with the remaining operand yields a leaf of the
+ * recursion. The four operator applications of all leaves are evaluated at
+ * once: invalid results are masked, the results are compared with the target
+ * and the distances to the target are reduced to the approximation bounds.
+ * <p>
+ * The kernel only handles nodes without exact solutions in the leaves, which
+ * are the vast majority. If a leaf hits the target, or an operand exceeds the
+ * range of exact single precision arithmetic used for multiplication and
+ * division, the evaluation is rejected and the node is processed by the
+ * scalar code, so the results are identical in any case.
+ * <p>
+ * This class must only be used, if the module {@code jdk.incubator.vector}
+ * is present, see {@link Calculator#isVectorKernelAvailable()}.
+ *
+ * @author Bernd Michaely
+ */
+final class VectorLeafKernel
+{
+	private static final VectorSpecies<Integer> SPECIES_INT = IntVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> SPECIES_FLOAT =
+		VectorSpecies.of(float.class, SPECIES_INT.vectorShape());
+	/**
+	 * Number of leaves of a node with three operands.
+	 */
+	private static final int NUM_LEAVES_MAX = 3 * 4;
+	/**
+	 * Operands up to this limit are represented exactly as float.
+	 */
+	private static final int LIMIT_EXACT = 1 << 24;
+	/**
+	 * Float products below this limit do not overflow as int.
+	 */
+	private static final float LIMIT_PRODUCT_VALID = 0x1p30f;
+	/**
+	 * Float products above this limit overflow as int.
+	 */
+	private static final float LIMIT_PRODUCT_INVALID = 0x1p32f;
+	private final int target;
+	private final int[] values1;
+	private final int[] values2;
+	private final int[] results = new int[4];
+	private int numLeaves;
+	private int diffLess;
+	private int diffGreater;
+
+	/**
+	 * Creates a kernel for the given target. Each subtask uses its own kernel.
+	 *
+	 * @param target the calculation target
+	 */
+	VectorLeafKernel(int target)
+	{
+		this.target = target;
+		final int length = SPECIES_INT.loopBound(NUM_LEAVES_MAX + SPECIES_INT.length() - 1);
+		this.values1 = new int[length];
+		this.values2 = new int[length];
+	}
+
+	/**
+	 * Evaluates the leaves of a node with three remaining operands.
+	 *
+	 * @param operands the three remaining operands
+	 * @param kernel   the kernel for the default operators
+	 * @return true, if the leaves are evaluated, false, if they have to be
+	 *         processed by the scalar code
+	 */
+	boolean evaluate(Operand[] operands, OperatorKernel kernel)
+	{
+		if (!collectLeaves(operands, kernel))
+		{
+			return false;
+		}
+		final IntVector targets = IntVector.broadcast(SPECIES_INT, this.target);
+		final IntVector max = IntVector.broadcast(SPECIES_INT, Integer.MAX_VALUE);
+		IntVector less = max;
+		IntVector greater = max;
+		for (int offset = 0; offset < this.numLeaves; offset += SPECIES_INT.length())
+		{
+			final VectorMask<Integer> inRange = SPECIES_INT.indexInRange(offset, this.numLeaves);
+			final IntVector a = IntVector.fromArray(SPECIES_INT, this.values1, offset);
+			final IntVector b = IntVector.fromArray(SPECIES_INT, this.values2, offset);
+			final FloatVector fa = (FloatVector) a.convertShape(VectorOperators.I2F, SPECIES_FLOAT, 0);
+			final FloatVector fb = (FloatVector) b.convertShape(VectorOperators.I2F, SPECIES_FLOAT, 0);
+			// addition: the sum of positive operands overflows to a negative value
+			final IntVector sum = a.add(b);
+			final VectorMask<Integer> validSum = sum.compare(VectorOperators.GT, 0, inRange);
+			// subtraction: operand a is the greater (or equal) operand
+			final IntVector difference = a.sub(b);
+			final VectorMask<Integer> validDifference = difference.compare(VectorOperators.GT, 0, inRange);
+			// multiplication: the int product is exact, if the float product is clearly in range
+			final FloatVector floatProduct = fa.mul(fb);
+			final VectorMask<Integer> productInvalid = floatProduct.compare(
+				VectorOperators.GT, LIMIT_PRODUCT_INVALID).cast(SPECIES_INT);
+			final VectorMask<Integer> productValid = floatProduct.compare(
+				VectorOperators.LT, LIMIT_PRODUCT_VALID).cast(SPECIES_INT);
+			if (productValid.or(productInvalid).not().and(inRange).anyTrue())
+			{
+				return false;
+			}
+			final IntVector product = a.mul(b);
+			final VectorMask<Integer> validProduct = productValid.and(inRange);
+			// division: a float quotient of exactly representable operands is exact
+			final IntVector quotient = (IntVector) fa.div(fb).convertShape(VectorOperators.F2I, SPECIES_INT, 0);
+			final VectorMask<Integer> validQuotient = quotient.mul(b).compare(VectorOperators.EQ, a, inRange);
+			if (sum.compare(VectorOperators.EQ, targets, validSum).
+				or(difference.compare(VectorOperators.EQ, targets, validDifference)).
+				or(product.compare(VectorOperators.EQ, targets, validProduct)).
+				or(quotient.compare(VectorOperators.EQ, targets, validQuotient)).anyTrue())
+			{
+				return false;
+			}
+			less = less.min(lowerDiffs(targets, sum, validSum)).
+				min(lowerDiffs(targets, difference, validDifference)).
+				min(lowerDiffs(targets, product, validProduct)).
+				min(lowerDiffs(targets, quotient, validQuotient));
+			greater = greater.min(upperDiffs(targets, sum, validSum)).
+				min(upperDiffs(targets, difference, validDifference)).
+				min(upperDiffs(targets, product, validProduct)).
+				min(upperDiffs(targets, quotient, validQuotient));
+		}
+		this.diffLess = less.reduceLanes(VectorOperators.MIN);
+		this.diffGreater = greater.reduceLanes(VectorOperators.MIN);
+		return true;
+	}
+
+	/**
+	 * Collects the pairs of operands of the leaves, the greater operand first.
+	 *
+	 * @return false, if an operand is not exactly representable as float
+	 */
+	private boolean collectLeaves(Operand[] operands, OperatorKernel kernel)
+	{
+		int n = 0;
+		for (int i = 0; i < 2; i++)
+		{
+			for (int k = i + 1; k < 3; k++)
+			{
+				final int value1 = operands[i].value;
+				final int value2 = operands[k].value;
+				if (value1 > value2)
+				{
+					kernel.calculate(value1, value2, this.results);
+				}
+				else
+				{
+					kernel.calculate(value2, value1, this.results);
+				}
+				final int remaining = operands[3 - i - k].value;
+				for (int j = 0; j < 4; j++)
+				{
+					final int result = this.results[j];
+					// results hitting the target are not recursed into:
+					if (result > 0 && result != this.target)
+					{
+						final int greater = Math.max(result, remaining);
+						if (greater >= LIMIT_EXACT)
+						{
+							return false;
+						}
+						this.values1[n] = greater;
+						this.values2[n] = Math.min(result, remaining);
+						n++;
+					}
+				}
+			}
+		}
+		// padding lanes are masked, but must not divide by zero:
+		for (int i = n; i < this.values2.length; i++)
+		{
+			this.values1[i] = 1;
+			this.values2[i] = 1;
+		}
+		this.numLeaves = n;
+		return true;
+	}
+
+	private static IntVector lowerDiffs(IntVector targets, IntVector values, VectorMask<Integer> valid)
+	{
+		return targets.sub(values).blend(Integer.MAX_VALUE,
+			values.compare(VectorOperators.LT, targets, valid).not());
+	}
+
+	private static IntVector upperDiffs(IntVector targets, IntVector values, VectorMask<Integer> valid)
+	{
+		return values.sub(targets).blend(Integer.MAX_VALUE,
+			values.compare(VectorOperators.GT, targets, valid).not());
+	}
+
+	/**
+	 * Returns the number of leaves of the last evaluated node, that is the
+	 * number of recursion calls evaluated.
+	 *
+	 * @return the number of leaves
+	 */
+	int getNumLeaves()
+	{
+		return this.numLeaves;
+	}
+
+	/**
+	 * Returns the least distance of a leaf result below the target of the
+	 * last evaluated node.
+	 *
+	 * @return the least distance below the target or
+	 *         {@link Integer#MAX_VALUE}, if none
+	 */
+	int getDiffLess()
+	{
+		return this.diffLess;
+	}
+
+	/**
+	 * Returns the least distance of a leaf result above the target of the
+	 * last evaluated node.
+	 *
+	 * @return the least distance above the target or
+	 *         {@link Integer#MAX_VALUE}, if none
+	 */
+	int getDiffGreater()
+	{
+		return this.diffGreater;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.common.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * An immutable SortedSet backed by a sorted array of distinct elements. The
+ * set is intended for large results which are built once, e.g. by merging
+ * sorted runs, and read many times afterwards. Compared to a
+ * {@link java.util.TreeSet TreeSet} it needs no node objects and builds in
+ * {@code  O(n)} time from an already sorted array.<p>
+ * The characteristics of this implementation include the following:
+ * <ul>
+ * <li>It is immutable, all mutating operations throw an
+ * {@link UnsupportedOperationException}.</li>
+ * <li>{@link #contains(Object) contains} performs a binary search in
+ * {@code  O(log n)} time.</li>
+ * <li>The views returned by {@link #subSet(Object, Object) subSet},
+ * {@link #headSet(Object) headSet} and {@link #tailSet(Object) tailSet} share
+ * the array of this set. Unlike the views of a TreeSet, keys outside the range
+ * of a view are not rejected, but clamped to the range.</li>
+ * <li>It does not support {@code  null} elements.</li>
+ * </ul>
+ *
+ * @author Bernd Michaely
+ * @param <E> the type of the set elements
+ */
+public class SortedArraySet<E> extends AbstractSet<E> implements SortedSet<E>
+{
+	private final Object[] elements;
+	private final int fromIndex;
+	private final int toIndex;
+	private final Comparator<? super E> comparator;
+
+	/**
+	 * Creates a new empty set ordered by the natural order of the elements.
+	 */
+	public SortedArraySet()
+	{
+		this(new Object[0], 0, 0, null);
+	}
+
+	/**
+	 * Creates a new set of the given elements. The array is not copied, the
+	 * caller must not change it afterwards.
+	 *
+	 * @param elements   the elements in ascending order without duplicates
+	 * @param comparator the comparator of the elements or null for their
+	 *                   natural order
+	 * @throws IllegalArgumentException if elements is null, contains null or
+	 *                                  is not strictly ascending
+	 */
+	public SortedArraySet(E[] elements, Comparator<? super E> comparator)
+	{
+		this(elements, 0, (elements != null) ? elements.length : 0, comparator);
+		if (elements == null)
+		{
+			throw new IllegalArgumentException("SortedArraySet : elements are null");
+		}
+		for (int i = 0; i < elements.length; i++)
+		{
+			if (elements[i] == null)
+			{
+				throw new IllegalArgumentException("SortedArraySet : null element at index " + i);
+			}
+			if (i > 0 && compare(elements[i - 1], elements[i]) >= 0)
+			{
+				throw new IllegalArgumentException("SortedArraySet : elements not strictly ascending at index " + i);
+			}
+		}
+	}
+
+	private SortedArraySet(Object[] elements, int fromIndex, int toIndex, Comparator<? super E> comparator)
+	{
+		this.elements = elements;
+		this.fromIndex = fromIndex;
+		this.toIndex = toIndex;
+		this.comparator = comparator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(Object element1, Object element2)
+	{
+		return (this.comparator != null) ?
+			this.comparator.compare((E) element1, (E) element2) :
+			((Comparable<Object>) element1).compareTo(element2);
+	}
+
+	/**
+	 * Returns the index of the given key in the range of this set, or
+	 * {@code  -(insertion point) - 1}, if the key is not contained.
+	 */
+	private int indexOf(Object key)
+	{
+		int low = this.fromIndex;
+		int high = this.toIndex - 1;
+		while (low <= high)
+		{
+			final int mid = (low + high) >>> 1;
+			final int comp = compare(this.elements[mid], key);
+			if (comp < 0)
+			{
+				low = mid + 1;
+			}
+			else if (comp > 0)
+			{
+				high = mid - 1;
+			}
+			else
+			{
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Returns the index of the least element greater than or equal to the
+	 * given key in the range of this set.
+	 */
+	private int ceilingIndex(Object key)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException("SortedArraySet : key is null");
+		}
+		final int index = indexOf(key);
+		return (index >= 0) ? index : -(index + 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E elementAt(int index)
+	{
+		return (E) this.elements[index];
+	}
+
+	@Override
+	public Comparator<? super E> comparator()
+	{
+		return this.comparator;
+	}
+
+	@Override
+	public int size()
+	{
+		return this.toIndex - this.fromIndex;
+	}
+
+	@Override
+	public boolean contains(Object object)
+	{
+		try
+		{
+			return (object != null) && indexOf(object) >= 0;
+		}
+		catch (ClassCastException ex)
+		{
+			return false;
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator()
+	{
+		return new Iterator<E>()
+		{
+			private int index = fromIndex;
+
+			@Override
+			public boolean hasNext()
+			{
+				return this.index < toIndex;
+			}
+
+			@Override
+			public E next()
+			{
+				if (!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				return elementAt(this.index++);
+			}
+		};
+	}
+
+	@Override
+	public Spliterator<E> spliterator()
+	{
+		return Spliterators.spliterator(this.elements, this.fromIndex, this.toIndex,
+			Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT |
+			Spliterator.NONNULL | Spliterator.IMMUTABLE);
+	}
+
+	@Override
+	public Object[] toArray()
+	{
+		return Arrays.copyOfRange(this.elements, this.fromIndex, this.toIndex);
+	}
+
+	@Override
+	public SortedSet<E> subSet(E fromElement, E toElement)
+	{
+		if (compare(fromElement, toElement) > 0)
+		{
+			throw new IllegalArgumentException("SortedArraySet : fromElement > toElement");
+		}
+		return new SortedArraySet<>(this.elements,
+			ceilingIndex(fromElement), ceilingIndex(toElement), this.comparator);
+	}
+
+	@Override
+	public SortedSet<E> headSet(E toElement)
+	{
+		return new SortedArraySet<>(this.elements,
+			this.fromIndex, ceilingIndex(toElement), this.comparator);
+	}
+
+	@Override
+	public SortedSet<E> tailSet(E fromElement)
+	{
+		return new SortedArraySet<>(this.elements,
+			ceilingIndex(fromElement), this.toIndex, this.comparator);
+	}
+
+	@Override
+	public E first()
+	{
+		if (isEmpty())
+		{
+			throw new NoSuchElementException();
+		}
+		return elementAt(this.fromIndex);
+	}
+
+	@Override
+	public E last()
+	{
+		if (isEmpty())
+		{
+			throw new NoSuchElementException();
+		}
+		return elementAt(this.toIndex - 1);
+	}
+}
@@ -23,5 +23,8 @@
 module de.bernd_michaely.chiffres.calc
 {
 	requires java.logging;
+	requires java.management;
+	requires jdk.jfr;
+	requires static jdk.incubator.vector;
 	exports de.bernd_michaely.chiffres.calc;
 }
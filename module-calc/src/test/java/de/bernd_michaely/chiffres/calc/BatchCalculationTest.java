@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the BatchCalculation and CalculationScheduler classes.
+ *
+ * @author Bernd Michaely
+ */
+public class BatchCalculationTest
+{
+	private static final CalculationParams LARGE_GAME = new CalculationParams(317, 5, 50, 2, 3, 75, 3, 7);
+
+	private static List<CalculationParams> createSmallGames(int numGames)
+	{
+		final List<CalculationParams> games = new ArrayList<>();
+		for (int i = 0; i < numGames; i++)
+		{
+			games.add(new CalculationParams(100 + 7 * i, 25, 1 + i % 10, 3, 7, 50));
+		}
+		return games;
+	}
+
+	@Test
+	public void testSolveAll() throws InterruptedException
+	{
+		final List<CalculationParams> games = createSmallGames(20);
+		final BatchOptions options = new BatchOptions();
+		options.setNumThreads(3);
+		options.setMaxConcurrentGames(4);
+		try (BatchCalculation batch = Calculator.solveAll(games, options))
+		{
+			assertEquals(games.size(), batch.getNumGames());
+			final BitSet indices = new BitSet();
+			while (batch.hasNext())
+			{
+				final BatchResult result = batch.take();
+				assertNull(result.getError());
+				assertSame(games.get(result.getIndex()), result.getCalculationParams());
+				final CalculationResult expected = new Calculator(result.getCalculationParams()).call();
+				assertEquals(expected.getSolutions(), result.getCalculationResult().getSolutions());
+				assertEquals(expected.getLowerApproximation(),
+					result.getCalculationResult().getLowerApproximation());
+				assertTrue(result.getDuration() > 0);
+				indices.set(result.getIndex());
+			}
+			assertEquals(games.size(), indices.cardinality());
+			assertTrue(batch.isDone());
+			assertEquals(games.size(), batch.getNumCompleted());
+			assertTrue(batch.getThroughput() > 0);
+			assertTrue(batch.getCounterRecursionCalls() > 0);
+			assertThrows(NoSuchElementException.class, () -> batch.take());
+		}
+	}
+
+	@Test
+	public void testEmptyBatch() throws InterruptedException
+	{
+		try (BatchCalculation batch = Calculator.solveAll(List.of(), new BatchOptions()))
+		{
+			assertTrue(batch.isDone());
+			assertFalse(batch.hasNext());
+			assertNull(batch.poll(0, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testInvalidGame() throws InterruptedException
+	{
+		try (BatchCalculation batch = Calculator.solveAll(
+			List.of(new CalculationParams(100, 25, 0, 4)), new BatchOptions()))
+		{
+			assertInstanceOf(IllegalArgumentException.class, batch.take().getError());
+		}
+	}
+
+	@Test
+	public void testSmallGamesOvertakeLargeGame() throws InterruptedException
+	{
+		final List<CalculationParams> games = new ArrayList<>();
+		games.add(LARGE_GAME);
+		games.addAll(createSmallGames(10));
+		final BatchOptions options = new BatchOptions();
+		options.setNumThreads(2);
+		options.setMaxConcurrentGames(2);
+		try (BatchCalculation batch = Calculator.solveAll(games, options))
+		{
+			for (int i = 0; i < games.size() - 1; i++)
+			{
+				assertNotEquals(0, batch.take().getIndex());
+			}
+			final BatchResult last = batch.take();
+			assertEquals(0, last.getIndex());
+			assertNotNull(last.getCalculationResult());
+		}
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException
+	{
+		final List<CalculationParams> games = List.of(LARGE_GAME, LARGE_GAME, LARGE_GAME, LARGE_GAME);
+		final BatchOptions options = new BatchOptions();
+		options.setNumThreads(2);
+		options.setMaxConcurrentGames(2);
+		try (BatchCalculation batch = Calculator.solveAll(games, options))
+		{
+			batch.cancel();
+			while (batch.hasNext())
+			{
+				final BatchResult result = batch.take();
+				assertTrue((result.getError() instanceof CancellationException) ||
+					result.getCalculationResult().isCancelled());
+			}
+		}
+	}
+
+	@Test
+	public void testScheduler()
+	{
+		try (CalculationScheduler scheduler = new CalculationScheduler(2))
+		{
+			final CalculationParams calculationParams = new CalculationParams(769, 2, 1, 7, 9, 25);
+			final Calculator calculator = new Calculator(calculationParams);
+			calculator.setScheduler(scheduler);
+			assertSame(scheduler, calculator.getScheduler());
+			final CalculationResult result = calculator.call();
+			assertEquals(new Calculator(calculationParams).call().getSolutions(), result.getSolutions());
+			// the scheduler is reusable:
+			final Calculator calculator2 = new Calculator(calculationParams);
+			calculator2.setScheduler(scheduler);
+			assertEquals(result.getSolutions(), calculator2.call().getSolutions());
+		}
+		assertThrows(IllegalArgumentException.class, () -> new CalculationScheduler(0));
+	}
+}
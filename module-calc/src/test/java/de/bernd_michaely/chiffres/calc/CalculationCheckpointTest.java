@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the CalculationCheckpoint class.
+ *
+ * @author Bernd Michaely
+ */
+public class CalculationCheckpointTest
+{
+	private static CalculationResult calculate(CalculationParams calculationParams,
+		Path checkpointFile, boolean modeParallel)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setModeParallel(modeParallel);
+		calculator.setCheckpointFile(checkpointFile);
+		calculator.setCheckpointInterval(0);
+		return calculator.call();
+	}
+
+	private static void assertSameResult(CalculationResult expected, CalculationResult actual)
+	{
+		assertEquals(expected.getSolutions(), actual.getSolutions());
+		assertEquals(expected.isExactSolutionFound(), actual.isExactSolutionFound());
+		assertEquals(expected.getDiffLess(), actual.getDiffLess());
+		assertEquals(expected.getDiffGreater(), actual.getDiffGreater());
+		assertEquals(expected.getNumFilteredSolutions(), actual.getNumFilteredSolutions());
+		assertEquals(expected.getCounterRecursionCalls(), actual.getCounterRecursionCalls());
+	}
+
+	private static void truncate(Path file, long size) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, WRITE))
+		{
+			channel.truncate(size);
+		}
+	}
+
+	private void testResume(CalculationParams calculationParams) throws IOException
+	{
+		final Path file = Files.createTempFile("chiffres-", ".checkpoint");
+		try
+		{
+			final CalculationResult expected = calculate(calculationParams, null, false);
+			// complete run writing a checkpoint:
+			assertSameResult(expected, calculate(calculationParams, file, true));
+			final long size = Files.size(file);
+			assertTrue(size > 0);
+			// resume from a complete checkpoint:
+			assertSameResult(expected, calculate(calculationParams, file, true));
+			assertEquals(size, Files.size(file));
+			// resume from an interrupted run with a partially written last record:
+			truncate(file, size * 3 / 5);
+			assertSameResult(expected, calculate(calculationParams, file, false));
+			assertEquals(size, Files.size(file));
+			// start over from a checkpoint with a truncated header:
+			truncate(file, 16);
+			assertSameResult(expected, calculate(calculationParams, file, true));
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testResumeExactSolution() throws IOException
+	{
+		testResume(new CalculationParams(527, 8, 10, 2, 9, 10, 4));
+	}
+
+	@Test
+	public void testResumeApproximation() throws IOException
+	{
+		testResume(new CalculationParams(961, 1, 2, 3, 4, 5, 6));
+	}
+
+	@Test
+	public void testOtherCalculationIgnored() throws IOException
+	{
+		final Path file = Files.createTempFile("chiffres-", ".checkpoint");
+		try
+		{
+			final CalculationParams calculationParams = new CalculationParams(321, 25, 4, 2, 10, 8, 5);
+			calculate(new CalculationParams(322, 25, 4, 2, 10, 8, 5), file, true);
+			assertSameResult(calculate(calculationParams, null, true),
+				calculate(calculationParams, file, true));
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import static de.bernd_michaely.chiffres.calc.CalculationEvents.PREFIX;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the JFR events of the CalculationEvents class.
+ *
+ * @author Bernd Michaely
+ */
+public class CalculationEventsTest
+{
+	private static List<RecordedEvent> record(Consumer<Recording> configuration,
+		Runnable runnable) throws IOException
+	{
+		final Path file = Files.createTempFile("chiffres-", ".jfr");
+		try
+		{
+			try (Recording recording = new Recording())
+			{
+				configuration.accept(recording);
+				recording.start();
+				runnable.run();
+				recording.stop();
+				recording.dump(file);
+			}
+			return RecordingFile.readAllEvents(file).stream()
+				.filter(event -> event.getEventType().getName().startsWith(PREFIX))
+				.toList();
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static List<RecordedEvent> filter(List<RecordedEvent> events, String name)
+	{
+		return events.stream()
+			.filter(event -> event.getEventType().getName().equals(PREFIX + name))
+			.toList();
+	}
+
+	@Test
+	public void testCalculationEvents() throws IOException
+	{
+		final Calculator calculator = new Calculator(new CalculationParams(100, 1, 2, 3, 4, 5, 6));
+		calculator.setModeParallel(true);
+		final CalculationResult[] result = new CalculationResult[1];
+		final List<RecordedEvent> events = record(recording ->
+		{
+			for (String name : List.of("Calculation", "CalculationAborted",
+				"SubTaskSubmit", "SubTask", "RedundancyCheck", "Dedup"))
+			{
+				recording.enable(PREFIX + name);
+			}
+		}, () -> result[0] = calculator.call());
+		final List<RecordedEvent> calculationEvents = filter(events, "Calculation");
+		assertEquals(1, calculationEvents.size());
+		final RecordedEvent calculationEvent = calculationEvents.get(0);
+		assertEquals(100, calculationEvent.getInt("target"));
+		assertEquals(result[0].getSolutions().size(), calculationEvent.getInt("numSolutions"));
+		assertEquals(result[0].getCounterRecursionCalls(), calculationEvent.getLong("counterRecursionCalls"));
+		assertFalse(calculationEvent.getBoolean("cancelled"));
+		final int numSubTasks = calculationEvent.getInt("numSubTasks");
+		assertEquals(numSubTasks, filter(events, "SubTaskSubmit").size());
+		final List<RecordedEvent> subTaskEvents = filter(events, "SubTask");
+		// including the main task:
+		assertEquals(numSubTasks + 1, subTaskEvents.size());
+		assertEquals(result[0].getCounterRecursionCalls(), subTaskEvents.stream()
+			.mapToLong(event -> event.getLong("counterRecursionCalls")).sum());
+		assertTrue(subTaskEvents.stream().allMatch(event -> event.getBoolean("complete")));
+		assertEquals(result[0].getNumFilteredSolutions(), filter(events, "RedundancyCheck").stream()
+			.mapToInt(event -> event.getInt("numRedundant")).sum());
+		final List<RecordedEvent> dedupEvents = filter(events, "Dedup");
+		assertEquals(1, dedupEvents.size());
+		assertEquals(result[0].getSolutions().size(), dedupEvents.get(0).getInt("numSolutions"));
+		assertTrue(filter(events, "CalculationAborted").isEmpty());
+	}
+
+	@Test
+	public void testCalculationAbortedEvent() throws IOException
+	{
+		final Calculator calculator = new Calculator(new CalculationParams(100, 1, 2, 3, 4, 5, 6));
+		calculator.setOnProgress((value, max) -> calculator.cancel());
+		final List<RecordedEvent> events = record(recording ->
+		{
+			recording.enable(PREFIX + "Calculation");
+			recording.enable(PREFIX + "CalculationAborted");
+		}, calculator::call);
+		final List<RecordedEvent> abortedEvents = filter(events, "CalculationAborted");
+		assertEquals(1, abortedEvents.size());
+		assertFalse(abortedEvents.get(0).getBoolean("outOfMemory"));
+		assertTrue(filter(events, "Calculation").get(0).getBoolean("cancelled"));
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import de.bernd_michaely.chiffres.calc.CalculationMetrics.InvalidResult;
+import org.junit.jupiter.api.Test;
+
+import static de.bernd_michaely.chiffres.calc.CalculationMetrics.InvalidResult.*;
+import static de.bernd_michaely.chiffres.calc.Operator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the CalculationMetrics class.
+ *
+ * @author Bernd Michaely
+ */
+public class CalculationMetricsTest
+{
+	@Test
+	public void testCountInvalidResult()
+	{
+		final CalculationMetrics metrics = new CalculationMetrics();
+		metrics.reset(2);
+		metrics.countInvalidResult(ADD, Integer.MAX_VALUE, 1);
+		metrics.countInvalidResult(SUB, 7, 7);
+		metrics.countInvalidResult(MUL, 1 << 16, 1 << 16);
+		metrics.countInvalidResult(DIV, 7, 2);
+		metrics.countInvalidResult(DIV, 7, 3);
+		assertEquals(1, metrics.getInvalidResults(ADD, OVERFLOW));
+		assertEquals(1, metrics.getInvalidResults(SUB, NON_POSITIVE));
+		assertEquals(1, metrics.getInvalidResults(MUL, OVERFLOW));
+		assertEquals(2, metrics.getInvalidResults(DIV, NON_INTEGER_DIVISION));
+		assertEquals(5, metrics.getInvalidResultsTotal());
+	}
+
+	private static SubTaskMetrics createSubTaskMetrics(int index, long nodes, long wallTime, long cpuTime)
+	{
+		final SubTaskMetrics subTaskMetrics = new SubTaskMetrics(3, index);
+		subTaskMetrics.nodes[0] = nodes;
+		subTaskMetrics.queueWaitTime = wallTime / 10;
+		subTaskMetrics.wallTime = wallTime;
+		subTaskMetrics.cpuTime = cpuTime;
+		return subTaskMetrics;
+	}
+
+	@Test
+	public void testCombinePasses()
+	{
+		final CalculationMetrics metrics = new CalculationMetrics();
+		metrics.reset(3);
+		// two passes of iterative deepening with the same subtask indices:
+		for (int pass = 1; pass <= 2; pass++)
+		{
+			metrics.combine(createSubTaskMetrics(SubTaskResult.INDEX_MAIN_TASK, 1, 100 * pass, 50 * pass));
+			metrics.combine(createSubTaskMetrics(0, 10, 1000 * pass, 500 * pass));
+			metrics.combine(createSubTaskMetrics(1, 20, 2000 * pass, -1));
+		}
+		assertEquals(62, metrics.getNodesTotal());
+		assertEquals(300, metrics.getMainTaskWallTime());
+		assertEquals(150, metrics.getMainTaskCpuTime());
+		assertEquals(2, metrics.getNumSubTasks());
+		assertEquals(300, metrics.getSubTaskQueueWaitTime(0));
+		assertEquals(3000, metrics.getSubTaskWallTime(0));
+		assertEquals(1500, metrics.getSubTaskCpuTime(0));
+		assertEquals(6000, metrics.getSubTaskWallTime(1));
+		assertEquals(-1, metrics.getSubTaskCpuTime(1));
+	}
+
+	private static void checkMetrics(CalculationParams calculationParams, int numThreads)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setNumThreads(numThreads);
+		final CalculationMetrics metrics = new CalculationMetrics();
+		calculator.setMetrics(metrics);
+		final CalculationResult result = calculator.call();
+		final int numOperands = calculationParams.getNumOperands();
+		assertEquals(numOperands - 1, metrics.getNumDepths());
+		assertEquals(result.getCounterRecursionCalls(), metrics.getNodesTotal());
+		assertEquals(1, metrics.getNodes(0));
+		for (int depth = 0; depth < numOperands - 1; depth++)
+		{
+			// every node applies each operator to each pair of its operands:
+			final int n = numOperands - depth;
+			assertEquals(metrics.getNodes(depth) * calculationParams.getOperators().size() * n * (n - 1) / 2,
+				metrics.getOperatorApplications(depth));
+		}
+		assertEquals(result.getNumFilteredSolutions(), metrics.getRedundancyRejects());
+		assertEquals(result.isExactSolutionFound(), metrics.getExactHits() > 0);
+		assertTrue(metrics.getExactHits() - metrics.getRedundancyRejects() >= result.getSolutions().size());
+		for (InvalidResult invalidResult : InvalidResult.values())
+		{
+			if (invalidResult != NON_INTEGER_DIVISION)
+			{
+				assertEquals(0, metrics.getInvalidResults(DIV, invalidResult));
+			}
+		}
+		assertEquals(0, metrics.getInvalidResults(ADD, NON_POSITIVE));
+		assertTrue(metrics.getInvalidResults(SUB, NON_POSITIVE) > 0);
+		assertTrue(metrics.getInvalidResults(DIV, NON_INTEGER_DIVISION) > 0);
+		assertTrue(metrics.getNumSubTasks() > 0);
+		assertTrue(metrics.getNumSubTasks() <= metrics.getOperatorApplications(0));
+		for (int i = 0; i < metrics.getNumSubTasks(); i++)
+		{
+			assertTrue(metrics.getSubTaskWallTime(i) > 0);
+			assertTrue(metrics.getSubTaskQueueWaitTime(i) >= 0);
+		}
+		assertTrue(metrics.getMainTaskWallTime() > 0);
+		assertTrue(metrics.getDedupTime() > 0);
+		System.out.println();
+		System.out.println(calculationParams + " with " + numThreads + " threads");
+		System.out.println(metrics);
+	}
+
+	@Test
+	public void testCalculationMetrics()
+	{
+		checkMetrics(new CalculationParams(100, 1, 2, 3, 4, 5, 6), 1);
+		checkMetrics(new CalculationParams(100, 1, 2, 3, 4, 5, 6), 4);
+		checkMetrics(new CalculationParams(1000, 2, 3, 3, 5), 2);
+	}
+
+	@Test
+	public void testMetricsDisabled()
+	{
+		final CalculationParams calculationParams = new CalculationParams(100, 1, 2, 3, 4, 5);
+		final Calculator calculator1 = new Calculator(calculationParams);
+		final Calculator calculator2 = new Calculator(calculationParams);
+		calculator2.setMetrics(new CalculationMetrics());
+		assertNull(calculator1.getMetrics());
+		final CalculationResult result1 = calculator1.call();
+		final CalculationResult result2 = calculator2.call();
+		assertEquals(result1.getSolutions(), result2.getSolutions());
+		assertEquals(result1.getCounterRecursionCalls(), result2.getCounterRecursionCalls());
+	}
+}
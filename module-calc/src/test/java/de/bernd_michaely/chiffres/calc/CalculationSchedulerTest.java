@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the CalculationScheduler class.
+ *
+ * @author Bernd Michaely
+ */
+public class CalculationSchedulerTest
+{
+	/**
+	 * Occupies the single worker of the scheduler until the returned latch is
+	 * released, so that subsequently submitted tasks are queued.
+	 */
+	private static CountDownLatch blockWorker(CalculationScheduler scheduler) throws InterruptedException
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		scheduler.register(1, false).execute(() ->
+		{
+			started.countDown();
+			try
+			{
+				release.await();
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		return release;
+	}
+
+	private static void submit(CalculationScheduler.Client client, int numTasks,
+		String name, List<String> order, CountDownLatch done)
+	{
+		for (int i = 0; i < numTasks; i++)
+		{
+			client.execute(() ->
+			{
+				order.add(name);
+				done.countDown();
+			});
+		}
+	}
+
+	@Test
+	public void testPriority() throws InterruptedException
+	{
+		try (CalculationScheduler scheduler = new CalculationScheduler(1))
+		{
+			final CountDownLatch release = blockWorker(scheduler);
+			final List<String> order = Collections.synchronizedList(new ArrayList<>());
+			final CountDownLatch done = new CountDownLatch(10);
+			submit(scheduler.register(1, false), 5, "background", order, done);
+			final CalculationScheduler.Client foreground = scheduler.register(1, false);
+			foreground.setPrioritized(true);
+			submit(foreground, 5, "foreground", order, done);
+			release.countDown();
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(List.of("foreground", "foreground", "foreground", "foreground", "foreground"),
+				order.subList(0, 5));
+		}
+	}
+
+	@Test
+	public void testWeight() throws InterruptedException
+	{
+		try (CalculationScheduler scheduler = new CalculationScheduler(1))
+		{
+			final CountDownLatch release = blockWorker(scheduler);
+			final List<String> order = Collections.synchronizedList(new ArrayList<>());
+			final CountDownLatch done = new CountDownLatch(40);
+			submit(scheduler.register(1, false), 20, "light", order, done);
+			submit(scheduler.register(3, false), 20, "heavy", order, done);
+			release.countDown();
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			final long numHeavy = order.subList(0, 16).stream().filter("heavy"::equals).count();
+			assertTrue(numHeavy >= 11 && numHeavy <= 13, "heavy tasks : " + numHeavy);
+		}
+	}
+
+	@Test
+	public void testCap() throws InterruptedException
+	{
+		try (CalculationScheduler scheduler = new CalculationScheduler(4))
+		{
+			final CalculationScheduler.Client client = scheduler.register(2, false);
+			final AtomicInteger running = new AtomicInteger();
+			final AtomicInteger maxRunning = new AtomicInteger();
+			final CountDownLatch done = new CountDownLatch(12);
+			for (int i = 0; i < 12; i++)
+			{
+				client.execute(() ->
+				{
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try
+					{
+						Thread.sleep(20);
+					}
+					catch (InterruptedException ex)
+					{
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+					done.countDown();
+				});
+			}
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertTrue(maxRunning.get() <= 2, "max running : " + maxRunning.get());
+		}
+	}
+
+	@Test
+	public void testClose() throws InterruptedException
+	{
+		final CalculationScheduler scheduler = new CalculationScheduler(1);
+		final CountDownLatch release = blockWorker(scheduler);
+		final CountDownLatch done = new CountDownLatch(3);
+		final CalculationScheduler.Client client = scheduler.register(1, false);
+		submit(client, 3, "pending", Collections.synchronizedList(new ArrayList<>()), done);
+		scheduler.close();
+		assertTrue(scheduler.isShutdown());
+		assertThrows(RejectedExecutionException.class, () -> client.execute(() ->
+		{
+		}));
+		release.countDown();
+		// pending tasks are completed after close:
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+}
@@ -311,7 +311,7 @@ class CalculatorST implements Runnable
 					op1 = operands[k];
 					op2 = operands[i];
 				}
-				for (Operator operator : Operator.values())
+				for (Operator operator : CalculationParams.DEFAULT_OPERATORS)
 				{
 					final int result = operator.calculate(op1.value, op2.value);
 					final Operation operation = new Operation(op1, operator, op2, result);
@@ -16,6 +16,10 @@
  */
 package de.bernd_michaely.chiffres.calc;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.aggregator.AggregateWith;
@@ -155,8 +159,8 @@ public class CalculatorTest
 		calculator2.setTestMode(true);
 		final CalculationResult result1 = calculator1.call();
 		final CalculationResult result2 = calculator2.call();
-		final int numFilteredSolutions1 = result1.getNumFilteredSolutions();
-		final int numFilteredSolutions2 = result2.getNumFilteredSolutions();
+		final long numFilteredSolutions1 = result1.getNumFilteredSolutions();
+		final long numFilteredSolutions2 = result2.getNumFilteredSolutions();
 		System.out.println();
 		System.out.println("testRedundancy() :");
 		System.out.println(String.format(
@@ -316,4 +320,134 @@ public class CalculatorTest
 	{
 		assertTrue(testCompareSolver(calculationParams, true, true));
 	}
+
+	@Test
+	public void testIterativeDeepening()
+	{
+		for (CalculationParams calculationParams : new CalculationParams[]
+		{
+			new CalculationParams(960, 1, 2, 3, 4, 5, 6),
+			new CalculationParams(317, 5, 50, 2, 3, 75, 3),
+			new CalculationParams(98765, 1, 2, 3, 4, 5)
+		})
+		{
+			final CalculationResult expected = new Calculator(calculationParams).call();
+			for (boolean modeParallel : new boolean[]
+			{
+				false, true
+			})
+			{
+				final Calculator calculator = new Calculator(calculationParams);
+				calculator.setModeParallel(modeParallel);
+				calculator.setIterativeDeepening(true);
+				final List<Integer> depths = new ArrayList<>();
+				calculator.setOnIntermediateResult(candidate ->
+				{
+					synchronized (depths)
+					{
+						depths.add(candidate.getSolution().getDepth());
+					}
+				});
+				final CalculationResult result = calculator.call();
+				assertEquals(expected.getSolutions(), result.getSolutions());
+				assertEquals(expected.getLowerApproximation(), result.getLowerApproximation());
+				assertEquals(expected.getUpperApproximation(), result.getUpperApproximation());
+				assertTrue(result.isExhaustive());
+				// shortest solutions first:
+				for (int i = 1; i < depths.size(); i++)
+				{
+					assertTrue(depths.get(i - 1) <= depths.get(i));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testStoppingAtShortestSolutions()
+	{
+		final CalculationParams calculationParams = new CalculationParams(317, 5, 50, 2, 3, 75, 3);
+		final SortedSet<Solution> solutions = new Calculator(calculationParams).call().getSolutions();
+		final int minDepth = solutions.stream().mapToInt(Solution::getDepth).min().getAsInt();
+		final SortedSet<Solution> expected = new TreeSet<>();
+		solutions.stream().filter(solution -> solution.getDepth() == minDepth).forEach(expected::add);
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setIterativeDeepening(true);
+		calculator.setStoppingAtShortestSolutions(true);
+		final CalculationResult result = calculator.call();
+		assertEquals(expected, result.getSolutions());
+		assertFalse(result.isExhaustive());
+		// no solution:
+		final Calculator calculator2 = new Calculator(new CalculationParams(98765, 1, 2, 3, 4, 5));
+		calculator2.setIterativeDeepening(true);
+		calculator2.setStoppingAtShortestSolutions(true);
+		final CalculationResult result2 = calculator2.call();
+		assertTrue(result2.getSolutions().isEmpty());
+		assertTrue(result2.isExhaustive());
+	}
+
+	private static int getMaxValue(Solution solution)
+	{
+		int max = 0;
+		for (int i = 0; i < solution.getDepth(); i++)
+		{
+			max = Math.max(max, solution.getOperation(i).getValue());
+		}
+		return max;
+	}
+
+	@Test
+	public void testConstraints()
+	{
+		final int[] operands =
+		{
+			5, 50, 2, 3, 75, 3
+		};
+		final CalculationParams calculationParamsFree = new CalculationParams(317, operands);
+		final SortedSet<Solution> solutions = new Calculator(calculationParamsFree).call().getSolutions();
+		for (SolutionConstraints constraints : new SolutionConstraints[]
+		{
+			new SolutionConstraints(4, SolutionConstraints.UNLIMITED, false),
+			new SolutionConstraints(SolutionConstraints.UNLIMITED, 400, false),
+			new SolutionConstraints(SolutionConstraints.UNLIMITED, SolutionConstraints.UNLIMITED, true),
+			new SolutionConstraints(4, 500, false)
+		})
+		{
+			final SortedSet<Solution> expected = new TreeSet<>();
+			solutions.stream().filter(solution ->
+				solution.getDepth() <= constraints.getMaxNumOperations() &&
+				getMaxValue(solution) <= constraints.getMaxIntermediateValue() &&
+				(!constraints.isAllOperandsRequired() || solution.getDepth() == operands.length - 1)).
+				forEach(expected::add);
+			assertFalse(expected.isEmpty());
+			final CalculationParams calculationParams = new CalculationParams(
+				317, CalculationParams.DEFAULT_OPERATORS, constraints, operands);
+			for (boolean iterativeDeepening : new boolean[]
+			{
+				false, true
+			})
+			{
+				final Calculator calculator = new Calculator(calculationParams);
+				calculator.setModeParallel(true);
+				calculator.setIterativeDeepening(iterativeDeepening);
+				final CalculationMetrics metrics = new CalculationMetrics();
+				calculator.setMetrics(metrics);
+				final CalculationResult result = calculator.call();
+				assertEquals(expected, result.getSolutions(), calculationParams.toString());
+				if (!constraints.isAllOperandsRequired())
+				{
+					assertTrue(metrics.getPrunedBranchesTotal() > 0);
+				}
+			}
+		}
+		// approximations respect the constraints:
+		final CalculationResult result = new Calculator(new CalculationParams(
+			98765, CalculationParams.DEFAULT_OPERATORS,
+			new SolutionConstraints(SolutionConstraints.UNLIMITED, 1000, false), 1, 2, 3, 4, 5)).call();
+		assertFalse(result.isExactSolutionFound());
+		assertTrue(result.getLowerApproximation() <= 1000);
+		assertFalse(result.isUpperApproximationPossible());
+		assertThrows(IllegalArgumentException.class, () -> new CalculationParams(317,
+			CalculationParams.DEFAULT_OPERATORS, new SolutionConstraints(3, 1000, true), operands));
+		assertThrows(IllegalArgumentException.class, () -> new SolutionConstraints(0, 1000, false));
+	}
 }
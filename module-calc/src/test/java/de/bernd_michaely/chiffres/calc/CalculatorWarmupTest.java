@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the CalculatorWarmup class.
+ *
+ * @author Bernd Michaely
+ */
+public class CalculatorWarmupTest
+{
+	@Test
+	public void testWarmup() throws InterruptedException
+	{
+		final CalculatorWarmup calculatorWarmup = new CalculatorWarmup(List.of(
+			new CalculationParams(100, 25, 4, 3, 7), new CalculationParams(317, 5, 50, 2, 3, 75)));
+		final Thread thread = calculatorWarmup.start();
+		assertTrue(thread.isDaemon());
+		assertEquals(Thread.MIN_PRIORITY, thread.getPriority());
+		thread.join(60_000);
+		assertFalse(thread.isAlive());
+		assertEquals(2, calculatorWarmup.getNumGamesSolved());
+		assertTrue(calculatorWarmup.getDuration() > 0);
+		assertFalse(calculatorWarmup.isCancelled());
+	}
+
+	@Test
+	public void testCancel()
+	{
+		final CalculatorWarmup calculatorWarmup = new CalculatorWarmup();
+		calculatorWarmup.cancel();
+		calculatorWarmup.run();
+		assertTrue(calculatorWarmup.isCancelled());
+		assertEquals(0, calculatorWarmup.getNumGamesSolved());
+		assertFalse(CalculatorWarmup.DEFAULT_GAMES.isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> new CalculatorWarmup(null));
+	}
+}
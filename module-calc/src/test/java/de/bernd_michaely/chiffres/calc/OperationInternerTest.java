@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.SortedSet;
+import org.junit.jupiter.api.Test;
+
+import static de.bernd_michaely.chiffres.calc.Operator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the OperationInterner class.
+ *
+ * @author Bernd Michaely
+ */
+public class OperationInternerTest
+{
+	private static SortedSet<Solution> calculate(CalculationParams calculationParams,
+		boolean interningOperations)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setModeParallel(true);
+		calculator.setInterningOperations(interningOperations);
+		return calculator.call().getSolutions();
+	}
+
+	private static int countDistinctOperations(Set<Solution> solutions)
+	{
+		final Set<Operation> operations = Collections.newSetFromMap(new IdentityHashMap<>());
+		solutions.forEach(solution -> solution.operations().forEach(operations::add));
+		return operations.size();
+	}
+
+	@Test
+	public void testInternSolution()
+	{
+		final Operand op25 = new Operand(25);
+		final Operand op4 = new Operand(4);
+		final Operand op10 = new Operand(10);
+		final Operation op1a = new Operation(op25, MUL, op4, 100);
+		final Operation op1b = new Operation(op25, MUL, op4, 100);
+		final Solution solution1 = new Solution(op1a, new Operation(op1a, ADD, op10, 110));
+		final Solution solution2 = new Solution(op1b, new Operation(op1b, SUB, op10, 90));
+		final OperationInterner interner = new OperationInterner();
+		assertSame(solution1, interner.intern(solution1));
+		assertEquals(2, interner.size());
+		final Solution interned2 = interner.intern(solution2);
+		assertNotSame(solution2, interned2);
+		assertEquals(solution2, interned2);
+		assertEquals(solution2.isRedundant(), interned2.isRedundant());
+		assertSame(op1a, interned2.getOperation(0));
+		assertSame(op1a, interned2.getRootOperation().getOperand1());
+		assertEquals(3, interner.size());
+	}
+
+	@Test
+	public void testInternDistinctOperandsOfSameValue()
+	{
+		final Operand op3a = new Operand(3);
+		final Operand op3b = new Operand(3);
+		final Operand op3c = new Operand(3);
+		final Operand op3d = new Operand(3);
+		final Operation op1 = new Operation(op3a, MUL, op3b, 9);
+		final Operation op2 = new Operation(op3c, MUL, op3d, 9);
+		final Solution solution = new Solution(op1, op2, new Operation(op1, MUL, op2, 81));
+		final Solution interned = new OperationInterner().intern(solution);
+		assertSame(solution, interned);
+		assertNotSame(interned.getOperation(0), interned.getOperation(1));
+	}
+
+	@Test
+	public void testCalculatorInterning()
+	{
+		final CalculationParams calculationParams = new CalculationParams(100, 1, 2, 3, 4, 5, 6);
+		final SortedSet<Solution> solutions = calculate(calculationParams, false);
+		final SortedSet<Solution> solutionsInterned = calculate(calculationParams, true);
+		assertEquals(solutions, solutionsInterned);
+		final int numOperations = countDistinctOperations(solutions);
+		final int numOperationsInterned = countDistinctOperations(solutionsInterned);
+		System.out.println();
+		System.out.format("testCalculatorInterning() : %d solutions with %d operations (interned: %d)%n",
+			solutions.size(), numOperations, numOperationsInterned);
+		assertTrue(numOperationsInterned < numOperations);
+	}
+
+	private static long usedMemory()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++)
+		{
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static double measureRetainedHeapPerSolution(CalculationParams calculationParams,
+		boolean interningOperations)
+	{
+		final long memoryBefore = usedMemory();
+		SortedSet<Solution> solutions = calculate(calculationParams, interningOperations);
+		final long memoryAfter = usedMemory();
+		final int numSolutions = solutions.size();
+		System.out.format("  interning %-5s : %7d solutions, %7d distinct operations, %6.1f bytes retained per solution%n",
+			interningOperations, numSolutions, countDistinctOperations(solutions),
+			(double) (memoryAfter - memoryBefore) / numSolutions);
+		solutions = null;
+		return (double) (memoryAfter - memoryBefore) / numSolutions;
+	}
+
+	@Test
+	@LongRunningTest
+	public void testRetainedHeapPerSolution()
+	{
+		final CalculationParams calculationParams = new CalculationParams(360, 1, 2, 3, 4, 5, 6, 7);
+		System.out.println();
+		System.out.println("*** Retained heap per solution for " + calculationParams);
+		final double bytesPlain = measureRetainedHeapPerSolution(calculationParams, false);
+		final double bytesInterned = measureRetainedHeapPerSolution(calculationParams, true);
+		assertTrue(bytesInterned < bytesPlain);
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static de.bernd_michaely.chiffres.calc.Operator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the OperatorKernel class and operator sets.
+ *
+ * @author Bernd Michaely
+ */
+public class OperatorKernelTest
+{
+	private static void checkKernel(Set<Operator> operators)
+	{
+		final OperatorKernel kernel = OperatorKernel.create(operators);
+		assertEquals(operators, kernel.getOperators());
+		final int[] results = new int[kernel.size()];
+		final Random random = new Random(1234);
+		for (int n = 0; n < 1000; n++)
+		{
+			final int a = 1 + random.nextInt((n % 2 == 0) ? 20 : 100_000);
+			final int b = 1 + random.nextInt((n % 2 == 0) ? 20 : 100_000);
+			final int operand1 = Math.max(a, b);
+			final int operand2 = Math.min(a, b);
+			kernel.calculate(operand1, operand2, results);
+			for (int i = 0; i < kernel.size(); i++)
+			{
+				final Operator operator = kernel.getOperator(i);
+				assertEquals(kernel.isSwapped(i) ?
+					operator.calculate(operand2, operand1) : operator.calculate(operand1, operand2),
+					results[i], operator + " " + operand1 + " " + operand2);
+			}
+		}
+	}
+
+	@Test
+	public void testKernels()
+	{
+		checkKernel(CalculationParams.DEFAULT_OPERATORS);
+		checkKernel(EnumSet.of(ADD, SUB, MUL));
+		checkKernel(EnumSet.allOf(Operator.class));
+		final OperatorKernel kernel = OperatorKernel.create(EnumSet.of(ADD, POW));
+		// exponentiation is applied in both orders:
+		assertEquals(3, kernel.size());
+	}
+
+	@Test
+	public void testOperators()
+	{
+		assertEquals(8, POW.calculate(2, 3));
+		assertEquals(9, POW.calculate(3, 2));
+		assertEquals(1, POW.calculate(1, 1_000_000));
+		assertEquals(0, POW.calculate(2, 31));
+		assertEquals(1 << 30, POW.calculate(2, 30));
+		assertEquals(123, CAT.calculate(12, 3));
+		assertEquals(312, CAT.calculate(3, 12));
+		assertEquals(1100, CAT.calculate(1, 100));
+		assertEquals(0, CAT.calculate(99_999, 99_999));
+		assertTrue(POW.isAppliedInBothOrders());
+		assertFalse(SUB.isAppliedInBothOrders());
+	}
+
+	@Test
+	public void testOperatorSets()
+	{
+		final int[] operands =
+		{
+			25, 4, 3, 7, 50
+		};
+		final CalculationParams noDivision = new CalculationParams(100, EnumSet.of(ADD, SUB, MUL), operands);
+		assertFalse(noDivision.isDefaultOperators());
+		assertTrue(new CalculationParams(100, EnumSet.of(ADD, SUB, MUL, DIV), operands).isDefaultOperators());
+		assertThrows(IllegalArgumentException.class, () ->
+			new CalculationParams(100, EnumSet.noneOf(Operator.class), operands));
+		final CalculationResult result = new Calculator(noDivision).call();
+		assertTrue(result.isExactSolutionFound());
+		for (Solution solution : result.getSolutions())
+		{
+			for (int i = 0; i < solution.getDepth(); i++)
+			{
+				assertNotEquals(DIV, solution.getOperation(i).getOperator());
+			}
+		}
+		assertTrue(new Calculator(new CalculationParams(100, operands)).call().getSolutions().
+			containsAll(result.getSolutions()));
+	}
+
+	@Test
+	public void testVariants()
+	{
+		for (CalculationStrategy strategy : new CalculationStrategy[]
+		{
+			CalculationStrategy.EXHAUSTIVE, CalculationStrategy.REACHABLE_SET
+		})
+		{
+			final Calculator calculatorPow = new Calculator(new CalculationParams(
+				27, EnumSet.of(ADD, POW), 2, 3, 1));
+			calculatorPow.setStrategy(strategy);
+			final CalculationResult resultPow = calculatorPow.call();
+			assertTrue(resultPow.isExactSolutionFound(), strategy.toString());
+			// 27 = 3 ^ (2 + 1), the smaller operand first:
+			assertTrue(resultPow.getSolutions().stream().anyMatch(solution ->
+				solution.getRootOperation().getOperator() == POW &&
+				solution.getRootOperation().getOperand1().getValue() == 3), strategy.toString());
+			final Calculator calculatorCat = new Calculator(new CalculationParams(
+				125, EnumSet.of(ADD, CAT), 1, 2, 3, 2));
+			calculatorCat.setStrategy(strategy);
+			final CalculationResult resultCat = calculatorCat.call();
+			assertTrue(resultCat.isExactSolutionFound(), strategy.toString());
+			for (Solution solution : resultCat.getSolutions())
+			{
+				assertEquals(125, solution.getValue());
+			}
+		}
+		final Solution solution = new Solution("3||12");
+		assertEquals(312, solution.getValue());
+		assertEquals(3, solution.getOperation(0).getOperand1().getValue());
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ReachableSetSolver class.
+ *
+ * @author Bernd Michaely
+ */
+public class ReachableSetSolverTest
+{
+	private static CalculationResult calculate(CalculationParams calculationParams,
+		CalculationStrategy strategy)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setStrategy(strategy);
+		calculator.setNumThreads(2);
+		return calculator.call();
+	}
+
+	private static void checkSolutions(CalculationResult result, int target)
+	{
+		for (Solution solution : result.getSolutions())
+		{
+			assertEquals(target, solution.getValue());
+			assertFalse(solution.isRedundant());
+		}
+	}
+
+	@Test
+	public void testCompareExhaustive()
+	{
+		final CalculationParams[] games =
+		{
+			new CalculationParams(769, 2, 1, 7, 9, 25, 50),
+			new CalculationParams(317, 5, 50, 2, 3, 75, 3),
+			new CalculationParams(100, 25, 4, 3, 7, 50),
+			new CalculationParams(999, 1, 1, 1, 1, 1),
+			new CalculationParams(37, 2, 3, 5),
+			// targets equal to an operand and operands nearest to the target:
+			new CalculationParams(5, 5, 3),
+			new CalculationParams(7, 2, 7, 3),
+			new CalculationParams(10, 10, 1, 1),
+			new CalculationParams(3, 2, 2)
+		};
+		for (CalculationParams game : games)
+		{
+			final CalculationResult expected = calculate(game, CalculationStrategy.EXHAUSTIVE);
+			final CalculationResult actual = calculate(game, CalculationStrategy.REACHABLE_SET);
+			assertTrue(expected.isExhaustive());
+			assertFalse(actual.isExhaustive());
+			assertEquals(expected.isExactSolutionFound(), actual.isExactSolutionFound(), game.toString());
+			assertEquals(expected.getLowerApproximation(), actual.getLowerApproximation(), game.toString());
+			assertEquals(expected.getDiffLess(), actual.getDiffLess(), game.toString());
+			checkSolutions(actual, game.getTarget());
+			// only redundant solutions, e.g. 7 * (3 - 2), reach the target:
+			assertEquals(expected.getSolutions().isEmpty(), actual.getSolutions().isEmpty(), game.toString());
+			if (!expected.getSolutions().isEmpty())
+			{
+				final int minDepth = expected.getSolutions().stream().
+					mapToInt(Solution::getDepth).min().getAsInt();
+				for (Solution solution : actual.getSolutions())
+				{
+					// the solutions with the least number of operations are found:
+					assertEquals(minDepth, solution.getDepth(), game.toString());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTargetIsOperand()
+	{
+		final Calculator calculator = new Calculator(new CalculationParams(50,
+			1, 2, 3, 4, 5, 6, 7, 8, 9, 50));
+		// the default strategy resolves to the reachable set strategy:
+		assertEquals(CalculationStrategy.REACHABLE_SET, CalculationStrategy.AUTO.resolve(10));
+		final CalculationResult result = calculator.call();
+		assertTrue(result.isExactSolutionFound());
+		assertFalse(result.getSolutions().isEmpty());
+		checkSolutions(result, 50);
+	}
+
+	@Test
+	public void testApproximationsAreReachable()
+	{
+		final Random random = new Random(4711);
+		for (int i = 0; i < 30; i++)
+		{
+			final int[] operands = random.ints(4, 1, 16).toArray();
+			final CalculationParams game = new CalculationParams(500 + random.nextInt(500), operands);
+			final CalculationResult actual = calculate(game, CalculationStrategy.REACHABLE_SET);
+			final CalculationResult expected = calculate(game, CalculationStrategy.EXHAUSTIVE);
+			checkSolutions(actual, game.getTarget());
+			// a non-exhaustive search finds no better results than an exhaustive one:
+			assertTrue(!actual.isExactSolutionFound() || expected.isExactSolutionFound());
+			assertTrue(actual.getDiffLess() >= expected.getDiffLess());
+			assertTrue(actual.getDiffGreater() >= expected.getDiffGreater());
+			if (actual.isLowerApproximationPossible() && !actual.isExactSolutionFound())
+			{
+				assertTrue(calculate(new CalculationParams(actual.getLowerApproximation(), operands),
+					CalculationStrategy.EXHAUSTIVE).isExactSolutionFound());
+			}
+		}
+	}
+
+	@Test
+	public void testMaxOperands()
+	{
+		final CalculationParams game = new CalculationParams(9973,
+			100, 75, 50, 25, 10, 9, 8, 7, 6, 5, 4, 3);
+		assertEquals(Calculator.NUM_OPERANDS_MAX, game.getNumOperands());
+		final Calculator calculator = new Calculator(game);
+		assertEquals(CalculationStrategy.AUTO, calculator.getStrategy());
+		final AtomicLong progressMax = new AtomicLong();
+		final AtomicLong progressValue = new AtomicLong();
+		calculator.setOnProgress((value, max) ->
+		{
+			progressValue.set(value);
+			progressMax.set(max);
+		});
+		final CalculationResult result = calculator.call();
+		assertTrue(result.isExactSolutionFound());
+		assertFalse(result.isExhaustive());
+		checkSolutions(result, game.getTarget());
+		assertEquals(calculator.getMaxProgressValue(), progressMax.get());
+		assertTrue(progressValue.get() > 0 && progressValue.get() <= progressMax.get());
+	}
+
+	@Test
+	public void testStrategy()
+	{
+		final int n = CalculationStrategy.NUM_OPERANDS_EXHAUSTIVE_MAX;
+		assertEquals(CalculationStrategy.EXHAUSTIVE, CalculationStrategy.AUTO.resolve(n));
+		assertEquals(CalculationStrategy.REACHABLE_SET, CalculationStrategy.AUTO.resolve(n + 1));
+		assertEquals(CalculationStrategy.REACHABLE_SET, CalculationStrategy.REACHABLE_SET.resolve(2));
+		final Calculator calculator = new Calculator(new CalculationParams(100, 25, 4, 3, 7, 50));
+		assertThrows(IllegalArgumentException.class, () -> calculator.setStrategy(null));
+		calculator.setStrategy(CalculationStrategy.REACHABLE_SET);
+		assertEquals((1L << 5) - 1, calculator.getMaxProgressValue());
+		final int[] operands = new int[Calculator.NUM_OPERANDS_MAX + 1];
+		Arrays.fill(operands, 2);
+		assertThrows(IllegalArgumentException.class, () ->
+			new Calculator(new CalculationParams(100, operands)).call());
+	}
+
+	@Test
+	public void testCancel()
+	{
+		final Calculator calculator = new Calculator(new CalculationParams(9973,
+			1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 1, 2));
+		calculator.setOnProgress((value, max) -> calculator.cancel());
+		final CalculationResult result = calculator.call();
+		assertTrue(result.isCancelled());
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ReachableTargetsHistogram class.
+ *
+ * @author Bernd Michaely
+ */
+public class ReachableTargetsHistogramTest
+{
+	@Test
+	public void testHistogram() throws InterruptedException
+	{
+		final CalculationParams calculationParams = new CalculationParams(0, 100, 75, 50, 25, 6, 3);
+		final ReachableValueIndex index = ReachableValueIndex.build(calculationParams, 1);
+		final ReachableTargetsHistogram histogram =
+			ReachableTargetsHistogram.create(calculationParams, 100, 999, 3);
+		assertEquals(100, histogram.getMinTarget());
+		assertEquals(999, histogram.getMaxTarget());
+		assertEquals(900, histogram.getNumTargets());
+		assertTrue(histogram.isCounted());
+		final long[] numSolutions = histogram.getNumSolutions();
+		final int[] distances = histogram.getDistances();
+		int numReachable = 0;
+		for (int target = 100; target <= 999; target++)
+		{
+			final int offset = target - 100;
+			assertEquals(numSolutions[offset], histogram.getNumSolutions(target));
+			assertEquals(index.isReachable(target), histogram.isReachable(target));
+			assertEquals(index.isReachable(target), numSolutions[offset] > 0);
+			final int distance = index.isReachable(target) ? 0 :
+				Math.min(index.getDiffLess(target), index.getDiffGreater(target));
+			assertEquals(distance, distances[offset]);
+			assertEquals(distance, histogram.getDistance(target));
+			if (index.isReachable(target))
+			{
+				numReachable++;
+			}
+		}
+		assertEquals(numReachable, histogram.getNumReachable());
+		assertTrue(numReachable > 0 && numReachable < 900);
+		// the solutions are counted as by the calculator:
+		for (int target : new int[]
+		{
+			101, 317, 500, 812, 952
+		})
+		{
+			final CalculationResult result = new Calculator(new CalculationParams(target,
+				100, 75, 50, 25, 6, 3)).call();
+			assertEquals(result.isExactSolutionFound(), histogram.isReachable(target));
+			assertEquals(result.getSolutions().size(), histogram.getNumSolutions(target));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> histogram.getDistance(99));
+		assertThrows(IndexOutOfBoundsException.class, () -> histogram.isReachable(1000));
+		// an interrupt is not reported as too many reachable values:
+		Thread.currentThread().interrupt();
+		assertThrows(InterruptedException.class,
+			() -> ReachableTargetsHistogram.create(calculationParams, 100, 999, 1));
+		assertFalse(Thread.interrupted());
+	}
+
+	@Test
+	public void testNumSolutions() throws InterruptedException
+	{
+		// games with equal operands, redundant solutions and targets within
+		// other solutions, the counts are compared to the calculator:
+		for (int[] operands : new int[][]
+		{
+			{
+				2, 3
+			},
+			{
+				10, 10, 1, 1
+			},
+			{
+				5, 5, 3
+			},
+			{
+				2, 2, 3, 4, 6
+			}
+		})
+		{
+			final ReachableTargetsHistogram histogram = ReachableTargetsHistogram.create(
+				new CalculationParams(0, operands), 1, 60, 2);
+			for (int target = 1; target <= 60; target++)
+			{
+				final CalculationResult result = new Calculator(new CalculationParams(target, operands)).call();
+				assertEquals(result.getSolutions().size(), histogram.getNumSolutions(target));
+			}
+		}
+		// the solutions of more operands are not counted:
+		final ReachableTargetsHistogram histogram = ReachableTargetsHistogram.create(
+			new CalculationParams(0, 1, 2, 3, 4, 5, 6, 7, 8), 1, 10, 1);
+		assertFalse(histogram.isCounted());
+		assertTrue(histogram.isReachable(10));
+	}
+
+	@Test
+	public void testRange()
+	{
+		final ReachableValueIndex index = ReachableValueIndex.build(new CalculationParams(0, 2, 3), 1);
+		// reachable values 1, 5, 6, the operands are no results:
+		final ReachableTargetsHistogram histogram = ReachableTargetsHistogram.of(index, 1, 10);
+		assertFalse(histogram.isCounted());
+		assertThrows(IllegalStateException.class, () -> histogram.getNumSolutions());
+		assertThrows(IllegalStateException.class, () -> histogram.getNumSolutions(5));
+		assertTrue(histogram.isReachable(1));
+		assertFalse(histogram.isReachable(2));
+		assertArrayEquals(new int[]
+		{
+			0, 1, 2, 1, 0, 0, 1, 2, 3, 4
+		}, histogram.getDistances());
+		assertEquals(1, ReachableTargetsHistogram.of(index, 7, 7).getDistance(7));
+		assertThrows(IllegalArgumentException.class, () -> ReachableTargetsHistogram.of(index, 0, 10));
+		assertThrows(IllegalArgumentException.class, () -> ReachableTargetsHistogram.of(index, 10, 9));
+		assertThrows(IllegalArgumentException.class,
+			() -> ReachableTargetsHistogram.of(index, 1, ReachableTargetsHistogram.NUM_TARGETS_MAX + 1));
+		assertThrows(IllegalArgumentException.class, () -> ReachableTargetsHistogram.of(null, 1, 10));
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ReachableValueIndex class.
+ *
+ * @author Bernd Michaely
+ */
+public class ReachableValueIndexTest
+{
+	private static void assertAgreesWithCalculator(ReachableValueIndex index,
+		CalculationParams calculationParams, int target)
+	{
+		final CalculationParams params = new CalculationParams(target,
+			calculationParams.getOperators(), calculationParams.getConstraints(),
+			getOperands(calculationParams));
+		final CalculationResult result = new Calculator(params).call();
+		final String message = params.toString();
+		assertEquals(result.isExactSolutionFound(), index.isReachable(target), message);
+		if (result.isExactSolutionFound())
+		{
+			assertTrue(index.getNumCalculations(target) >= result.getSolutions().size(), message);
+		}
+		else
+		{
+			assertEquals(0, index.getNumCalculations(target));
+			assertEquals(result.getDiffLess(), index.getDiffLess(target), message);
+			assertEquals(result.getDiffGreater(), index.getDiffGreater(target), message);
+		}
+	}
+
+	private static int[] getOperands(CalculationParams calculationParams)
+	{
+		final int[] operands = new int[calculationParams.getNumOperands()];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = calculationParams.getOperand(i);
+		}
+		return operands;
+	}
+
+	@Test
+	public void testNumCalculations()
+	{
+		final ReachableValueIndex index = ReachableValueIndex.build(new CalculationParams(0, 2, 2), 1);
+		// 2 + 2, 2 * 2, 2 / 2, the single operands are no results:
+		assertEquals(2, index.getNumValues());
+		assertEquals(1, index.getNumCalculations(1));
+		assertEquals(0, index.getNumCalculations(2));
+		assertEquals(2, index.getNumCalculations(4));
+		assertEquals(0, index.getNumCalculations(3));
+		assertEquals(4, index.getNumEntries());
+		assertFalse(index.isReachable(2));
+		assertEquals(2, index.getDiffLess(3));
+		assertEquals(1, index.getDiffGreater(3));
+		assertEquals(Integer.MAX_VALUE, index.getDiffLess(1));
+		assertEquals(Integer.MAX_VALUE, index.getDiffGreater(4));
+	}
+
+	@Test
+	public void testCalculator()
+	{
+		final CalculationParams calculationParams = new CalculationParams(0, 5, 50, 2, 3, 75);
+		final ReachableValueIndex index = ReachableValueIndex.build(calculationParams, 3);
+		for (int target = 1; target <= 400; target++)
+		{
+			assertAgreesWithCalculator(index, calculationParams, target);
+		}
+		// an operand is the nearest value, but no result of an operation:
+		assertAgreesWithCalculator(ReachableValueIndex.build(new CalculationParams(0, 2, 2), 1),
+			new CalculationParams(0, 2, 2), 3);
+		final CalculationParams paramsOperandNearest = new CalculationParams(0, 100, 7);
+		final ReachableValueIndex indexOperandNearest = ReachableValueIndex.build(paramsOperandNearest, 1);
+		for (int target : new int[]
+		{
+			99, 100, 101, 106
+		})
+		{
+			assertAgreesWithCalculator(indexOperandNearest, paramsOperandNearest, target);
+		}
+		assertEquals(8, indexOperandNearest.getDiffLess(101));
+		final Random random = new Random(4711);
+		for (int n = 0; n < 10; n++)
+		{
+			final int[] operands = new int[6];
+			for (int i = 0; i < operands.length; i++)
+			{
+				operands[i] = (i == 0) ? 25 * (1 + random.nextInt(4)) : 1 + random.nextInt(10);
+			}
+			final CalculationParams params = (n % 2 == 0) ? new CalculationParams(0, operands) :
+				new CalculationParams(0, CalculationParams.DEFAULT_OPERATORS,
+					new SolutionConstraints((n % 4 == 1) ? 5 : 4, 1000, n % 4 == 1), operands);
+			final ReachableValueIndex randomIndex = ReachableValueIndex.build(params, 2);
+			assertTrue(randomIndex.isApplicable(params));
+			for (int i = 0; i < 5; i++)
+			{
+				assertAgreesWithCalculator(randomIndex, params, 100 + random.nextInt(900));
+			}
+		}
+	}
+
+	@Test
+	public void testWitness()
+	{
+		final CalculationParams calculationParams = new CalculationParams(0, 8, 10, 2, 9, 10, 4);
+		final ReachableValueIndex index = ReachableValueIndex.build(calculationParams, 2);
+		for (int value = 1; value <= 1000; value++)
+		{
+			final Solution witness = index.getWitness(value);
+			if (index.isReachable(value))
+			{
+				assertEquals(value, witness.getValue());
+			}
+			else
+			{
+				assertNull(witness);
+			}
+		}
+		// the witness has the least number of operations:
+		assertEquals(1, index.getWitness(80).getDepth());
+	}
+
+	@Test
+	public void testApplicableAndBounds()
+	{
+		final CalculationParams calculationParams = new CalculationParams(0, 5, 50, 2, 3, 75, 3, 7);
+		final ReachableValueIndex index = ReachableValueIndex.build(calculationParams, 2);
+		assertNotNull(index);
+		assertTrue(index.isApplicable(new CalculationParams(100, 75, 50, 7, 5, 3, 3, 2)));
+		assertFalse(index.isApplicable(new CalculationParams(100, 75, 50, 7, 5, 3, 2, 2)));
+		assertFalse(index.isApplicable(new CalculationParams(100, 75, 50, 7, 5, 3, 3)));
+		assertFalse(index.isApplicable(new CalculationParams(100, CalculationParams.DEFAULT_OPERATORS,
+			new SolutionConstraints(3, SolutionConstraints.UNLIMITED, false), 75, 50, 7, 5, 3, 3, 2)));
+		assertNull(ReachableValueIndex.build(calculationParams, 2, index.getNumEntries() - 1));
+		assertNotNull(ReachableValueIndex.build(calculationParams, 1, index.getNumEntries()));
+		assertThrows(IllegalArgumentException.class, () -> ReachableValueIndex.build(null, 1));
+		assertThrows(IllegalArgumentException.class,
+			() -> ReachableValueIndex.build(calculationParams, 1, 0));
+	}
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ResultStore class.
+ *
+ * @author Bernd Michaely
+ */
+public class ResultStoreTest
+{
+	private static CalculationResult calculate(CalculationParams calculationParams, ResultStore resultStore)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setResultStore(resultStore);
+		return calculator.call();
+	}
+
+	private static Operand[] createOperands(CalculationParams calculationParams)
+	{
+		final Operand[] operands = new Operand[calculationParams.getNumOperands()];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = new Operand(calculationParams.getOperand(i));
+		}
+		return operands;
+	}
+
+	private static void assertSameResult(CalculationResult expected, CalculationResult actual)
+	{
+		assertEquals(List.copyOf(expected.getSolutions()), List.copyOf(actual.getSolutions()));
+		assertEquals(expected.isExactSolutionFound(), actual.isExactSolutionFound());
+		assertEquals(expected.getLowerApproximation(), actual.getLowerApproximation());
+		assertEquals(expected.getUpperApproximation(), actual.getUpperApproximation());
+		assertEquals(expected.getNumFilteredSolutions(), actual.getNumFilteredSolutions());
+		assertEquals(expected.getCounterRecursionCalls(), actual.getCounterRecursionCalls());
+	}
+
+	private static void delete(Path directory) throws IOException
+	{
+		try (Stream<Path> files = Files.walk(directory))
+		{
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+			{
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Test
+	public void testStore() throws IOException
+	{
+		final Path directory = Files.createTempDirectory("chiffres-");
+		try
+		{
+			final CalculationParams calculationParams = new CalculationParams(527, 8, 10, 2, 9, 10, 4);
+			final CalculationParams calculationParamsApprox = new CalculationParams(961, 1, 2, 3, 4, 5, 6);
+			final CalculationResult expected = calculate(calculationParams, null);
+			final CalculationResult expectedApprox = calculate(calculationParamsApprox, null);
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				assertFalse(calculate(calculationParams, resultStore).isFromResultStore());
+				assertFalse(calculate(calculationParamsApprox, resultStore).isFromResultStore());
+				assertEquals(2, resultStore.getNumEntries());
+				assertEquals(2, resultStore.getNumMisses());
+				final CalculationResult result = calculate(calculationParams, resultStore);
+				assertTrue(result.isFromResultStore());
+				assertSameResult(expected, result);
+				// the same game with the operands in a different order:
+				final CalculationResult resultPermuted =
+					calculate(new CalculationParams(527, 4, 10, 9, 2, 10, 8), resultStore);
+				assertTrue(resultPermuted.isFromResultStore());
+				assertEquals(expected.getSolutions().size(), resultPermuted.getSolutions().size());
+				assertEquals(2, resultStore.getNumHits());
+				// a limited number of solutions is not stored:
+				final Calculator calculator = new Calculator(new CalculationParams(528, 8, 10, 2, 9, 10, 4));
+				calculator.setResultStore(resultStore);
+				calculator.setMaxNumSolutions(1);
+				calculator.call();
+				assertEquals(2, resultStore.getNumEntries());
+			}
+			// the results survive reopening the store:
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				assertEquals(2, resultStore.getNumEntries());
+				final CalculationResult result = calculate(calculationParamsApprox, resultStore);
+				assertTrue(result.isFromResultStore());
+				assertSameResult(expectedApprox, result);
+			}
+			// a missing index is rebuilt:
+			Files.delete(directory.resolve(ResultStore.FILE_NAME_INDEX));
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				assertEquals(2, resultStore.getNumEntries());
+				assertSameResult(expected, calculate(calculationParams, resultStore));
+			}
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testCrash() throws IOException
+	{
+		final Path directory = Files.createTempDirectory("chiffres-");
+		try
+		{
+			final CalculationParams calculationParams = new CalculationParams(527, 8, 10, 2, 9, 10, 4);
+			final Path fileData = directory.resolve(ResultStore.FILE_NAME_DATA);
+			final Path fileIndex = directory.resolve(ResultStore.FILE_NAME_INDEX);
+			final long size;
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				calculate(calculationParams, resultStore);
+				size = resultStore.getSize();
+			}
+			final byte[] index = Files.readAllBytes(fileIndex);
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				calculate(new CalculationParams(528, 8, 10, 2, 9, 10, 4), resultStore);
+			}
+			// crash while appending a record before updating the index:
+			Files.write(fileIndex, index);
+			try (FileChannel channel = FileChannel.open(fileData, WRITE))
+			{
+				channel.truncate(Files.size(fileData) - 3);
+			}
+			try (FileChannel channel = FileChannel.open(fileData, WRITE, APPEND))
+			{
+				channel.write(ByteBuffer.wrap(new byte[]
+				{
+					1, 2, 3, 4, 5
+				}));
+			}
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				assertEquals(size, resultStore.getSize());
+				assertEquals(size, Files.size(fileData));
+				assertEquals(1, resultStore.getNumEntries());
+				assertTrue(calculate(calculationParams, resultStore).isFromResultStore());
+				assertFalse(calculate(new CalculationParams(528, 8, 10, 2, 9, 10, 4), resultStore).
+					isFromResultStore());
+				assertEquals(2, resultStore.getNumEntries());
+			}
+			// the file of an interrupted compaction is removed:
+			final Path fileTemp = directory.resolve(ResultStore.FILE_NAME_DATA + ".tmp");
+			Files.write(fileTemp, new byte[100]);
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				assertFalse(Files.exists(fileTemp));
+				assertEquals(2, resultStore.getNumEntries());
+			}
+			Files.write(fileData, new byte[100]);
+			assertThrows(IOException.class, () -> ResultStore.open(directory));
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testCompaction() throws IOException
+	{
+		final Path directory = Files.createTempDirectory("chiffres-");
+		try
+		{
+			final CalculationParams calculationParams = new CalculationParams(527, 8, 10, 2, 9, 10, 4);
+			final CalculationResult expected = calculate(calculationParams, null);
+			try (ResultStore resultStore = ResultStore.open(directory, ResultStore.MIN_MAX_SIZE))
+			{
+				assertTrue(resultStore.store(calculationParams, false, expected));
+				final long size = resultStore.getSize();
+				// superseded records are dropped:
+				assertTrue(resultStore.store(calculationParams, false, expected));
+				assertTrue(resultStore.getSize() > size);
+				assertEquals(size, resultStore.getLiveSize());
+				resultStore.compact();
+				assertEquals(size, resultStore.getSize());
+				assertEquals(1, resultStore.getNumEntries());
+				assertSameResult(expected, calculate(calculationParams, resultStore));
+				// the oldest records are dropped to keep the maximum size:
+				final CalculationResult large = calculate(new CalculationParams(100, 25, 50, 4, 3, 7, 2), null);
+				final List<CalculationParams> games = new ArrayList<>();
+				for (int target = 100; target < 140; target++)
+				{
+					final CalculationParams game = new CalculationParams(target, 25, 50, 4, 3, 7, 2);
+					games.add(game);
+					assertTrue(resultStore.store(game, false, large));
+					assertTrue(resultStore.getSize() <= resultStore.getMaxSize());
+				}
+				assertTrue(resultStore.getNumEntries() < games.size());
+				assertFalse(calculate(calculationParams, resultStore).isFromResultStore());
+				assertFalse(calculate(games.get(0), resultStore).isFromResultStore());
+				assertTrue(calculate(games.get(games.size() - 1), resultStore).isFromResultStore());
+			}
+			assertThrows(IllegalArgumentException.class,
+				() -> ResultStore.open(directory, ResultStore.MIN_MAX_SIZE - 1));
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testConcurrentCompaction() throws Exception
+	{
+		final Path directory = Files.createTempDirectory("chiffres-");
+		try
+		{
+			final CalculationResult large = calculate(new CalculationParams(100, 25, 50, 4, 3, 7, 2), null);
+			final int numThreads = 4;
+			try (ResultStore resultStore = ResultStore.open(directory, ResultStore.MIN_MAX_SIZE))
+			{
+				final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+				try
+				{
+					final List<Future<Integer>> futures = new ArrayList<>();
+					for (int t = 0; t < numThreads; t++)
+					{
+						final int offset = 1000 * t;
+						futures.add(executor.submit(() ->
+						{
+							int numLoaded = 0;
+							for (int target = 100; target < 160; target++)
+							{
+								final CalculationParams game =
+									new CalculationParams(offset + target, 25, 50, 4, 3, 7, 2);
+								resultStore.store(game, false, large);
+								final CalculationResult result = new CalculationResult(game.getTarget());
+								if (resultStore.load(game, createOperands(game), false, null, result))
+								{
+									assertEquals(large.getSolutions().size(), result.getSolutions().size());
+									numLoaded++;
+								}
+							}
+							return numLoaded;
+						}));
+					}
+					for (Future<Integer> future : futures)
+					{
+						assertTrue(future.get() > 0);
+					}
+				}
+				finally
+				{
+					executor.shutdownNow();
+				}
+				assertTrue(resultStore.getSize() <= resultStore.getMaxSize());
+				assertTrue(resultStore.getNumEntries() > 0);
+			}
+			// the compacted store is consistent after reopening:
+			try (ResultStore resultStore = ResultStore.open(directory, ResultStore.MIN_MAX_SIZE))
+			{
+				assertTrue(resultStore.getNumEntries() > 0);
+				assertEquals(resultStore.getSize(), resultStore.getLiveSize());
+				assertEquals(resultStore.getSize(), Files.size(directory.resolve(ResultStore.FILE_NAME_DATA)));
+				assertFalse(Files.exists(directory.resolve(ResultStore.FILE_NAME_DATA + ".tmp")));
+			}
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testReopenAfterRebuild() throws IOException
+	{
+		final Path directory = Files.createTempDirectory("chiffres-");
+		final Logger logger = Logger.getLogger(ResultStore.class.getName());
+		final AtomicInteger numRebuilds = new AtomicInteger();
+		final Handler handler = new Handler()
+		{
+			@Override
+			public void publish(LogRecord logRecord)
+			{
+				if (logRecord.getMessage().startsWith("Rebuilding"))
+				{
+					numRebuilds.incrementAndGet();
+				}
+			}
+
+			@Override
+			public void flush()
+			{
+			}
+
+			@Override
+			public void close()
+			{
+			}
+		};
+		logger.addHandler(handler);
+		try
+		{
+			final CalculationResult small = calculate(new CalculationParams(7, 2, 3, 4), null);
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				for (int target = 1; target <= 1000; target++)
+				{
+					assertTrue(resultStore.store(new CalculationParams(target, 2, 3, 4), false, small));
+				}
+			}
+			final Path fileData = directory.resolve(ResultStore.FILE_NAME_DATA);
+			final Path fileIndex = directory.resolve(ResultStore.FILE_NAME_INDEX);
+			final long sizeIndex = Files.size(fileIndex);
+			// the index is rebuilt with a smaller capacity for a truncated data file:
+			try (FileChannel channel = FileChannel.open(fileData, WRITE))
+			{
+				channel.truncate(Files.size(fileData) / 4);
+			}
+			final int numEntries;
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				numEntries = resultStore.getNumEntries();
+				assertTrue(numEntries > 0 && numEntries < 1000);
+			}
+			assertEquals(1, numRebuilds.get());
+			assertEquals(sizeIndex, Files.size(fileIndex));
+			// the rebuilt index is reused:
+			for (int i = 0; i < 2; i++)
+			{
+				try (ResultStore resultStore = ResultStore.open(directory))
+				{
+					assertEquals(numEntries, resultStore.getNumEntries());
+					assertTrue(calculate(new CalculationParams(1, 2, 3, 4), resultStore).isFromResultStore());
+				}
+			}
+			assertEquals(1, numRebuilds.get());
+		}
+		finally
+		{
+			logger.removeHandler(handler);
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testLock() throws IOException
+	{
+		final Path directory = Files.createTempDirectory("chiffres-");
+		try
+		{
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				// a store is opened once at a time:
+				assertThrows(IOException.class, () -> ResultStore.open(directory));
+				assertEquals(0, resultStore.getNumEntries());
+			}
+			try (ResultStore resultStore = ResultStore.open(directory))
+			{
+				assertEquals(0, resultStore.getNumEntries());
+			}
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SolutionCodec and CompactSolutionList classes.
+ *
+ * @author Bernd Michaely
+ */
+public class SolutionCodecTest
+{
+	private static void checkRoundTrip(SolutionCodec solutionCodec, Solution solution)
+	{
+		final byte[] data = solutionCodec.encode(solution);
+		assertEquals(SolutionCodec.getEncodedLength(solution.getDepth()), data.length);
+		final Solution decoded = solutionCodec.decode(data);
+		assertEquals(solution, decoded);
+		assertEquals(solution.toString(), decoded.toString());
+		assertEquals(solution.isRedundant(), decoded.isRedundant());
+	}
+
+	@Test
+	public void testEncodeDecode()
+	{
+		final SolutionCodec solutionCodec = new SolutionCodec(
+			new CalculationParams(729, 3, 3, 3, 3, 3, 3));
+		checkRoundTrip(solutionCodec, new Solution("3*3,@0*3,@1*3,@2*3,@3*3"));
+		checkRoundTrip(solutionCodec, new Solution("3*3,3*3,3*3,@0*@1,@3*@2"));
+		checkRoundTrip(solutionCodec, new Solution("3/3,3+3"));
+		// the redundancy of a solution encoded without it is checked on decoding:
+		final byte[] data = solutionCodec.encode(new Solution("3/3,3+3"));
+		data[0] &= 0x3F;
+		assertTrue(solutionCodec.decode(data).isRedundant());
+	}
+
+	@Test
+	public void testEncodeInvalidOperand()
+	{
+		final SolutionCodec solutionCodec = new SolutionCodec(new CalculationParams(7, 1, 2, 4));
+		assertThrows(IllegalArgumentException.class, () ->
+			solutionCodec.encode(new Solution("4+3")));
+		assertThrows(IllegalArgumentException.class, () ->
+			solutionCodec.encode(new Solution("4+4")));
+	}
+
+	@Test
+	public void testDecodeInvalidData()
+	{
+		final SolutionCodec solutionCodec = new SolutionCodec(new CalculationParams(7, 1, 2, 4));
+		// no operations:
+		assertThrows(IllegalArgumentException.class, () ->
+			solutionCodec.decode(new byte[]
+			{
+				0
+			}));
+		// truncated:
+		assertThrows(IllegalArgumentException.class, () ->
+			solutionCodec.decode(new byte[]
+			{
+				1, 0
+			}));
+		// forward reference to operation 0 in operation 0:
+		assertThrows(IllegalArgumentException.class, () ->
+			solutionCodec.decode(new byte[]
+			{
+				1, 0x02, 0x00
+			}));
+		// operand 1 used twice:
+		assertThrows(IllegalArgumentException.class, () ->
+			solutionCodec.decode(new byte[]
+			{
+				1, 0x00, 0x21
+			}));
+	}
+
+	@Test
+	public void testCalculatorSolutions() throws IOException
+	{
+		final CalculationParams calculationParams = new CalculationParams(360, 1, 2, 3, 4, 5, 6, 7);
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setModeParallel(true);
+		final SortedSet<Solution> solutions = calculator.call().getSolutions();
+		final SolutionCodec solutionCodec = new SolutionCodec(calculationParams);
+		final CompactSolutionList compactSolutions = new CompactSolutionList(solutionCodec, solutions);
+		assertEquals(solutions.size(), compactSolutions.size());
+		assertEquals(new ArrayList<>(solutions), compactSolutions);
+		for (int i = 0; i < compactSolutions.size(); i++)
+		{
+			assertArrayEquals(solutionCodec.encode(compactSolutions.get(i)),
+				compactSolutions.getEncoded(i));
+		}
+		System.out.println();
+		System.out.format("testCalculatorSolutions() : %d solutions in %d bytes (%.1f bytes per solution)%n",
+			compactSolutions.size(), compactSolutions.getSizeInBytes(),
+			(double) compactSolutions.getSizeInBytes() / compactSolutions.size());
+		// transfer:
+		final ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(byteArray))
+		{
+			compactSolutions.writeTo(out);
+		}
+		final CompactSolutionList transferred = new CompactSolutionList(
+			new SolutionCodec(calculationParams));
+		try (DataInputStream in = new DataInputStream(
+			new ByteArrayInputStream(byteArray.toByteArray())))
+		{
+			transferred.readFrom(in);
+		}
+		final List<Solution> list = new ArrayList<>(transferred);
+		assertEquals(compactSolutions, list);
+		assertTrue(solutions.containsAll(list));
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SolutionPipeline class.
+ *
+ * @author Bernd Michaely
+ */
+public class SolutionPipelineTest
+{
+	private static SolutionPipelineOptions createOptions(int numCanonicalizerThreads,
+		int numDeduplicatorThreads, int batchSize)
+	{
+		final SolutionPipelineOptions options = new SolutionPipelineOptions();
+		options.setNumCanonicalizerThreads(numCanonicalizerThreads);
+		options.setNumDeduplicatorThreads(numDeduplicatorThreads);
+		options.setBatchSize(batchSize);
+		options.setQueueCapacity(2);
+		return options;
+	}
+
+	@Test
+	public void testCalculation()
+	{
+		for (CalculationParams calculationParams : new CalculationParams[]
+		{
+			new CalculationParams(960, 1, 2, 3, 4, 5, 6),
+			new CalculationParams(317, 5, 50, 2, 3, 75, 3),
+			new CalculationParams(98765, 1, 2, 3, 4, 5)
+		})
+		{
+			final CalculationResult expected = new Calculator(calculationParams).call();
+			for (SolutionPipelineOptions options : List.of(
+				createOptions(1, 1, 1), createOptions(3, 1, 16), createOptions(2, 3, 256)))
+			{
+				for (boolean iterativeDeepening : new boolean[]
+				{
+					false, true
+				})
+				{
+					final Calculator calculator = new Calculator(calculationParams);
+					calculator.setModeParallel(true);
+					calculator.setIterativeDeepening(iterativeDeepening);
+					calculator.setSolutionPipeline(options);
+					final AtomicLong numIntermediateResults = new AtomicLong();
+					calculator.setOnIntermediateResult(candidate -> numIntermediateResults.incrementAndGet());
+					final CalculationMetrics metrics = new CalculationMetrics();
+					calculator.setMetrics(metrics);
+					final CalculationResult result = calculator.call();
+					assertEquals(expected.getSolutions(), result.getSolutions(), calculationParams.toString());
+					assertEquals(expected.getNumFilteredSolutions(), result.getNumFilteredSolutions());
+					assertEquals(expected.getLowerApproximation(), result.getLowerApproximation());
+					assertEquals(expected.getUpperApproximation(), result.getUpperApproximation());
+					final List<PipelineStageMetrics> stages = metrics.getPipelineStages();
+					assertEquals(2, stages.size());
+					assertEquals(options.getNumCanonicalizerThreads(), stages.get(0).getNumThreads());
+					assertEquals(options.getNumDeduplicatorThreads(), stages.get(1).getNumThreads());
+					assertEquals(metrics.getExactHits(), stages.get(0).getNumItems());
+					assertEquals(numIntermediateResults.get(), stages.get(1).getNumItems());
+					assertEquals(metrics.getExactHits() - metrics.getRedundancyRejects(),
+						numIntermediateResults.get());
+					assertTrue(stages.get(0).getMaxQueueSize() <= options.getQueueCapacity());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTopSolutions()
+	{
+		final CalculationParams calculationParams = new CalculationParams(317, 5, 50, 2, 3, 75, 3);
+		final Calculator calculatorExpected = new Calculator(calculationParams);
+		calculatorExpected.setMaxNumSolutions(20);
+		final CalculationResult expected = calculatorExpected.call();
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setModeParallel(true);
+		calculator.setMaxNumSolutions(20);
+		calculator.setSolutionPipeline(createOptions(2, 4, 8));
+		final CalculationResult result = calculator.call();
+		assertEquals(expected.getRankedSolutions(), result.getRankedSolutions());
+		assertTrue(result.isTruncated());
+	}
+
+	@Test
+	public void testShard()
+	{
+		// solutions of the same equivalence class belong to the same shard:
+		final Solution solution1 = new Solution("3+2,5*4,20-1");
+		final Solution solution2 = new Solution("5*4,3+2,20-1");
+		assertEquals(new Solution.EquivalenceClass(solution1), new Solution.EquivalenceClass(solution2));
+		for (int numShards = 1; numShards < 8; numShards++)
+		{
+			assertEquals(SolutionPipeline.getShard(solution1, numShards),
+				SolutionPipeline.getShard(solution2, numShards));
+		}
+		assertThrows(IllegalArgumentException.class, () -> createOptions(0, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> createOptions(1, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> createOptions(1, 1, 0));
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import de.bernd_michaely.chiffres.common.util.ConcatCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the SolutionRuns class.
+ *
+ * @author Bernd Michaely
+ */
+public class SolutionRunsTest
+{
+	@Test
+	public void testMerge()
+	{
+		final CalculationParams calculationParams = new CalculationParams(317, 5, 50, 2, 3, 75, 3);
+		final Calculator calculator = new Calculator(calculationParams);
+		final List<SolutionCandidate> candidates = Collections.synchronizedList(new ArrayList<>());
+		calculator.setOnIntermediateResult(candidates::add);
+		calculator.call();
+		final TreeSet<Solution> expected =
+			new TreeSet<>(Calculator.collectSolutions(new ConcatCollection<>(candidates)));
+		assertFalse(expected.isEmpty());
+		// the result must not depend on the partitioning and order of the runs:
+		final Random random = new Random(4711);
+		for (int numRuns : new int[]
+		{
+			1, 2, 7, 40
+		})
+		{
+			Collections.shuffle(candidates, random);
+			final List<SolutionCandidate[]> runs = new ArrayList<>();
+			int numCandidates = 0;
+			for (int i = 0; i < numRuns; i++)
+			{
+				final SolutionCandidate[] run = SolutionRuns.sort(candidates.subList(
+					i * candidates.size() / numRuns, (i + 1) * candidates.size() / numRuns));
+				for (int k = 1; k < run.length; k++)
+				{
+					assertTrue(run[k - 1].equivalenceClass.compareTo(run[k].equivalenceClass) < 0);
+				}
+				numCandidates += run.length;
+				runs.add(run);
+			}
+			assertEquals(numCandidates, SolutionRuns.size(runs));
+			assertEquals(List.copyOf(expected), List.copyOf(SolutionRuns.merge(runs, null)));
+			assertTrue(runs.isEmpty());
+		}
+		assertTrue(SolutionRuns.merge(new ArrayList<>(), new OperationInterner()).isEmpty());
+		assertEquals(List.copyOf(expected),
+			List.copyOf(new Calculator(calculationParams).call().getSolutions()));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ThreadCountCalibration class and the limit of the
+ * number of threads of the calculator.
+ *
+ * @author Bernd Michaely
+ */
+public class ThreadCountCalibrationTest
+{
+	@Test
+	public void testNumThreads()
+	{
+		final SortedMap<Integer, long[]> durations = new TreeMap<>();
+		durations.put(5, new long[]
+		{
+			100, 60, 58, 70
+		});
+		durations.put(6, new long[]
+		{
+			1000, 520, 300, 290
+		});
+		final ThreadCountCalibration calibration = new ThreadCountCalibration(8, new int[]
+		{
+			1, 2, 4, 8
+		}, durations);
+		// 4 threads are not faster enough than 2 threads:
+		assertEquals(2, calibration.getNumThreads(5));
+		assertEquals(4, calibration.getNumThreads(6));
+		// nearest calibrated number of operands:
+		assertEquals(2, calibration.getNumThreads(3));
+		// no extrapolation beyond the largest calibrated number of operands:
+		assertEquals(8, calibration.getNumThreads(7));
+		assertEquals(8, calibration.getNumThreads(12));
+		assertArrayEquals(new double[]
+		{
+			1.0, 100.0 / 60, 100.0 / 58, 100.0 / 70
+		}, calibration.getSpeedups(4));
+		final ThreadCountCalibration decoded = ThreadCountCalibration.decode(calibration.encode());
+		assertEquals(calibration.encode(), decoded.encode());
+		assertEquals(8, decoded.getNumProcessors());
+		assertArrayEquals(new int[]
+		{
+			1, 2, 4, 8
+		}, decoded.getThreadCounts());
+		for (String invalid : List.of("", "1;8", "2;8;1,2;5:10,20", "1;8;1,2;5:10", "1;8;2,4;5:10,20",
+			"1;8;1,2;5:10,x", "1;8;1,2;510,20", "1;8;1,2;5:10,0"))
+		{
+			assertThrows(IllegalArgumentException.class, () -> ThreadCountCalibration.decode(invalid), invalid);
+		}
+	}
+
+	@Test
+	public void testCalibrate()
+	{
+		final ThreadCountCalibration calibration = ThreadCountCalibration.calibrate(List.of(
+			new CalculationParams(100, 25, 4, 3, 7), new CalculationParams(961, 1, 2, 3, 4, 5)), 3);
+		assertTrue(calibration.isUpToDate());
+		assertArrayEquals(new int[]
+		{
+			1, 2, 3
+		}, calibration.getThreadCounts());
+		assertEquals(1.0, calibration.getSpeedups(4)[0]);
+		assertEquals(3, calibration.getSpeedups(5).length);
+		for (int numOperands = 1; numOperands <= 7; numOperands++)
+		{
+			final int numThreads = calibration.getNumThreads(numOperands);
+			assertTrue(numThreads >= 1 && numThreads <= 3);
+		}
+		assertThrows(IllegalArgumentException.class, () -> ThreadCountCalibration.calibrate(List.of(), 2));
+		assertThrows(IllegalArgumentException.class,
+			() -> ThreadCountCalibration.calibrate(ThreadCountCalibration.DEFAULT_GAMES, 0));
+	}
+
+	@Test
+	public void testNumThreadsLimit()
+	{
+		final Calculator calculator = new Calculator(new CalculationParams(100, 25, 4, 3, 7));
+		final int defaultLimit = Calculator.getDefaultNumThreadsLimit();
+		assertEquals(defaultLimit, calculator.getNumThreadsLimit());
+		calculator.setNumThreads(defaultLimit + 5);
+		assertEquals(defaultLimit, calculator.getNumThreads());
+		calculator.setNumThreadsLimit(defaultLimit + 3);
+		assertEquals(defaultLimit + 3, calculator.getNumThreads());
+		calculator.setNumThreadsLimit(2);
+		assertEquals(2, calculator.getNumThreads());
+		calculator.setNumThreadsLimit(0);
+		assertEquals(defaultLimit, calculator.getNumThreadsLimit());
+		assertThrows(IllegalArgumentException.class, () -> calculator.setNumThreadsLimit(-1));
+	}
+}
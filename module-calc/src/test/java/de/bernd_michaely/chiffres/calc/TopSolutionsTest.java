@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the TopSolutions class and the limited number of
+ * solutions of the calculator.
+ *
+ * @author Bernd Michaely
+ */
+public class TopSolutionsTest
+{
+	private static List<Solution> rank(Collection<Solution> solutions, SolutionScorer scorer)
+	{
+		final List<Solution> ranked = new ArrayList<>(solutions);
+		ranked.sort(Comparator.comparingLong(scorer::score).thenComparing(Comparator.naturalOrder()));
+		return ranked;
+	}
+
+	@Test
+	public void testTopSolutions()
+	{
+		final Calculator calculator = new Calculator(new CalculationParams(100, 2, 3, 5, 7, 25));
+		final List<SolutionCandidate> candidates = new ArrayList<>();
+		calculator.setOnIntermediateResult(candidates::add);
+		final CalculationResult result = calculator.call();
+		assertTrue(result.getSolutions().size() > 10);
+		final List<Solution> expected = rank(result.getSolutions(), SolutionScorer.DEPTH).subList(0, 10);
+		// the result must not depend on the order of the candidates:
+		final Random random = new Random(4711);
+		for (int n = 0; n < 5; n++)
+		{
+			Collections.shuffle(candidates, random);
+			final TopSolutions topSolutions = new TopSolutions(10, SolutionScorer.DEPTH);
+			candidates.forEach(topSolutions::add);
+			assertTrue(topSolutions.isTruncated());
+			final List<Solution> actual = new ArrayList<>();
+			topSolutions.getCandidates().forEach(candidate -> actual.add(candidate.solution));
+			assertEquals(expected, actual);
+		}
+		assertThrows(IllegalArgumentException.class, () -> new TopSolutions(0, SolutionScorer.DEPTH));
+		assertThrows(IllegalArgumentException.class, () -> new TopSolutions(1, null));
+	}
+
+	@Test
+	public void testCalculation()
+	{
+		final CalculationParams calculationParams = new CalculationParams(317, 5, 50, 2, 3, 75, 3);
+		final CalculationResult expected = new Calculator(calculationParams).call();
+		for (SolutionScorer scorer : List.of(SolutionScorer.DEPTH, SolutionScorer.MAX_INTERMEDIATE_VALUE))
+		{
+			for (int maxNumSolutions : new int[]
+			{
+				1, 7, 50, 100_000
+			})
+			{
+				final Calculator calculator = new Calculator(calculationParams);
+				calculator.setNumThreads(3);
+				calculator.setMaxNumSolutions(maxNumSolutions);
+				calculator.setSolutionScorer(scorer);
+				final CalculationResult result = calculator.call();
+				final List<Solution> ranked = rank(expected.getSolutions(), scorer);
+				final boolean truncated = ranked.size() > maxNumSolutions;
+				assertEquals(truncated, result.isTruncated());
+				assertEquals(truncated ? ranked.subList(0, maxNumSolutions) : ranked,
+					result.getRankedSolutions());
+				assertEquals(result.getRankedSolutions().size(), result.getSolutions().size());
+				assertEquals(expected.getCounterRecursionCalls(), result.getCounterRecursionCalls());
+			}
+		}
+		final Calculator calculator = new Calculator(calculationParams);
+		assertEquals(0, calculator.getMaxNumSolutions());
+		assertSame(SolutionScorer.DEPTH, calculator.getSolutionScorer());
+		assertThrows(IllegalArgumentException.class, () -> calculator.setMaxNumSolutions(-1));
+		assertThrows(IllegalArgumentException.class, () -> calculator.setSolutionScorer(null));
+		assertEquals(new ArrayList<>(expected.getSolutions()), expected.getRankedSolutions());
+		assertFalse(expected.isTruncated());
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the TranspositionTable class.
+ *
+ * @author Bernd Michaely
+ */
+public class TranspositionTableTest
+{
+	private static Operand[] createOperands(int... values)
+	{
+		final Operand[] operands = new Operand[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			operands[i] = new Operand(values[i]);
+		}
+		return operands;
+	}
+
+	@Test
+	public void testTable()
+	{
+		final TranspositionTable table = new TranspositionTable(1000);
+		assertEquals(512, table.getCapacity());
+		final int[] key = TranspositionTable.createKey(createOperands(7, 2, 9, 2));
+		assertArrayEquals(new int[]
+		{
+			2, 2, 7, 9
+		}, key);
+		assertNull(table.get(key));
+		table.put(key, false, 3, 5);
+		final TranspositionTable.Entry entry =
+			table.get(TranspositionTable.createKey(createOperands(9, 2, 2, 7)));
+		assertNotNull(entry);
+		assertFalse(entry.isTargetReachable());
+		assertEquals(3, entry.getDiffLess());
+		assertEquals(5, entry.getDiffGreater());
+		assertEquals(1, table.getCounterHits());
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(1));
+	}
+
+	@Test
+	public void testEviction()
+	{
+		// a single bucket:
+		final TranspositionTable table = new TranspositionTable(2);
+		final int[] key1 = TranspositionTable.createKey(createOperands(1, 2, 3, 4, 5));
+		final int[] key2 = TranspositionTable.createKey(createOperands(1, 2, 3, 4));
+		final int[] key3 = TranspositionTable.createKey(createOperands(5, 6, 7, 8));
+		table.put(key1, true, 0, 0);
+		table.put(key2, false, 1, 1);
+		table.put(key3, false, 2, 2);
+		// the larger subtree is kept, the second entry is replaced:
+		assertNotNull(table.get(key1));
+		assertNull(table.get(key2));
+		assertNotNull(table.get(key3));
+		final int[] key4 = TranspositionTable.createKey(createOperands(1, 2, 3, 4, 6));
+		table.put(key4, false, 3, 3);
+		assertNull(table.get(key1));
+		assertNotNull(table.get(key4));
+	}
+
+	@Test
+	public void testCalculation()
+	{
+		final Random random = new Random(2024);
+		for (int n = 0; n < 30; n++)
+		{
+			final int[] operands = new int[5 + n % 2];
+			for (int i = 0; i < operands.length; i++)
+			{
+				operands[i] = (i == 0) ? 25 * (1 + random.nextInt(4)) : 1 + random.nextInt(10);
+			}
+			final CalculationParams calculationParams = new CalculationParams(
+				(n % 3 == 0) ? 100 + random.nextInt(900) : 5000 + random.nextInt(50_000), operands);
+			final CalculationResult expected = new Calculator(calculationParams).call();
+			for (int capacity : new int[]
+			{
+				16, Calculator.DEFAULT_TRANSPOSITION_TABLE_CAPACITY
+			})
+			{
+				final Calculator calculator = new Calculator(calculationParams);
+				calculator.setTranspositionTableCapacity(capacity);
+				calculator.setModeParallel(n % 2 == 0);
+				final CalculationResult result = calculator.call();
+				assertEquals(expected.getSolutions(), result.getSolutions(), calculationParams.toString());
+				assertEquals(expected.isExactSolutionFound(), result.isExactSolutionFound());
+				assertEquals(expected.getLowerApproximation(), result.getLowerApproximation());
+				assertEquals(expected.getUpperApproximation(), result.getUpperApproximation());
+				assertTrue(result.getCounterRecursionCalls() <= expected.getCounterRecursionCalls());
+			}
+		}
+		assertThrows(IllegalArgumentException.class, () ->
+			new Calculator(new CalculationParams(10, 1, 2)).setTranspositionTableCapacity(-1));
+	}
+}
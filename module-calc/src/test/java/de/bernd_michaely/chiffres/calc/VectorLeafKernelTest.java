@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.calc;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * JUnit test class for the VectorLeafKernel class. The tests are skipped, if
+ * the Vector API is not available.
+ *
+ * @author Bernd Michaely
+ */
+public class VectorLeafKernelTest
+{
+	private static final OperatorKernel KERNEL =
+		OperatorKernel.create(CalculationParams.DEFAULT_OPERATORS);
+
+	/**
+	 * Evaluates the leaves of a node with the scalar kernel.
+	 *
+	 * @return the number of leaves, the least diffs below and above the target
+	 *         or null, if a leaf hits the target
+	 */
+	private static int[] evaluateScalar(int target, int... values)
+	{
+		final int[] results = new int[KERNEL.size()];
+		final int[] leafResults = new int[KERNEL.size()];
+		int numLeaves = 0;
+		int diffLess = Integer.MAX_VALUE;
+		int diffGreater = Integer.MAX_VALUE;
+		for (int i = 0; i < 2; i++)
+		{
+			for (int k = i + 1; k < 3; k++)
+			{
+				KERNEL.calculate(Math.max(values[i], values[k]), Math.min(values[i], values[k]), results);
+				final int remaining = values[3 - i - k];
+				for (int result : results)
+				{
+					if (result > 0 && result != target)
+					{
+						numLeaves++;
+						KERNEL.calculate(Math.max(result, remaining), Math.min(result, remaining), leafResults);
+						for (int leafResult : leafResults)
+						{
+							if (leafResult == target)
+							{
+								return null;
+							}
+							else if (leafResult > 0 && leafResult < target)
+							{
+								diffLess = Math.min(diffLess, target - leafResult);
+							}
+							else if (leafResult > target)
+							{
+								diffGreater = Math.min(diffGreater, leafResult - target);
+							}
+						}
+					}
+				}
+			}
+		}
+		return new int[]
+		{
+			numLeaves, diffLess, diffGreater
+		};
+	}
+
+	@Test
+	public void testEvaluate()
+	{
+		assumeTrue(Calculator.isVectorKernelAvailable());
+		final Random random = new Random(4711);
+		int numEvaluated = 0;
+		for (int n = 0; n < 20_000; n++)
+		{
+			final int bound = (n % 3 == 0) ? 10 : ((n % 3 == 1) ? 1000 : 100_000);
+			final int target = 1 + random.nextInt(1000);
+			final int[] values =
+			{
+				1 + random.nextInt(bound), 1 + random.nextInt(bound), 1 + random.nextInt(bound)
+			};
+			final VectorLeafKernel vectorLeafKernel = new VectorLeafKernel(target);
+			final boolean evaluated = vectorLeafKernel.evaluate(new Operand[]
+			{
+				new Operand(values[0]), new Operand(values[1]), new Operand(values[2])
+			}, KERNEL);
+			final int[] expected = evaluateScalar(target, values);
+			if (expected == null)
+			{
+				assertFalse(evaluated);
+			}
+			else if (evaluated)
+			{
+				numEvaluated++;
+				assertArrayEquals(expected, new int[]
+				{
+					vectorLeafKernel.getNumLeaves(), vectorLeafKernel.getDiffLess(),
+					vectorLeafKernel.getDiffGreater()
+				});
+			}
+		}
+		assertTrue(numEvaluated > 10_000);
+	}
+
+	@Test
+	public void testCalculation()
+	{
+		assumeTrue(Calculator.isVectorKernelAvailable());
+		final Random random = new Random(815);
+		for (int n = 0; n < 40; n++)
+		{
+			final int[] operands = new int[4 + n % 2];
+			for (int i = 0; i < operands.length; i++)
+			{
+				operands[i] = (i == 0) ? 25 * (1 + random.nextInt(4)) : 1 + random.nextInt(10);
+			}
+			final CalculationParams calculationParams = new CalculationParams(
+				(n % 4 == 0) ? 2000 + random.nextInt(10_000) : 100 + random.nextInt(900), operands);
+			final Calculator calculatorScalar = new Calculator(calculationParams);
+			calculatorScalar.setVectorKernelEnabled(false);
+			final CalculationResult expected = calculatorScalar.call();
+			final Calculator calculator = new Calculator(calculationParams);
+			assertTrue(calculator.isVectorKernelEnabled());
+			final CalculationResult result = calculator.call();
+			assertEquals(expected.getSolutions(), result.getSolutions(), calculationParams.toString());
+			assertEquals(expected.getCounterRecursionCalls(), result.getCounterRecursionCalls());
+			assertEquals(expected.isExactSolutionFound(), result.isExactSolutionFound());
+			assertEquals(expected.getLowerApproximation(), result.getLowerApproximation());
+			assertEquals(expected.getUpperApproximation(), result.getUpperApproximation());
+		}
+	}
+}
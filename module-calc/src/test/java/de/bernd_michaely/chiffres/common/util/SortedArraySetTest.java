@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.common.util;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SortedArraySet class.
+ *
+ * @author Bernd Michaely
+ */
+public class SortedArraySetTest
+{
+	@Test
+	public void testSortedSet()
+	{
+		final Integer[] elements =
+		{
+			2, 3, 5, 7, 11, 13
+		};
+		final SortedSet<Integer> set = new SortedArraySet<>(elements, null);
+		final SortedSet<Integer> expected = new TreeSet<>(List.of(elements));
+		assertEquals(expected, set);
+		assertEquals(set, expected);
+		assertEquals(expected.hashCode(), set.hashCode());
+		assertEquals(List.copyOf(expected), List.copyOf(set));
+		assertEquals(6, set.size());
+		assertTrue(set.contains(7));
+		assertFalse(set.contains(8));
+		assertFalse(set.contains("7"));
+		assertEquals(Integer.valueOf(2), set.first());
+		assertEquals(Integer.valueOf(13), set.last());
+		assertNull(set.comparator());
+		for (int from = 0; from < 15; from++)
+		{
+			assertEquals(expected.tailSet(from), set.tailSet(from));
+			assertEquals(expected.headSet(from), set.headSet(from));
+			for (int to = from; to < 15; to++)
+			{
+				assertEquals(expected.subSet(from, to), set.subSet(from, to));
+			}
+		}
+		final SortedSet<Integer> subSet = set.subSet(3, 12);
+		assertEquals(List.of(3, 5, 7, 11), List.copyOf(subSet));
+		assertFalse(subSet.contains(2));
+		assertFalse(subSet.contains(13));
+		assertEquals(List.of(5, 7), List.copyOf(subSet.subSet(4, 10)));
+		// keys outside the range of a view are clamped:
+		assertEquals(subSet, subSet.subSet(0, 100));
+		assertEquals(List.of(3, 5, 7, 11), set.stream().filter(subSet::contains).toList());
+		assertThrows(IllegalArgumentException.class, () -> set.subSet(5, 3));
+		assertThrows(UnsupportedOperationException.class, () -> set.add(17));
+		assertThrows(UnsupportedOperationException.class, () -> set.remove(2));
+		assertThrows(UnsupportedOperationException.class, () -> set.clear());
+		assertThrows(UnsupportedOperationException.class, () -> set.iterator().remove());
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final SortedSet<Integer> set = new SortedArraySet<>();
+		assertTrue(set.isEmpty());
+		assertFalse(set.iterator().hasNext());
+		assertThrows(NoSuchElementException.class, () -> set.first());
+		assertThrows(NoSuchElementException.class, () -> set.last());
+		assertThrows(NoSuchElementException.class, () -> set.iterator().next());
+		assertTrue(new SortedArraySet<>(new Integer[]
+		{
+			1, 2
+		}, null).subSet(1, 1).isEmpty());
+	}
+
+	@Test
+	public void testComparator()
+	{
+		final Comparator<String> comparator = Comparator.reverseOrder();
+		final SortedSet<String> set = new SortedArraySet<>(new String[]
+		{
+			"c", "b", "a"
+		}, comparator);
+		assertSame(comparator, set.comparator());
+		assertEquals("c", set.first());
+		assertTrue(set.contains("b"));
+		assertEquals(List.of("b", "a"), List.copyOf(set.tailSet("b")));
+		assertThrows(IllegalArgumentException.class, () -> new SortedArraySet<>(new String[]
+		{
+			"a", "b"
+		}, comparator));
+		assertThrows(IllegalArgumentException.class, () -> new SortedArraySet<>(new String[]
+		{
+			"b", "b"
+		}, comparator));
+		assertThrows(IllegalArgumentException.class, () -> new SortedArraySet<>(new String[]
+		{
+			"b", null
+		}, comparator));
+		assertThrows(IllegalArgumentException.class, () -> new SortedArraySet<String>(null, null));
+	}
+}
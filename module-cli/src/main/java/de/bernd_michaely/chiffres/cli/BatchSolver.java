@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Solves a batch of games concurrently on a fixed size thread pool. The
+ * results are passed to a consumer in the order of submission by a separate
+ * writer thread. The number of games submitted but not yet consumed is
+ * bounded, so {@link #submit(int, CalculationParams)} blocks, if the input is
+ * read faster than the games are solved. If the consumer fails, the pending
+ * games are cancelled and {@link #submit(int, CalculationParams)} and
+ * {@link #finish()} throw an IllegalStateException.
+ *
+ * @author Bernd Michaely
+ */
+class BatchSolver
+{
+	private static final Future<GameResult> END_OF_BATCH = CompletableFuture.completedFuture(null);
+	private final ExecutorService executor;
+	private final int numThreadsPerCalculation;
+	private final int maxNumSolutions;
+	private final BlockingQueue<Future<GameResult>> pending;
+	private final Thread writerThread;
+	private final long timeStart;
+	private volatile int numGames;
+	private volatile int numFailed;
+	private volatile Throwable failure;
+	private long timeEnd;
+
+	/**
+	 * Creates a batch solver and starts its threads.
+	 *
+	 * @param numThreads               the number of games solved concurrently
+	 * @param numThreadsPerCalculation the number of threads used by each
+	 *                                 calculation
+	 * @param maxNumSolutions          the maximum number of solutions kept per
+	 *                                 game or zero for unlimited, see
+	 *                                 {@link Calculator#setMaxNumSolutions(int)}
+	 * @param onResult                 the consumer of the results
+	 */
+	BatchSolver(int numThreads, int numThreadsPerCalculation, int maxNumSolutions,
+		Consumer<GameResult> onResult)
+	{
+		if (numThreads < 1)
+		{
+			throw new IllegalArgumentException("Number of threads must be at least one");
+		}
+		this.executor = Executors.newFixedThreadPool(numThreads);
+		this.numThreadsPerCalculation = numThreadsPerCalculation;
+		this.maxNumSolutions = maxNumSolutions;
+		this.pending = new ArrayBlockingQueue<>(2 * numThreads);
+		this.writerThread = new Thread(() -> consume(onResult), "BatchSolver-Writer");
+		this.timeStart = System.nanoTime();
+		this.writerThread.start();
+	}
+
+	private void consume(Consumer<GameResult> onResult)
+	{
+		try
+		{
+			try
+			{
+				GameResult gameResult;
+				while ((gameResult = this.pending.take().get()) != null)
+				{
+					onResult.accept(gameResult);
+					this.numGames++;
+					if (gameResult.isFailed())
+					{
+						this.numFailed++;
+					}
+				}
+				return;
+			}
+			catch (ExecutionException ex)
+			{
+				this.failure = ex.getCause();
+			}
+			catch (RuntimeException ex)
+			{
+				this.failure = ex;
+			}
+			// keep taking the pending games, so that submit does not block forever:
+			Future<GameResult> future;
+			while ((future = this.pending.take()) != END_OF_BATCH)
+			{
+				future.cancel(false);
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void checkFailure()
+	{
+		final Throwable throwable = this.failure;
+		if (throwable != null)
+		{
+			throw new IllegalStateException("Writing the results failed : " + throwable, throwable);
+		}
+	}
+
+	private GameResult solve(int index, CalculationParams calculationParams)
+	{
+		final long time = System.nanoTime();
+		try
+		{
+			final Calculator calculator = new Calculator(calculationParams);
+			calculator.setNumThreads(this.numThreadsPerCalculation);
+			calculator.setMaxNumSolutions(this.maxNumSolutions);
+			final CalculationResult result = calculator.call();
+			return new GameResult(index, calculationParams, result, System.nanoTime() - time,
+				result.isOutOfMemory() ? "Out of memory" : null);
+		}
+		catch (RuntimeException | OutOfMemoryError ex)
+		{
+			return new GameResult(index, calculationParams, null, System.nanoTime() - time,
+				ex.toString());
+		}
+	}
+
+	/**
+	 * Submits a game. Blocks, if too many results are pending.
+	 *
+	 * @param index             the index of the game in the input
+	 * @param calculationParams the game
+	 * @throws InterruptedException  if interrupted while waiting
+	 * @throws IllegalStateException if the consumer of the results has failed
+	 */
+	void submit(int index, CalculationParams calculationParams) throws InterruptedException
+	{
+		checkFailure();
+		this.pending.put(this.executor.submit(() -> solve(index, calculationParams)));
+	}
+
+	/**
+	 * Waits until all submitted games are solved and their results consumed,
+	 * then shuts down the threads.
+	 *
+	 * @throws InterruptedException  if interrupted while waiting
+	 * @throws IllegalStateException if the consumer of the results has failed
+	 */
+	void finish() throws InterruptedException
+	{
+		try
+		{
+			this.pending.put(END_OF_BATCH);
+			this.writerThread.join();
+		}
+		finally
+		{
+			this.executor.shutdownNow();
+			this.timeEnd = System.nanoTime();
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Returns the number of solved games.
+	 *
+	 * @return the number of solved games
+	 */
+	int getNumGames()
+	{
+		return this.numGames;
+	}
+
+	/**
+	 * Returns the number of games, which could not be solved completely.
+	 *
+	 * @return the number of failed games
+	 */
+	int getNumFailed()
+	{
+		return this.numFailed;
+	}
+
+	/**
+	 * Returns the time from creation until {@link #finish()} has completed.
+	 *
+	 * @return the elapsed time in nanoseconds
+	 */
+	long getElapsedTime()
+	{
+		return this.timeEnd - this.timeStart;
+	}
+
+	/**
+	 * Returns the throughput of the finished batch.
+	 *
+	 * @return the number of games solved per second
+	 */
+	double getThroughput()
+	{
+		final long time = getElapsedTime();
+		return (time > 0) ? getNumGames() * 1e9 / time : 0;
+	}
+}
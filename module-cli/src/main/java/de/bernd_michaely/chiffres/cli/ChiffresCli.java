@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.ReachableTargetsHistogram;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Headless command line batch solver. Reads games from files or standard
+ * input, solves them concurrently and writes the results as CSV or JSON
+ * Lines. At the end the throughput is reported to standard error.
+ * Alternatively writes the histograms of the reachable targets of sets of
+ * operands as CSV.
+ *
+ * @author Bernd Michaely
+ */
+public class ChiffresCli
+{
+	/**
+	 * Exit code for success.
+	 */
+	public static final int EXIT_OK = 0;
+	/**
+	 * Exit code, if some input lines were invalid or some games failed.
+	 */
+	public static final int EXIT_PARTIAL = 1;
+	/**
+	 * Exit code for invalid arguments or I/O errors.
+	 */
+	public static final int EXIT_ERROR = 2;
+	private static final String STDIN = "-";
+
+	/**
+	 * Handler of the lines describing a game.
+	 */
+	@FunctionalInterface
+	private interface LineHandler
+	{
+		/**
+		 * Handles a line.
+		 *
+		 * @param index the index of the line among the valid lines
+		 * @param line  the line
+		 * @throws IllegalArgumentException if the line is invalid
+		 * @throws InterruptedException     if interrupted
+		 */
+		void handle(int index, String line) throws InterruptedException;
+	}
+
+	private final InputStream in;
+	private final PrintStream out;
+	private final PrintStream err;
+	private int numInvalidLines;
+
+	ChiffresCli(InputStream in, PrintStream out, PrintStream err)
+	{
+		this.in = in;
+		this.out = out;
+		this.err = err;
+	}
+
+	/**
+	 * Main entry point.
+	 *
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args)
+	{
+		System.exit(new ChiffresCli(System.in, System.out, System.err).run(args));
+	}
+
+	/**
+	 * Runs the batch solver with the given command line arguments.
+	 *
+	 * @param args the command line arguments
+	 * @return the exit code
+	 */
+	int run(String... args)
+	{
+		final CliOptions options;
+		try
+		{
+			options = CliOptions.parse(args);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			this.err.println(ex.getMessage());
+			this.err.print(CliOptions.USAGE);
+			return EXIT_ERROR;
+		}
+		if (options.help)
+		{
+			this.out.print(CliOptions.USAGE);
+			return EXIT_OK;
+		}
+		final List<String> inputs = options.inputs.isEmpty() ? List.of(STDIN) : options.inputs;
+		try
+		{
+			if (options.output != null)
+			{
+				try (PrintWriter writer = new PrintWriter(
+					Files.newBufferedWriter(Path.of(options.output), StandardCharsets.UTF_8)))
+				{
+					return run(options, inputs, writer);
+				}
+			}
+			else
+			{
+				// the standard output is flushed, but must not be closed:
+				final PrintWriter writer = new PrintWriter(
+					new OutputStreamWriter(this.out, StandardCharsets.UTF_8));
+				try
+				{
+					return run(options, inputs, writer);
+				}
+				finally
+				{
+					writer.flush();
+				}
+			}
+		}
+		catch (IOException ex)
+		{
+			this.err.println("I/O error : " + ex.getMessage());
+			return EXIT_ERROR;
+		}
+		catch (IllegalStateException ex)
+		{
+			this.err.println(ex.getMessage());
+			return EXIT_ERROR;
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			this.err.println("Interrupted");
+			return EXIT_ERROR;
+		}
+	}
+
+	private int run(CliOptions options, List<String> inputs, PrintWriter writer)
+		throws IOException, InterruptedException
+	{
+		if (options.isHistogram())
+		{
+			return runHistogram(options, inputs, writer);
+		}
+		final ResultWriter resultWriter = ResultWriter.create(options.format, writer,
+			options.maxSolutions, options.approximation);
+		resultWriter.writeHeader();
+		final BatchSolver batchSolver = new BatchSolver(options.numThreads,
+			options.numThreadsPerCalculation, ResultWriter.getMaxNumSolutionsKept(options.maxSolutions),
+			resultWriter::write);
+		try
+		{
+			int index = 0;
+			for (String input : inputs)
+			{
+				index = read(input, index, (i, line) -> batchSolver.submit(i, GameReader.parse(line)));
+			}
+		}
+		finally
+		{
+			batchSolver.finish();
+			resultWriter.flush();
+		}
+		if (!options.quiet)
+		{
+			this.err.println(String.format(Locale.ROOT,
+				"Solved %d games (%d failed, %d invalid lines) in %.3f s : %.1f games/s",
+				batchSolver.getNumGames(), batchSolver.getNumFailed(), this.numInvalidLines,
+				batchSolver.getElapsedTime() / 1e9, batchSolver.getThroughput()));
+		}
+		return ((batchSolver.getNumFailed() > 0) || (this.numInvalidLines > 0)) ?
+			EXIT_PARTIAL : EXIT_OK;
+	}
+
+	/**
+	 * Writes the histograms of the reachable targets of the operands read
+	 * from the inputs. The histograms are calculated one after the other,
+	 * each one using the given number of threads.
+	 */
+	private int runHistogram(CliOptions options, List<String> inputs, PrintWriter writer)
+		throws IOException, InterruptedException
+	{
+		final HistogramWriter histogramWriter = new HistogramWriter(writer);
+		histogramWriter.writeHeader();
+		final long timeStart = System.nanoTime();
+		int index = 0;
+		try
+		{
+			for (String input : inputs)
+			{
+				index = read(input, index, (i, line) ->
+				{
+					final int[] operands = GameReader.parseOperands(line);
+					histogramWriter.write(i, operands, ReachableTargetsHistogram.create(
+						new CalculationParams(options.histogramMin, operands),
+						options.histogramMin, options.histogramMax, options.numThreads));
+				});
+			}
+		}
+		finally
+		{
+			histogramWriter.flush();
+		}
+		if (!options.quiet)
+		{
+			this.err.println(String.format(Locale.ROOT,
+				"Wrote histograms of %d operand sets (%d invalid lines) in %.3f s",
+				index, this.numInvalidLines, (System.nanoTime() - timeStart) / 1e9));
+		}
+		return (this.numInvalidLines > 0) ? EXIT_PARTIAL : EXIT_OK;
+	}
+
+	private int read(String input, int index, LineHandler lineHandler)
+		throws IOException, InterruptedException
+	{
+		final boolean isStdin = input.equals(STDIN);
+		try (BufferedReader reader = isStdin ?
+			new BufferedReader(new InputStreamReader(this.in, StandardCharsets.UTF_8)) :
+			Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8))
+		{
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				if (!GameReader.isIgnored(line))
+				{
+					try
+					{
+						lineHandler.handle(index + 1, line);
+					}
+					catch (IllegalArgumentException ex)
+					{
+						this.numInvalidLines++;
+						this.err.println((isStdin ? "<stdin>" : input) + ":" + lineNumber + ": " +
+							ex.getMessage());
+						continue;
+					}
+					index++;
+				}
+			}
+		}
+		return index;
+	}
+}
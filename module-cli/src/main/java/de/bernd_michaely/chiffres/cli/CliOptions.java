@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The command line options of the batch solver.
+ *
+ * @author Bernd Michaely
+ */
+class CliOptions
+{
+	static final String USAGE = """
+		Usage: chiffres-cli [options] [file ...]
+
+		Solves games read from the given files or standard input (also given as »-«).
+		Each line contains a target followed by the operands, e.g. »769 2 1 7 9«.
+		Empty lines and lines starting with »#« are ignored.
+
+		Options:
+		  -t, --threads <n>        number of games solved concurrently (default: number of processors)
+		  -c, --calc-threads <n>   number of threads per calculation (default: 1)
+		  -f, --format <format>    output format »csv« or »jsonl« (default: csv)
+		  -n, --max-solutions <n>  maximum number of solutions kept and written per game, the shortest
+		                           first, or »all« (default: 1)
+		  -a, --approximation      write the lower and upper approximations
+		  -o, --output <file>      write the results to the given file instead of standard output
+		  -H, --histogram <a>-<b>  write the histogram of the reachable targets from a to b as CSV,
+		                           each line contains the operands only, e.g. »100 75 50 25 6 3«,
+		                           the solutions are counted for up to 7 operands
+		  -q, --quiet              do not report the throughput to standard error
+		  -h, --help               print this help
+		""";
+	int numThreads = Runtime.getRuntime().availableProcessors();
+	int numThreadsPerCalculation = 1;
+	ResultWriter.Format format = ResultWriter.Format.CSV;
+	int maxSolutions = 1;
+	boolean approximation;
+	String output;
+	int histogramMin;
+	int histogramMax;
+	boolean quiet;
+	boolean help;
+	final List<String> inputs = new ArrayList<>();
+
+	/**
+	 * Parses the given command line arguments.
+	 *
+	 * @param args the command line arguments
+	 * @return the parsed options
+	 * @throws IllegalArgumentException if the arguments are invalid
+	 */
+	static CliOptions parse(String... args)
+	{
+		final CliOptions options = new CliOptions();
+		for (int i = 0; i < args.length; i++)
+		{
+			final String arg = args[i];
+			switch (arg)
+			{
+				case "-t", "--threads" ->
+					options.numThreads = parsePositive(arg, getValue(args, ++i, arg));
+				case "-c", "--calc-threads" ->
+					options.numThreadsPerCalculation = parsePositive(arg, getValue(args, ++i, arg));
+				case "-f", "--format" ->
+				{
+					final String value = getValue(args, ++i, arg);
+					try
+					{
+						options.format = ResultWriter.Format.valueOf(value.toUpperCase(Locale.ROOT));
+					}
+					catch (IllegalArgumentException ex)
+					{
+						throw new IllegalArgumentException("Invalid format : »" + value + "«");
+					}
+				}
+				case "-n", "--max-solutions" ->
+				{
+					final String value = getValue(args, ++i, arg);
+					options.maxSolutions = value.equalsIgnoreCase("all") ? -1 :
+						parseNonNegative(arg, value);
+				}
+				case "-a", "--approximation" -> options.approximation = true;
+				case "-o", "--output" -> options.output = getValue(args, ++i, arg);
+				case "-H", "--histogram" ->
+				{
+					final String value = getValue(args, ++i, arg);
+					final int index = value.indexOf('-');
+					if (index < 0)
+					{
+						throw new IllegalArgumentException(
+							"Invalid value for option " + arg + " : »" + value + "«");
+					}
+					options.histogramMin = parsePositive(arg, value.substring(0, index));
+					options.histogramMax = parsePositive(arg, value.substring(index + 1));
+					if (options.histogramMax < options.histogramMin)
+					{
+						throw new IllegalArgumentException(
+							"Invalid value for option " + arg + " : »" + value + "«");
+					}
+				}
+				case "-q", "--quiet" -> options.quiet = true;
+				case "-h", "--help" -> options.help = true;
+				default ->
+				{
+					if (arg.startsWith("-") && !arg.equals("-"))
+					{
+						throw new IllegalArgumentException("Unknown option : »" + arg + "«");
+					}
+					options.inputs.add(arg);
+				}
+			}
+		}
+		if (options.isHistogram() && options.format != ResultWriter.Format.CSV)
+		{
+			throw new IllegalArgumentException("The histogram is written as CSV only");
+		}
+		return options;
+	}
+
+	/**
+	 * Returns true, if the histogram of the reachable targets is requested.
+	 *
+	 * @return true, if the histogram is requested
+	 */
+	boolean isHistogram()
+	{
+		return this.histogramMin > 0;
+	}
+
+	private static String getValue(String[] args, int index, String option)
+	{
+		if (index >= args.length)
+		{
+			throw new IllegalArgumentException("Missing value for option " + option);
+		}
+		return args[index];
+	}
+
+	private static int parseNonNegative(String option, String value)
+	{
+		try
+		{
+			final int result = Integer.parseInt(value);
+			if (result < 0)
+			{
+				throw new NumberFormatException();
+			}
+			return result;
+		}
+		catch (NumberFormatException ex)
+		{
+			throw new IllegalArgumentException("Invalid value for option " + option + " : »" + value + "«");
+		}
+	}
+
+	private static int parsePositive(String option, String value)
+	{
+		final int result = parseNonNegative(option, value);
+		if (result == 0)
+		{
+			throw new IllegalArgumentException("Invalid value for option " + option + " : »" + value + "«");
+		}
+		return result;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+/**
+ * Writes results as comma separated values with a header line. Multiple
+ * operands are separated by spaces, multiple solutions by {@code " | "}.
+ *
+ * @author Bernd Michaely
+ */
+class CsvResultWriter extends ResultWriter
+{
+	CsvResultWriter(PrintWriter out, int maxSolutions, boolean approximation)
+	{
+		super(out, maxSolutions, approximation);
+	}
+
+	@Override
+	void writeHeader()
+	{
+		this.out.println("index,target,operands,exact,num_solutions,truncated," +
+			(this.approximation ? "lower_approximation,upper_approximation," : "") +
+			"recursion_calls,millis,solutions,error");
+	}
+
+	static String quote(String value)
+	{
+		if (value.contains(",") || value.contains("\"") || value.contains("\n"))
+		{
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+
+	@Override
+	void write(GameResult gameResult)
+	{
+		final StringJoiner s = new StringJoiner(",");
+		s.add(Integer.toString(gameResult.index));
+		s.add(Integer.toString(gameResult.calculationParams.getTarget()));
+		s.add(Arrays.stream(getOperands(gameResult.calculationParams))
+			.mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+		final CalculationResult result = gameResult.calculationResult;
+		if (result != null)
+		{
+			s.add(Boolean.toString(result.isExactSolutionFound()));
+			s.add(Integer.toString(result.getSolutions().size()));
+			s.add(Boolean.toString(result.isTruncated()));
+			if (this.approximation)
+			{
+				s.add(Integer.toString(result.getLowerApproximation()));
+				s.add(result.isUpperApproximationPossible() ?
+					Integer.toString(result.getUpperApproximation()) : "");
+			}
+			s.add(Long.toString(result.getCounterRecursionCalls()));
+		}
+		else
+		{
+			s.add("").add("").add("");
+			if (this.approximation)
+			{
+				s.add("").add("");
+			}
+			s.add("");
+		}
+		s.add(String.format(Locale.ROOT, "%.3f", toMillis(gameResult.duration)));
+		s.add((result != null) ? quote(String.join(" | ", getSolutions(result))) : "");
+		s.add((gameResult.error != null) ? quote(gameResult.error) : "");
+		this.out.println(s);
+	}
+}
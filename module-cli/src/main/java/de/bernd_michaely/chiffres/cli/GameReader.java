@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for games given as text lines. A line contains the target followed
+ * by the operands, separated by whitespace, commas, colons or semicolons, e.g.
+ * {@code "769 2 1 7 9"} or {@code "769: 2, 1, 7, 9"}. Empty lines and lines
+ * starting with {@code #} are ignored.
+ *
+ * @author Bernd Michaely
+ */
+class GameReader
+{
+	static final int NUM_OPERANDS_MIN = 2;
+	private static final Pattern PATTERN_SEPARATOR = Pattern.compile("[\\s,;:]+");
+
+	private GameReader()
+	{
+	}
+
+	/**
+	 * Returns true, if the given line is empty or a comment.
+	 *
+	 * @param line the given line
+	 * @return true, if the line does not describe a game
+	 */
+	static boolean isIgnored(String line)
+	{
+		final String s = line.strip();
+		return s.isEmpty() || s.startsWith("#");
+	}
+
+	/**
+	 * Parses a game from the given line.
+	 *
+	 * @param line the given line
+	 * @return the parsed game
+	 * @throws IllegalArgumentException if the line is not a valid game
+	 */
+	static CalculationParams parse(String line)
+	{
+		final String[] values = PATTERN_SEPARATOR.split(line.strip());
+		if (values.length < NUM_OPERANDS_MIN + 1)
+		{
+			throw new IllegalArgumentException("Expected a target and at least " +
+				NUM_OPERANDS_MIN + " operands");
+		}
+		final int target = parseValue(values[0]);
+		final int[] operands = new int[values.length - 1];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = parseValue(values[i + 1]);
+		}
+		return new CalculationParams(target, operands);
+	}
+
+	/**
+	 * Parses the operands of a histogram from the given line, which contains
+	 * the operands only.
+	 *
+	 * @param line the given line
+	 * @return the parsed operands
+	 * @throws IllegalArgumentException if the line does not contain valid
+	 *                                  operands
+	 */
+	static int[] parseOperands(String line)
+	{
+		final String[] values = PATTERN_SEPARATOR.split(line.strip());
+		if (values.length < NUM_OPERANDS_MIN)
+		{
+			throw new IllegalArgumentException("Expected at least " + NUM_OPERANDS_MIN + " operands");
+		}
+		final int[] operands = new int[values.length];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = parseValue(values[i]);
+		}
+		return operands;
+	}
+
+	private static int parseValue(String value)
+	{
+		try
+		{
+			final int result = Integer.parseInt(value);
+			if (result < 1)
+			{
+				throw new IllegalArgumentException("Value must be greater than zero : " + value);
+			}
+			return result;
+		}
+		catch (NumberFormatException ex)
+		{
+			throw new IllegalArgumentException("Invalid number : »" + value + "«");
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+
+/**
+ * The result of solving a single game of a batch.
+ *
+ * @author Bernd Michaely
+ */
+class GameResult
+{
+	final int index;
+	final CalculationParams calculationParams;
+	final CalculationResult calculationResult;
+	final long duration;
+	final String error;
+
+	/**
+	 * Creates a result.
+	 *
+	 * @param index             the index of the game in the input
+	 * @param calculationParams the game
+	 * @param calculationResult the calculation result or null in case of an
+	 *                          error
+	 * @param duration          the calculation time in nanoseconds
+	 * @param error             an error message or null
+	 */
+	GameResult(int index, CalculationParams calculationParams,
+		CalculationResult calculationResult, long duration, String error)
+	{
+		this.index = index;
+		this.calculationParams = calculationParams;
+		this.calculationResult = calculationResult;
+		this.duration = duration;
+		this.error = error;
+	}
+
+	boolean isFailed()
+	{
+		return (this.calculationResult == null) || this.calculationResult.isCancelled();
+	}
+}
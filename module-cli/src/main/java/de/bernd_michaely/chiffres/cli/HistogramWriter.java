@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.ReachableTargetsHistogram;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+/**
+ * Writes histograms of reachable targets as comma separated values with a
+ * header line. Each target of a histogram results in one line, the operands
+ * are separated by spaces. The number of solutions is left empty, if the
+ * solutions of the operands are not counted.
+ *
+ * @author Bernd Michaely
+ */
+class HistogramWriter
+{
+	private final PrintWriter out;
+
+	HistogramWriter(PrintWriter out)
+	{
+		this.out = out;
+	}
+
+	void writeHeader()
+	{
+		this.out.println("index,operands,target,reachable,num_solutions,distance");
+	}
+
+	/**
+	 * Writes the histogram of a set of operands.
+	 *
+	 * @param index     the index of the operands in the input
+	 * @param operands  the operands
+	 * @param histogram the histogram
+	 */
+	void write(int index, int[] operands, ReachableTargetsHistogram histogram)
+	{
+		final String prefix = index + "," +
+			Arrays.stream(operands).mapToObj(Integer::toString).collect(Collectors.joining(" "));
+		final long[] numSolutions = histogram.isCounted() ? histogram.getNumSolutions() : null;
+		final int[] distances = histogram.getDistances();
+		for (int i = 0; i < distances.length; i++)
+		{
+			final StringJoiner s = new StringJoiner(",");
+			s.add(prefix);
+			s.add(Integer.toString(histogram.getMinTarget() + i));
+			s.add(Boolean.toString(distances[i] == 0));
+			s.add((numSolutions != null) ? Long.toString(numSolutions[i]) : "");
+			s.add((distances[i] < Integer.MAX_VALUE) ? Integer.toString(distances[i]) : "");
+			this.out.println(s);
+		}
+	}
+
+	void flush()
+	{
+		this.out.flush();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Writes results in the JSON Lines format, one JSON object per game.
+ *
+ * @author Bernd Michaely
+ */
+class JsonLinesResultWriter extends ResultWriter
+{
+	JsonLinesResultWriter(PrintWriter out, int maxSolutions, boolean approximation)
+	{
+		super(out, maxSolutions, approximation);
+	}
+
+	static String quote(String value)
+	{
+		final StringBuilder s = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++)
+		{
+			final char c = value.charAt(i);
+			switch (c)
+			{
+				case '"':
+					s.append("\\\"");
+					break;
+				case '\\':
+					s.append("\\\\");
+					break;
+				case '\n':
+					s.append("\\n");
+					break;
+				case '\r':
+					s.append("\\r");
+					break;
+				case '\t':
+					s.append("\\t");
+					break;
+				default:
+					if (c < 0x20)
+					{
+						s.append(String.format("\\u%04x", (int) c));
+					}
+					else
+					{
+						s.append(c);
+					}
+			}
+		}
+		return s.append('"').toString();
+	}
+
+	@Override
+	void write(GameResult gameResult)
+	{
+		final StringBuilder s = new StringBuilder("{");
+		s.append("\"index\":").append(gameResult.index);
+		s.append(",\"target\":").append(gameResult.calculationParams.getTarget());
+		s.append(",\"operands\":").append(Arrays.toString(getOperands(gameResult.calculationParams))
+			.replace(" ", ""));
+		final CalculationResult result = gameResult.calculationResult;
+		if (result != null)
+		{
+			s.append(",\"exact\":").append(result.isExactSolutionFound());
+			s.append(",\"numSolutions\":").append(result.getSolutions().size());
+			s.append(",\"truncated\":").append(result.isTruncated());
+			if (this.approximation)
+			{
+				s.append(",\"lowerApproximation\":").append(result.getLowerApproximation());
+				s.append(",\"upperApproximation\":").append(result.isUpperApproximationPossible() ?
+					Integer.toString(result.getUpperApproximation()) : "null");
+			}
+			s.append(",\"recursionCalls\":").append(result.getCounterRecursionCalls());
+			s.append(",\"solutions\":[").append(getSolutions(result).stream()
+				.map(JsonLinesResultWriter::quote).collect(Collectors.joining(","))).append(']');
+		}
+		s.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", toMillis(gameResult.duration)));
+		if (gameResult.error != null)
+		{
+			s.append(",\"error\":").append(quote(gameResult.error));
+		}
+		this.out.println(s.append('}'));
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.Solution;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Writer for the results of a batch in one of the supported output formats.
+ * Each game results in one line of output. The calculator keeps the best
+ * ranked solutions only, so the number of solutions written is the number of
+ * solutions kept, and a truncated flag tells, whether further solutions
+ * exist.
+ *
+ * @author Bernd Michaely
+ */
+abstract class ResultWriter
+{
+	/**
+	 * The supported output formats.
+	 */
+	enum Format
+	{
+		CSV, JSONL
+	}
+
+	final PrintWriter out;
+	final int maxSolutions;
+	final boolean approximation;
+
+	ResultWriter(PrintWriter out, int maxSolutions, boolean approximation)
+	{
+		this.out = out;
+		this.maxSolutions = maxSolutions;
+		this.approximation = approximation;
+	}
+
+	/**
+	 * Creates a writer for the given format.
+	 *
+	 * @param format        the output format
+	 * @param out           the output
+	 * @param maxSolutions  the maximum number of solutions written per game or
+	 *                      -1 for all solutions
+	 * @param approximation true to write the lower and upper approximations
+	 * @return a writer for the given format
+	 */
+	static ResultWriter create(Format format, PrintWriter out, int maxSolutions,
+		boolean approximation)
+	{
+		switch (format)
+		{
+			case CSV:
+				return new CsvResultWriter(out, maxSolutions, approximation);
+			case JSONL:
+				return new JsonLinesResultWriter(out, maxSolutions, approximation);
+			default:
+				throw new AssertionError("Unknown format " + format);
+		}
+	}
+
+	/**
+	 * Writes a header, if the format requires one.
+	 */
+	void writeHeader()
+	{
+	}
+
+	/**
+	 * Writes the result of a game.
+	 *
+	 * @param gameResult the result of a game
+	 */
+	abstract void write(GameResult gameResult);
+
+	void flush()
+	{
+		this.out.flush();
+	}
+
+	static int[] getOperands(CalculationParams calculationParams)
+	{
+		final int[] operands = new int[calculationParams.getNumOperands()];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = calculationParams.getOperand(i);
+		}
+		return operands;
+	}
+
+	/**
+	 * Returns the maximum number of solutions kept by the calculator for the
+	 * given maximum number of solutions written. If no solutions are written,
+	 * one solution is kept, so that the result still tells, whether further
+	 * solutions exist.
+	 *
+	 * @param maxSolutions the maximum number of solutions written per game or
+	 *                     -1 for all solutions
+	 * @return the maximum number of solutions kept or zero for unlimited
+	 * @see de.bernd_michaely.chiffres.calc.Calculator#setMaxNumSolutions(int)
+	 */
+	static int getMaxNumSolutionsKept(int maxSolutions)
+	{
+		return (maxSolutions < 0) ? 0 : Math.max(1, maxSolutions);
+	}
+
+	/**
+	 * Returns the solutions to write, limited to the maximum number of
+	 * solutions, best ranked first, formatted as the operations in order of
+	 * calculation, e.g. {@code "25 * 4 = 100, 100 + 3 = 103"}.
+	 *
+	 * @param calculationResult the calculation result
+	 * @return the formatted solutions
+	 */
+	List<String> getSolutions(CalculationResult calculationResult)
+	{
+		final List<String> result = new ArrayList<>();
+		for (Solution solution : calculationResult.getRankedSolutions())
+		{
+			if ((this.maxSolutions >= 0) && (result.size() >= this.maxSolutions))
+			{
+				break;
+			}
+			final StringJoiner s = new StringJoiner(", ");
+			for (int i = 0; i < solution.getDepth(); i++)
+			{
+				s.add(solution.getOperation(i).toString());
+			}
+			result.add(s.toString());
+		}
+		return result;
+	}
+
+	static double toMillis(long nanos)
+	{
+		return nanos / 1e6;
+	}
+}
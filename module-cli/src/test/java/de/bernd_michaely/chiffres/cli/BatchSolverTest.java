@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the BatchSolver class.
+ *
+ * @author Bernd Michaely
+ */
+public class BatchSolverTest
+{
+	@Test
+	public void testBatch() throws InterruptedException
+	{
+		final List<GameResult> results = new ArrayList<>();
+		final BatchSolver batchSolver = new BatchSolver(2, 1, 1, results::add);
+		for (int i = 1; i <= 10; i++)
+		{
+			batchSolver.submit(i, new CalculationParams(100 + i, 25, 4, 3, 7));
+		}
+		batchSolver.finish();
+		assertEquals(10, batchSolver.getNumGames());
+		assertEquals(0, batchSolver.getNumFailed());
+		for (int i = 0; i < 10; i++)
+		{
+			final GameResult gameResult = results.get(i);
+			assertEquals(i + 1, gameResult.index);
+			assertTrue(gameResult.calculationResult.getSolutions().size() <= 1);
+		}
+	}
+
+	@Test
+	public void testConsumerFailure() throws InterruptedException
+	{
+		final BatchSolver batchSolver = new BatchSolver(1, 1, 1, gameResult ->
+		{
+			throw new IllegalStateException("test failure");
+		});
+		final Thread thread = new Thread(() ->
+		{
+			try
+			{
+				// many more games than pending results, must not block forever:
+				for (int i = 1; i <= 100; i++)
+				{
+					batchSolver.submit(i, new CalculationParams(100, 25, 4, 3));
+				}
+			}
+			catch (IllegalStateException ex)
+			{
+				// expected
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		thread.start();
+		thread.join(TimeUnit.SECONDS.toMillis(10));
+		assertFalse(thread.isAlive());
+		final IllegalStateException exception =
+			assertThrows(IllegalStateException.class, batchSolver::finish);
+		assertTrue(exception.getMessage().contains("test failure"));
+		assertEquals(0, batchSolver.getNumGames());
+	}
+}
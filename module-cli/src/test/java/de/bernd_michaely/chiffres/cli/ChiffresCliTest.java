@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ChiffresCli class.
+ *
+ * @author Bernd Michaely
+ */
+public class ChiffresCliTest
+{
+	private static final String GAMES = """
+		# target and operands
+		100 25 4 3 7
+		999 1 2 3
+		103: 25, 4, 3
+		""";
+
+	private static class Run
+	{
+		private final int exitCode;
+		private final List<String> out;
+		private final String err;
+
+		private Run(String input, String... args)
+		{
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final ByteArrayOutputStream err = new ByteArrayOutputStream();
+			this.exitCode = new ChiffresCli(
+				new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+				new PrintStream(out, true, StandardCharsets.UTF_8),
+				new PrintStream(err, true, StandardCharsets.UTF_8)).run(args);
+			this.out = out.toString(StandardCharsets.UTF_8).lines().toList();
+			this.err = err.toString(StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	public void testCsv()
+	{
+		final Run run = new Run(GAMES, "--threads", "2", "--approximation");
+		assertEquals(ChiffresCli.EXIT_OK, run.exitCode);
+		assertEquals(4, run.out.size());
+		assertTrue(run.out.get(0).startsWith(
+			"index,target,operands,exact,num_solutions,truncated,lower_approximation"));
+		// results are written in input order:
+		assertTrue(run.out.get(1).startsWith("1,100,25 4 3 7,true,1,true,"));
+		assertTrue(run.out.get(2).startsWith("2,999,1 2 3,false,0,false,9,,"));
+		assertTrue(run.out.get(3).startsWith("3,103,25 4 3,true,1,false,103,103,"));
+		assertTrue(run.out.get(3).endsWith(",\"25 * 4 = 100, 100 + 3 = 103\","));
+		assertTrue(run.err.contains("Solved 3 games (0 failed, 0 invalid lines)"));
+	}
+
+	@Test
+	public void testJsonLines()
+	{
+		final Run run = new Run(GAMES, "-f", "jsonl", "-n", "all", "-q");
+		assertEquals(ChiffresCli.EXIT_OK, run.exitCode);
+		assertEquals(3, run.out.size());
+		assertTrue(run.out.get(2).startsWith(
+			"{\"index\":3,\"target\":103,\"operands\":[25,4,3],\"exact\":true,\"numSolutions\":1,"));
+		assertTrue(run.out.get(2).contains("\"solutions\":[\"25 * 4 = 100, 100 + 3 = 103\"]"));
+		assertTrue(run.out.get(1).contains("\"solutions\":[]"));
+		assertTrue(run.err.isEmpty());
+	}
+
+	@Test
+	public void testMaxSolutions()
+	{
+		final Run run = new Run("100 25 4 3 7", "-f", "jsonl", "-n", "0", "-q");
+		assertEquals(1, run.out.size());
+		assertTrue(run.out.get(0).contains("\"numSolutions\":1,\"truncated\":true,"));
+		assertTrue(run.out.get(0).contains("\"solutions\":[]"));
+		// the calculator keeps the shortest solutions only:
+		final Run run2 = new Run("100 25 4 3 7", "-f", "jsonl", "-n", "2", "-q");
+		assertTrue(run2.out.get(0).contains("\"numSolutions\":2,\"truncated\":true,"));
+		assertTrue(run2.out.get(0).contains("\"solutions\":[\"25 * 4 = 100\","));
+		final Run runAll = new Run("100 25 4 3 7", "-f", "jsonl", "-n", "all", "-q");
+		assertTrue(runAll.out.get(0).contains("\"truncated\":false,"));
+		assertFalse(runAll.out.get(0).contains("\"numSolutions\":2,"));
+	}
+
+	@Test
+	public void testInvalidLines()
+	{
+		final Run run = new Run("100 25 4 3 7\n100 x 4\n", "-q");
+		assertEquals(ChiffresCli.EXIT_PARTIAL, run.exitCode);
+		assertEquals(2, run.out.size());
+		assertTrue(run.err.startsWith("<stdin>:2: "));
+	}
+
+	@Test
+	public void testInvalidArguments()
+	{
+		assertEquals(ChiffresCli.EXIT_ERROR, new Run("", "--format", "xml").exitCode);
+		assertEquals(ChiffresCli.EXIT_ERROR, new Run("", "--threads", "0").exitCode);
+		assertEquals(ChiffresCli.EXIT_ERROR, new Run("", "--unknown").exitCode);
+		assertEquals(ChiffresCli.EXIT_OK, new Run("", "--help").exitCode);
+	}
+
+	@Test
+	public void testHistogram()
+	{
+		final Run run = new Run("2 3\n2 x\n25, 4, 3\n", "--histogram", "4-7");
+		assertEquals(ChiffresCli.EXIT_PARTIAL, run.exitCode);
+		assertEquals(List.of("index,operands,target,reachable,num_solutions,distance",
+			"1,2 3,4,false,0,1", "1,2 3,5,true,1,0", "1,2 3,6,true,1,0", "1,2 3,7,false,0,1",
+			"2,25 4 3,4,false,0,3", "2,25 4 3,5,false,0,2", "2,25 4 3,6,false,0,1", "2,25 4 3,7,true,3,0"),
+			run.out);
+		assertTrue(run.err.startsWith("<stdin>:2: "));
+		assertTrue(run.err.contains("Wrote histograms of 2 operand sets (1 invalid lines)"));
+		assertEquals(ChiffresCli.EXIT_ERROR, new Run("", "--histogram", "7-4").exitCode);
+		assertEquals(ChiffresCli.EXIT_ERROR, new Run("", "--histogram", "1-9", "-f", "jsonl").exitCode);
+	}
+
+	@Test
+	public void testFiles() throws IOException
+	{
+		final Path input = Files.createTempFile("chiffres-", ".txt");
+		final Path output = Files.createTempFile("chiffres-", ".csv");
+		try
+		{
+			Files.writeString(input, GAMES);
+			final Run run = new Run("103 25 4 3", "-q", "-o", output.toString(),
+				input.toString(), "-");
+			assertEquals(ChiffresCli.EXIT_OK, run.exitCode);
+			assertTrue(run.out.isEmpty());
+			final List<String> lines = Files.readAllLines(output);
+			assertEquals(5, lines.size());
+			assertTrue(lines.get(4).startsWith("4,103,25 4 3,true,1,"));
+		}
+		finally
+		{
+			Files.deleteIfExists(input);
+			Files.deleteIfExists(output);
+		}
+	}
+}
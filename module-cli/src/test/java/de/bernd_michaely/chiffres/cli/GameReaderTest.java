@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.cli;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the GameReader class.
+ *
+ * @author Bernd Michaely
+ */
+public class GameReaderTest
+{
+	@Test
+	public void testIsIgnored()
+	{
+		assertTrue(GameReader.isIgnored(""));
+		assertTrue(GameReader.isIgnored("   "));
+		assertTrue(GameReader.isIgnored("# 769 2 1 7 9"));
+		assertFalse(GameReader.isIgnored("769 2 1 7 9"));
+	}
+
+	@Test
+	public void testParse()
+	{
+		for (String line : new String[]
+		{
+			"769 2 1 7 9", " 769\t2 1 7 9 ", "769: 2, 1, 7, 9", "769;2;1;7;9"
+		})
+		{
+			final CalculationParams game = GameReader.parse(line);
+			assertEquals(769, game.getTarget());
+			assertEquals(4, game.getNumOperands());
+			assertEquals(2, game.getOperand(0));
+			assertEquals(9, game.getOperand(3));
+		}
+	}
+
+	@Test
+	public void testParseInvalid()
+	{
+		assertThrows(IllegalArgumentException.class, () -> GameReader.parse("769 2"));
+		assertThrows(IllegalArgumentException.class, () -> GameReader.parse("769 2 x 7"));
+		assertThrows(IllegalArgumentException.class, () -> GameReader.parse("769 2 0 7"));
+		assertThrows(IllegalArgumentException.class, () -> GameReader.parse("-769 2 1 7"));
+	}
+}
@@ -38,6 +38,8 @@ public abstract class MathSymbolBuilder
 		MINUS_SIGN('\u2212'),
 		MULTIPLICATION_SIGN('\u00D7'),
 		DIVISION_SIGN('\u00F7'),
+		POWER_SIGN('\u005E'),
+		CONCATENATION_SIGN('\u2016'),
 		EQUALS_SIGN('\u003D');
 
 		private final char unicodeSymbol;
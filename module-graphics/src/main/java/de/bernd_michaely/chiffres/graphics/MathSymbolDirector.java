@@ -64,6 +64,15 @@ public class MathSymbolDirector
 				builder.buildCircle(w_2, dist, radius);
 				builder.buildCircle(w_2, builder.getFontSize() - dist, radius);
 				break;
+			case POWER_SIGN:
+				builder.buildLine(diff_a, h_2, w_2, diff_a);
+				builder.buildLine(w_2, diff_a, w_diff_a, h_2);
+				break;
+			case CONCATENATION_SIGN:
+				final double dist_c = builder.getFontSize() / 8;
+				builder.buildLine(w_2 - dist_c, diff_a, w_2 - dist_c, height - diff_a);
+				builder.buildLine(w_2 + dist_c, diff_a, w_2 + dist_c, height - diff_a);
+				break;
 			case EQUALS_SIGN:
 				final double dist1 = builder.getFontSize() / 3;
 				final double dist2 = builder.getFontSize() - dist1;
@@ -36,7 +36,8 @@ import static de.bernd_michaely.chiffres.graphics.NodeType.*;
 public class SolutionGraphDirector
 {
 	private static final Map<Operator, Sign> OPERATOR_SYMBOLS = Map.of(
-		ADD, PLUS_SIGN, SUB, MINUS_SIGN, MUL, MULTIPLICATION_SIGN, DIV, DIVISION_SIGN);
+		ADD, PLUS_SIGN, SUB, MINUS_SIGN, MUL, MULTIPLICATION_SIGN, DIV, DIVISION_SIGN,
+		POW, POWER_SIGN, CAT, CONCATENATION_SIGN);
 	private final AbstractSolutionGraphBuilder builder;
 	private final TreeNodeFactory treeNodeFactory;
 	private final int numOperands;
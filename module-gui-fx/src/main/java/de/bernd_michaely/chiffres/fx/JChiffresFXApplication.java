@@ -16,8 +16,10 @@
  */
 package de.bernd_michaely.chiffres.fx;
 
+import de.bernd_michaely.chiffres.calc.CalculatorWarmup;
 import de.bernd_michaely.chiffres.fx.mainwindow.ApplicationMainWindow;
 import de.bernd_michaely.chiffres.fx.mainwindow.JChiffresFX;
+import de.bernd_michaely.chiffres.fx.mainwindow.ThreadCountSettings;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
@@ -33,6 +35,7 @@ public class JChiffresFXApplication extends Application
 {
 	public static final String TITLE_APPLICATION = "JChiffresFX";
 	private ApplicationMainWindow mainWindow;
+	private CalculatorWarmup calculatorWarmup;
 	private static boolean testMode;
 
 	static void runTest()
@@ -45,6 +48,17 @@ public class JChiffresFXApplication extends Application
 	public void init() throws Exception
 	{
 		super.init();
+		// let the JIT compile the calculator while the UI is loading:
+		if (!testMode && ThreadCountSettings.isCalibrationRequired())
+		{
+			// the calibration warms up the calculator as well:
+			ThreadCountSettings.startCalibration();
+		}
+		else if (!testMode && JChiffresFX.isWarmupOnStart())
+		{
+			calculatorWarmup = new CalculatorWarmup();
+			calculatorWarmup.start();
+		}
 		mainWindow = new JChiffresFX();
 		mainWindow.init();
 	}
@@ -64,6 +78,16 @@ public class JChiffresFXApplication extends Application
 		}
 	}
 
+	@Override
+	public void stop() throws Exception
+	{
+		if (calculatorWarmup != null)
+		{
+			calculatorWarmup.cancel();
+		}
+		super.stop();
+	}
+
 	public static void main(String[] args)
 	{
 		launch(args);
@@ -23,6 +23,11 @@ package de.bernd_michaely.chiffres.fx.display;
  */
 public class CalculationCtrlParams
 {
+	/**
+	 * Number of threads to request the number of threads calibrated for this
+	 * machine.
+	 */
+	public static final int NUM_THREADS_AUTO = 0;
 	private final int target;
 	private final int[] operands;
 	private final int numThreads;
@@ -88,13 +93,25 @@ public class CalculationCtrlParams
 	/**
 	 * Returns the number of threads to use for calculation.
 	 *
-	 * @return the number of threads to use for calculation
+	 * @return the number of threads to use for calculation or
+	 *         {@link #NUM_THREADS_AUTO}
 	 */
 	public int getNumThreads()
 	{
 		return numThreads;
 	}
 
+	/**
+	 * Returns true, if the number of threads calibrated for this machine
+	 * should be used.
+	 *
+	 * @return true, if the number of threads is chosen automatically
+	 */
+	public boolean isNumThreadsAuto()
+	{
+		return this.numThreads == NUM_THREADS_AUTO;
+	}
+
 	/**
 	 * Returns true, if the solution display should show intermediate results as
 	 * soon as they are found.
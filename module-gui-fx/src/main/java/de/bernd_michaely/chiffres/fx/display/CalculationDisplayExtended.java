@@ -16,7 +16,9 @@
  */
 package de.bernd_michaely.chiffres.fx.display;
 
+import de.bernd_michaely.chiffres.calc.Calculator;
 import de.bernd_michaely.chiffres.fx.display.ProgressDisplay.ProgressDisplayMode;
+import de.bernd_michaely.chiffres.fx.mainwindow.ThreadCountSettings;
 import de.bernd_michaely.chiffres.fx.util.ControlFactory;
 import de.bernd_michaely.chiffres.fx.util.MathSymbol;
 import java.util.ArrayList;
@@ -56,11 +58,28 @@ import static de.bernd_michaely.chiffres.fx.util.MathSymbol.DEFAULT_FONT_SIZE;
 public class CalculationDisplayExtended extends AbstractCalculationDisplay
 {
 	private static final int NUM_OPERANDS_DEFAULT = CalculationDisplayStandard.NUM_OPERANDS + 1;
-	private static final int NUM_OPERANDS_MAX = 9;
+	private static final int NUM_OPERANDS_MAX = Calculator.NUM_OPERANDS_MAX;
 	private static final int VALUE_MAX_OPERANDS = 999;
 	private static final int VALUE_MAX_OPERANDS_RANDOM = 100;
 	private static final int VALUE_MAX_TARGET = 9999;
 	private static final int VALUE_MAX_TARGET_RANDOM = 999;
+	/**
+	 * Tooltip text for the number of threads sliders.
+	 */
+	public static final String TOOLTIP_NUM_THREADS =
+		"Maximum number of CPU cores used by a calculation.\n" +
+		"Running calculations share the cores in proportion to this value,\n" +
+		"the calculation of the selected tab is served first.";
+	/**
+	 * Text for the automatic number of threads check boxes.
+	 */
+	public static final String TEXT_NUM_THREADS_AUTO = "_Automatic number of threads";
+	/**
+	 * Tooltip text for the automatic number of threads check boxes.
+	 */
+	public static final String TOOLTIP_NUM_THREADS_AUTO =
+		"Use the number of threads with the best throughput on this machine.\n" +
+		"It is measured once by a short calibration run in the background.";
 	private final ObservableIntegerArray operands;
 	private final ReadOnlyBooleanWrapper operandArrayCompletePropertyWrapper;
 	private boolean inputValid;
@@ -70,6 +89,7 @@ public class CalculationDisplayExtended extends AbstractCalculationDisplay
 	private final TextInputControl inputTarget;
 	private final List<TextInputControl> inputOperands;
 	private final Slider sliderNumThreads;
+	private final CheckBox checkBoxNumThreadsAuto;
 	private final CheckBox checkBoxIntermediateResults;
 	private final Button buttonRandom;
 	private final Button buttonClear;
@@ -195,12 +215,13 @@ public class CalculationDisplayExtended extends AbstractCalculationDisplay
 		GridPane.setHalignment(this.buttonRandom, HPos.LEFT);
 		// ====================== GRID ROW ========================================
 		rowIndex++;
-		final int numThreadsMax = Runtime.getRuntime().availableProcessors();
-		final int numThreadsDefault = Math.round(numThreadsMax * 3f / 8f);
-		final int numThreads = (initialCtrlParams != null) ?
-			initialCtrlParams.getNumThreads() :
-			preferences.getInt(ID_PREF_MODE_EXTENDED_NUM_THREADS.key(), numThreadsDefault);
-		this.sliderNumThreads = new Slider(1, numThreadsMax, numThreads);
+		final int numThreadsMax = ThreadCountSettings.getNumThreadsMax();
+		final int numThreadsPref = preferences.getInt(ID_PREF_MODE_EXTENDED_NUM_THREADS.key(),
+			ThreadCountSettings.getNumThreadsDefault());
+		final int numThreads = (initialCtrlParams != null && !initialCtrlParams.isNumThreadsAuto()) ?
+			initialCtrlParams.getNumThreads() : numThreadsPref;
+		this.sliderNumThreads = new Slider(1, numThreadsMax, Math.min(numThreadsMax, numThreads));
+		this.sliderNumThreads.setTooltip(new Tooltip(TOOLTIP_NUM_THREADS));
 		this.sliderNumThreads.setBlockIncrement(1);
 		this.sliderNumThreads.setMajorTickUnit(1);
 		this.sliderNumThreads.setMinorTickCount(0);
@@ -209,12 +230,28 @@ public class CalculationDisplayExtended extends AbstractCalculationDisplay
 		this.sliderNumThreads.setSnapToTicks(true);
 		this.sliderNumThreads.valueProperty().addListener((observable, oldValue, newValue) ->
 			preferences.putInt(ID_PREF_MODE_EXTENDED_NUM_THREADS.key(), newValue.intValue()));
-		this.sliderNumThreads.disableProperty().bind(this.progressDisplay.runningProperty());
-		final Label labelSlider = new Label("_Number of threads to use for computation:");
+		this.checkBoxNumThreadsAuto = new CheckBox(TEXT_NUM_THREADS_AUTO);
+		this.checkBoxNumThreadsAuto.setTooltip(new Tooltip(TOOLTIP_NUM_THREADS_AUTO));
+		this.checkBoxNumThreadsAuto.setSelected((initialCtrlParams != null) ?
+			initialCtrlParams.isNumThreadsAuto() :
+			preferences.getBoolean(ID_PREF_MODE_EXTENDED_NUM_THREADS_AUTO.key(), false));
+		this.checkBoxNumThreadsAuto.selectedProperty().addListener((observable, oldValue, newValue) ->
+		{
+			preferences.putBoolean(ID_PREF_MODE_EXTENDED_NUM_THREADS_AUTO.key(), newValue);
+			if (ThreadCountSettings.isCalibrationRequired())
+			{
+				ThreadCountSettings.startCalibration();
+			}
+		});
+		this.checkBoxNumThreadsAuto.disableProperty().bind(this.progressDisplay.runningProperty());
+		this.sliderNumThreads.disableProperty().bind(this.progressDisplay.runningProperty().or(
+			this.checkBoxNumThreadsAuto.selectedProperty()));
+		final Label labelSlider = new Label("_Maximum number of threads per calculation:");
 		labelSlider.setMnemonicParsing(true);
 		labelSlider.setLabelFor(this.sliderNumThreads);
 		labelSlider.disableProperty().bind(this.progressDisplay.runningProperty());
-		final VBox vBoxSlider = new VBox(DEFAULT_FONT_SIZE * 2 / 3, labelSlider, this.sliderNumThreads);
+		final VBox vBoxSlider = new VBox(DEFAULT_FONT_SIZE * 2 / 3, labelSlider, this.sliderNumThreads,
+			this.checkBoxNumThreadsAuto);
 		gridPane.add(vBoxSlider, 0, rowIndex, NUM_OPERANDS_MAX, 1);
 		// ====================== GRID ROW ========================================
 		rowIndex++;
@@ -308,7 +345,8 @@ public class CalculationDisplayExtended extends AbstractCalculationDisplay
 	{
 		return new CalculationCtrlParams(
 			this.checkBoxIntermediateResults.isSelected(),
-			(int) this.sliderNumThreads.getValue(),
+			this.checkBoxNumThreadsAuto.isSelected() ?
+				CalculationCtrlParams.NUM_THREADS_AUTO : (int) this.sliderNumThreads.getValue(),
 			getTarget(), getOperands());
 	}
 
@@ -18,7 +18,10 @@ package de.bernd_michaely.chiffres.fx.mainwindow;
 
 import de.bernd_michaely.chiffres.calc.CalculationParams;
 import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.CalculationScheduler;
 import de.bernd_michaely.chiffres.calc.Calculator;
+import de.bernd_michaely.chiffres.calc.ReachableValueIndex;
+import de.bernd_michaely.chiffres.calc.Solution;
 import de.bernd_michaely.chiffres.fx.display.CalculationCtrl;
 import de.bernd_michaely.chiffres.fx.display.CalculationCtrlParams;
 import de.bernd_michaely.chiffres.fx.display.CalculationDisplay;
@@ -32,10 +35,17 @@ import de.bernd_michaely.chiffres.fx.display.ScaleBox;
 import de.bernd_michaely.chiffres.fx.display.SolutionDisplay;
 import de.bernd_michaely.chiffres.fx.table.SolutionDisplayTable;
 import de.bernd_michaely.chiffres.fx.util.TextFactory;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -57,20 +67,106 @@ import static javafx.scene.control.TabPane.TabDragPolicy.REORDER;
 class CalculationRunner
 {
 	private static final Logger logger = Logger.getLogger(CalculationRunner.class.getName());
+	/**
+	 * The maximum number of operands, for which an index of the reachable
+	 * values is built after a calculation.
+	 */
+	private static final int NUM_OPERANDS_INDEX_MAX = 7;
 
 	private final TabPane tabPane;
 	private final Runnable updateSortButtonState;
+	/**
+	 * Application wide scheduler owning the CPU cores for the calculations of
+	 * all tabs. The calculations of the selected tab are prioritized, the
+	 * other running calculations share the remaining capacity.
+	 */
+	private final CalculationScheduler scheduler;
+	/**
+	 * Executor for the calculator tasks, which mostly wait for their subtasks
+	 * running on the scheduler.
+	 */
+	private final ExecutorService taskExecutor;
 
 	public CalculationRunner(Runnable updateSortButtonState)
 	{
 		this.updateSortButtonState = updateSortButtonState;
 		this.tabPane = new TabPane();
 		this.tabPane.setTabDragPolicy(REORDER);
+		this.scheduler = new CalculationScheduler(ThreadCountSettings.getNumThreadsMax());
+		final AtomicInteger threadCounter = new AtomicInteger();
+		this.taskExecutor = Executors.newCachedThreadPool(runnable ->
+		{
+			final Thread thread = new Thread(runnable, "CalculatorTask-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.tabPane.getSelectionModel().selectedItemProperty().addListener(
+			(observable, tabPrevious, tabCurrent) ->
+		{
+			if (tabPrevious != null)
+			{
+				getTabUserData(tabPrevious).setPrioritized(false);
+			}
+			if (tabCurrent != null)
+			{
+				getTabUserData(tabCurrent).setPrioritized(true);
+			}
+		});
+	}
+
+	/**
+	 * Creates a calculator running on the shared scheduler and registers it
+	 * with the given tab.
+	 */
+	private Calculator createCalculator(TabUserData tabUserData, int target,
+		CalculationCtrlParams params)
+	{
+		final Calculator calculator = new Calculator(new CalculationParams(
+			target, params.getOperands()));
+		calculator.setScheduler(this.scheduler);
+		calculator.setNumThreadsLimit(ThreadCountSettings.getNumThreadsLimitOverride());
+		calculator.setNumThreads(ThreadCountSettings.getNumThreads(params));
+		tabUserData.addCalculator(calculator);
+		return calculator;
+	}
+
+	private void runAsync(Runnable task)
+	{
+		CompletableFuture.runAsync(task, this.taskExecutor);
+	}
+
+	/**
+	 * Builds an index of the values reachable from the operands of the given
+	 * calculation in the background and attaches it to the given tab, unless
+	 * an applicable index is attached already.
+	 */
+	private void buildReachableValueIndex(TabUserData tabUserData, CalculationParams calculationParams)
+	{
+		final ReachableValueIndex index = tabUserData.getReachableValueIndex();
+		if (calculationParams.getNumOperands() <= NUM_OPERANDS_INDEX_MAX &&
+			(index == null || !index.isApplicable(calculationParams)))
+		{
+			runAsync(() ->
+			{
+				final ReachableValueIndex newIndex = ReachableValueIndex.build(calculationParams, 1);
+				if (newIndex != null)
+				{
+					logger.log(Level.FINE, "Reachable value index : {0} values",
+						newIndex.getNumValues());
+					Platform.runLater(() -> tabUserData.setReachableValueIndex(newIndex));
+				}
+			});
+		}
 	}
 
 	private static Region createTextPane(String text)
 	{
-		final TextFactory textFactory = new TextFactory(Color.FIREBRICK, 18);
+		return createTextPane(text, Color.FIREBRICK);
+	}
+
+	private static Region createTextPane(String text, Color color)
+	{
+		final TextFactory textFactory = new TextFactory(color, 18);
 		final Region textNode = textFactory.createTextNode(text);
 		final VBox vBox = new VBox(textNode);
 		VBox.setMargin(textNode, new Insets(8));
@@ -107,6 +203,29 @@ class CalculationRunner
 		return solutionDisplay;
 	}
 
+	/**
+	 * Creates a pane showing the witness of a reachable target taken from
+	 * the index, while the full calculation is running.
+	 */
+	private static Region createWitnessPane(Solution witness, long numCalculations)
+	{
+		final StringJoiner operations = new StringJoiner(", ");
+		for (int i = 0; i < witness.getDepth(); i++)
+		{
+			operations.add(witness.getOperation(i).toString());
+		}
+		return createTextPane("Reachable, e.g. " + operations + " (one of " + numCalculations +
+			" calculations) – searching all solutions ...", Color.DARKGREEN);
+	}
+
+	/**
+	 * Returns a sorted set containing the given solution only.
+	 */
+	private static TreeSet<Solution> createSolutionSet(Solution solution)
+	{
+		return new TreeSet<>(List.of(solution));
+	}
+
 	private Tab getCurrentTab()
 	{
 		return (this.tabPane.getTabs().isEmpty()) ?
@@ -118,12 +237,33 @@ class CalculationRunner
 		final Tab tab = tabReference.getTab();
 		final TabUserData tabUserData = getTabUserData(tab);
 		tabUserData.setCalculationCtrlParams(params);
-		logger.log(Level.FINE, "Number of calculation threads : {0}", params.getNumThreads());
+		logger.log(Level.FINE, "Number of calculation threads : {0}", ThreadCountSettings.getNumThreads(params));
 		logger.log(Level.FINE, "Showing intermediate results  : {0}", params.isShowingIntermediateResult());
-		final Calculator calculator = new Calculator(new CalculationParams(
-			params.getTarget(), params.getOperands()));
-		calculator.setNumThreads(params.getNumThreads());
-		if (tabUserData.isCalculationDisplayExtended() && !params.isShowingIntermediateResult())
+		final int target = params.getTarget();
+		final ReachableValueIndex indexTab = tabUserData.getReachableValueIndex();
+		final ReachableValueIndex index = (indexTab != null &&
+			indexTab.isApplicable(new CalculationParams(target, params.getOperands()))) ? indexTab : null;
+		if (index != null && !index.isReachable(target))
+		{
+			// the target is not reachable, show the approximations of the index right away:
+			logger.log(Level.FINE, "Target {0} not reachable according to index", target);
+			final CalculationOperandsDisplay operandsDisplay = createOperandsDisplay(tabReference, params);
+			final SolutionDisplay solutionDisplay = createSolutionDisplay(tabReference, params);
+			final BorderPane borderPane = new BorderPane(solutionDisplay.getDisplay());
+			borderPane.setTop(new ScaleBox(operandsDisplay.getDisplay()).getDisplay());
+			tab.setContent(borderPane);
+			operandsDisplay.getOperandDisplayTarget().setDisplayState(
+				OperandDisplay.DisplayState.ERROR);
+			runApproximativeCalculation(params, index.getDiffLess(target), index.getDiffGreater(target),
+				tabUserData, borderPane, index);
+			updateSortButtonState.run();
+			return;
+		}
+		// a witness of a reachable target is shown while the full calculation is running:
+		final Solution witness = (index != null) ? index.getWitness(target) : null;
+		final Calculator calculator = createCalculator(tabUserData, target, params);
+		if (tabUserData.isCalculationDisplayExtended() && !params.isShowingIntermediateResult() &&
+			witness == null)
 		{
 			final Consumer<CalculationResult> consumerResult = result ->
 			{
@@ -145,9 +285,11 @@ class CalculationRunner
 					{
 						operandsDisplay.getOperandDisplayTarget().setDisplayState(
 							OperandDisplay.DisplayState.ERROR);
-						runApproximativeCalculation(result, params, tabUserData, borderPane);
+						runApproximativeCalculation(params, result.getDiffLess(), result.getDiffGreater(),
+							tabUserData, borderPane, null);
 					}
 					updateSortButtonState.run();
+					buildReachableValueIndex(tabUserData, calculator.getCalculationParams());
 				}
 			};
 			final ProgressDisplay progressDisplay =
@@ -155,7 +297,7 @@ class CalculationRunner
 			final Task<CalculationResult> task = new CalculatorTask(calculator,
 				consumerResult, progressDisplay.progressProperty());
 			progressDisplay.setOnCancel(() -> task.cancel());
-			CompletableFuture.runAsync(task);
+			runAsync(task);
 		}
 		else
 		{
@@ -164,6 +306,13 @@ class CalculationRunner
 			final BorderPane borderPane = new BorderPane(solutionDisplay.getDisplay());
 			borderPane.setTop(new ScaleBox(operandsDisplay.getDisplay()).getDisplay());
 			tab.setContent(borderPane);
+			if (witness != null)
+			{
+				logger.log(Level.FINE, "Target {0} reachable according to index", target);
+				operandsDisplay.getOperandDisplayTarget().setDisplayState(
+					OperandDisplay.DisplayState.SUCCESS);
+				borderPane.setBottom(createWitnessPane(witness, index.getNumCalculations(target)));
+			}
 			if (params.isShowingIntermediateResult())
 			{
 				calculator.setOnIntermediateResult(solutionCandidate ->
@@ -171,19 +320,30 @@ class CalculationRunner
 			}
 			final Consumer<CalculationResult> consumerResult = result ->
 			{
+				borderPane.setBottom(null);
 				if (result.isExactSolutionFound())
 				{
 					solutionDisplay.setSolutions(result.getSolutions());
 					operandsDisplay.getOperandDisplayTarget().setDisplayState(
 						OperandDisplay.DisplayState.SUCCESS);
 				}
+				else if (witness != null)
+				{
+					// cancelled before a solution was found, keep the witness:
+					solutionDisplay.setSolutions(createSolutionSet(witness));
+				}
 				else
 				{
 					operandsDisplay.getOperandDisplayTarget().setDisplayState(
 						OperandDisplay.DisplayState.ERROR);
-					runApproximativeCalculation(result, params, tabUserData, borderPane);
+					runApproximativeCalculation(params, result.getDiffLess(), result.getDiffGreater(),
+						tabUserData, borderPane, null);
 				}
 				updateSortButtonState.run();
+				if (!result.isCancelled())
+				{
+					buildReachableValueIndex(tabUserData, calculator.getCalculationParams());
+				}
 			};
 			final Task<CalculationResult> task = new CalculatorTask(calculator,
 				consumerResult, solutionDisplay.progressProperty());
@@ -192,21 +352,32 @@ class CalculationRunner
 				task.cancel();
 				solutionDisplay.cancel();
 			});
-			CompletableFuture.runAsync(task);
+			runAsync(task);
 		}
 	}
 
-	private void runApproximativeCalculation(CalculationResult result,
-		CalculationCtrlParams params, TabUserData tabUserData, BorderPane borderPane)
+	/**
+	 * Runs the calculations of the approximations of an unreachable target.
+	 * If an index of the reachable values is given, the witnesses of the
+	 * approximations are taken from it instead.
+	 *
+	 * @param diffLess    the distance of the lower approximation or
+	 *                    {@link Integer#MAX_VALUE}, if none
+	 * @param diffGreater the distance of the upper approximation or
+	 *                    {@link Integer#MAX_VALUE}, if none
+	 * @param index       the index of the reachable values or null to
+	 *                    calculate all solutions of the approximations
+	 */
+	private void runApproximativeCalculation(CalculationCtrlParams params,
+		int diffLess, int diffGreater, TabUserData tabUserData, BorderPane borderPane,
+		ReachableValueIndex index)
 	{
 		final String titleLowerApproximation = "Lower Approximation";
 		final String titleUpperApproximation = "Upper Approximation";
-		final boolean isSmallerPossible = result.isLowerApproximationPossible();
-		final boolean isGreaterPossible = result.isUpperApproximationPossible();
+		final boolean isSmallerPossible = diffLess < Integer.MAX_VALUE;
+		final boolean isGreaterPossible = diffGreater < Integer.MAX_VALUE;
 		final int target = params.getTarget();
-		final int diffLess = result.getDiffLess();
 		final int valueLess = target - diffLess;
-		final int diffGreater = result.getDiffGreater();
 		final int valueGreater = target + diffGreater;
 		final String titleSmaller;
 		final String titleGreater;
@@ -220,19 +391,26 @@ class CalculationRunner
 			solutionDisplaySmaller = new SolutionDisplayTable(
 				new CalculationCtrlParams(valueLess, params));
 			contentSmaller = solutionDisplaySmaller.getDisplay();
-			final Calculator calculator = new Calculator(
-				new CalculationParams(valueLess, params.getOperands()));
-			final Consumer<CalculationResult> consumer = resultSmaller ->
+			if (index != null)
 			{
-				solutionDisplaySmaller.setSolutions(resultSmaller.getSolutions());
-			};
-			taskSmaller = new CalculatorTask(calculator, consumer,
-				solutionDisplaySmaller.progressProperty());
-			solutionDisplaySmaller.setOnCancel(() ->
+				solutionDisplaySmaller.setSolutions(createSolutionSet(index.getWitness(valueLess)));
+				taskSmaller = null;
+			}
+			else
 			{
-				taskSmaller.cancel();
-				solutionDisplaySmaller.cancel();
-			});
+				final Calculator calculator = createCalculator(tabUserData, valueLess, params);
+				final Consumer<CalculationResult> consumer = resultSmaller ->
+				{
+					solutionDisplaySmaller.setSolutions(resultSmaller.getSolutions());
+				};
+				taskSmaller = new CalculatorTask(calculator, consumer,
+					solutionDisplaySmaller.progressProperty());
+				solutionDisplaySmaller.setOnCancel(() ->
+				{
+					taskSmaller.cancel();
+					solutionDisplaySmaller.cancel();
+				});
+			}
 		}
 		else
 		{
@@ -248,19 +426,26 @@ class CalculationRunner
 			solutionDisplayGreater = new SolutionDisplayTable(
 				new CalculationCtrlParams(valueGreater, params));
 			contentGreater = solutionDisplayGreater.getDisplay();
-			final Calculator calculator = new Calculator(
-				new CalculationParams(valueGreater, params.getOperands()));
-			final Consumer<CalculationResult> consumer = resultGreater ->
+			if (index != null)
 			{
-				solutionDisplayGreater.setSolutions(resultGreater.getSolutions());
-			};
-			taskGreater = new CalculatorTask(calculator, consumer,
-				solutionDisplayGreater.progressProperty());
-			solutionDisplayGreater.setOnCancel(() ->
+				solutionDisplayGreater.setSolutions(createSolutionSet(index.getWitness(valueGreater)));
+				taskGreater = null;
+			}
+			else
 			{
-				taskGreater.cancel();
-				solutionDisplayGreater.cancel();
-			});
+				final Calculator calculator = createCalculator(tabUserData, valueGreater, params);
+				final Consumer<CalculationResult> consumer = resultGreater ->
+				{
+					solutionDisplayGreater.setSolutions(resultGreater.getSolutions());
+				};
+				taskGreater = new CalculatorTask(calculator, consumer,
+					solutionDisplayGreater.progressProperty());
+				solutionDisplayGreater.setOnCancel(() ->
+				{
+					taskGreater.cancel();
+					solutionDisplayGreater.cancel();
+				});
+			}
 		}
 		else
 		{
@@ -299,30 +484,29 @@ class CalculationRunner
 			(observable, tabPrevious, tabCurrent) -> updateSortButtonState.run());
 		borderPane.setCenter(tabPaneApprox);
 		tabUserData.setTabPaneApprox(tabPaneApprox);
-		if (bothApproxPossible)
+		if (task1 != null && task2 != null)
 		{
-			if (params.getNumThreads() > 1)
+			if (ThreadCountSettings.getNumThreads(params) > 1)
 			{
 				// if using more than one CPU core, run one task after the other:
-				CompletableFuture.runAsync(task1).thenRunAsync(task2);
+				CompletableFuture.runAsync(task1, this.taskExecutor).thenRunAsync(task2, this.taskExecutor);
 			}
 			else
 			{
 				// run both approximation tasks concurrent like in version 1:
-				CompletableFuture.allOf(
-					CompletableFuture.runAsync(task1),
-					CompletableFuture.runAsync(task2));
+				runAsync(task1);
+				runAsync(task2);
 			}
 		}
 		else
 		{
 			if (task1 != null)
 			{
-				CompletableFuture.runAsync(task1);
+				runAsync(task1);
 			}
 			if (task2 != null)
 			{
-				CompletableFuture.runAsync(task2);
+				runAsync(task2);
 			}
 		}
 	}
@@ -345,7 +529,8 @@ class CalculationRunner
 				calculationDisplay = new CalculationDisplayStandard(
 					calculationCtrlParams.getOperands());
 			}
-			startNewCalculation(calculationDisplay);
+			startNewCalculation(calculationDisplay).setReachableValueIndex(
+				tabUserData.getReachableValueIndex());
 		}
 	}
 
@@ -416,7 +601,7 @@ class CalculationRunner
 		}
 	}
 
-	void startNewCalculation(CalculationDisplay calculationDisplay)
+	TabUserData startNewCalculation(CalculationDisplay calculationDisplay)
 	{
 		final int counter = this.tabPane.getTabs().stream().
 			map(tab -> tab.getUserData()).
@@ -426,10 +611,12 @@ class CalculationRunner
 		final Tab tab = new Tab("Calculation " + counter, calculationDisplay.getDisplay());
 		tab.setOnCloseRequest(event -> onTabClose(tab));
 		calculationDisplay.setOnStart(new TabReference(tab), this::onCalculationStart);
-		tab.setUserData(new TabUserData(counter, calculationDisplay));
+		final TabUserData tabUserData = new TabUserData(counter, calculationDisplay);
+		tab.setUserData(tabUserData);
 		this.tabPane.getTabs().add(tab);
 		this.tabPane.getSelectionModel().select(tab);
 		calculationDisplay.requestInitalFocus();
+		return tabUserData;
 	}
 
 	void startNewEmptyCalculation()
@@ -33,6 +33,7 @@ import java.util.logging.Logger;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuButton;
 import javafx.scene.control.MenuItem;
@@ -282,6 +283,17 @@ public class JChiffresFX implements ApplicationMainWindow
 		menuItemSaveCSV.setDisable(sdt == null);
 	}
 
+	/**
+	 * Returns true, if the calculator is to be warmed up in the background on
+	 * application start.
+	 *
+	 * @return true, if the calculator is to be warmed up on start
+	 */
+	public static boolean isWarmupOnStart()
+	{
+		return preferences.getBoolean(ID_PREF_OPTION_WARMUP_ON_START.key(), true);
+	}
+
 	private static OnStartOptions getOnStartOption()
 	{
 		final int idx = preferences.getInt(ID_PREF_OPTION_ON_START.key(), -1);
@@ -311,9 +323,14 @@ public class JChiffresFX implements ApplicationMainWindow
 		menuItemOnStartExtended.setSelected(onStartIndex == idxOpenExtTab);
 		menuItemOnStartExtended.setOnAction(e -> preferences.putInt(
 			ID_PREF_OPTION_ON_START.key(), idxOpenExtTab));
+		final CheckMenuItem menuItemWarmup = new CheckMenuItem("Warm up calculator in background");
+		menuItemWarmup.setSelected(isWarmupOnStart());
+		menuItemWarmup.setOnAction(e -> preferences.putBoolean(
+			ID_PREF_OPTION_WARMUP_ON_START.key(), menuItemWarmup.isSelected()));
 		final Menu menuOnApplicationStart = new Menu("On application start");
 		menuOnApplicationStart.getItems().addAll(menuItemOnStartNothing,
-			menuItemOnStartStandard, menuItemOnStartExtended);
+			menuItemOnStartStandard, menuItemOnStartExtended,
+			new SeparatorMenuItem(), menuItemWarmup);
 		return menuOnApplicationStart;
 	}
 
@@ -16,12 +16,16 @@
  */
 package de.bernd_michaely.chiffres.fx.mainwindow;
 
+import de.bernd_michaely.chiffres.fx.display.CalculationCtrlParams;
+import de.bernd_michaely.chiffres.fx.display.CalculationDisplayExtended;
 import de.bernd_michaely.chiffres.fx.info.InfoPane;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.Tooltip;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
@@ -41,6 +45,8 @@ public class PaneOptionsStandardGame implements InfoPane
 	private final BorderPane root;
 	private final VBox vBox;
 	private final Slider sliderNumThreads;
+	private final CheckBox checkBoxNumThreadsAuto;
+	private final Spinner<Integer> spinnerNumThreadsLimit;
 	private final CheckBox checkBoxShowIntermediateResults;
 
 	PaneOptionsStandardGame(String title)
@@ -57,11 +63,26 @@ public class PaneOptionsStandardGame implements InfoPane
 		sliderNumThreads.setShowTickLabels(true);
 		sliderNumThreads.setShowTickMarks(true);
 		sliderNumThreads.setSnapToTicks(true);
-		final Label labelSlider = new Label("_Number of threads to use for computation:");
+		sliderNumThreads.setTooltip(new Tooltip(CalculationDisplayExtended.TOOLTIP_NUM_THREADS));
+		final Label labelSlider = new Label("_Maximum number of threads per calculation:");
 		labelSlider.setMnemonicParsing(true);
 		labelSlider.setLabelFor(sliderNumThreads);
+		this.checkBoxNumThreadsAuto = new CheckBox(CalculationDisplayExtended.TEXT_NUM_THREADS_AUTO);
+		checkBoxNumThreadsAuto.setTooltip(new Tooltip(CalculationDisplayExtended.TOOLTIP_NUM_THREADS_AUTO));
+		sliderNumThreads.disableProperty().bind(checkBoxNumThreadsAuto.selectedProperty());
+		this.spinnerNumThreadsLimit = new Spinner<>(0, 1024, 0);
+		spinnerNumThreadsLimit.setEditable(true);
+		spinnerNumThreadsLimit.setTooltip(new Tooltip(
+			"Upper limit of the number of threads per calculation.\n" +
+			"0 uses the number of processors reported by the Java VM,\n" +
+			"which may be wrong e.g. in containers or virtual machines.\n" +
+			"Takes effect on the next start of the application."));
+		final Label labelSpinner = new Label("_Limit of threads per calculation (0 = number of processors):");
+		labelSpinner.setMnemonicParsing(true);
+		labelSpinner.setLabelFor(spinnerNumThreadsLimit);
 		this.checkBoxShowIntermediateResults = new CheckBox("Show _intermediate results");
 		this.vBox = new VBox(DEFAULT_INSET_SIZE, labelSlider, sliderNumThreads,
+			checkBoxNumThreadsAuto, labelSpinner, spinnerNumThreadsLimit,
 			checkBoxShowIntermediateResults);
 		vBox.setAlignment(Pos.CENTER_LEFT);
 		this.root = new BorderPane(vBox);
@@ -73,15 +94,23 @@ public class PaneOptionsStandardGame implements InfoPane
 
 	public static int getNumThreadsMax()
 	{
-		return Runtime.getRuntime().availableProcessors();
+		return ThreadCountSettings.getNumThreadsMax();
+	}
+
+	public static boolean isNumThreadsAuto()
+	{
+		return preferences.getBoolean(ID_PREF_MODE_DEFAULT_NUM_THREADS_AUTO.key(), false);
 	}
 
 	public static int getNumThreads()
 	{
-		final int numThreadsMax = getNumThreadsMax();
-		final int numThreadsDefault = Math.round(numThreadsMax * 3f / 8f);
-		return Math.min(numThreadsMax, preferences.getInt(
-			ID_PREF_MODE_DEFAULT_NUM_THREADS.key(), numThreadsDefault));
+		return isNumThreadsAuto() ? CalculationCtrlParams.NUM_THREADS_AUTO : getNumThreadsManual();
+	}
+
+	private static int getNumThreadsManual()
+	{
+		return Math.min(getNumThreadsMax(), preferences.getInt(
+			ID_PREF_MODE_DEFAULT_NUM_THREADS.key(), ThreadCountSettings.getNumThreadsDefault()));
 	}
 
 	public static boolean isShowingIntermediateResult()
@@ -91,10 +120,12 @@ public class PaneOptionsStandardGame implements InfoPane
 
 	private void loadValues()
 	{
-		final int numThreads = getNumThreads();
+		final int numThreads = getNumThreadsManual();
 		sliderNumThreads.setMin(1);
 		sliderNumThreads.setMax(getNumThreadsMax());
 		sliderNumThreads.setValue(numThreads);
+		checkBoxNumThreadsAuto.setSelected(isNumThreadsAuto());
+		spinnerNumThreadsLimit.getValueFactory().setValue(ThreadCountSettings.getNumThreadsLimitOverride());
 		checkBoxShowIntermediateResults.setSelected(isShowingIntermediateResult());
 	}
 
@@ -102,8 +133,15 @@ public class PaneOptionsStandardGame implements InfoPane
 	{
 		preferences.putInt(ID_PREF_MODE_DEFAULT_NUM_THREADS.key(),
 			(int) sliderNumThreads.getValue());
+		preferences.putBoolean(ID_PREF_MODE_DEFAULT_NUM_THREADS_AUTO.key(),
+			checkBoxNumThreadsAuto.isSelected());
+		ThreadCountSettings.setNumThreadsLimitOverride(spinnerNumThreadsLimit.getValue());
 		preferences.putBoolean(ID_PREF_MODE_DEFAULT_INTERMEDIATE.key(),
 			checkBoxShowIntermediateResults.isSelected());
+		if (ThreadCountSettings.isCalibrationRequired())
+		{
+			ThreadCountSettings.startCalibration();
+		}
 	}
 
 	@Override
@@ -29,13 +29,19 @@ public enum PreferencesKeys
 {
 	// Start options:
 	ID_PREF_OPTION_ON_START,
+	ID_PREF_OPTION_WARMUP_ON_START,
 	// Default options:
 	ID_PREF_MODE_DEFAULT_NUM_THREADS,
+	ID_PREF_MODE_DEFAULT_NUM_THREADS_AUTO,
 	ID_PREF_MODE_DEFAULT_INTERMEDIATE,
 	// Extended options:
 	ID_PREF_MODE_EXTENDED_NUM_THREADS,
+	ID_PREF_MODE_EXTENDED_NUM_THREADS_AUTO,
 	ID_PREF_MODE_EXTENDED_INTERMEDIATE,
 	ID_PREF_MODE_EXTENDED_NUM_OPERANDS,
+	// Thread options:
+	ID_PREF_NUM_THREADS_LIMIT,
+	ID_PREF_NUM_THREADS_CALIBRATION,
 	// TrackableWindowState options:
 	ID_PREF_WINDOW_POS_X,
 	ID_PREF_WINDOW_POS_Y,
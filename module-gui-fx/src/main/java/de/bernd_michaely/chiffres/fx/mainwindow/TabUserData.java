@@ -16,6 +16,8 @@
  */
 package de.bernd_michaely.chiffres.fx.mainwindow;
 
+import de.bernd_michaely.chiffres.calc.Calculator;
+import de.bernd_michaely.chiffres.calc.ReachableValueIndex;
 import de.bernd_michaely.chiffres.fx.display.CalculationCtrl;
 import de.bernd_michaely.chiffres.fx.display.CalculationCtrlParams;
 import de.bernd_michaely.chiffres.fx.display.CalculationDisplay;
@@ -23,6 +25,8 @@ import de.bernd_michaely.chiffres.fx.display.CalculationDisplayExtended;
 import de.bernd_michaely.chiffres.fx.display.CalculationDisplayStandard;
 import de.bernd_michaely.chiffres.fx.display.SolutionDisplay;
 import de.bernd_michaely.chiffres.fx.table.SolutionDisplayTable;
+import java.util.ArrayList;
+import java.util.List;
 import javafx.scene.control.TabPane;
 
 /**
@@ -44,6 +48,9 @@ class TabUserData
 	private CalculationCtrlParams calculationCtrlParams;
 	private TabPane tabPaneApprox;
 	private boolean showingSolutions;
+	private final List<Calculator> calculators = new ArrayList<>();
+	private boolean prioritized;
+	private ReachableValueIndex reachableValueIndex;
 
 	TabUserData(SolutionDisplayTable solutionDisplayApprox, boolean showingSolutions)
 	{
@@ -163,4 +170,49 @@ class TabUserData
 	{
 		return this.showingSolutions;
 	}
+
+	/**
+	 * Adds a calculator of this tab, including the approximation calculators.
+	 *
+	 * @param calculator the calculator to add
+	 */
+	void addCalculator(Calculator calculator)
+	{
+		calculator.setPrioritized(this.prioritized);
+		this.calculators.add(calculator);
+	}
+
+	/**
+	 * Returns the index of the values reachable from the operands of this
+	 * tab.
+	 *
+	 * @return the index or null, if none is available
+	 */
+	ReachableValueIndex getReachableValueIndex()
+	{
+		return this.reachableValueIndex;
+	}
+
+	/**
+	 * Attaches an index of the values reachable from the operands of this
+	 * tab. The index is passed on to cloned tabs, where a calculation with
+	 * an unreachable target skips directly to the approximations.
+	 *
+	 * @param reachableValueIndex the index or null
+	 */
+	void setReachableValueIndex(ReachableValueIndex reachableValueIndex)
+	{
+		this.reachableValueIndex = reachableValueIndex;
+	}
+
+	/**
+	 * Prioritizes the calculations of this tab, e.g. if it is selected.
+	 *
+	 * @param prioritized true to prioritize the calculations of this tab
+	 */
+	void setPrioritized(boolean prioritized)
+	{
+		this.prioritized = prioritized;
+		this.calculators.forEach(calculator -> calculator.setPrioritized(prioritized));
+	}
 }
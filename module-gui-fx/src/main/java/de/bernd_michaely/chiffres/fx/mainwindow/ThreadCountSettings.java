@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.fx.mainwindow;
+
+import de.bernd_michaely.chiffres.calc.ThreadCountCalibration;
+import de.bernd_michaely.chiffres.fx.display.CalculationCtrlParams;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static de.bernd_michaely.chiffres.fx.mainwindow.PreferencesKeys.*;
+
+/**
+ * Settings for the number of threads per calculation. In automatic mode the
+ * number of threads is chosen by a {@link ThreadCountCalibration} of this
+ * machine, which is run once in the background and cached in the
+ * preferences. The limit of the number of threads may be overridden for
+ * machines where the number of processors reported by the JVM is wrong.
+ *
+ * @author Bernd Michaely (info@bernd-michaely.de)
+ */
+public final class ThreadCountSettings
+{
+	private static final Logger logger = Logger.getLogger(ThreadCountSettings.class.getName());
+	private static final AtomicBoolean calibrationRunning = new AtomicBoolean();
+	private static volatile ThreadCountCalibration calibration;
+
+	private ThreadCountSettings()
+	{
+	}
+
+	/**
+	 * Returns the overridden limit of the number of threads per calculation.
+	 *
+	 * @return the overridden limit or 0, if the default limit is used
+	 */
+	public static int getNumThreadsLimitOverride()
+	{
+		return Math.max(0, preferences.getInt(ID_PREF_NUM_THREADS_LIMIT.key(), 0));
+	}
+
+	/**
+	 * Overrides the limit of the number of threads per calculation.
+	 *
+	 * @param numThreadsLimit the limit or 0 to use the number of available
+	 *                        processors
+	 */
+	public static void setNumThreadsLimitOverride(int numThreadsLimit)
+	{
+		preferences.putInt(ID_PREF_NUM_THREADS_LIMIT.key(), Math.max(0, numThreadsLimit));
+	}
+
+	/**
+	 * Returns the maximum number of threads per calculation, that is the
+	 * overridden limit, if set, or the number of available processors.
+	 *
+	 * @return the maximum number of threads per calculation
+	 */
+	public static int getNumThreadsMax()
+	{
+		final int numThreadsLimit = getNumThreadsLimitOverride();
+		return (numThreadsLimit > 0) ? numThreadsLimit : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the number of threads used, if no calibration is available.
+	 *
+	 * @return the default number of threads
+	 */
+	public static int getNumThreadsDefault()
+	{
+		return Math.max(1, Math.round(getNumThreadsMax() * 3f / 8f));
+	}
+
+	/**
+	 * Returns true, if the automatic number of threads is selected for
+	 * standard or extended games.
+	 *
+	 * @return true, if the automatic number of threads is selected
+	 */
+	public static boolean isAutoSelected()
+	{
+		return preferences.getBoolean(ID_PREF_MODE_DEFAULT_NUM_THREADS_AUTO.key(), false) ||
+			preferences.getBoolean(ID_PREF_MODE_EXTENDED_NUM_THREADS_AUTO.key(), false);
+	}
+
+	/**
+	 * Returns the calibration of this machine, cached in the preferences.
+	 *
+	 * @return the calibration or null, if none is available, or it is out of
+	 *         date, e.g. because the number of processors or the limit of
+	 *         threads have changed
+	 */
+	public static ThreadCountCalibration getCalibration()
+	{
+		ThreadCountCalibration result = calibration;
+		if (result == null)
+		{
+			final String encoded = preferences.get(ID_PREF_NUM_THREADS_CALIBRATION.key(), null);
+			if (encoded != null)
+			{
+				try
+				{
+					result = ThreadCountCalibration.decode(encoded);
+					calibration = result;
+				}
+				catch (IllegalArgumentException ex)
+				{
+					logger.log(Level.WARNING, ex.getMessage());
+				}
+			}
+		}
+		return (result != null && isValid(result)) ? result : null;
+	}
+
+	private static boolean isValid(ThreadCountCalibration result)
+	{
+		final int[] threadCounts = result.getThreadCounts();
+		return result.isUpToDate() && threadCounts[threadCounts.length - 1] == getNumThreadsMax();
+	}
+
+	/**
+	 * Returns true, if the automatic number of threads is selected, but no
+	 * valid calibration is available.
+	 *
+	 * @return true, if a calibration is required
+	 */
+	public static boolean isCalibrationRequired()
+	{
+		return isAutoSelected() && getCalibration() == null;
+	}
+
+	/**
+	 * Starts a calibration on a background thread, unless one is already
+	 * running. The result is cached in the preferences.
+	 */
+	public static void startCalibration()
+	{
+		if (calibrationRunning.compareAndSet(false, true))
+		{
+			final int numThreadsMax = getNumThreadsMax();
+			final Thread thread = new Thread(() ->
+			{
+				try
+				{
+					final ThreadCountCalibration result = ThreadCountCalibration.calibrate(
+						ThreadCountCalibration.DEFAULT_GAMES, numThreadsMax);
+					calibration = result;
+					preferences.put(ID_PREF_NUM_THREADS_CALIBRATION.key(), result.encode());
+					logger.log(Level.INFO, "Thread count calibration : {0}", result);
+				}
+				finally
+				{
+					calibrationRunning.set(false);
+				}
+			}, "ThreadCountCalibration");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Returns the number of threads for the given calculation. If the
+	 * automatic number of threads is requested, the calibrated number of
+	 * threads for the number of operands is used, or the default number of
+	 * threads, while no calibration is available.
+	 *
+	 * @param params the calculation parameters
+	 * @return the number of threads
+	 */
+	public static int getNumThreads(CalculationCtrlParams params)
+	{
+		if (!params.isNumThreadsAuto())
+		{
+			return params.getNumThreads();
+		}
+		final ThreadCountCalibration result = getCalibration();
+		return (result != null) ? result.getNumThreads(params.getNumOperands()) : getNumThreadsDefault();
+	}
+}
@@ -43,6 +43,8 @@ class OperationTableCell extends TableCell<SolutionRow, Operation> implements So
 	private static final Color COLOR_BG_OPERATOR_SUB = Color.rgb(255, 204, 204);
 	private static final Color COLOR_BG_OPERATOR_MUL = Color.rgb(204, 255, 230);
 	private static final Color COLOR_BG_OPERATOR_DIV = Color.rgb(204, 230, 255);
+	private static final Color COLOR_BG_OPERATOR_POW = Color.rgb(230, 204, 255);
+	private static final Color COLOR_BG_OPERATOR_CAT = Color.rgb(230, 230, 230);
 	private static final Color COLOR_FG_OPERAND_INITIAL = Color.rgb(204, 0, 0);
 	private static final Color COLOR_FG_OPERAND_CALCULATED = Color.rgb(0, 0, 204);
 	private final Text textOp1 = new Text();
@@ -60,6 +62,8 @@ class OperationTableCell extends TableCell<SolutionRow, Operation> implements So
 		mapBackgrounds.put(SUB, new Background(new BackgroundFill(COLOR_BG_OPERATOR_SUB, null, null)));
 		mapBackgrounds.put(MUL, new Background(new BackgroundFill(COLOR_BG_OPERATOR_MUL, null, null)));
 		mapBackgrounds.put(DIV, new Background(new BackgroundFill(COLOR_BG_OPERATOR_DIV, null, null)));
+		mapBackgrounds.put(POW, new Background(new BackgroundFill(COLOR_BG_OPERATOR_POW, null, null)));
+		mapBackgrounds.put(CAT, new Background(new BackgroundFill(COLOR_BG_OPERATOR_CAT, null, null)));
 	}
 
 	OperationTableCell()
@@ -105,6 +109,12 @@ class OperationTableCell extends TableCell<SolutionRow, Operation> implements So
 				case DIV:
 					this.symbolOperator.setSign(DIVISION_SIGN);
 					break;
+				case POW:
+					this.symbolOperator.setSign(POWER_SIGN);
+					break;
+				case CAT:
+					this.symbolOperator.setSign(CONCATENATION_SIGN);
+					break;
 				default:
 					throw new AssertionError("Invalid Symbol");
 			}
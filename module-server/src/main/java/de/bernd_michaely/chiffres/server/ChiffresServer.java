@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.server;
+
+import com.sun.net.httpserver.HttpServer;
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import de.bernd_michaely.chiffres.calc.ResultStore;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local HTTP solving service. Serves the endpoints {@code /solve},
+ * {@code /count} and {@code /approximation}, e.g.:
+ *
+ * <pre>GET /solve?target=769&amp;operands=2,1,7,9&amp;threads=2&amp;max=all</pre>
+ *
+ * Requests are handled on virtual threads, the calculations run on a bounded
+ * pool of worker threads. Identical concurrent requests are coalesced into a
+ * single calculation. If the pool is saturated, requests are rejected with
+ * status 503. Optionally, the results are kept in a persistent
+ * {@link ResultStore}, so games are not recalculated after a restart.
+ *
+ * @author Bernd Michaely
+ */
+public class ChiffresServer
+{
+	private static final Logger logger = Logger.getLogger(ChiffresServer.class.getName());
+	/**
+	 * The default port.
+	 */
+	public static final int DEFAULT_PORT = 8080;
+	private final HttpServer httpServer;
+	private final SolveService solveService;
+	private final ExecutorService requestExecutor;
+
+	/**
+	 * Creates a new server. Call {@link #start()} to start it.
+	 *
+	 * @param address              the address to bind to, use port 0 for an
+	 *                             ephemeral port
+	 * @param numWorkers           the number of games solved concurrently
+	 * @param queueCapacity        the number of games waiting for a worker
+	 *                             before new games are rejected
+	 * @param maxThreadsPerRequest the maximum number of threads a single
+	 *                             request may use for its calculation
+	 * @throws IOException              if the address can not be bound
+	 * @throws IllegalArgumentException if an argument is out of range
+	 */
+	public ChiffresServer(InetSocketAddress address, int numWorkers, int queueCapacity,
+		int maxThreadsPerRequest) throws IOException
+	{
+		this(address, numWorkers, queueCapacity, maxThreadsPerRequest, (ResultStore) null);
+	}
+
+	/**
+	 * Creates a new server using a result store. Call {@link #start()} to
+	 * start it. The store is not closed by the server.
+	 *
+	 * @param address              the address to bind to, use port 0 for an
+	 *                             ephemeral port
+	 * @param numWorkers           the number of games solved concurrently
+	 * @param queueCapacity        the number of games waiting for a worker
+	 *                             before new games are rejected
+	 * @param maxThreadsPerRequest the maximum number of threads a single
+	 *                             request may use for its calculation
+	 * @param resultStore          the result store or null for none
+	 * @throws IOException              if the address can not be bound
+	 * @throws IllegalArgumentException if an argument is out of range
+	 */
+	public ChiffresServer(InetSocketAddress address, int numWorkers, int queueCapacity,
+		int maxThreadsPerRequest, ResultStore resultStore) throws IOException
+	{
+		this(address, numWorkers, queueCapacity, maxThreadsPerRequest,
+			(calculationParams, numThreads) -> createCalculator(calculationParams, numThreads, resultStore));
+	}
+
+	ChiffresServer(InetSocketAddress address, int numWorkers, int queueCapacity,
+		int maxThreadsPerRequest, BiFunction<CalculationParams, Integer, Calculator> calculatorFactory)
+		throws IOException
+	{
+		if (maxThreadsPerRequest < 1)
+		{
+			throw new IllegalArgumentException("Maximum threads per request must be at least one");
+		}
+		this.solveService = new SolveService(numWorkers, queueCapacity, calculatorFactory);
+		this.httpServer = HttpServer.create(address, 0);
+		for (SolveHandler.Endpoint endpoint : SolveHandler.Endpoint.values())
+		{
+			this.httpServer.createContext(endpoint.getPath(),
+				new SolveHandler(endpoint, this.solveService, maxThreadsPerRequest));
+		}
+		this.requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+		this.httpServer.setExecutor(this.requestExecutor);
+	}
+
+	private static Calculator createCalculator(CalculationParams calculationParams, int numThreads,
+		ResultStore resultStore)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setNumThreads(numThreads);
+		calculator.setResultStore(resultStore);
+		return calculator;
+	}
+
+	/**
+	 * Starts the server.
+	 */
+	public void start()
+	{
+		this.httpServer.start();
+		logger.info("Server listening on " + getAddress());
+	}
+
+	/**
+	 * Stops the server. Requests in progress are given the specified time to
+	 * complete, then queued games are discarded and running calculations are
+	 * cancelled.
+	 *
+	 * @param delaySeconds the maximum time to wait for requests to complete
+	 */
+	public void stop(int delaySeconds)
+	{
+		this.httpServer.stop(delaySeconds);
+		this.solveService.shutdown();
+		this.requestExecutor.shutdownNow();
+		logger.info("Server stopped");
+	}
+
+	/**
+	 * Returns the address the server is bound to.
+	 *
+	 * @return the address the server is bound to
+	 */
+	public InetSocketAddress getAddress()
+	{
+		return this.httpServer.getAddress();
+	}
+
+	/**
+	 * Returns the number of calculations started.
+	 *
+	 * @return the number of calculations started
+	 */
+	public long getNumCalculations()
+	{
+		return this.solveService.getNumCalculations();
+	}
+
+	/**
+	 * Returns the number of requests served by a calculation already running
+	 * for an identical request.
+	 *
+	 * @return the number of coalesced requests
+	 */
+	public long getNumCoalesced()
+	{
+		return this.solveService.getNumCoalesced();
+	}
+
+	/**
+	 * Returns the number of requests rejected because the server was
+	 * saturated.
+	 *
+	 * @return the number of rejected requests
+	 */
+	public long getNumRejected()
+	{
+		return this.solveService.getNumRejected();
+	}
+
+	/**
+	 * Starts a server on the loopback interface. Optional arguments are the
+	 * port, the number of workers, the queue capacity, the maximum number of
+	 * threads per request and the directory of a result store.
+	 *
+	 * @param args the command line arguments
+	 * @throws IOException if the server can not be started
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		final int processors = Runtime.getRuntime().availableProcessors();
+		final int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final int numWorkers = (args.length > 1) ? Integer.parseInt(args[1]) : processors;
+		final int queueCapacity = (args.length > 2) ? Integer.parseInt(args[2]) : 4 * numWorkers;
+		final int maxThreadsPerRequest = (args.length > 3) ? Integer.parseInt(args[3]) : processors;
+		final ResultStore resultStore = (args.length > 4) ? ResultStore.open(Path.of(args[4])) : null;
+		final ChiffresServer server = new ChiffresServer(
+			new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+			numWorkers, queueCapacity, maxThreadsPerRequest, resultStore);
+		Runtime.getRuntime().addShutdownHook(new Thread(() ->
+		{
+			server.stop(1);
+			if (resultStore != null)
+			{
+				try
+				{
+					resultStore.close();
+				}
+				catch (IOException ex)
+				{
+					logger.log(Level.WARNING, "Can't close result store", ex);
+				}
+			}
+		}));
+		server.start();
+	}
+}
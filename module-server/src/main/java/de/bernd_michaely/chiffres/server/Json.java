@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.server;
+
+/**
+ * Minimal builder for flat JSON objects.
+ *
+ * @author Bernd Michaely
+ */
+class Json
+{
+	private final StringBuilder s = new StringBuilder("{");
+
+	static String quote(String value)
+	{
+		final StringBuilder s = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++)
+		{
+			final char c = value.charAt(i);
+			switch (c)
+			{
+				case '"':
+					s.append("\\\"");
+					break;
+				case '\\':
+					s.append("\\\\");
+					break;
+				case '\n':
+					s.append("\\n");
+					break;
+				case '\r':
+					s.append("\\r");
+					break;
+				case '\t':
+					s.append("\\t");
+					break;
+				default:
+					if (c < 0x20)
+					{
+						s.append(String.format("\\u%04x", (int) c));
+					}
+					else
+					{
+						s.append(c);
+					}
+			}
+		}
+		return s.append('"').toString();
+	}
+
+	private Json name(String name)
+	{
+		if (this.s.length() > 1)
+		{
+			this.s.append(',');
+		}
+		this.s.append(quote(name)).append(':');
+		return this;
+	}
+
+	/**
+	 * Adds a member with a raw JSON value, e.g. a number, boolean or array.
+	 *
+	 * @param name  the member name
+	 * @param value the raw JSON value
+	 * @return this builder
+	 */
+	Json raw(String name, Object value)
+	{
+		name(name).s.append(value);
+		return this;
+	}
+
+	/**
+	 * Adds a member with a string value.
+	 *
+	 * @param name  the member name
+	 * @param value the string value
+	 * @return this builder
+	 */
+	Json string(String name, String value)
+	{
+		name(name).s.append(quote(value));
+		return this;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.s.toString() + "}";
+	}
+}
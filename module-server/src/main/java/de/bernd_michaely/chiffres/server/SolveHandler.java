@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.Solution;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handler for the solve, count and approximation endpoints. All endpoints
+ * accept GET requests with the query parameters {@code target},
+ * {@code operands} (comma separated) and optionally {@code threads}. The solve
+ * endpoint additionally accepts {@code max} to limit the number of solutions
+ * returned ({@code all} for no limit).
+ *
+ * @author Bernd Michaely
+ */
+class SolveHandler implements HttpHandler
+{
+	private static final Logger logger = Logger.getLogger(SolveHandler.class.getName());
+	static final int DEFAULT_MAX_SOLUTIONS = 10;
+
+	/**
+	 * The endpoints served by this handler.
+	 */
+	enum Endpoint
+	{
+		SOLVE("/solve"), COUNT("/count"), APPROXIMATION("/approximation");
+
+		private final String path;
+
+		private Endpoint(String path)
+		{
+			this.path = path;
+		}
+
+		String getPath()
+		{
+			return this.path;
+		}
+	}
+
+	private final Endpoint endpoint;
+	private final SolveService solveService;
+	private final int maxThreadsPerRequest;
+
+	SolveHandler(Endpoint endpoint, SolveService solveService, int maxThreadsPerRequest)
+	{
+		this.endpoint = endpoint;
+		this.solveService = solveService;
+		this.maxThreadsPerRequest = maxThreadsPerRequest;
+	}
+
+	static Map<String, String> parseQuery(String query)
+	{
+		final Map<String, String> params = new HashMap<>();
+		if (query != null && !query.isEmpty())
+		{
+			for (String param : query.split("&"))
+			{
+				final int index = param.indexOf('=');
+				final String name = (index >= 0) ? param.substring(0, index) : param;
+				final String value = (index >= 0) ? param.substring(index + 1) : "";
+				params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+
+	private static int parseInt(Map<String, String> params, String name, int min, int max)
+	{
+		final String value = params.get(name);
+		if (value == null)
+		{
+			throw new IllegalArgumentException("Missing parameter »" + name + "«");
+		}
+		try
+		{
+			final int result = Integer.parseInt(value.trim());
+			if (result < min || result > max)
+			{
+				throw new IllegalArgumentException("Parameter »" + name + "« must be in range " +
+					min + " … " + max);
+			}
+			return result;
+		}
+		catch (NumberFormatException ex)
+		{
+			throw new IllegalArgumentException("Invalid value for parameter »" + name + "« : »" + value + "«");
+		}
+	}
+
+	static CalculationParams parseCalculationParams(Map<String, String> params)
+	{
+		final int target = parseInt(params, "target", 1, Integer.MAX_VALUE);
+		final String value = params.get("operands");
+		if (value == null)
+		{
+			throw new IllegalArgumentException("Missing parameter »operands«");
+		}
+		final String[] tokens = value.split(",");
+		if (tokens.length < 2)
+		{
+			throw new IllegalArgumentException("At least two operands required");
+		}
+		final int[] operands = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++)
+		{
+			try
+			{
+				operands[i] = Integer.parseInt(tokens[i].trim());
+			}
+			catch (NumberFormatException ex)
+			{
+				throw new IllegalArgumentException("Invalid operand : »" + tokens[i] + "«");
+			}
+			if (operands[i] < 1)
+			{
+				throw new IllegalArgumentException("Operands must be positive : »" + tokens[i] + "«");
+			}
+		}
+		return new CalculationParams(target, operands);
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException
+	{
+		try (exchange)
+		{
+			if (!exchange.getRequestMethod().equals("GET"))
+			{
+				exchange.getResponseHeaders().set("Allow", "GET");
+				sendError(exchange, 405, "Method not allowed");
+				return;
+			}
+			final Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+			final CalculationParams calculationParams;
+			final int numThreads;
+			final int maxSolutions;
+			try
+			{
+				calculationParams = parseCalculationParams(params);
+				numThreads = params.containsKey("threads") ?
+					parseInt(params, "threads", 1, this.maxThreadsPerRequest) : 1;
+				maxSolutions = "all".equals(params.get("max")) ? Integer.MAX_VALUE :
+					params.containsKey("max") ? parseInt(params, "max", 0, Integer.MAX_VALUE) :
+						DEFAULT_MAX_SOLUTIONS;
+			}
+			catch (IllegalArgumentException ex)
+			{
+				sendError(exchange, 400, ex.getMessage());
+				return;
+			}
+			final long time = System.nanoTime();
+			final CalculationResult result;
+			try
+			{
+				result = this.solveService.solve(calculationParams, numThreads).get();
+			}
+			catch (RejectedExecutionException ex)
+			{
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				sendError(exchange, 503, "Server busy");
+				return;
+			}
+			catch (ExecutionException ex)
+			{
+				if (ex.getCause() instanceof RejectedExecutionException)
+				{
+					exchange.getResponseHeaders().set("Retry-After", "1");
+					sendError(exchange, 503, "Server busy");
+				}
+				else
+				{
+					logger.log(Level.WARNING, "Calculation failed for " + calculationParams, ex.getCause());
+					sendError(exchange, 500, String.valueOf(ex.getCause()));
+				}
+				return;
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				sendError(exchange, 503, "Interrupted");
+				return;
+			}
+			if (result.isOutOfMemory() || result.isCancelled())
+			{
+				sendError(exchange, 500, result.isOutOfMemory() ? "Out of memory" : "Cancelled");
+				return;
+			}
+			final Json json = toJson(calculationParams, result, maxSolutions);
+			json.raw("millis", String.format(Locale.ROOT, "%.3f", (System.nanoTime() - time) / 1e6));
+			send(exchange, 200, json.toString());
+		}
+	}
+
+	private Json toJson(CalculationParams calculationParams, CalculationResult result, int maxSolutions)
+	{
+		final StringJoiner operands = new StringJoiner(",", "[", "]");
+		for (int i = 0; i < calculationParams.getNumOperands(); i++)
+		{
+			operands.add(Integer.toString(calculationParams.getOperand(i)));
+		}
+		final Json json = new Json()
+			.raw("target", calculationParams.getTarget())
+			.raw("operands", operands)
+			.raw("exact", result.isExactSolutionFound());
+		switch (this.endpoint)
+		{
+			case SOLVE ->
+			{
+				json.raw("numSolutions", result.getSolutions().size());
+				final StringJoiner solutions = new StringJoiner(",", "[", "]");
+				int count = 0;
+				for (Solution solution : result.getSolutions())
+				{
+					if (count++ >= maxSolutions)
+					{
+						break;
+					}
+					final StringJoiner s = new StringJoiner(", ");
+					for (int i = 0; i < solution.getDepth(); i++)
+					{
+						s.add(solution.getOperation(i).toString());
+					}
+					solutions.add(Json.quote(s.toString()));
+				}
+				json.raw("solutions", solutions);
+			}
+			case COUNT -> json.raw("numSolutions", result.getSolutions().size());
+			case APPROXIMATION -> json
+					.raw("lowerApproximation", result.getLowerApproximation())
+					.raw("upperApproximation", result.isUpperApproximationPossible() ?
+						Integer.toString(result.getUpperApproximation()) : "null");
+		}
+		return json;
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException
+	{
+		send(exchange, status, new Json().string("error", message).toString());
+	}
+
+	private static void send(HttpExchange exchange, int status, String body) throws IOException
+	{
+		final byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(bytes);
+		}
+	}
+}
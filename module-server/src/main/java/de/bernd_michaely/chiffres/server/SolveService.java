@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.server;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Solves games on a bounded pool of worker threads. Concurrent requests for
+ * the same game are coalesced into a single calculation, whose result is
+ * shared by all requesters. If all workers are busy and the work queue is
+ * full, new games are rejected. On shutdown the running calculations are
+ * cancelled by {@link Calculator#cancel()}.
+ *
+ * @author Bernd Michaely
+ */
+class SolveService
+{
+	private final ThreadPoolExecutor executor;
+	private final BiFunction<CalculationParams, Integer, Calculator> calculatorFactory;
+	private final ConcurrentMap<String, CompletableFuture<CalculationResult>> inFlight =
+		new ConcurrentHashMap<>();
+	private final Set<Calculator> running = ConcurrentHashMap.newKeySet();
+	private final AtomicLong numCalculations = new AtomicLong();
+	private final AtomicLong numCoalesced = new AtomicLong();
+	private final AtomicLong numRejected = new AtomicLong();
+
+	/**
+	 * Creates a new service.
+	 *
+	 * @param numWorkers        the number of games solved concurrently
+	 * @param queueCapacity     the number of games waiting for a worker before
+	 *                          new games are rejected
+	 * @param calculatorFactory the function creating the calculator for a
+	 *                          game with a given number of threads
+	 * @throws IllegalArgumentException if numWorkers is less than one or
+	 *                                  queueCapacity is negative
+	 */
+	SolveService(int numWorkers, int queueCapacity,
+		BiFunction<CalculationParams, Integer, Calculator> calculatorFactory)
+	{
+		if (numWorkers < 1)
+		{
+			throw new IllegalArgumentException("Number of workers must be at least one");
+		}
+		if (queueCapacity < 0)
+		{
+			throw new IllegalArgumentException("Queue capacity must not be negative");
+		}
+		final AtomicInteger threadCounter = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(numWorkers, numWorkers, 0, TimeUnit.MILLISECONDS,
+			(queueCapacity > 0) ? new ArrayBlockingQueue<>(queueCapacity) :
+				new SynchronousQueue<>(),
+			runnable ->
+		{
+			final Thread thread = new Thread(runnable, "SolveService-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+		this.calculatorFactory = calculatorFactory;
+	}
+
+	/**
+	 * Returns the key identifying equivalent games. The order of the operands
+	 * does not matter.
+	 */
+	static String getKey(CalculationParams calculationParams)
+	{
+		final int[] operands = new int[calculationParams.getNumOperands()];
+		for (int i = 0; i < operands.length; i++)
+		{
+			operands[i] = calculationParams.getOperand(i);
+		}
+		Arrays.sort(operands);
+		return calculationParams.getTarget() + ":" + Arrays.toString(operands);
+	}
+
+	/**
+	 * Solves the given game. If an equivalent game is already being solved,
+	 * the result of that calculation is returned instead.
+	 *
+	 * @param calculationParams the game to solve
+	 * @param numThreads        the number of threads used by the calculation
+	 * @return the future result
+	 * @throws RejectedExecutionException if the service is saturated or shut
+	 *                                    down
+	 */
+	CompletableFuture<CalculationResult> solve(CalculationParams calculationParams, int numThreads)
+	{
+		final String key = getKey(calculationParams);
+		final CompletableFuture<CalculationResult> future = new CompletableFuture<>();
+		final CompletableFuture<CalculationResult> existing = this.inFlight.putIfAbsent(key, future);
+		if (existing != null)
+		{
+			this.numCoalesced.incrementAndGet();
+			return existing;
+		}
+		try
+		{
+			this.executor.execute(() ->
+			{
+				try
+				{
+					future.complete(calculate(calculationParams, numThreads));
+				}
+				catch (RuntimeException | OutOfMemoryError ex)
+				{
+					future.completeExceptionally(ex);
+				}
+				finally
+				{
+					this.inFlight.remove(key, future);
+				}
+			});
+		}
+		catch (RejectedExecutionException ex)
+		{
+			this.inFlight.remove(key, future);
+			this.numRejected.incrementAndGet();
+			future.completeExceptionally(ex);
+			throw ex;
+		}
+		this.numCalculations.incrementAndGet();
+		return future;
+	}
+
+	private CalculationResult calculate(CalculationParams calculationParams, int numThreads)
+	{
+		final Calculator calculator = this.calculatorFactory.apply(calculationParams, numThreads);
+		this.running.add(calculator);
+		try
+		{
+			// the service may have been shut down while the calculator was created:
+			if (this.executor.isShutdown())
+			{
+				calculator.cancel();
+			}
+			return calculator.call();
+		}
+		finally
+		{
+			this.running.remove(calculator);
+		}
+	}
+
+	/**
+	 * Returns the number of calculations running.
+	 *
+	 * @return the number of calculations running
+	 */
+	int getNumRunning()
+	{
+		return this.running.size();
+	}
+
+	/**
+	 * Returns the number of calculations started.
+	 *
+	 * @return the number of calculations started
+	 */
+	long getNumCalculations()
+	{
+		return this.numCalculations.get();
+	}
+
+	/**
+	 * Returns the number of requests served by a calculation already running.
+	 *
+	 * @return the number of coalesced requests
+	 */
+	long getNumCoalesced()
+	{
+		return this.numCoalesced.get();
+	}
+
+	/**
+	 * Returns the number of games rejected because the service was saturated.
+	 *
+	 * @return the number of rejected games
+	 */
+	long getNumRejected()
+	{
+		return this.numRejected.get();
+	}
+
+	/**
+	 * Stops accepting new games, discards the queued games and cancels the
+	 * running calculations. The futures of all games not yet solved complete
+	 * exceptionally with a {@link RejectedExecutionException}.
+	 */
+	void shutdown()
+	{
+		this.executor.shutdownNow();
+		this.running.forEach(Calculator::cancel);
+		final RejectedExecutionException exception = new RejectedExecutionException("Service is shut down");
+		this.inFlight.values().forEach(future -> future.completeExceptionally(exception));
+	}
+}
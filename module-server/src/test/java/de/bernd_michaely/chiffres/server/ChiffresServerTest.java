@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.server;
+
+import de.bernd_michaely.chiffres.calc.CalculationParams;
+import de.bernd_michaely.chiffres.calc.CalculationResult;
+import de.bernd_michaely.chiffres.calc.Calculator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ChiffresServer class. The tests run against a
+ * server bound to an ephemeral port on the loopback interface.
+ *
+ * @author Bernd Michaely
+ */
+public class ChiffresServerTest
+{
+	private ChiffresServer server;
+
+	/**
+	 * Response of a HTTP request.
+	 */
+	static class Response
+	{
+		final int status;
+		final String body;
+
+		Response(int status, String body)
+		{
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	static Response request(InetSocketAddress address, String method, String pathAndQuery)
+		throws IOException
+	{
+		final HttpURLConnection connection = (HttpURLConnection) URI.create(
+			"http://" + address.getHostString() + ":" + address.getPort() + pathAndQuery)
+			.toURL().openConnection();
+		try
+		{
+			connection.setRequestMethod(method);
+			final int status = connection.getResponseCode();
+			try (InputStream in = (status < 400) ?
+				connection.getInputStream() : connection.getErrorStream())
+			{
+				return new Response(status, new String(in.readAllBytes(), StandardCharsets.UTF_8).trim());
+			}
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	private Response get(String pathAndQuery) throws IOException
+	{
+		return request(this.server.getAddress(), "GET", pathAndQuery);
+	}
+
+	private void startServer(int numWorkers, int queueCapacity,
+		BiFunction<CalculationParams, Integer, Calculator> calculatorFactory) throws IOException
+	{
+		this.server = new ChiffresServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+			numWorkers, queueCapacity, 2, calculatorFactory);
+		this.server.start();
+	}
+
+	private static Calculator createCalculator(CalculationParams calculationParams, int numThreads)
+	{
+		final Calculator calculator = new Calculator(calculationParams);
+		calculator.setNumThreads(numThreads);
+		return calculator;
+	}
+
+	/**
+	 * Returns a calculator factory, which waits for the given latch before
+	 * creating the calculator.
+	 */
+	private static BiFunction<CalculationParams, Integer, Calculator> blockingSolver(
+		CountDownLatch latch, AtomicInteger counter)
+	{
+		return (calculationParams, numThreads) ->
+		{
+			counter.incrementAndGet();
+			try
+			{
+				latch.await();
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return createCalculator(calculationParams, numThreads);
+		};
+	}
+
+	private static void awaitValue(long expected, LongSupplier value) throws InterruptedException
+	{
+		final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (value.getAsLong() != expected && System.nanoTime() < timeout)
+		{
+			Thread.sleep(10);
+		}
+		assertEquals(expected, value.getAsLong());
+	}
+
+	@AfterEach
+	public void stopServer()
+	{
+		if (this.server != null)
+		{
+			this.server.stop(0);
+		}
+	}
+
+	@Test
+	public void testEndpoints() throws IOException
+	{
+		startServer(2, 4, ChiffresServerTest::createCalculator);
+		final Response solve = get("/solve?target=103&operands=25,4,3&threads=2");
+		assertEquals(200, solve.status);
+		assertTrue(solve.body.startsWith("{\"target\":103,\"operands\":[25,4,3],\"exact\":true," +
+			"\"numSolutions\":1,\"solutions\":[\"25 * 4 = 100, 100 + 3 = 103\"],\"millis\":"), solve.body);
+		final Response count = get("/count?target=100&operands=25,4,3,7");
+		assertEquals(200, count.status);
+		assertTrue(count.body.matches("\\{.*\"exact\":true,\"numSolutions\":[1-9]\\d*,.*"), count.body);
+		final Response approximation = get("/approximation?target=999&operands=1,2,3");
+		assertEquals(200, approximation.status);
+		assertTrue(approximation.body.contains(
+			"\"exact\":false,\"lowerApproximation\":9,\"upperApproximation\":null"), approximation.body);
+		final Response limited = get("/solve?target=100&operands=25,4,3,7&max=0");
+		assertTrue(limited.body.contains("\"solutions\":[]"), limited.body);
+	}
+
+	@Test
+	public void testBadRequests() throws IOException
+	{
+		startServer(1, 1, ChiffresServerTest::createCalculator);
+		assertEquals(400, get("/solve?target=103").status);
+		assertEquals(400, get("/solve?target=103&operands=25").status);
+		assertEquals(400, get("/solve?target=x&operands=25,4,3").status);
+		assertEquals(400, get("/solve?target=103&operands=25,0,3").status);
+		assertEquals(400, get("/solve?target=103&operands=25,4,3&threads=3").status);
+		assertEquals(400, get("/solve?target=103&operands=25,4,3&max=-1").status);
+		assertEquals(405, request(this.server.getAddress(), "POST", "/count?target=103&operands=25,4,3").status);
+		assertEquals(404, get("/unknown").status);
+		assertEquals(0, this.server.getNumCalculations());
+	}
+
+	@Test
+	public void testCoalescing() throws Exception
+	{
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicInteger counter = new AtomicInteger();
+		startServer(2, 2, blockingSolver(latch, counter));
+		final int numRequests = 8;
+		final ExecutorService clients = Executors.newFixedThreadPool(numRequests);
+		try
+		{
+			final List<Future<Response>> responses = new ArrayList<>();
+			for (int i = 0; i < numRequests; i++)
+			{
+				// operand order differs, but the games are identical:
+				final String operands = (i % 2 == 0) ? "25,4,3,7" : "7,3,4,25";
+				final String endpoint = (i % 3 == 0) ? "/count" : "/solve";
+				responses.add(clients.submit(() -> get(endpoint + "?target=100&operands=" + operands)));
+			}
+			awaitValue(numRequests - 1, this.server::getNumCoalesced);
+			latch.countDown();
+			for (Future<Response> response : responses)
+			{
+				assertEquals(200, response.get().status);
+			}
+			assertEquals(1, this.server.getNumCalculations());
+			assertEquals(1, counter.get());
+		}
+		finally
+		{
+			latch.countDown();
+			clients.shutdownNow();
+		}
+		// completed calculations are not cached:
+		assertEquals(200, get("/count?target=100&operands=25,4,3,7").status);
+		assertEquals(2, this.server.getNumCalculations());
+	}
+
+	@Test
+	public void testShutdown() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final SolveService solveService = new SolveService(1, 1, (calculationParams, numThreads) ->
+		{
+			started.countDown();
+			return createCalculator(calculationParams, numThreads);
+		});
+		// an exhaustive search taking far longer than the test timeout:
+		final CompletableFuture<CalculationResult> running = solveService.solve(
+			new CalculationParams(997, 100, 75, 50, 25, 10, 9, 8, 7, 3), 1);
+		final CompletableFuture<CalculationResult> queued = solveService.solve(
+			new CalculationParams(101, 25, 4, 3, 7), 1);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		solveService.shutdown();
+		final ExecutionException exception = assertThrows(ExecutionException.class,
+			() -> queued.get(10, TimeUnit.SECONDS));
+		assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+		// the running calculation terminates:
+		final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (solveService.getNumRunning() > 0 && System.nanoTime() < timeout)
+		{
+			Thread.sleep(10);
+		}
+		assertEquals(0, solveService.getNumRunning());
+		assertTrue(running.isCompletedExceptionally());
+	}
+
+	@Test
+	public void testRejection() throws Exception
+	{
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicInteger counter = new AtomicInteger();
+		startServer(1, 1, blockingSolver(latch, counter));
+		final ExecutorService clients = Executors.newFixedThreadPool(2);
+		try
+		{
+			// one game running, one game queued:
+			final Future<Response> running = clients.submit(() -> get("/count?target=100&operands=25,4,3,7"));
+			awaitValue(1, counter::get);
+			final Future<Response> queued = clients.submit(() -> get("/count?target=101&operands=25,4,3,7"));
+			awaitValue(2, this.server::getNumCalculations);
+			final Response rejected = get("/count?target=102&operands=25,4,3,7");
+			assertEquals(503, rejected.status);
+			assertEquals(1, this.server.getNumRejected());
+			latch.countDown();
+			assertEquals(200, running.get().status);
+			assertEquals(200, queued.get().status);
+			assertEquals(200, get("/count?target=102&operands=25,4,3,7").status);
+		}
+		finally
+		{
+			latch.countDown();
+			clients.shutdownNow();
+		}
+	}
+}
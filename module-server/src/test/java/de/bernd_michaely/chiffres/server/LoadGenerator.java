@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2024 Bernd Michaely (info@bernd-michaely.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.bernd_michaely.chiffres.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load generator for the HTTP solving service. Sends requests for a set of
+ * random games from concurrent clients and reports throughput, latency
+ * percentiles and the response status counts. If no URL is given, a server
+ * is started on the loopback interface.
+ *
+ * <pre>
+ * Options:
+ *   --url &lt;url&gt;         server base URL, e.g. http://localhost:8080
+ *   --clients &lt;n&gt;       number of concurrent clients (default: 16)
+ *   --requests &lt;n&gt;      number of requests per client (default: 50)
+ *   --games &lt;n&gt;         number of distinct games (default: 20)
+ *   --operands &lt;n&gt;      number of operands per game (default: 6)
+ *   --threads &lt;n&gt;       threads per request (default: 1)
+ *   --endpoint &lt;path&gt;   endpoint to call (default: /count)
+ *   --seed &lt;n&gt;          random seed (default: 1)
+ * </pre>
+ *
+ * @author Bernd Michaely
+ */
+public class LoadGenerator
+{
+	private static final int[] OPERANDS =
+	{
+		1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 25, 50, 75, 100
+	};
+
+	private static class Sample
+	{
+		private final int status;
+		private final long nanos;
+
+		private Sample(int status, long nanos)
+		{
+			this.status = status;
+			this.nanos = nanos;
+		}
+	}
+
+	static List<String> createGames(int numGames, int numOperands, long seed)
+	{
+		final Random random = new Random(seed);
+		final List<String> games = new ArrayList<>();
+		for (int i = 0; i < numGames; i++)
+		{
+			final int[] pool = OPERANDS.clone();
+			final StringJoiner operands = new StringJoiner(",");
+			for (int k = 0; k < numOperands; k++)
+			{
+				final int index = k + random.nextInt(pool.length - k);
+				final int operand = pool[index];
+				pool[index] = pool[k];
+				pool[k] = operand;
+				operands.add(Integer.toString(operand));
+			}
+			games.add("target=" + (101 + random.nextInt(899)) + "&operands=" + operands);
+		}
+		return games;
+	}
+
+	private static String getOption(Map<String, String> options, String name, String defaultValue)
+	{
+		return options.getOrDefault(name, defaultValue);
+	}
+
+	/**
+	 * Runs the load generator.
+	 *
+	 * @param args the command line arguments
+	 * @throws Exception on errors
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		final Map<String, String> options = new TreeMap<>();
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+		}
+		final int numClients = Integer.parseInt(getOption(options, "clients", "16"));
+		final int numRequests = Integer.parseInt(getOption(options, "requests", "50"));
+		final List<String> games = createGames(
+			Integer.parseInt(getOption(options, "games", "20")),
+			Integer.parseInt(getOption(options, "operands", "6")),
+			Long.parseLong(getOption(options, "seed", "1")));
+		final String endpoint = getOption(options, "endpoint", "/count");
+		final String threads = getOption(options, "threads", "1");
+		ChiffresServer server = null;
+		final InetSocketAddress address;
+		if (options.containsKey("url"))
+		{
+			final URI uri = URI.create(options.get("url"));
+			address = InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort());
+		}
+		else
+		{
+			final int processors = Runtime.getRuntime().availableProcessors();
+			server = new ChiffresServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				processors, 4 * processors, processors);
+			server.start();
+			address = server.getAddress();
+		}
+		final ExecutorService clients = Executors.newFixedThreadPool(numClients);
+		try
+		{
+			final List<Future<List<Sample>>> futures = new ArrayList<>();
+			final long timeStart = System.nanoTime();
+			for (int c = 0; c < numClients; c++)
+			{
+				final Random random = new Random(c);
+				futures.add(clients.submit(() ->
+				{
+					final List<Sample> samples = new ArrayList<>();
+					for (int r = 0; r < numRequests; r++)
+					{
+						final String query = games.get(random.nextInt(games.size())) + "&threads=" + threads;
+						final long time = System.nanoTime();
+						int status;
+						try
+						{
+							status = ChiffresServerTest.request(address, "GET", endpoint + "?" + query).status;
+						}
+						catch (IOException ex)
+						{
+							status = -1;
+						}
+						samples.add(new Sample(status, System.nanoTime() - time));
+					}
+					return samples;
+				}));
+			}
+			final List<Sample> samples = new ArrayList<>();
+			for (Future<List<Sample>> future : futures)
+			{
+				samples.addAll(future.get());
+			}
+			final double seconds = (System.nanoTime() - timeStart) / 1e9;
+			report(samples, seconds);
+			if (server != null)
+			{
+				System.out.println(String.format(Locale.ROOT,
+					"Server : %d calculations, %d coalesced, %d rejected",
+					server.getNumCalculations(), server.getNumCoalesced(), server.getNumRejected()));
+			}
+		}
+		finally
+		{
+			clients.shutdownNow();
+			if (server != null)
+			{
+				server.stop(0);
+			}
+		}
+	}
+
+	private static void report(List<Sample> samples, double seconds)
+	{
+		final Map<Integer, Integer> statusCounts = new TreeMap<>();
+		final long[] latencies = new long[samples.size()];
+		for (int i = 0; i < latencies.length; i++)
+		{
+			final Sample sample = samples.get(i);
+			statusCounts.merge(sample.status, 1, Integer::sum);
+			latencies[i] = sample.nanos;
+		}
+		Arrays.sort(latencies);
+		System.out.println(String.format(Locale.ROOT,
+			"%d requests in %.3f s : %.1f requests/s", samples.size(), seconds, samples.size() / seconds));
+		if (latencies.length > 0)
+		{
+			System.out.println(String.format(Locale.ROOT,
+				"Latency [ms] : p50 = %.1f, p90 = %.1f, p99 = %.1f, max = %.1f",
+				percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+				latencies[latencies.length - 1] / 1e6));
+		}
+		System.out.println("Status counts : " + statusCounts);
+	}
+
+	private static double percentile(long[] sorted, int percent)
+	{
+		final int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+}